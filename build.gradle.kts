@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "3.2.2"
     id("io.spring.dependency-management") version "1.1.4"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.mardi2020"
@@ -23,9 +24,19 @@ repositories {
     mavenCentral()
 }
 
+// job 단위 end-to-end 벤치마크 (src/benchmark/java)
+val benchmark: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + configurations.runtimeClasspath.get()
+    runtimeClasspath += output + compileClasspath
+}
+
 dependencies {
     // batch
     implementation("org.springframework.boot:spring-boot-starter-batch")
+    // metrics
+    implementation("io.micrometer:micrometer-registry-prometheus")
+    // lookup cache
+    implementation("com.github.ben-manes.caffeine:caffeine")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testImplementation("org.springframework.batch:spring-batch-test")
 
@@ -47,8 +58,92 @@ dependencies {
     // lombok
     compileOnly("org.projectlombok:lombok")
     annotationProcessor("org.projectlombok:lombok")
+    "benchmarkCompileOnly"("org.projectlombok:lombok")
+    "benchmarkAnnotationProcessor"("org.projectlombok:lombok")
+    // jobBenchmark -Pbenchmark.profiles=h2db,hsqldb,derby
+    "benchmarkRuntimeOnly"("org.hsqldb:hsqldb")
+    "benchmarkRuntimeOnly"("org.apache.derby:derby")
+    "benchmarkRuntimeOnly"("org.apache.derby:derbytools")
 }
 
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+// reader / processor / writer 마이크로 벤치마크 (src/jmh/java), 실행: ./gradlew jmh
+jmh {
+    jmhVersion = "1.37"
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+    benchmarkMode = listOf("thrpt")
+    timeUnit = "s"
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+    // 특정 벤치마크만: ./gradlew jmh -Pjmh.includes=CustomerReaderBenchmark
+    providers.gradleProperty("jmh.includes").orNull?.let { includes = listOf(it) }
+}
+
+// H2(in-memory) 에서 job 전체를 실행해 처리량 / chunk 지연 / 할당량 / 최대 힙을 측정한다.
+// ex) ./gradlew jobBenchmark -Pbenchmark.rows=1000000 -Pbenchmark.chunk-sizes=100,500,1000 -Pspring.batch.job.name=JDBC_PAGING_CHUNK_JOB
+// writer 모드 비교: ./gradlew jobBenchmark -Pspring.batch.job.name=JPA_ITEM_WRITER_JOB -Pbenchmark.jpa-item-writers=jpa,stateless,jdbc
+//                 ./gradlew jobBenchmark -Pspring.batch.job.name=JDBC_BATCH_WRITER_CHUNK_JOB -Pbenchmark.jdbc-batch-writers=jdbc,bulk,upsert
+// 파티션 수 x 동시 worker 수별 처리량 (JDBC_PAGING_CHUNK_JOB 과 비교): ./gradlew jobBenchmark -Pbenchmark.jobs=JDBC_PAGING_CHUNK_JOB,JDBC_PAGING_PARTITION_CHUNK_JOB -Pbenchmark.jdbc-readers=paging -Pbenchmark.partition-grids=1x1,2x2,4x4,8x4
+// remote chunking worker 수별 처리량: ./gradlew jobBenchmark -Pspring.batch.job.name=FLAT_FILE_WRITER_CHUNK_JOB -Pbenchmark.remote-workers=0,1,2,4,8
+// 결과: build/reports/job-benchmark/results.json, results.csv
+tasks.register<JavaExec>("jobBenchmark") {
+    group = "verification"
+    description = "Runs the batch jobs against in-memory H2 with synthetic data and reports throughput."
+    classpath = benchmark.runtimeClasspath
+    mainClass = "com.mardi2020.exbatch.benchmark.job.JobBenchmarkRunner"
+    workingDir = projectDir
+    maxHeapSize = findProperty("benchmark.heap")?.toString() ?: "4g"
+    systemProperty("benchmark.output", layout.buildDirectory.dir("reports/job-benchmark").get().asFile.path)
+    systemProperty("benchmark.data", layout.buildDirectory.dir("benchmark").get().asFile.path)
+    project.properties.filterKeys { it.startsWith("benchmark.") || it.startsWith("spring.") || it.startsWith("exbatch.") }
+        .forEach { (key, value) -> systemProperty(key, value.toString()) }
+}
+
+// 짧은 job 의 기동 시간 단축: CDS(Class Data Sharing) archive, -Paot 를 주면 Spring AOT 처리 결과도 같이 사용한다.
+// ex) ./gradlew cdsArchive -Paot -Pstartup.args="--spring.profiles.active=mysql,prod,fast-startup --spring.batch.job.name=JDBC_PAGING_CHUNK_JOB"
+// 실행: java @build/cds/exbatch.args [추가 인자], archive 를 만들 때와 같은 classpath / 인자로 실행해야 한다.
+// AOT 는 profile 과 bean 조건(fast-startup 의 job 선택 등)을 빌드 시점에 확정하므로 startup.args 별로 다시 만든다.
+val startupArgs = providers.gradleProperty("startup.args")
+    .orElse("--spring.profiles.active=h2db,fast-startup")
+    .map { it.trim().split(Regex("\\s+")) }
+val aotEnabled = providers.gradleProperty("aot").isPresent
+var cdsClasspath: FileCollection = files(tasks.jar) + configurations.runtimeClasspath.get()
+
+if (aotEnabled) {
+    apply(plugin = "org.springframework.boot.aot")
+    tasks.named<org.springframework.boot.gradle.tasks.aot.ProcessAot>("processAot") {
+        args(startupArgs.get())
+    }
+    // CDS 는 jar 의 class 만 archive 하므로 AOT 생성 class 도 jar 로 묶는다.
+    val aotJar by tasks.registering(Jar::class) {
+        archiveClassifier = "aot"
+        from(sourceSets["aot"].output)
+    }
+    cdsClasspath = files(aotJar) + cdsClasspath
+}
+
+tasks.register<JavaExec>("cdsArchive") {
+    group = "build"
+    description = "Starts the application context once and dumps the loaded classes into a CDS archive."
+    val archive = layout.buildDirectory.file("cds/exbatch.jsa").get().asFile
+    val argFile = layout.buildDirectory.file("cds/exbatch.args").get().asFile
+    val runtimeJvmArgs = if (aotEnabled) listOf("-Dspring.aot.enabled=true") else listOf()
+    classpath = cdsClasspath
+    mainClass = "com.mardi2020.exbatch.ExBatchApplication"
+    workingDir = projectDir
+    // context refresh 직후 종료해서 job 은 실행하지 않는다.
+    jvmArgs(runtimeJvmArgs + listOf("-XX:ArchiveClassesAtExit=$archive", "-Dspring.context.exit=onRefresh"))
+    args(startupArgs.get())
+    outputs.files(archive, argFile)
+    doFirst { archive.parentFile.mkdirs() }
+    doLast {
+        argFile.writeText((runtimeJvmArgs + listOf("-XX:SharedArchiveFile=\"$archive\"",
+            "-cp", "\"${classpath.asPath}\"", mainClass.get()) + startupArgs.get()).joinToString("\n"))
+    }
+}
@@ -0,0 +1,95 @@
+package com.mardi2020.exbatch.benchmark.job;
+
+import java.util.Arrays;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.lang.NonNull;
+
+/**
+ * chunk 하나(read - process - write - commit)에 걸린 시간을 모으는 listener
+ * {@link #registrar()} 를 BeanPostProcessor 로 등록하면 context 의 모든 TaskletStep 에 붙는다.
+ */
+class ChunkTimingListener implements ChunkListener {
+
+    private final ThreadLocal<Long> started = new ThreadLocal<>();
+
+    private long[] samples = new long[1024];
+
+    private int count;
+
+    private int errors;
+
+    @Override
+    public void beforeChunk(@NonNull ChunkContext context) {
+        started.set(System.nanoTime());
+    }
+
+    @Override
+    public void afterChunk(@NonNull ChunkContext context) {
+        record();
+    }
+
+    @Override
+    public void afterChunkError(@NonNull ChunkContext context) {
+        synchronized (this) {
+            errors++;
+        }
+        record();
+    }
+
+    private void record() {
+        Long start = started.get();
+        if (start == null) {
+            return;
+        }
+        started.remove();
+        long elapsed = System.nanoTime() - start;
+        synchronized (this) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = elapsed;
+        }
+    }
+
+    synchronized void reset() {
+        count = 0;
+        errors = 0;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    synchronized int errors() {
+        return errors;
+    }
+
+    /**
+     * @param percentile 0 ~ 100
+     * @return 해당 분위수의 chunk 시간 (nanos), 기록이 없으면 0
+     */
+    synchronized long percentileNanos(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+
+    BeanPostProcessor registrar() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (bean instanceof TaskletStep step) {
+                    step.registerChunkListener(ChunkTimingListener.this);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package com.mardi2020.exbatch.benchmark.job;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 측정 결과를 results.json / results.csv 로 저장한다.
+ */
+final class JobBenchmarkReport {
+
+    private static final String CSV_HEADER = "profile,job,variant,metadata,rows,chunkSize,fetchSize,status,items,queries,"
+            + "metadataWrites,startupSeconds,seconds,itemsPerSecond,chunks,chunkErrors,p50ChunkMillis,p99ChunkMillis,allocatedBytes,allocationMBPerSecond,peakHeapBytes";
+
+    private JobBenchmarkReport() {
+    }
+
+    static void write(Path directory, List<JobBenchmarkResult> results) throws IOException {
+        Files.createDirectories(directory);
+        try (Writer writer = Files.newBufferedWriter(directory.resolve("results.csv"), StandardCharsets.UTF_8)) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            for (JobBenchmarkResult result : results) {
+                writer.write(csv(result));
+                writer.write('\n');
+            }
+        }
+        try (Writer writer = Files.newBufferedWriter(directory.resolve("results.json"), StandardCharsets.UTF_8)) {
+            writer.write("[\n");
+            for (int i = 0; i < results.size(); i++) {
+                writer.write(json(results.get(i)));
+                writer.write(i < results.size() - 1 ? ",\n" : "\n");
+            }
+            writer.write("]\n");
+        }
+    }
+
+    static String csv(JobBenchmarkResult r) {
+        return String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%d,%d,%s,%d,%d,%d,%.3f,%.3f,%.1f,%d,%d,%.3f,%.3f,%d,%.1f,%d",
+                r.profile(), r.jobName(), r.variant(), r.metadata(), r.rows(), r.chunkSize(), r.fetchSize(), r.status(),
+                r.items(), r.queries(), r.metadataWrites(), r.startupSeconds(), r.seconds(), r.itemsPerSecond(), r.chunks(), r.chunkErrors(),
+                r.p50ChunkMillis(), r.p99ChunkMillis(), r.allocatedBytes(), r.allocationMegabytesPerSecond(),
+                r.peakHeapBytes());
+    }
+
+    private static String json(JobBenchmarkResult r) {
+        return String.format(Locale.ROOT, """
+                  {"profile": "%s", "job": "%s", "variant": "%s", "metadata": "%s", "rows": %d, "chunkSize": %d, \
+                "fetchSize": %d, \
+                "status": "%s", "items": %d, "queries": %d, "metadataWrites": %d, "startupSeconds": %.3f, "seconds": %.3f, "itemsPerSecond": %.1f, \
+                "chunks": %d, "chunkErrors": %d, "p50ChunkMillis": %.3f, "p99ChunkMillis": %.3f, \
+                "allocatedBytes": %d, "allocationMBPerSecond": %.1f, "peakHeapBytes": %d}""",
+                r.profile(), r.jobName(), r.variant(), r.metadata(), r.rows(), r.chunkSize(), r.fetchSize(), r.status(),
+                r.items(), r.queries(), r.metadataWrites(), r.startupSeconds(), r.seconds(), r.itemsPerSecond(), r.chunks(), r.chunkErrors(),
+                r.p50ChunkMillis(), r.p99ChunkMillis(), r.allocatedBytes(), r.allocationMegabytesPerSecond(),
+                r.peakHeapBytes());
+    }
+}
@@ -0,0 +1,45 @@
+package com.mardi2020.exbatch.benchmark.job;
+
+/**
+ * job 한 번 실행의 측정 결과
+ *
+ * @param profile DB 프로필
+ * @param variant job 별로 바꿔가며 측정한 설정 값 (JDBC_PAGING_CHUNK_JOB 의 reader, JPA_ITEM_WRITER_JOB 의 writer 등),
+ *                없으면 "-"
+ * @param metadata 배치 메타데이터 설정 (default | lean | memory)
+ * @param fetchSize DB 를 읽지 않는 job 은 0
+ * @param queries 실행한 customer 테이블 SELECT 수
+ * @param metadataWrites 업무 DataSource 로 실행한 BATCH_* insert / update 수
+ * @param startupSeconds application context 를 띄우는 데 걸린 시간 (job 실행 전까지)
+ * @param allocatedBytes job 실행 중 살아있던 스레드들이 할당한 byte 합
+ * @param peakHeapBytes heap memory pool 별 최대 사용량의 합
+ */
+record JobBenchmarkResult(
+        String profile,
+        String jobName,
+        String variant,
+        String metadata,
+        long rows,
+        int chunkSize,
+        int fetchSize,
+        String status,
+        long items,
+        long queries,
+        long metadataWrites,
+        double startupSeconds,
+        double seconds,
+        int chunks,
+        int chunkErrors,
+        double p50ChunkMillis,
+        double p99ChunkMillis,
+        long allocatedBytes,
+        long peakHeapBytes) {
+
+    double itemsPerSecond() {
+        return seconds == 0 ? 0 : items / seconds;
+    }
+
+    double allocationMegabytesPerSecond() {
+        return seconds == 0 ? 0 : allocatedBytes / 1024.0 / 1024.0 / seconds;
+    }
+}
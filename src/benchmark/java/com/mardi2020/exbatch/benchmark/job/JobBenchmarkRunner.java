@@ -0,0 +1,295 @@
+package com.mardi2020.exbatch.benchmark.job;
+
+import com.mardi2020.exbatch.ExBatchApplication;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 합성 데이터로 job 전체를 실행해 처리량을 측정하는 runner (./gradlew jobBenchmark)
+ * 설정 조합(DB 프로필 x 메타데이터 설정 x job x reader x chunk size x fetch size) 마다 context 를 새로 띄우고,
+ * 입력 데이터를 준비한 뒤 job 을 한 번 실행해서 측정한다. 데이터 준비 시간은 측정에서 제외한다.
+ * customer 테이블 SELECT 가 몇 번 실행됐는지도 센다. (paging 은 page 마다, cursor 는 한 번)
+ * system property
+ * - spring.batch.job.name: 지정하면 해당 job 만 실행 (없으면 benchmark.jobs)
+ * - benchmark.jobs: 실행할 job 목록 (기본 아래 6개)
+ * - benchmark.profiles: DB 프로필 목록 (기본 h2db), hsqldb / derby 는 in-memory DB 로 띄운다. mysql 은 로컬 서버가 필요하다.
+ * - benchmark.jdbc-readers: JDBC_PAGING_CHUNK_JOB 의 reader 목록 (기본 paging,cursor)
+ * - benchmark.partition-grids: JDBC_PAGING_PARTITION_CHUNK_JOB 의 partitionCount x gridSize 목록 (기본 1x1,2x2,4x4,8x4)
+ *   같은 데이터를 읽는 JDBC_PAGING_CHUNK_JOB(paging) 과 처리량을 비교한다. 1x1 은 파티션 오버헤드만 있는 기준값이다.
+ * - benchmark.jdbc-batch-writers: JDBC_BATCH_WRITER_CHUNK_JOB 의 writer 모드 목록 (기본 jdbc,bulk,upsert)
+ * - benchmark.jpa-item-writers: JPA_ITEM_WRITER_JOB 의 writer 모드 목록 (기본 jpa,stateless,jdbc)
+ * - benchmark.remote-workers: FLAT_FILE_WRITER_CHUNK_JOB 을 remote chunking 으로 실행할 loopback worker 수 목록
+ *   (기본 0,1,2,4), 0 은 manager 에서 직접 처리하는 기준값이다.
+ * - benchmark.metadata: 배치 메타데이터 설정 목록 (기본 default), lean = lean-metadata 프로필, memory = lean + in-memory 저장소
+ *   chunk p50 / p99 의 commit 시간과 업무 DB 로 나간 BATCH_* 쓰기 수(metadataWrites) 로 비교한다.
+ * - benchmark.rows: 입력 row 수 (기본 1,000,000)
+ * - benchmark.chunk-sizes / benchmark.fetch-sizes: 바꿔가며 측정할 값 목록
+ * - 그 외 exbatch.* 값은 그대로 application 설정으로 전달된다. (ex. exbatch.jpa-item.writer=stateless)
+ *   위의 목록으로 바꿔가며 측정하는 값은 목록이 우선한다.
+ *   exbatch.fast-startup=true 로 실행할 job 의 설정만 띄웠을 때의 startupSeconds 를 비교할 수 있다.
+ */
+@Slf4j
+public final class JobBenchmarkRunner {
+
+    private static final List<String> DEFAULT_JOBS = List.of(
+            "FLAT_FILE_WRITER_CHUNK_JOB",
+            "JDBC_BATCH_WRITER_CHUNK_JOB",
+            "JDBC_PAGING_CHUNK_JOB",
+            "JDBC_PAGING_PARTITION_CHUNK_JOB",
+            "JPA_PAGING_CHUNK_JOB",
+            "JPA_ITEM_WRITER_JOB");
+
+    /**
+     * customer 테이블을 읽는 job, fetch size 를 바꿔가며 측정한다.
+     */
+    private static final Set<String> DB_READING_JOBS =
+            Set.of("JDBC_PAGING_CHUNK_JOB", "JDBC_PAGING_PARTITION_CHUNK_JOB", "JPA_PAGING_CHUNK_JOB");
+
+    /**
+     * job 별로 바꿔가며 측정하는 설정, 결과의 variant 에 값이 기록된다.
+     */
+    private static final Map<String, Variant> VARIANTS = Map.of(
+            "FLAT_FILE_WRITER_CHUNK_JOB",
+            new Variant("exbatch.remote.local-workers", "benchmark.remote-workers", List.of("0", "1", "2", "4")),
+            "JDBC_BATCH_WRITER_CHUNK_JOB",
+            new Variant("exbatch.jdbc-batch.writer", "benchmark.jdbc-batch-writers", List.of("jdbc", "bulk", "upsert")),
+            "JDBC_PAGING_CHUNK_JOB",
+            new Variant("exbatch.jdbc-paging.reader", "benchmark.jdbc-readers", List.of("paging", "cursor")),
+            "JDBC_PAGING_PARTITION_CHUNK_JOB",
+            new Variant(null, "benchmark.partition-grids", List.of("1x1", "2x2", "4x4", "8x4"),
+                    List.of("partitionCount", "gridSize")),
+            "JPA_ITEM_WRITER_JOB",
+            new Variant("exbatch.jpa-item.writer", "benchmark.jpa-item-writers", List.of("jpa", "stateless", "jdbc")));
+
+    /**
+     * application-{profile}.yml 이 주석 처리된 프로필의 in-memory 접속 정보 (드라이버는 benchmark classpath 에만 있다)
+     */
+    private static final Map<String, List<String>> PROFILE_DATASOURCES = Map.of(
+            "hsqldb", List.of(
+                    "--spring.datasource.url=jdbc:hsqldb:mem:benchmark",
+                    "--spring.datasource.driver-class-name=org.hsqldb.jdbc.JDBCDriver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password="),
+            "derby", List.of(
+                    "--spring.datasource.url=jdbc:derby:memory:benchmark;create=true",
+                    "--spring.datasource.driver-class-name=org.apache.derby.jdbc.EmbeddedDriver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password="));
+
+    private JobBenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String selectedJob = System.getProperty("spring.batch.job.name");
+        List<String> jobs = selectedJob != null ? List.of(selectedJob) : list("benchmark.jobs", DEFAULT_JOBS);
+        long rows = Long.getLong("benchmark.rows", 1_000_000L);
+        List<Integer> chunkSizes = list("benchmark.chunk-sizes", List.of("10", "100", "1000")).stream()
+                .map(Integer::valueOf).toList();
+        List<Integer> fetchSizes = list("benchmark.fetch-sizes", List.of("100", "1000")).stream()
+                .map(Integer::valueOf).toList();
+        List<String> profiles = list("benchmark.profiles", List.of("h2db"));
+        List<String> metadataModes = list("benchmark.metadata", List.of("default"));
+        Path dataDirectory = Path.of(System.getProperty("benchmark.data", "build/benchmark"));
+        Path outputDirectory = Path.of(System.getProperty("benchmark.output", "build/reports/job-benchmark"));
+
+        Path csv = SyntheticCustomerData.csv(dataDirectory, rows).toAbsolutePath();
+
+        List<JobBenchmarkResult> results = new ArrayList<>();
+        for (String profile : profiles) {
+            for (String metadata : metadataModes) {
+                for (String job : jobs) {
+                    List<Integer> jobFetchSizes = DB_READING_JOBS.contains(job) ? fetchSizes : List.of(0);
+                    Variant variant = VARIANTS.get(job);
+                    List<String> values = variant == null ? List.of("-") : list(variant.listProperty(), variant.defaults());
+                    for (String value : values) {
+                        for (int chunkSize : chunkSizes) {
+                            for (int fetchSize : jobFetchSizes) {
+                                JobBenchmarkResult result =
+                                        run(profile, metadata, job, variant, value, rows, chunkSize, fetchSize, csv);
+                                log.info("{}", JobBenchmarkReport.csv(result));
+                                results.add(result);
+                                JobBenchmarkReport.write(outputDirectory, results);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        log.info("job benchmark report: {}", outputDirectory.toAbsolutePath());
+    }
+
+    private static JobBenchmarkResult run(String profile, String metadata, String jobName, Variant variant,
+                                          String value, long rows, int chunkSize, int fetchSize, Path csv)
+            throws Exception {
+        ChunkTimingListener chunkTiming = new ChunkTimingListener();
+        QueryCounter queryCounter = new QueryCounter();
+
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.profiles.active=" + profile + ("default".equals(metadata) ? "" : ",lean-metadata"),
+                "--spring.batch.job.enabled=false",
+                "--spring.batch.job.name=" + jobName,
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn",
+                "--exbatch.chunk-size=" + chunkSize,
+                "--exbatch.input.customer-csv=file:" + csv));
+        if (fetchSize > 0) {
+            arguments.add("--exbatch.fetch-size=" + fetchSize);
+            arguments.add("--exbatch.jdbc-cursor.fetch-size=" + fetchSize);
+        }
+        if (variant != null && variant.property() != null) {
+            arguments.add("--" + variant.property() + "=" + value);
+        }
+        if ("memory".equals(metadata)) {
+            arguments.add("--exbatch.batch-metadata.store=memory");
+        }
+        arguments.addAll(PROFILE_DATASOURCES.getOrDefault(profile, List.of()));
+
+        long booting = System.nanoTime();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExBatchApplication.class)
+                .initializers(ctx -> {
+                    ctx.getBeanFactory().addBeanPostProcessor(chunkTiming.registrar());
+                    ctx.getBeanFactory().addBeanPostProcessor(queryCounter.registrar());
+                })
+                .run(arguments.toArray(String[]::new))) {
+            double startupSeconds = (System.nanoTime() - booting) / 1e9;
+
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+            SyntheticCustomerData.createTable(jdbcTemplate, "customer2");
+            if (DB_READING_JOBS.contains(jobName)) {
+                SyntheticCustomerData.fillCustomerTable(jdbcTemplate, rows);
+            } else {
+                SyntheticCustomerData.createTable(jdbcTemplate, "customer");
+            }
+            if ("upsert".equals(value)) {
+                // MySQL 은 index 가 있어야 중복을 걸러내고, 그 외 DB 는 index 가 없으면 존재 확인이 full scan 이 된다.
+                SyntheticCustomerData.createNaturalKeyIndex(jdbcTemplate, "customer2");
+                SyntheticCustomerData.createNaturalKeyIndex(jdbcTemplate, "customer");
+            }
+
+            Job job = context.getBeansOfType(Job.class).values().stream()
+                    .filter(candidate -> candidate.getName().equals(jobName))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("job 을 찾을 수 없습니다: " + jobName));
+            JobLauncher jobLauncher = context.getBean(JobLauncher.class);
+
+            System.gc();
+            chunkTiming.reset();
+            queryCounter.reset();
+            List<MemoryPoolMXBean> heapPools = heapPools();
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            Map<Long, Long> allocatedBefore = allocatedBytesByThread();
+            long started = System.nanoTime();
+
+            JobParametersBuilder parameters = new JobParametersBuilder()
+                    .addLong("benchmark.run", System.currentTimeMillis());
+            if (variant != null) {
+                variant.addJobParameters(parameters, value);
+            }
+            JobExecution execution = jobLauncher.run(job, parameters.toJobParameters());
+
+            double seconds = (System.nanoTime() - started) / 1e9;
+            long allocated = allocatedSince(allocatedBefore);
+            long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+            // 파티션 worker step(이름이 "step:partitionN") 의 건수는 manager step 에 합산되어 있으므로 뺀다.
+            long items = execution.getStepExecutions().stream()
+                    .filter(stepExecution -> !stepExecution.getStepName().contains(":"))
+                    .mapToLong(StepExecution::getReadCount)
+                    .sum();
+
+            return new JobBenchmarkResult(profile, jobName, value, metadata, rows, chunkSize, fetchSize,
+                    execution.getStatus().name(), items, queryCounter.count(), queryCounter.metadataWrites(),
+                    startupSeconds, seconds,
+                    chunkTiming.count(), chunkTiming.errors(),
+                    chunkTiming.percentileNanos(50) / 1e6, chunkTiming.percentileNanos(99) / 1e6,
+                    allocated, peakHeap);
+        }
+    }
+
+    /**
+     * @param property application 설정 이름, null 이면 값을 job parameter 로만 넘긴다.
+     * @param listProperty 측정할 값 목록을 받는 system property
+     * @param jobParameters 값을 'x' 로 나눠 순서대로 넘길 job parameter 이름 (ex. 4x2 -> partitionCount=4, gridSize=2)
+     */
+    private record Variant(String property, String listProperty, List<String> defaults, List<String> jobParameters) {
+
+        Variant(String property, String listProperty, List<String> defaults) {
+            this(property, listProperty, defaults, List.of());
+        }
+
+        void addJobParameters(JobParametersBuilder builder, String value) {
+            if (jobParameters.isEmpty()) {
+                return;
+            }
+            String[] values = value.split("x");
+            if (values.length != jobParameters.size()) {
+                throw new IllegalArgumentException(listProperty + " 의 값은 " + String.join("x", jobParameters)
+                        + " 형식이어야 합니다: " + value);
+            }
+            for (int i = 0; i < values.length; i++) {
+                builder.addLong(jobParameters.get(i), Long.valueOf(values[i].trim()));
+            }
+        }
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        return (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    private static Map<Long, Long> allocatedBytesByThread() {
+        long[] ids = threadMXBean().getAllThreadIds();
+        long[] allocated = threadMXBean().getThreadAllocatedBytes(ids);
+        Map<Long, Long> result = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            result.put(ids[i], allocated[i]);
+        }
+        return result;
+    }
+
+    /**
+     * 측정 중 끝난 스레드의 할당량은 포함되지 않는다. (job 은 호출 스레드에서 동기로 실행된다)
+     */
+    private static long allocatedSince(Map<Long, Long> before) {
+        long total = 0;
+        for (Map.Entry<Long, Long> after : allocatedBytesByThread().entrySet()) {
+            if (after.getValue() < 0) {
+                continue;
+            }
+            total += after.getValue() - Math.max(0L, before.getOrDefault(after.getKey(), 0L));
+        }
+        return total;
+    }
+
+    private static List<String> list(String property, List<String> defaults) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            return defaults;
+        }
+        return Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+}
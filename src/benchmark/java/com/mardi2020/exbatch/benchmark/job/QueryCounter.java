@@ -0,0 +1,82 @@
+package com.mardi2020.exbatch.benchmark.job;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.lang.NonNull;
+
+/**
+ * customer 테이블을 읽는 SELECT 와 배치 메타데이터(BATCH_*) insert / update 가 몇 번 준비(prepareStatement)되는지 센다.
+ * {@link #registrar()} 를 BeanPostProcessor 로 등록하면 DataSource 를 class 기반 proxy 로 감싸므로
+ * HikariDataSource 타입은 그대로 유지된다.
+ */
+class QueryCounter {
+
+    private static final Pattern CUSTOMER_SELECT =
+            Pattern.compile("^\\s*select\\b.*\\bfrom\\s+customer\\b.*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern METADATA_WRITE =
+            Pattern.compile("^\\s*(insert\\s+into|update)\\s+batch_.*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong metadataWrites = new AtomicLong();
+
+    BeanPostProcessor registrar() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (!(bean instanceof DataSource)) {
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.setProxyTargetClass(true);
+                proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                    Object result = invocation.proceed();
+                    return result instanceof Connection connection ? wrap(connection) : result;
+                });
+                return proxyFactory.getProxy();
+            }
+        };
+    }
+
+    void reset() {
+        count.set(0);
+        metadataWrites.set(0);
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    /**
+     * 업무 DataSource 로 실행된 메타데이터 쓰기 수 (in-memory 메타데이터 저장소는 포함되지 않는다)
+     */
+    long metadataWrites() {
+        return metadataWrites.get();
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String sql) {
+                        if (CUSTOMER_SELECT.matcher(sql).matches()) {
+                            count.incrementAndGet();
+                        } else if (METADATA_WRITE.matcher(sql).matches()) {
+                            metadataWrites.incrementAndGet();
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,142 @@
+package com.mardi2020.exbatch.benchmark.job;
+
+import com.mardi2020.exbatch.chunk.writer.CustomerUpsertItemWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+/**
+ * 벤치마크용 customer 데이터 생성기
+ * 시드가 고정되어 있어 같은 row 수면 항상 같은 데이터가 만들어진다.
+ */
+@Slf4j
+final class SyntheticCustomerData {
+
+    private static final String[] NAMES = {"Alice", "Bob", "Charlie", "Diana", "Evan", "Fiona", "김철수", "이영희"};
+
+    private static final String[] GENDERS = {"Male", "Female"};
+
+    private static final String CUSTOMER_DDL = """
+            CREATE TABLE %s (
+                id     BIGINT %s PRIMARY KEY,
+                name   VARCHAR(100),
+                age    INT,
+                gender VARCHAR(10)
+            )""";
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    private SyntheticCustomerData() {
+    }
+
+    /**
+     * name,age,gender 형식의 csv 를 만든다. 같은 경로에 파일이 있으면 다시 만들지 않는다.
+     */
+    static Path csv(Path directory, long rows) throws IOException {
+        Path file = directory.resolve("customer-" + rows + ".csv");
+        if (Files.exists(file)) {
+            return file;
+        }
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "customer", ".csv.tmp");
+
+        long started = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(64);
+            for (long i = 0; i < rows; i++) {
+                line.setLength(0);
+                line.append(NAMES[random.nextInt(NAMES.length)]).append(i)
+                        .append(',').append(18 + random.nextInt(60))
+                        .append(',').append(GENDERS[random.nextInt(GENDERS.length)])
+                        .append('\n');
+                writer.append(line);
+            }
+        }
+        Files.move(temp, file);
+        log.info("generated {} ({} rows, {} ms)", file, rows, (System.nanoTime() - started) / 1_000_000);
+        return file;
+    }
+
+    /**
+     * customer 테이블을 rows 개로 채운다. H2 는 SYSTEM_RANGE 로 DB 안에서 만들고, 그 외 DB 는 batch insert 한다.
+     */
+    static void fillCustomerTable(JdbcTemplate jdbcTemplate, long rows) {
+        long started = System.nanoTime();
+        createTable(jdbcTemplate, "customer");
+        jdbcTemplate.update("TRUNCATE TABLE customer");
+        if (databaseType(jdbcTemplate) == DatabaseType.H2) {
+            jdbcTemplate.update("""
+                    INSERT INTO customer (name, age, gender)
+                    SELECT CASE WHEN MOD(X, 2) = 0 THEN 'Alice' ELSE 'Bob' END || X,
+                           18 + MOD(X * 7, 60),
+                           CASE WHEN MOD(X, 3) = 0 THEN 'Female' ELSE 'Male' END
+                    FROM SYSTEM_RANGE(1, ?)""", rows);
+        } else {
+            List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+            for (long x = 1; x <= rows; x++) {
+                batch.add(new Object[]{(x % 2 == 0 ? "Alice" : "Bob") + x, (int) (18 + (x * 7) % 60),
+                        x % 3 == 0 ? "Female" : "Male"});
+                if (batch.size() == INSERT_BATCH_SIZE || x == rows) {
+                    jdbcTemplate.batchUpdate("INSERT INTO customer (name, age, gender) VALUES (?, ?, ?)", batch);
+                    batch.clear();
+                }
+            }
+        }
+        log.info("filled customer table ({} rows, {} ms)", rows, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * 테이블이 없으면 만든다. (hibernate ddl-auto 로 이미 만들어진 customer 는 그대로 둔다)
+     */
+    static void createTable(JdbcTemplate jdbcTemplate, String table) {
+        Boolean exists = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String name : new String[]{table, table.toUpperCase(Locale.ROOT)}) {
+                try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, name, null)) {
+                    if (tables.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        });
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+        String identity = databaseType(jdbcTemplate) == DatabaseType.MYSQL
+                ? "AUTO_INCREMENT" : "GENERATED BY DEFAULT AS IDENTITY";
+        jdbcTemplate.execute(CUSTOMER_DDL.formatted(table, identity));
+    }
+
+    /**
+     * upsert writer 가 쓰는 natural key (name, age, gender) unique index 를 없으면 만든다.
+     * 모든 DB 에서 같은 DDL 을 쓴다. (sql/customer_natural_key_portable.sql)
+     */
+    static void createNaturalKeyIndex(JdbcTemplate jdbcTemplate, String table) {
+        if (!CustomerUpsertItemWriter.hasNaturalKeyIndex(jdbcTemplate, table)) {
+            jdbcTemplate.execute("CREATE UNIQUE INDEX uk_" + table + "_natural ON " + table + " (name, age, gender)");
+        }
+    }
+
+    private static DatabaseType databaseType(JdbcTemplate jdbcTemplate) {
+        try {
+            return DatabaseType.fromMetaData(jdbcTemplate.getDataSource());
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("DB 종류를 확인할 수 없습니다.", e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.mardi2020.exbatch.benchmark;
+
+import com.mardi2020.exbatch.chunk.AggregateCustomerProcessor;
+import com.mardi2020.exbatch.chunk.aggregate.Aggregation;
+import com.mardi2020.exbatch.chunk.aggregate.GroupAggregator;
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.util.EnumSet;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.item.Chunk;
+
+/**
+ * AggregateCustomerProcessor.process 비용
+ * 같은 aggregator 를 여러 스레드가 공유하는 멀티스레드 step 도 보기 위해 스레드 수를 바꾼 벤치마크를 같이 둔다.
+ */
+@State(Scope.Benchmark)
+public class AggregateCustomerProcessorBenchmark {
+
+    @Param({"10000", "100000"})
+    private int recordCount;
+
+    @Param({"10", "100", "1000"})
+    private int chunkSize;
+
+    private List<Customer> customers;
+
+    private GroupAggregator<Customer> aggregator;
+
+    private AggregateCustomerProcessor processor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        customers = CustomerFixtures.customers(recordCount);
+        aggregator = new GroupAggregator<>(
+                "gender", Customer::getGender, Customer::getAge, EnumSet.allOf(Aggregation.class));
+        processor = new AggregateCustomerProcessor(aggregator);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetAggregator() {
+        aggregator.reset();
+    }
+
+    @Benchmark
+    public void process(Blackhole blackhole) throws Exception {
+        processAll(blackhole);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void processConcurrently(Blackhole blackhole) throws Exception {
+        processAll(blackhole);
+    }
+
+    private void processAll(Blackhole blackhole) throws Exception {
+        Chunk<Customer> outputs = new Chunk<>();
+        for (Customer customer : customers) {
+            outputs.add(processor.process(customer));
+            if (outputs.size() == chunkSize) {
+                blackhole.consume(outputs);
+                outputs = new Chunk<>();
+            }
+        }
+        blackhole.consume(outputs);
+    }
+}
@@ -0,0 +1,58 @@
+package com.mardi2020.exbatch.benchmark;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 벤치마크 입력 데이터 생성
+ * 시드가 고정되어 있어 실행마다 같은 데이터가 만들어진다.
+ */
+final class CustomerFixtures {
+
+    private static final String[] NAMES = {"Alice", "Bob", "Charlie", "Diana", "Evan", "Fiona", "김철수", "이영희"};
+
+    private static final String[] GENDERS = {"Male", "Female"};
+
+    private CustomerFixtures() {
+    }
+
+    static List<Customer> customers(int count) {
+        Random random = new Random(42);
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Customer customer = new Customer();
+            customer.setId((long) i + 1);
+            customer.setName(NAMES[random.nextInt(NAMES.length)] + i);
+            customer.setAge(18 + random.nextInt(60));
+            customer.setGender(GENDERS[random.nextInt(GENDERS.length)]);
+            customers.add(customer);
+        }
+        return customers;
+    }
+
+    /**
+     * customer.csv 와 같은 name,age,gender 형식의 임시 파일을 만든다.
+     */
+    static Path writeCsv(List<Customer> customers) throws IOException {
+        Path file = Files.createTempFile("customer-bench", ".csv");
+        file.toFile().deleteOnExit();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Customer customer : customers) {
+                writer.write(customer.getName());
+                writer.write(',');
+                writer.write(Integer.toString(customer.getAge()));
+                writer.write(',');
+                writer.write(customer.getGender());
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,167 @@
+package com.mardi2020.exbatch.benchmark;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import com.mardi2020.exbatch.chunk.mapping.MappedFieldExtractor;
+import com.mardi2020.exbatch.chunk.mapping.MappedFieldSetMapper;
+import com.mardi2020.exbatch.chunk.mapping.MappedRowMapper;
+import com.mardi2020.exbatch.chunk.mapping.MappedSqlParameterSourceProvider;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.item.file.mapping.BeanWrapperFieldSetMapper;
+import org.springframework.batch.item.file.mapping.FieldSetMapper;
+import org.springframework.batch.item.file.transform.BeanWrapperFieldExtractor;
+import org.springframework.batch.item.file.transform.DefaultFieldSet;
+import org.springframework.batch.item.file.transform.FieldExtractor;
+import org.springframework.batch.item.file.transform.FieldSet;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+/**
+ * Customer 바인딩 비용: Spring 기본 구현(BeanWrapper / BeanPropertyRowMapper / BeanPropertySqlParameterSource)
+ * 과 chunk.mapping 의 미리 만든 accessor 구현을 같은 입력으로 비교한다. (파일 / DB I/O 제외)
+ * - fieldSet: FieldSet -> Customer (FlatFileItemReader 의 fieldSetMapper)
+ * - rowMapper: ResultSet -> Customer (H2 SimpleResultSet 사용)
+ * - sqlParameterSource: Customer -> :name, :age, :gender (JdbcBatchItemWriter)
+ * - fieldExtractor: Customer -> Object[] (DelimitedLineAggregator)
+ */
+@State(Scope.Benchmark)
+public class CustomerMappingBenchmark {
+
+    private static final String[] NAMES = {"name", "age", "gender"};
+
+    @Param({"10000", "100000"})
+    private int recordCount;
+
+    private List<Customer> customers;
+
+    private FieldSet[] fieldSets;
+
+    private SimpleResultSet resultSet;
+
+    private FieldSetMapper<Customer> beanWrapperFieldSetMapper;
+
+    private final FieldSetMapper<Customer> mappedFieldSetMapper = new MappedFieldSetMapper<>(Customer.class, NAMES);
+
+    private final RowMapper<Customer> beanPropertyRowMapper = new BeanPropertyRowMapper<>(Customer.class);
+
+    private final RowMapper<Customer> mappedRowMapper = new MappedRowMapper<>(Customer.class, "id", "name", "age", "gender");
+
+    private final MappedSqlParameterSourceProvider<Customer> mappedParameterSourceProvider =
+            new MappedSqlParameterSourceProvider<>(Customer.class);
+
+    private FieldExtractor<Customer> beanWrapperFieldExtractor;
+
+    private final FieldExtractor<Customer> mappedFieldExtractor = new MappedFieldExtractor<>(Customer.class, NAMES);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        customers = CustomerFixtures.customers(recordCount);
+
+        fieldSets = new FieldSet[recordCount];
+        resultSet = new SimpleResultSet();
+        resultSet.setAutoClose(false);
+        resultSet.addColumn("ID", Types.BIGINT, 19, 0);
+        resultSet.addColumn("NAME", Types.VARCHAR, 100, 0);
+        resultSet.addColumn("AGE", Types.INTEGER, 10, 0);
+        resultSet.addColumn("GENDER", Types.VARCHAR, 10, 0);
+        for (int i = 0; i < recordCount; i++) {
+            Customer customer = customers.get(i);
+            fieldSets[i] = new DefaultFieldSet(new String[]{customer.getName(),
+                    Integer.toString(customer.getAge()), customer.getGender()}, NAMES);
+            resultSet.addRow(customer.getId(), customer.getName(), customer.getAge(), customer.getGender());
+        }
+
+        BeanWrapperFieldSetMapper<Customer> fieldSetMapper = new BeanWrapperFieldSetMapper<>();
+        fieldSetMapper.setTargetType(Customer.class);
+        fieldSetMapper.afterPropertiesSet();
+        beanWrapperFieldSetMapper = fieldSetMapper;
+
+        BeanWrapperFieldExtractor<Customer> fieldExtractor = new BeanWrapperFieldExtractor<>();
+        fieldExtractor.setNames(NAMES);
+        fieldExtractor.afterPropertiesSet();
+        beanWrapperFieldExtractor = fieldExtractor;
+    }
+
+    @Benchmark
+    public void fieldSetBeanWrapper(Blackhole blackhole) throws Exception {
+        mapFieldSets(beanWrapperFieldSetMapper, blackhole);
+    }
+
+    @Benchmark
+    public void fieldSetMapped(Blackhole blackhole) throws Exception {
+        mapFieldSets(mappedFieldSetMapper, blackhole);
+    }
+
+    @Benchmark
+    public void rowMapperBeanProperty(Blackhole blackhole) throws SQLException {
+        mapRows(beanPropertyRowMapper, blackhole);
+    }
+
+    @Benchmark
+    public void rowMapperMapped(Blackhole blackhole) throws SQLException {
+        mapRows(mappedRowMapper, blackhole);
+    }
+
+    @Benchmark
+    public void sqlParameterSourceBeanProperty(Blackhole blackhole) {
+        for (Customer customer : customers) {
+            bind(new BeanPropertySqlParameterSource(customer), blackhole);
+        }
+    }
+
+    @Benchmark
+    public void sqlParameterSourceMapped(Blackhole blackhole) {
+        for (Customer customer : customers) {
+            bind(mappedParameterSourceProvider.createSqlParameterSource(customer), blackhole);
+        }
+    }
+
+    @Benchmark
+    public void fieldExtractorBeanWrapper(Blackhole blackhole) {
+        for (Customer customer : customers) {
+            blackhole.consume(beanWrapperFieldExtractor.extract(customer));
+        }
+    }
+
+    @Benchmark
+    public void fieldExtractorMapped(Blackhole blackhole) {
+        for (Customer customer : customers) {
+            blackhole.consume(mappedFieldExtractor.extract(customer));
+        }
+    }
+
+    private void mapFieldSets(FieldSetMapper<Customer> mapper, Blackhole blackhole) throws Exception {
+        for (FieldSet fieldSet : fieldSets) {
+            blackhole.consume(mapper.mapFieldSet(fieldSet));
+        }
+    }
+
+    /**
+     * JdbcTemplate 의 RowMapperResultSetExtractor 처럼 next() 마다 mapRow 를 부른다.
+     */
+    private void mapRows(RowMapper<Customer> mapper, Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        int rowNum = 0;
+        while (resultSet.next()) {
+            blackhole.consume(mapper.mapRow(resultSet, rowNum++));
+        }
+    }
+
+    private static void bind(SqlParameterSource source, Blackhole blackhole) {
+        for (String name : NAMES) {
+            blackhole.consume(source.getSqlType(name));
+            blackhole.consume(source.getValue(name));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.mardi2020.exbatch.benchmark;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import com.mardi2020.exbatch.chunk.reader.CustomerCsvItemReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.core.io.FileSystemResource;
+
+/**
+ * customer.csv 형식 파일 전체를 chunkSize 단위로 읽는 비용
+ * - flatFileItemReader: 기존 FlatFileItemReader (tokenizer + BeanWrapperFieldSetMapper)
+ * - customerCsvItemReader: 바이트 파싱 reader (FlatFileItemJobConfig.flatFileItemReader 현재 구현)
+ */
+@State(Scope.Benchmark)
+public class CustomerReaderBenchmark {
+
+    @Param({"10000", "100000"})
+    private int recordCount;
+
+    @Param({"10", "100", "1000"})
+    private int chunkSize;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = CustomerFixtures.writeCsv(CustomerFixtures.customers(recordCount));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int flatFileItemReader(Blackhole blackhole) throws Exception {
+        FlatFileItemReader<Customer> reader = new FlatFileItemReaderBuilder<Customer>()
+                .name("flatFileItemReader")
+                .resource(new FileSystemResource(file))
+                .encoding("UTF-8")
+                .delimited().delimiter(",")
+                .names("name", "age", "gender")
+                .targetType(Customer.class)
+                .build();
+        return readAll(reader, blackhole);
+    }
+
+    @Benchmark
+    public int customerCsvItemReader(Blackhole blackhole) throws Exception {
+        CustomerCsvItemReader reader = new CustomerCsvItemReader(
+                new FileSystemResource(file), StandardCharsets.UTF_8, ',');
+        reader.setName("customerCsvItemReader");
+        return readAll(reader, blackhole);
+    }
+
+    /**
+     * chunk 처리처럼 chunkSize 개씩 모았다가 넘긴다.
+     */
+    private int readAll(ItemStreamReader<Customer> reader, Blackhole blackhole) throws Exception {
+        reader.open(new ExecutionContext());
+        int count = 0;
+        try {
+            List<Customer> chunk = new ArrayList<>(chunkSize);
+            Customer customer;
+            while ((customer = reader.read()) != null) {
+                chunk.add(customer);
+                if (chunk.size() == chunkSize) {
+                    blackhole.consume(chunk);
+                    count += chunk.size();
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            blackhole.consume(chunk);
+            count += chunk.size();
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+}
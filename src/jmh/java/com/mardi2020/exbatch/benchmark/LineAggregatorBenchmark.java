@@ -0,0 +1,50 @@
+package com.mardi2020.exbatch.benchmark;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import com.mardi2020.exbatch.config.FlatFileItemJobConfig;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.item.file.transform.LineAggregator;
+
+/**
+ * FlatFileItemJobConfig.flatFileItemWriter 의 lineAggregator 로 chunk 를 문자열로 만드는 비용
+ * FlatFileItemWriter.doWrite 처럼 chunk 의 line 들을 하나의 StringBuilder 에 이어 붙인다. (파일 쓰기 제외)
+ */
+@State(Scope.Benchmark)
+public class LineAggregatorBenchmark {
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    @Param({"10000", "100000"})
+    private int recordCount;
+
+    @Param({"10", "100", "1000"})
+    private int chunkSize;
+
+    private List<Customer> customers;
+
+    private final LineAggregator<Customer> lineAggregator = FlatFileItemJobConfig.CUSTOMER_LINE_AGGREGATOR;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        customers = CustomerFixtures.customers(recordCount);
+    }
+
+    @Benchmark
+    public void aggregate(Blackhole blackhole) {
+        for (int from = 0; from < customers.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, customers.size());
+            StringBuilder lines = new StringBuilder();
+            for (int i = from; i < to; i++) {
+                lines.append(lineAggregator.aggregate(customers.get(i))).append(LINE_SEPARATOR);
+            }
+            blackhole.consume(lines.toString());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.mardi2020.exbatch.benchmark;
+
+import com.mardi2020.exbatch.chunk.CustomerItemSqlParameterSourceProvider;
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+/**
+ * JdbcBatchItemWriter 가 chunk 마다 수행하는 파라미터 준비 비용
+ * CustomerItemSqlParameterSourceProvider 로 SqlParameterSource 를 만들고
+ * insert 문(name, age, gender) 의 값을 꺼내는 것까지 측정한다. (DB 호출 제외)
+ */
+@State(Scope.Benchmark)
+public class SqlParameterSourceBenchmark {
+
+    private static final String[] PARAMETER_NAMES = {"name", "age", "gender"};
+
+    @Param({"10000", "100000"})
+    private int recordCount;
+
+    @Param({"10", "100", "1000"})
+    private int chunkSize;
+
+    private List<Customer> customers;
+
+    private final CustomerItemSqlParameterSourceProvider provider = new CustomerItemSqlParameterSourceProvider();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        customers = CustomerFixtures.customers(recordCount);
+    }
+
+    @Benchmark
+    public void createAndBind(Blackhole blackhole) {
+        for (int from = 0; from < customers.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, customers.size());
+            SqlParameterSource[] batchArgs = new SqlParameterSource[to - from];
+            for (int i = from; i < to; i++) {
+                SqlParameterSource source = provider.createSqlParameterSource(customers.get(i));
+                for (String parameterName : PARAMETER_NAMES) {
+                    blackhole.consume(source.getValue(parameterName));
+                }
+                batchArgs[i - from] = source;
+            }
+            blackhole.consume(batchArgs);
+        }
+    }
+}
@@ -1,14 +1,14 @@
 package com.mardi2020.exbatch.chunk;
 
 import com.mardi2020.exbatch.chunk.data.Customer;
-import org.springframework.batch.item.database.ItemSqlParameterSourceProvider;
-import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
-import org.springframework.jdbc.core.namedparam.SqlParameterSource;
-import org.springframework.lang.NonNull;
+import com.mardi2020.exbatch.chunk.mapping.MappedSqlParameterSourceProvider;
 
-public class CustomerItemSqlParameterSourceProvider implements ItemSqlParameterSourceProvider<Customer> {
-    @Override
-    public SqlParameterSource createSqlParameterSource(@NonNull Customer item) {
-        return new BeanPropertySqlParameterSource(item);
+/**
+ * Customer 의 :name, :age, :gender 등을 미리 만든 getter 로 채운다. (BeanPropertySqlParameterSource 미사용)
+ */
+public class CustomerItemSqlParameterSourceProvider extends MappedSqlParameterSourceProvider<Customer> {
+
+    public CustomerItemSqlParameterSourceProvider() {
+        super(Customer.class);
     }
 }
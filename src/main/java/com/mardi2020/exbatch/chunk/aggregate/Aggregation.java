@@ -0,0 +1,12 @@
+package com.mardi2020.exbatch.chunk.aggregate;
+
+/**
+ * 그룹별로 계산할 수 있는 집계 종류
+ */
+public enum Aggregation {
+    COUNT,
+    SUM,
+    MIN,
+    MAX,
+    AVG
+}
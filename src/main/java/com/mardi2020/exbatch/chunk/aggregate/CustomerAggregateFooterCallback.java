@@ -0,0 +1,41 @@
+package com.mardi2020.exbatch.chunk.aggregate;
+
+import java.io.IOException;
+import java.io.Writer;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.FlatFileFooterCallback;
+import org.springframework.lang.NonNull;
+
+/**
+ * {@link GroupAggregator} 가 StepExecution 에 올린 집계값으로 footer 를 작성한다.
+ * footer 는 writer close 시점에 쓰이는데, close 는 afterStep 이후에 호출되므로 집계값이 이미 올라가 있다.
+ * step 에 listener 로 등록해야 StepExecution 을 받을 수 있다.
+ * 현재 step 에 집계값이 없으면 JobExecution 의 ExecutionContext 에서 찾는다. (파티션 집계값을 promote 해서 merge step 에서 쓰는 경우)
+ */
+public class CustomerAggregateFooterCallback implements FlatFileFooterCallback, StepExecutionListener {
+
+    private StepExecution stepExecution;
+
+    @Override
+    public void beforeStep(@NonNull StepExecution stepExecution) {
+        this.stepExecution = stepExecution;
+    }
+
+    @Override
+    public void writeFooter(@NonNull Writer writer) throws IOException {
+        writer.write("총 고객 수: " + total(Aggregation.COUNT));
+        writer.write(System.lineSeparator());
+        writer.write("총 나이: " + total(Aggregation.SUM));
+    }
+
+    private long total(Aggregation aggregation) {
+        String key = GroupAggregator.key(GroupAggregator.TOTAL, aggregation);
+        ExecutionContext context = stepExecution.getExecutionContext();
+        if (!context.containsKey(key)) {
+            context = stepExecution.getJobExecution().getExecutionContext();
+        }
+        return context.getLong(key, 0);
+    }
+}
@@ -0,0 +1,65 @@
+package com.mardi2020.exbatch.chunk.aggregate;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 한 그룹의 count/sum/min/max 를 누적하는 객체
+ * LongAdder/LongAccumulator 는 스레드별 cell 에 나눠서 누적하므로 multi-threaded step 에서도 경합과 유실 없이 더할 수 있고,
+ * 값을 읽을 때(step 종료 시) cell 들을 합친다.
+ */
+public class GroupAccumulator {
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    public void add(long value) {
+        count.increment();
+        sum.add(value);
+        min.accumulate(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * 다른 곳에서 누적한 결과를 더한다. (min / max 가 없으면 Long.MAX_VALUE / Long.MIN_VALUE)
+     */
+    public void merge(long count, long sum, long min, long max) {
+        this.count.add(count);
+        this.sum.add(sum);
+        this.min.accumulate(min);
+        this.max.accumulate(max);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    public long min() {
+        return count() == 0 ? 0 : min.get();
+    }
+
+    public long max() {
+        return count() == 0 ? 0 : max.get();
+    }
+
+    public double avg() {
+        long n = count();
+        return n == 0 ? 0 : (double) sum() / n;
+    }
+
+    public void reset() {
+        count.reset();
+        sum.reset();
+        min.reset();
+        max.reset();
+    }
+}
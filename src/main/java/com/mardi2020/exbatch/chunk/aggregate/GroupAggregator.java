@@ -0,0 +1,169 @@
+package com.mardi2020.exbatch.chunk.aggregate;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.lang.NonNull;
+
+/**
+ * item 을 그룹(ex. gender) 별로 집계하고 step 종료 시 결과를 StepExecution 의 ExecutionContext 에 올려주는 집계기
+ * - 전체 합계는 TOTAL 그룹으로 항상 집계된다.
+ * - 결과 key 형식: TOTAL.COUNT, gender.Male.AVG ... ({@link #key(String, Aggregation)})
+ * item 마다 하는 일은 LongAdder 누적과 ConcurrentHashMap.get 한 번뿐이라 박싱/할당이 없고,
+ * step 이 TaskExecutor 로 여러 스레드에서 실행되어도 값이 유실되지 않는다.
+ * beforeStep 에서 값을 초기화하므로 step 에 listener 로 등록해야 한다.
+ * stream 으로도 등록하면 chunk commit 마다 ExecutionContext 에 기록하고, 재시작 시 commit 된 집계값에서 이어서 누적한다.
+ * 다른 step 이 publish 한 값은 {@link #merge(ExecutionContext)} 로 합칠 수 있다. (파티션 집계 합산)
+ */
+@Slf4j
+public class GroupAggregator<T> implements StepExecutionListener, ItemStream {
+
+    public static final String TOTAL = "TOTAL";
+
+    private static final String UNKNOWN_GROUP = "UNKNOWN";
+
+    private final String groupName;
+
+    private final Function<T, String> groupKey;
+
+    private final ToLongFunction<T> value;
+
+    private final Set<Aggregation> aggregations;
+
+    private final GroupAccumulator total = new GroupAccumulator();
+
+    private final ConcurrentHashMap<String, GroupAccumulator> groups = new ConcurrentHashMap<>();
+
+    /**
+     * @param groupName 결과 key 에 붙는 그룹 이름 (ex. gender)
+     * @param groupKey item 의 그룹 값을 꺼내는 함수
+     * @param value 집계할 값을 꺼내는 함수 (ex. age)
+     * @param aggregations ExecutionContext 에 올릴 집계 종류
+     */
+    public GroupAggregator(String groupName, Function<T, String> groupKey, ToLongFunction<T> value,
+                           Set<Aggregation> aggregations) {
+        this.groupName = groupName;
+        this.groupKey = groupKey;
+        this.value = value;
+        this.aggregations = EnumSet.copyOf(aggregations);
+    }
+
+    public void accumulate(T item) {
+        long v = value.applyAsLong(item);
+        total.add(v);
+
+        String key = groupKey.apply(item);
+        if (key == null) {
+            key = UNKNOWN_GROUP;
+        }
+        GroupAccumulator group = groups.get(key);
+        if (group == null) {
+            group = groups.computeIfAbsent(key, k -> new GroupAccumulator());
+        }
+        group.add(v);
+    }
+
+    public void reset() {
+        total.reset();
+        groups.clear();
+    }
+
+    /**
+     * 스레드별로 나뉘어 누적된 값을 합쳐서 ExecutionContext 에 기록한다.
+     */
+    public void publish(ExecutionContext executionContext) {
+        publish(executionContext, TOTAL, total);
+        for (Map.Entry<String, GroupAccumulator> entry : groups.entrySet()) {
+            publish(executionContext, groupName + "." + entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void publish(ExecutionContext executionContext, String group, GroupAccumulator accumulator) {
+        for (Aggregation aggregation : aggregations) {
+            String key = key(group, aggregation);
+            switch (aggregation) {
+                case COUNT -> executionContext.putLong(key, accumulator.count());
+                case SUM -> executionContext.putLong(key, accumulator.sum());
+                case MIN -> executionContext.putLong(key, accumulator.min());
+                case MAX -> executionContext.putLong(key, accumulator.max());
+                case AVG -> executionContext.putDouble(key, accumulator.avg());
+            }
+        }
+    }
+
+    /**
+     * {@link #publish(ExecutionContext)} 로 기록된 집계값을 더한다.
+     * COUNT / SUM 이 있는 그룹만 합치며, MIN / MAX 는 있으면 같이 합친다. AVG 는 publish 할 때 다시 계산된다.
+     */
+    public void merge(ExecutionContext published) {
+        String countSuffix = "." + Aggregation.COUNT.name();
+        for (Map.Entry<String, Object> entry : published.entrySet()) {
+            String key = entry.getKey();
+            if (!key.endsWith(countSuffix)) {
+                continue;
+            }
+            String group = key.substring(0, key.length() - countSuffix.length());
+            GroupAccumulator accumulator;
+            if (TOTAL.equals(group)) {
+                accumulator = total;
+            } else if (group.startsWith(groupName + ".")) {
+                accumulator = groups.computeIfAbsent(group.substring(groupName.length() + 1),
+                        k -> new GroupAccumulator());
+            } else {
+                continue;
+            }
+            long count = published.getLong(key);
+            if (count == 0 || !published.containsKey(key(group, Aggregation.SUM))) {
+                continue;
+            }
+            accumulator.merge(count, published.getLong(key(group, Aggregation.SUM)),
+                    published.getLong(key(group, Aggregation.MIN), Long.MAX_VALUE),
+                    published.getLong(key(group, Aggregation.MAX), Long.MIN_VALUE));
+        }
+    }
+
+    public static String key(String group, Aggregation aggregation) {
+        return group + "." + aggregation.name();
+    }
+
+    @Override
+    public void beforeStep(@NonNull StepExecution stepExecution) {
+        reset();
+    }
+
+    /**
+     * 재시작이면 마지막 commit 까지의 집계값에서 시작한다. (beforeStep 의 초기화 뒤에 호출된다)
+     */
+    @Override
+    public void open(@NonNull ExecutionContext executionContext) {
+        merge(executionContext);
+    }
+
+    @Override
+    public void update(@NonNull ExecutionContext executionContext) {
+        publish(executionContext);
+    }
+
+    /**
+     * 실패한 step 은 rollback 된 chunk 의 item 까지 누적되어 있으므로 올리지 않는다.
+     * (stream 으로 등록했으면 ExecutionContext 에는 마지막 commit 까지의 값이 남아 있다)
+     */
+    @Override
+    public ExitStatus afterStep(@NonNull StepExecution stepExecution) {
+        if (stepExecution.getStatus().isUnsuccessful()) {
+            return null;
+        }
+        publish(stepExecution.getExecutionContext());
+        log.info("{} 집계 완료: total={}, groups={}", stepExecution.getStepName(), total.count(), groups.keySet());
+        return null;
+    }
+}
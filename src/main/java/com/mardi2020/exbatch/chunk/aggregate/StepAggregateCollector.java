@@ -0,0 +1,50 @@
+package com.mardi2020.exbatch.chunk.aggregate;
+
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.lang.NonNull;
+
+/**
+ * 다른 step(파티션 worker 등) 들이 각자 StepExecution 에 올린 {@link GroupAggregator} 집계값을 합쳐서
+ * 현재 step 의 ExecutionContext 에 올리는 listener
+ * 재시작하면 이미 끝난 파티션은 다시 실행되지 않으므로, 이번 JobExecution 이 아니라 job instance 의 마지막 StepExecution 에서 읽는다.
+ * footer 를 쓰는 step 에 {@link CustomerAggregateFooterCallback} 보다 먼저 등록한다.
+ */
+@Slf4j
+public class StepAggregateCollector implements StepExecutionListener {
+
+    private final JobRepository jobRepository;
+
+    private final List<String> stepNames;
+
+    private final GroupAggregator<?> aggregator;
+
+    /**
+     * @param stepNames 집계값을 합칠 step 이름 (파티션이면 {workerStep}:{partition})
+     * @param aggregator 합칠 때 쓸 집계기, worker 와 같은 groupName / aggregations 로 만든다.
+     */
+    public StepAggregateCollector(JobRepository jobRepository, List<String> stepNames, GroupAggregator<?> aggregator) {
+        this.jobRepository = jobRepository;
+        this.stepNames = stepNames;
+        this.aggregator = aggregator;
+    }
+
+    @Override
+    public void beforeStep(@NonNull StepExecution stepExecution) {
+        JobInstance jobInstance = stepExecution.getJobExecution().getJobInstance();
+        aggregator.reset();
+        for (String stepName : stepNames) {
+            StepExecution source = jobRepository.getLastStepExecution(jobInstance, stepName);
+            if (source == null) {
+                log.warn("집계값을 합칠 step 실행 기록이 없습니다: {}", stepName);
+                continue;
+            }
+            aggregator.merge(source.getExecutionContext());
+        }
+        aggregator.publish(stepExecution.getExecutionContext());
+    }
+}
@@ -0,0 +1,69 @@
+package com.mardi2020.exbatch.chunk.async;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.lang.NonNull;
+
+/**
+ * 감싼 ItemProcessor 를 TaskExecutor 에서 비동기로 실행하고 결과 대신 Future 를 넘기는 processor
+ * chunk 안의 item 들이 동시에 처리되고, {@link AsyncItemWriter} 가 순서대로 결과를 모아 commit 전에 저장한다.
+ * 동시에 처리 중인 item 수가 maxInFlight 에 도달하면 reader 스레드가 대기하므로(backpressure) 처리가 느려도 힙이 늘어나지 않는다.
+ * 실행 스레드에도 StepContext 를 등록하므로 감싼 processor 에서 step scope bean 을 사용할 수 있다.
+ */
+public class AsyncItemProcessor<I, O> implements ItemProcessor<I, Future<O>> {
+
+    private final ItemProcessor<I, O> delegate;
+
+    private final TaskExecutor taskExecutor;
+
+    private final Semaphore inFlight;
+
+    /**
+     * @param delegate 실제 처리할 processor
+     * @param taskExecutor 처리 스레드
+     * @param maxInFlight 동시에 처리 중일 수 있는 최대 item 수
+     */
+    public AsyncItemProcessor(ItemProcessor<I, O> delegate, TaskExecutor taskExecutor, int maxInFlight) {
+        this.delegate = delegate;
+        this.taskExecutor = taskExecutor;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public Future<O> process(@NonNull I item) throws Exception {
+        inFlight.acquire();
+
+        StepContext stepContext = StepSynchronizationManager.getContext();
+        StepExecution stepExecution = stepContext == null ? null : stepContext.getStepExecution();
+
+        CompletableFuture<O> result;
+        try {
+            result = CompletableFuture.supplyAsync(() -> {
+                if (stepExecution != null) {
+                    StepSynchronizationManager.register(stepExecution);
+                }
+                try {
+                    return delegate.process(item);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                } finally {
+                    if (stepExecution != null) {
+                        StepSynchronizationManager.close();
+                    }
+                }
+            }, taskExecutor);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+        result.whenComplete((value, error) -> inFlight.release());
+        return result;
+    }
+}
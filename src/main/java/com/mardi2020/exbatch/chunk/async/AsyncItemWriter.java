@@ -0,0 +1,68 @@
+package com.mardi2020.exbatch.chunk.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.lang.NonNull;
+
+/**
+ * {@link AsyncItemProcessor} 가 넘긴 Future 들을 chunk 순서대로 기다렸다가 감싼 writer 로 저장하는 writer
+ * 처리 결과가 null(filter) 인 item 은 제외하고, 처리 중 발생한 예외는 원래 예외로 다시 던져 chunk 를 rollback 한다.
+ * 감싼 writer 가 ItemStream 이면 open/update/close 를 그대로 전달한다.
+ */
+public class AsyncItemWriter<T> implements ItemStreamWriter<Future<T>> {
+
+    private final ItemWriter<T> delegate;
+
+    public AsyncItemWriter(ItemWriter<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(@NonNull Chunk<? extends Future<T>> chunk) throws Exception {
+        List<T> items = new ArrayList<>(chunk.size());
+        for (Future<T> future : chunk) {
+            T item;
+            try {
+                item = future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception exception) {
+                    throw exception;
+                }
+                throw e;
+            }
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        delegate.write(new Chunk<>(items));
+    }
+
+    @Override
+    public void open(@NonNull ExecutionContext executionContext) {
+        if (delegate instanceof ItemStream stream) {
+            stream.open(executionContext);
+        }
+    }
+
+    @Override
+    public void update(@NonNull ExecutionContext executionContext) {
+        if (delegate instanceof ItemStream stream) {
+            stream.update(executionContext);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (delegate instanceof ItemStream stream) {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.mardi2020.exbatch.chunk.columnar;
+
+import java.nio.ByteOrder;
+
+/**
+ * customer 컬럼 파일(.ccol) 형식, 모든 숫자는 little endian
+ * <pre>
+ * file      := header rowGroup* footer
+ * header    := "CCOL" version(1) reserved(3)
+ * rowGroup  := length(int, 이 필드 이후 byte 수) rowCount(int) name age gender
+ * name      := nullBitmap offsets(int[rowCount], 각 값의 끝 위치) dataLength(int) data(UTF-8)
+ * age       := int[rowCount]
+ * gender    := nullBitmap dictionarySize(int) (length(int) UTF-8)* codeWidth(1) codes(codeWidth * rowCount)
+ * footer    := rowGroupCount(int) offsets(long[]) rowCounts(int[]) totalRows(long) footerLength(int) "CCOL"
+ * nullBitmap := ceil(rowCount / 8) byte, bit 이 1 이면 null
+ * </pre>
+ * gender 처럼 값 종류가 적은 컬럼은 dictionary 와 1byte code 로 저장한다.
+ */
+public final class CustomerColumnarFormat {
+
+    public static final byte[] MAGIC = {'C', 'C', 'O', 'L'};
+
+    public static final byte VERSION = 1;
+
+    public static final int HEADER_LENGTH = 8;
+
+    /**
+     * footerLength(int) + magic
+     */
+    public static final int TRAILER_LENGTH = 8;
+
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private CustomerColumnarFormat() {
+    }
+
+    static int bitmapLength(int rows) {
+        return (rows + 7) >>> 3;
+    }
+
+    static boolean isNull(byte[] bitmap, int row) {
+        return (bitmap[row >>> 3] & (1 << (row & 7))) != 0;
+    }
+
+    static void setNull(byte[] bitmap, int row) {
+        bitmap[row >>> 3] |= (byte) (1 << (row & 7));
+    }
+}
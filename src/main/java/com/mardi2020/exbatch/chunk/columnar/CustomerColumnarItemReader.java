@@ -0,0 +1,204 @@
+package com.mardi2020.exbatch.chunk.columnar;
+
+import static com.mardi2020.exbatch.chunk.columnar.CustomerColumnarFormat.BYTE_ORDER;
+import static com.mardi2020.exbatch.chunk.columnar.CustomerColumnarFormat.HEADER_LENGTH;
+import static com.mardi2020.exbatch.chunk.columnar.CustomerColumnarFormat.MAGIC;
+import static com.mardi2020.exbatch.chunk.columnar.CustomerColumnarFormat.TRAILER_LENGTH;
+import static com.mardi2020.exbatch.chunk.columnar.CustomerColumnarFormat.bitmapLength;
+import static com.mardi2020.exbatch.chunk.columnar.CustomerColumnarFormat.isNull;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.core.io.Resource;
+import org.springframework.util.ClassUtils;
+
+/**
+ * {@link CustomerColumnarItemWriter} 가 쓴 컬럼 파일을 row group 단위로 읽어 Customer 로 돌려주는 reader
+ * footer 의 row group index 로 위치를 찾으므로, 재시작 시 앞 row group 은 읽지 않고 건너뛴다.
+ */
+public class CustomerColumnarItemReader extends AbstractItemCountingItemStreamItemReader<Customer> {
+
+    private final Resource resource;
+
+    private FileChannel channel;
+
+    private long[] rowGroupOffsets;
+
+    private int[] rowGroupRows;
+
+    private int rowGroup;
+
+    private int row;
+
+    private int rows;
+
+    private byte[] nameNulls;
+
+    private int[] nameEnds;
+
+    private byte[] nameData;
+
+    private int[] ages;
+
+    private byte[] genderNulls;
+
+    private String[] dictionary;
+
+    private int[] genderCodes;
+
+    public CustomerColumnarItemReader(Resource resource) {
+        this.resource = resource;
+        setName(ClassUtils.getShortName(CustomerColumnarItemReader.class));
+    }
+
+    /**
+     * @return 파일의 전체 row 수
+     */
+    public long getTotalRows() {
+        return Arrays.stream(rowGroupRows).asLongStream().sum();
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ);
+        long size = channel.size();
+        ByteBuffer header = read(0, HEADER_LENGTH);
+        ByteBuffer trailer = read(size - TRAILER_LENGTH, TRAILER_LENGTH);
+        int footerLength = trailer.getInt();
+        if (!hasMagic(header) || !hasMagic(trailer)) {
+            throw new ItemStreamException("컬럼 파일 형식이 아닙니다: " + resource.getDescription());
+        }
+
+        ByteBuffer footer = read(size - TRAILER_LENGTH - footerLength, footerLength);
+        int count = footer.getInt();
+        rowGroupOffsets = new long[count];
+        rowGroupRows = new int[count];
+        for (int i = 0; i < count; i++) {
+            rowGroupOffsets[i] = footer.getLong();
+        }
+        for (int i = 0; i < count; i++) {
+            rowGroupRows[i] = footer.getInt();
+        }
+        rowGroup = -1;
+        row = 0;
+        rows = 0;
+    }
+
+    @Override
+    protected Customer doRead() throws Exception {
+        while (row == rows) {
+            if (rowGroup + 1 >= rowGroupOffsets.length) {
+                return null;
+            }
+            loadRowGroup(++rowGroup);
+        }
+        Customer customer = new Customer();
+        if (!isNull(nameNulls, row)) {
+            int start = row == 0 ? 0 : nameEnds[row - 1];
+            customer.setName(new String(nameData, start, nameEnds[row] - start, StandardCharsets.UTF_8));
+        }
+        customer.setAge(ages[row]);
+        if (!isNull(genderNulls, row)) {
+            customer.setGender(dictionary[genderCodes[row]]);
+        }
+        row++;
+        return customer;
+    }
+
+    /**
+     * 앞 row group 은 row 수만 보고 건너뛰고, 해당 row group 안에서만 위치를 맞춘다.
+     */
+    @Override
+    protected void jumpToItem(int itemIndex) throws Exception {
+        int remaining = itemIndex;
+        int group = 0;
+        while (group < rowGroupRows.length && remaining >= rowGroupRows[group]) {
+            remaining -= rowGroupRows[group++];
+        }
+        if (group == rowGroupRows.length) {
+            rowGroup = group - 1;
+            row = rows = 0;
+            return;
+        }
+        loadRowGroup(group);
+        rowGroup = group;
+        row = remaining;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        nameData = null;
+        ages = null;
+        genderCodes = null;
+    }
+
+    private void loadRowGroup(int index) throws IOException {
+        ByteBuffer length = read(rowGroupOffsets[index], 4);
+        ByteBuffer buffer = read(rowGroupOffsets[index] + 4, length.getInt());
+        rows = buffer.getInt();
+        row = 0;
+        int bitmap = bitmapLength(rows);
+
+        nameNulls = new byte[bitmap];
+        buffer.get(nameNulls);
+        nameEnds = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            nameEnds[i] = buffer.getInt();
+        }
+        nameData = new byte[buffer.getInt()];
+        buffer.get(nameData);
+
+        ages = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            ages[i] = buffer.getInt();
+        }
+
+        genderNulls = new byte[bitmap];
+        buffer.get(genderNulls);
+        dictionary = new String[buffer.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            byte[] value = new byte[buffer.getInt()];
+            buffer.get(value);
+            dictionary[i] = new String(value, StandardCharsets.UTF_8);
+        }
+        int codeWidth = buffer.get();
+        genderCodes = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            genderCodes[i] = switch (codeWidth) {
+                case 1 -> buffer.get() & 0xFF;
+                case 2 -> buffer.getShort() & 0xFFFF;
+                default -> buffer.getInt();
+            };
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(BYTE_ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new ItemStreamException("컬럼 파일이 잘렸습니다: " + resource.getDescription());
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer) {
+        for (byte b : MAGIC) {
+            if (buffer.get() != b) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
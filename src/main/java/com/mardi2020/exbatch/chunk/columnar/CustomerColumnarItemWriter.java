@@ -0,0 +1,566 @@
+package com.mardi2020.exbatch.chunk.columnar;
+
+import static com.mardi2020.exbatch.chunk.columnar.CustomerColumnarFormat.BYTE_ORDER;
+import static com.mardi2020.exbatch.chunk.columnar.CustomerColumnarFormat.HEADER_LENGTH;
+import static com.mardi2020.exbatch.chunk.columnar.CustomerColumnarFormat.MAGIC;
+import static com.mardi2020.exbatch.chunk.columnar.CustomerColumnarFormat.TRAILER_LENGTH;
+import static com.mardi2020.exbatch.chunk.columnar.CustomerColumnarFormat.VERSION;
+import static com.mardi2020.exbatch.chunk.columnar.CustomerColumnarFormat.bitmapLength;
+import static com.mardi2020.exbatch.chunk.columnar.CustomerColumnarFormat.setNull;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.support.AbstractItemStreamItemWriter;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.NonNull;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Customer 의 name/age/gender 를 row group 단위 컬럼 파일({@link CustomerColumnarFormat})로 쓰는 writer
+ * row group 크기만큼 컬럼 벡터(name: UTF-8 byte + offset, age: int[], gender: dictionary code)에 모았다가
+ * 가득 차면 한 번에 파일에 쓰므로, 메모리는 row group 하나 크기로 제한된다.
+ * <p>
+ * 재시작은 row group 경계에서 한다.
+ * - 파일에 다 쓴 row group 의 끝 위치를 ExecutionContext 에 저장한다.
+ * - 아직 row group 이 되지 못한 row 는 chunk 마다 pending 파일(출력 파일.pending0/1)에 row 단위로 덧붙이고, 그 길이를 저장한다.
+ * - row group 을 쓰면 남은 row 를 다른 pending 파일에 새로 쓰고 commit 되면 그 파일로 바꾼다.
+ *   commit 전에 죽어도 이전 pending 파일이 그대로 남아 있다.
+ * - 재시작 시 출력 파일을 마지막 row group 끝으로 잘라내고, pending 파일의 row 를 다시 컬럼 벡터에 채운다.
+ * chunk 의 item 은 update(commit 직전)에서 반영하고, rollback 된 chunk 는 버린다.
+ * step 이 완료되면 close 에서 남은 row 를 마지막 row group 으로 쓰고 footer(row group index)를 붙인 뒤 pending 파일을 지운다.
+ * 실패로 close 되는 경우에도 파일을 읽을 수 있도록 footer 는 쓰지만 pending 파일은 재시작을 위해 남겨둔다.
+ * append 이면 기존 파일의 footer 를 떼어내고 그 뒤에 row group 을 이어 쓴 다음, 전체 row group 의 footer 를 다시 붙인다.
+ * 한 스레드에서만 사용한다.
+ */
+@Slf4j
+public class CustomerColumnarItemWriter extends AbstractItemStreamItemWriter<Customer> {
+
+    private static final String OFFSET_KEY = "offset";
+
+    private static final String ROW_GROUPS_KEY = "row.groups";
+
+    private static final String PENDING_FILE_KEY = "pending.file";
+
+    private static final String PENDING_ROWS_KEY = "pending.rows";
+
+    private static final String PENDING_BYTES_KEY = "pending.bytes";
+
+    private static final int NULL_LENGTH = -1;
+
+    private final Resource resource;
+
+    private int rowGroupSize = 64 * 1024;
+
+    private boolean append;
+
+    private Path path;
+
+    private final Path[] pendingPaths = new Path[2];
+
+    private FileChannel channel;
+
+    private FileChannel pendingChannel;
+
+    private int pendingFile;
+
+    private long pendingBytes;
+
+    /**
+     * 다 쓴 row group 의 끝 위치
+     */
+    private long offset;
+
+    private final List<Long> rowGroupOffsets = new ArrayList<>();
+
+    private final List<Integer> rowGroupRows = new ArrayList<>();
+
+    private final List<Customer> buffered = new ArrayList<>();
+
+    private boolean rollbackHandlerRegistered;
+
+    // 컬럼 벡터
+    private int rows;
+
+    private byte[] nameNulls;
+
+    private int[] nameEnds;
+
+    private byte[] nameData;
+
+    private int nameLength;
+
+    private int[] ages;
+
+    private byte[] genderNulls;
+
+    private int[] genderCodes;
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    private final List<byte[]> dictionaryValues = new ArrayList<>();
+
+    public CustomerColumnarItemWriter(Resource resource) {
+        this.resource = resource;
+        setName(ClassUtils.getShortName(CustomerColumnarItemWriter.class));
+    }
+
+    /**
+     * @param rowGroupSize row group 하나의 최대 row 수 (기본 65536)
+     */
+    public void setRowGroupSize(int rowGroupSize) {
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    /**
+     * 다음 open 부터 적용된다.
+     */
+    public void setAppend(boolean append) {
+        this.append = append;
+    }
+
+    @Override
+    public void open(@NonNull ExecutionContext executionContext) {
+        super.open(executionContext);
+        boolean restart = isSaveState() && executionContext.containsKey(getExecutionContextKey(OFFSET_KEY));
+        try {
+            path = resource.getFile().toPath();
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            pendingPaths[0] = Path.of(path + ".pending0");
+            pendingPaths[1] = Path.of(path + ".pending1");
+            allocateVectors();
+
+            if (restart) {
+                restore(executionContext);
+                return;
+            }
+
+            pendingFile = 0;
+            pendingBytes = 0;
+            if (append && Files.exists(path)) {
+                openForAppend();
+            } else {
+                offset = HEADER_LENGTH;
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(BYTE_ORDER);
+                header.put(MAGIC).put(VERSION).position(HEADER_LENGTH).flip();
+                writeFully(channel, header);
+            }
+            pendingChannel = openPending(pendingFile, true);
+            Files.deleteIfExists(pendingPaths[1]);
+        } catch (IOException e) {
+            throw new ItemStreamException("컬럼 파일을 열 수 없습니다: " + resource.getDescription(), e);
+        }
+    }
+
+    @Override
+    public void write(@NonNull Chunk<? extends Customer> chunk) {
+        registerRollbackHandler();
+        buffered.addAll(chunk.getItems());
+    }
+
+    /**
+     * chunk 트랜잭션 commit 직전에 호출되므로 여기서 버퍼의 row 를 컬럼 벡터와 pending 파일에 반영하고 위치를 저장한다.
+     */
+    @Override
+    public void update(@NonNull ExecutionContext executionContext) {
+        super.update(executionContext);
+        if (channel == null) {
+            return;
+        }
+        try {
+            applyBuffered();
+        } catch (IOException e) {
+            throw new ItemStreamException("컬럼 파일 쓰기 실패: " + resource.getDescription(), e);
+        }
+        if (isSaveState()) {
+            executionContext.putLong(getExecutionContextKey(OFFSET_KEY), offset);
+            executionContext.putInt(getExecutionContextKey(ROW_GROUPS_KEY), rowGroupOffsets.size());
+            executionContext.putInt(getExecutionContextKey(PENDING_FILE_KEY), pendingFile);
+            executionContext.putInt(getExecutionContextKey(PENDING_ROWS_KEY), rows);
+            executionContext.putLong(getExecutionContextKey(PENDING_BYTES_KEY), pendingBytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (channel == null) {
+            return;
+        }
+        boolean completed = isStepCompleted();
+        try {
+            if (completed) {
+                applyBuffered();
+            }
+            if (rows > 0) {
+                flushRowGroup();
+            }
+            writeFooter();
+            channel.force(false);
+            channel.close();
+            pendingChannel.close();
+            if (completed) {
+                Files.deleteIfExists(pendingPaths[0]);
+                Files.deleteIfExists(pendingPaths[1]);
+            }
+            log.info("컬럼 파일 작성 완료: {} (row groups={})", resource.getDescription(), rowGroupOffsets.size());
+        } catch (IOException e) {
+            throw new ItemStreamException("컬럼 파일을 닫을 수 없습니다: " + resource.getDescription(), e);
+        } finally {
+            channel = null;
+            pendingChannel = null;
+            buffered.clear();
+            rowGroupOffsets.clear();
+            rowGroupRows.clear();
+            nameData = null;
+            nameEnds = null;
+            ages = null;
+            genderCodes = null;
+        }
+    }
+
+    private void restore(ExecutionContext executionContext) throws IOException {
+        offset = executionContext.getLong(getExecutionContextKey(OFFSET_KEY));
+        int rowGroups = executionContext.getInt(getExecutionContextKey(ROW_GROUPS_KEY));
+        pendingFile = executionContext.getInt(getExecutionContextKey(PENDING_FILE_KEY));
+        int pendingRows = executionContext.getInt(getExecutionContextKey(PENDING_ROWS_KEY));
+        pendingBytes = executionContext.getLong(getExecutionContextKey(PENDING_BYTES_KEY));
+
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < offset) {
+            throw new ItemStreamException("컬럼 파일이 마지막 row group 위치보다 짧습니다. file=" + channel.size()
+                    + ", offset=" + offset + ", resource=" + resource.getDescription());
+        }
+        channel.truncate(offset);
+        scanRowGroups(rowGroups);
+        channel.position(offset);
+
+        pendingChannel = openPending(pendingFile, false);
+        if (pendingChannel.size() < pendingBytes) {
+            throw new ItemStreamException("pending 파일이 마지막 commit 위치보다 짧습니다: " + pendingPaths[pendingFile]);
+        }
+        pendingChannel.truncate(pendingBytes);
+        ByteBuffer pending = ByteBuffer.allocate((int) pendingBytes).order(BYTE_ORDER);
+        pendingChannel.read(pending, 0);
+        pending.flip();
+        for (int i = 0; i < pendingRows; i++) {
+            addRow(readPendingRow(pending));
+        }
+        pendingChannel.position(pendingBytes);
+        log.info("컬럼 파일 재시작: row groups={}, pending rows={}", rowGroups, pendingRows);
+    }
+
+    /**
+     * 기존 파일의 trailer 에서 footer 위치와 row group 수를 읽고, footer 를 잘라낸 자리부터 이어 쓴다.
+     */
+    private void openForAppend() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        long footerStart = -1;
+        if (size >= HEADER_LENGTH + TRAILER_LENGTH) {
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH).order(BYTE_ORDER);
+            channel.read(trailer, size - TRAILER_LENGTH);
+            trailer.flip();
+            footerStart = size - TRAILER_LENGTH - trailer.getInt();
+        }
+        if (footerStart < HEADER_LENGTH) {
+            throw new ItemStreamException("이어 쓸 수 있는 컬럼 파일이 아닙니다: " + resource.getDescription());
+        }
+        ByteBuffer count = ByteBuffer.allocate(4).order(BYTE_ORDER);
+        channel.read(count, footerStart);
+        count.flip();
+
+        offset = footerStart;
+        scanRowGroups(count.getInt());
+        channel.truncate(offset);
+        channel.position(offset);
+        log.info("컬럼 파일 이어쓰기: {} (row groups={})", resource.getDescription(), rowGroupOffsets.size());
+    }
+
+    /**
+     * 재시작 / 이어쓰기 시 footer 에 쓸 row group index 를 row group 의 length 필드를 따라가며 다시 만든다.
+     */
+    private void scanRowGroups(int rowGroups) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(8).order(BYTE_ORDER);
+        long position = HEADER_LENGTH;
+        for (int i = 0; i < rowGroups; i++) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            rowGroupOffsets.add(position);
+            rowGroupRows.add(header.getInt());
+            position += 4 + length;
+        }
+        if (position != offset) {
+            throw new ItemStreamException("row group index 가 저장된 위치와 맞지 않습니다. scanned=" + position
+                    + ", offset=" + offset + ", resource=" + resource.getDescription());
+        }
+    }
+
+    private void applyBuffered() throws IOException {
+        if (buffered.isEmpty()) {
+            return;
+        }
+        int flushedUpTo = -1;
+        for (int i = 0; i < buffered.size(); i++) {
+            addRow(buffered.get(i));
+            if (rows == rowGroupSize) {
+                flushRowGroup();
+                flushedUpTo = i;
+            }
+        }
+
+        if (flushedUpTo < 0) {
+            appendPending(buffered, 0);
+        } else {
+            // 새 row group 이 commit 되기 전까지는 이전 pending 파일이 재시작 기준이므로 다른 파일에 새로 쓴다.
+            pendingChannel.close();
+            pendingFile ^= 1;
+            pendingChannel = openPending(pendingFile, true);
+            pendingBytes = 0;
+            appendPending(buffered, flushedUpTo + 1);
+        }
+        buffered.clear();
+    }
+
+    private void addRow(Customer customer) {
+        int row = rows;
+        byte[] name = customer.getName() == null ? null : customer.getName().getBytes(StandardCharsets.UTF_8);
+        if (name == null) {
+            setNull(nameNulls, row);
+        } else {
+            if (nameLength + name.length > nameData.length) {
+                nameData = Arrays.copyOf(nameData, Math.max(nameData.length * 2, nameLength + name.length));
+            }
+            System.arraycopy(name, 0, nameData, nameLength, name.length);
+            nameLength += name.length;
+        }
+        nameEnds[row] = nameLength;
+        ages[row] = customer.getAge();
+
+        String gender = customer.getGender();
+        if (gender == null) {
+            setNull(genderNulls, row);
+        } else {
+            Integer code = dictionary.get(gender);
+            if (code == null) {
+                code = dictionaryValues.size();
+                dictionary.put(gender, code);
+                dictionaryValues.add(gender.getBytes(StandardCharsets.UTF_8));
+            }
+            genderCodes[row] = code;
+        }
+        rows++;
+    }
+
+    private void flushRowGroup() throws IOException {
+        int bitmap = bitmapLength(rows);
+        int codeWidth = codeWidth(dictionaryValues.size());
+        int dictionaryLength = 4;
+        for (byte[] value : dictionaryValues) {
+            dictionaryLength += 4 + value.length;
+        }
+        int length = 4
+                + bitmap + 4 * rows + 4 + nameLength
+                + 4 * rows
+                + bitmap + dictionaryLength + 1 + codeWidth * rows;
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + length).order(BYTE_ORDER);
+        buffer.putInt(length).putInt(rows);
+
+        buffer.put(nameNulls, 0, bitmap);
+        for (int i = 0; i < rows; i++) {
+            buffer.putInt(nameEnds[i]);
+        }
+        buffer.putInt(nameLength).put(nameData, 0, nameLength);
+
+        for (int i = 0; i < rows; i++) {
+            buffer.putInt(ages[i]);
+        }
+
+        buffer.put(genderNulls, 0, bitmap);
+        buffer.putInt(dictionaryValues.size());
+        for (byte[] value : dictionaryValues) {
+            buffer.putInt(value.length).put(value);
+        }
+        buffer.put((byte) codeWidth);
+        for (int i = 0; i < rows; i++) {
+            switch (codeWidth) {
+                case 1 -> buffer.put((byte) genderCodes[i]);
+                case 2 -> buffer.putShort((short) genderCodes[i]);
+                default -> buffer.putInt(genderCodes[i]);
+            }
+        }
+        buffer.flip();
+
+        channel.position(offset);
+        writeFully(channel, buffer);
+        rowGroupOffsets.add(offset);
+        rowGroupRows.add(rows);
+        offset += buffer.limit();
+        resetVectors();
+    }
+
+    private void writeFooter() throws IOException {
+        int count = rowGroupOffsets.size();
+        int footerLength = 4 + 8 * count + 4 * count + 8;
+        ByteBuffer footer = ByteBuffer.allocate(footerLength + TRAILER_LENGTH).order(BYTE_ORDER);
+        footer.putInt(count);
+        long totalRows = 0;
+        for (Long rowGroupOffset : rowGroupOffsets) {
+            footer.putLong(rowGroupOffset);
+        }
+        for (Integer rowCount : rowGroupRows) {
+            footer.putInt(rowCount);
+            totalRows += rowCount;
+        }
+        footer.putLong(totalRows);
+        footer.putInt(footerLength).put(MAGIC);
+        footer.flip();
+        channel.position(offset);
+        writeFully(channel, footer);
+        channel.truncate(offset + footer.limit());
+    }
+
+    private void appendPending(List<Customer> customers, int from) throws IOException {
+        if (from >= customers.size()) {
+            return;
+        }
+        int size = 0;
+        byte[][] encoded = new byte[(customers.size() - from) * 2][];
+        for (int i = from, j = 0; i < customers.size(); i++) {
+            Customer customer = customers.get(i);
+            encoded[j] = customer.getName() == null ? null : customer.getName().getBytes(StandardCharsets.UTF_8);
+            encoded[j + 1] = customer.getGender() == null ? null : customer.getGender().getBytes(StandardCharsets.UTF_8);
+            size += 12 + length(encoded[j]) + length(encoded[j + 1]);
+            j += 2;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(BYTE_ORDER);
+        for (int i = from, j = 0; i < customers.size(); i++, j += 2) {
+            putBytes(buffer, encoded[j]);
+            buffer.putInt(customers.get(i).getAge());
+            putBytes(buffer, encoded[j + 1]);
+        }
+        buffer.flip();
+        writeFully(pendingChannel, buffer);
+        pendingBytes += size;
+    }
+
+    private Customer readPendingRow(ByteBuffer buffer) {
+        Customer customer = new Customer();
+        customer.setName(getString(buffer));
+        customer.setAge(buffer.getInt());
+        customer.setGender(getString(buffer));
+        return customer;
+    }
+
+    private void registerRollbackHandler() {
+        if (rollbackHandlerRegistered || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        rollbackHandlerRegistered = true;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                rollbackHandlerRegistered = false;
+                if (status != STATUS_COMMITTED) {
+                    buffered.clear();
+                }
+            }
+        });
+    }
+
+    private FileChannel openPending(int index, boolean truncate) throws IOException {
+        return truncate
+                ? FileChannel.open(pendingPaths[index], StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                : FileChannel.open(pendingPaths[index], StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void allocateVectors() {
+        nameNulls = new byte[bitmapLength(rowGroupSize)];
+        nameEnds = new int[rowGroupSize];
+        nameData = new byte[Math.min(rowGroupSize, 4096) * 16];
+        ages = new int[rowGroupSize];
+        genderNulls = new byte[bitmapLength(rowGroupSize)];
+        genderCodes = new int[rowGroupSize];
+        rows = 0;
+        resetVectors();
+    }
+
+    private void resetVectors() {
+        Arrays.fill(nameNulls, 0, bitmapLength(rows), (byte) 0);
+        Arrays.fill(genderNulls, 0, bitmapLength(rows), (byte) 0);
+        rows = 0;
+        nameLength = 0;
+        dictionary.clear();
+        dictionaryValues.clear();
+    }
+
+    /**
+     * step 실행 중이 아니면(단독 사용) 완료로 본다.
+     */
+    private static boolean isStepCompleted() {
+        StepContext context = StepSynchronizationManager.getContext();
+        return context == null || context.getStepExecution().getStatus() == BatchStatus.COMPLETED;
+    }
+
+    private static int codeWidth(int dictionarySize) {
+        if (dictionarySize <= 0xFF) {
+            return 1;
+        }
+        return dictionarySize <= 0xFFFF ? 2 : 4;
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(NULL_LENGTH);
+            return;
+        }
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
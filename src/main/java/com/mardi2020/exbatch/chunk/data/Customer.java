@@ -1,12 +1,31 @@
 package com.mardi2020.exbatch.chunk.data;
 
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
 
+/**
+ * customer 테이블 엔티티
+ * JPA_ITEM_WRITER_JOB 이 writer 모드와 상관없이 이 테이블에 적재하고, paging job 들이 이 테이블을 읽는다.
+ * id 는 IDENTITY 를 유지한다. jdbc / upsert 모드와 다른 적재 경로는 id 없이 insert 하므로
+ * sequence / pooled optimizer 로 미리 받아둔 id 는 DB 가 매긴 id 와 겹칠 수 있다.
+ */
+@Entity
+@Table(name = Customer.TABLE)
 @Getter
 @Setter
 public class Customer {
 
+    public static final String TABLE = "customer";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
     private String name;
 
     private int age;
@@ -0,0 +1,68 @@
+package com.mardi2020.exbatch.chunk.dedup;
+
+/**
+ * 64bit hash 를 key 로 쓰는 Bloom filter
+ * 없는 key 는 항상 false, 있는 key 는 항상 true 이고, 없는 key 가 true 로 나올 확률이 falsePositiveRate 이다.
+ * expectedInsertions 보다 많이 넣으면 오탐률이 올라간다.
+ * bit 수 m = -n ln p / (ln 2)^2, hash 함수 수 k = m / n ln 2, k 개의 위치는 hash 의 상위 / 하위 32bit 로 double hashing 한다.
+ * ex) 100만 건, 1% 이면 약 1.2MB, k = 7
+ * 한 스레드에서만 사용한다.
+ */
+public class BloomFilter {
+
+    private final long[] bits;
+
+    private final long bitSize;
+
+    private final int hashFunctions;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("오탐률은 0 과 1 사이여야 합니다: " + falsePositiveRate);
+        }
+        long n = Math.max(expectedInsertions, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new long[(int) Math.min((m + Long.SIZE - 1) / Long.SIZE, Integer.MAX_VALUE - 8)];
+        this.bitSize = (long) bits.length * Long.SIZE;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / n * Math.log(2)));
+    }
+
+    /**
+     * @return 새로 추가되었으면(이전에 없었던 것이 확실하면) true
+     */
+    public boolean put(long hash) {
+        int low = (int) hash;
+        int high = (int) (hash >>> 32);
+        boolean changed = false;
+        for (int i = 1; i <= hashFunctions; i++) {
+            long index = ((low + (long) i * high) & Long.MAX_VALUE) % bitSize;
+            long mask = 1L << index;
+            int word = (int) (index >>> 6);
+            if ((bits[word] & mask) == 0) {
+                bits[word] |= mask;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public boolean mightContain(long hash) {
+        int low = (int) hash;
+        int high = (int) (hash >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            long index = ((low + (long) i * high) & Long.MAX_VALUE) % bitSize;
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+}
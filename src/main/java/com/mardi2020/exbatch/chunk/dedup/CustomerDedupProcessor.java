@@ -0,0 +1,164 @@
+package com.mardi2020.exbatch.chunk.dedup;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.lang.NonNull;
+
+/**
+ * 이미 저장된 customer 를 걸러내는 processor (중복 적재 방지)
+ * - beforeStep 에서 저장된 natural key 를 모두 Bloom filter 에 넣는다. (key 자체는 메모리에 두지 않는다)
+ * - filter 에 없는 key 는 새 row 가 확실하므로 DB 조회 없이 통과시키고 filter 에 추가한다.
+ * - filter 에 있을 수도 있는 key 는 afterRead 에서 모아두었다가, process 에서 처음 나오면 chunk 의 것을 한 번에
+ *   {@link CustomerKeyStore#findExisting} 으로 확인한다. 저장되어 있으면 filter(null) 하고, 오탐이면 통과시킨다.
+ * - key 가 없는(name / gender 가 null) row 는 그대로 통과시킨다.
+ * 같은 실행 안에서 먼저 나온 key 는 commit 된 뒤에야 DB 에서 보이므로, 같은 chunk 안의 중복과 최종 중복 방지는
+ * upsert writer 와 unique index 가 맡는다.
+ * 결과는 batch.dedup.items{name, result=new|duplicate|false-positive|no-key} 로 기록한다.
+ * step 에는 processor 와 함께 {@link #registerListeners(SimpleStepBuilder)} 로 listener 를 등록한다.
+ * 한 스레드에서만 사용한다.
+ */
+@Slf4j
+public class CustomerDedupProcessor implements ItemProcessor<Customer, Customer>, ItemReadListener<Customer>,
+        StepExecutionListener {
+
+    private final String name;
+
+    private final CustomerKeyStore keyStore;
+
+    private final long expectedRows;
+
+    private final double falsePositiveRate;
+
+    private final Set<CustomerKey> candidates = new LinkedHashSet<>();
+
+    private final Set<CustomerKey> checked = new HashSet<>();
+
+    private final Set<CustomerKey> existing = new HashSet<>();
+
+    private final Counter newItems;
+
+    private final Counter duplicates;
+
+    private final Counter falsePositives;
+
+    private final Counter noKey;
+
+    private BloomFilter filter;
+
+    /**
+     * process 가 시작된 뒤 다시 afterRead 가 오면 다음 chunk 이다.
+     */
+    private boolean processing;
+
+    /**
+     * @param name meter tag
+     * @param expectedRows 이번 실행에서 새로 들어올 것으로 예상하는 row 수, 저장된 row 수에 더해서 filter 크기를 정한다.
+     * @param falsePositiveRate Bloom filter 오탐률, 오탐이면 DB 로 한 번 더 확인한다.
+     */
+    public CustomerDedupProcessor(String name, CustomerKeyStore keyStore, long expectedRows,
+                                  double falsePositiveRate) {
+        this.name = name;
+        this.keyStore = keyStore;
+        this.expectedRows = expectedRows;
+        this.falsePositiveRate = falsePositiveRate;
+        this.newItems = counter("new");
+        this.duplicates = counter("duplicate");
+        this.falsePositives = counter("false-positive");
+        this.noKey = counter("no-key");
+    }
+
+    /**
+     * step builder 에 afterRead / beforeStep listener 를 등록한다.
+     */
+    public <T> SimpleStepBuilder<Customer, T> registerListeners(SimpleStepBuilder<Customer, T> builder) {
+        builder.listener((ItemReadListener<Customer>) this);
+        builder.listener((StepExecutionListener) this);
+        return builder;
+    }
+
+    @Override
+    public void beforeStep(@NonNull StepExecution stepExecution) {
+        candidates.clear();
+        checked.clear();
+        existing.clear();
+        processing = false;
+
+        long start = System.nanoTime();
+        long stored = keyStore.count();
+        BloomFilter seeded = new BloomFilter(stored + expectedRows, falsePositiveRate);
+        keyStore.forEachKey(key -> seeded.put(key.hash64()));
+        filter = seeded;
+        log.info("dedup filter [{}] 준비: 저장된 row {} 건, {} KB, hash {} 개, {} ms", name, stored,
+                seeded.getBitSize() / 8 / 1024, seeded.getHashFunctions(),
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    @Override
+    public void afterRead(@NonNull Customer item) {
+        if (processing) {
+            // 이전 chunk 의 확인 결과는 그 뒤에 commit 된 row 를 반영하지 못하므로 버린다.
+            processing = false;
+            checked.clear();
+            existing.clear();
+        }
+        CustomerKey key = CustomerKey.of(item);
+        if (key != null && filter.mightContain(key.hash64())) {
+            candidates.add(key);
+        }
+    }
+
+    @Override
+    public Customer process(@NonNull Customer item) {
+        processing = true;
+        CustomerKey key = CustomerKey.of(item);
+        if (key == null) {
+            noKey.increment();
+            return item;
+        }
+        long hash = key.hash64();
+        if (!filter.mightContain(hash)) {
+            filter.put(hash);
+            newItems.increment();
+            return item;
+        }
+
+        if (!checked.contains(key)) {
+            check(key);
+        }
+        if (existing.contains(key)) {
+            duplicates.increment();
+            return null;
+        }
+        falsePositives.increment();
+        return item;
+    }
+
+    /**
+     * 모아둔 후보 key 와 요청한 key 를 한 번에 조회한다.
+     */
+    private void check(CustomerKey key) {
+        candidates.add(key);
+        existing.addAll(keyStore.findExisting(candidates));
+        checked.addAll(candidates);
+        candidates.clear();
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder("batch.dedup.items")
+                .description("dedup filter 결과별 item 수")
+                .tag("name", name)
+                .tag("result", result)
+                .register(Metrics.globalRegistry);
+    }
+}
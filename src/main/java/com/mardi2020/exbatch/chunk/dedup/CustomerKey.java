@@ -0,0 +1,44 @@
+package com.mardi2020.exbatch.chunk.dedup;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+
+/**
+ * customer2 의 natural key (name, age, gender)
+ * unique index 는 NULL 을 서로 다른 값으로 보므로 name / gender 가 null 인 row 는 key 가 없다.
+ */
+public record CustomerKey(String name, int age, String gender) {
+
+    /**
+     * @return name 또는 gender 가 null 이면 null
+     */
+    public static CustomerKey of(Customer customer) {
+        if (customer.getName() == null || customer.getGender() == null) {
+            return null;
+        }
+        return new CustomerKey(customer.getName(), customer.getAge(), customer.getGender());
+    }
+
+    /**
+     * Bloom filter 용 64bit hash (FNV-1a 후 murmur3 finalizer 로 섞는다)
+     */
+    public long hash64() {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, name);
+        hash = (hash ^ age) * 0x100000001b3L;
+        hash = mix(hash, gender);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        // 필드 경계 구분 ("ab" + "c" 와 "a" + "bc")
+        return (hash ^ 0xFFFF) * 0x100000001b3L;
+    }
+}
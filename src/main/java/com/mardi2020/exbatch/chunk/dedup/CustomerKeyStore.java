@@ -0,0 +1,26 @@
+package com.mardi2020.exbatch.chunk.dedup;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 이미 저장된 customer natural key 조회
+ */
+public interface CustomerKeyStore {
+
+    /**
+     * 저장된 row 수 (Bloom filter 크기 계산용)
+     */
+    long count();
+
+    /**
+     * 저장된 key 를 모두 순서 없이 넘긴다. key 를 메모리에 모으지 않고 하나씩 넘겨야 한다.
+     */
+    void forEachKey(Consumer<CustomerKey> consumer);
+
+    /**
+     * @return keys 중 저장되어 있는 것
+     */
+    Set<CustomerKey> findExisting(Collection<CustomerKey> keys);
+}
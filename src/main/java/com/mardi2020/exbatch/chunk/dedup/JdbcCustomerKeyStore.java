@@ -0,0 +1,91 @@
+package com.mardi2020.exbatch.chunk.dedup;
+
+import com.mardi2020.exbatch.chunk.reader.CursorFetchSize;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * name, age, gender 컬럼을 가진 테이블에서 natural key 를 조회한다.
+ * - forEachKey: 전체 key 를 cursor 로 흘려 읽는다. (fetch size 는 {@link CursorFetchSize})
+ * - findExisting: (name = ? AND age = ? AND gender = ?) OR ... 로 batchSize 개씩 조회한다.
+ *   row 값 IN 목록은 Derby 에서 지원하지 않으므로 OR 로 나열한다. (natural key unique index 를 탄다)
+ */
+public class JdbcCustomerKeyStore implements CustomerKeyStore {
+
+    private static final String KEY_CONDITION = "(name = ? AND age = ? AND gender = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final JdbcTemplate streamingTemplate;
+
+    private final String table;
+
+    private int batchSize = 200;
+
+    public JdbcCustomerKeyStore(DataSource dataSource, String table) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingTemplate = new JdbcTemplate(dataSource);
+        this.streamingTemplate.setFetchSize(CursorFetchSize.resolve(dataSource, 0));
+        this.table = table;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public void forEachKey(Consumer<CustomerKey> consumer) {
+        streamingTemplate.query("SELECT name, age, gender FROM " + table
+                        + " WHERE name IS NOT NULL AND gender IS NOT NULL",
+                rs -> {
+                    consumer.accept(new CustomerKey(rs.getString(1), rs.getInt(2), rs.getString(3)));
+                });
+    }
+
+    @Override
+    public Set<CustomerKey> findExisting(Collection<CustomerKey> keys) {
+        Set<CustomerKey> existing = new HashSet<>();
+        List<CustomerKey> batch = new ArrayList<>(Math.min(keys.size(), batchSize));
+        for (CustomerKey key : keys) {
+            batch.add(key);
+            if (batch.size() == batchSize) {
+                find(batch, existing);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            find(batch, existing);
+        }
+        return existing;
+    }
+
+    private void find(List<CustomerKey> keys, Set<CustomerKey> existing) {
+        StringBuilder sql = new StringBuilder("SELECT name, age, gender FROM ").append(table).append(" WHERE ");
+        Object[] args = new Object[keys.size() * 3];
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) {
+                sql.append(" OR ");
+            }
+            sql.append(KEY_CONDITION);
+            CustomerKey key = keys.get(i);
+            args[i * 3] = key.name();
+            args[i * 3 + 1] = key.age();
+            args[i * 3 + 2] = key.gender();
+        }
+        jdbcTemplate.query(sql.toString(), rs -> {
+            existing.add(new CustomerKey(rs.getString(1), rs.getInt(2), rs.getString(3)));
+        }, args);
+    }
+}
@@ -0,0 +1,191 @@
+package com.mardi2020.exbatch.chunk.incremental;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.lang.NonNull;
+
+/**
+ * 마지막으로 성공한 JobExecution 의 high-water mark(읽은 key 의 최대값) 이후 row 만 읽도록 하는 증분 추출 listener
+ * - beforeStep: 같은 job 의 최근 COMPLETED 실행에서 mark 를 찾아 {@link ExtractRange} 로 reader / writer 를 설정한다.
+ *   mark 가 없거나, job parameter fullRefresh 가 주어졌거나, 마지막 full refresh 이후 fullRefreshEvery 번째 실행이면 전체를 다시 읽는다.
+ *   fullRefresh 는 한 번만 적용된다. RunIdIncrementer 가 이전 실행의 parameter 를 그대로 넘겨주므로,
+ *   이전 COMPLETED 실행과 같은 값이면 무시한다. 연속으로 다시 읽으려면 실행마다 다른 값(ex. fullRefresh=2024-05-01)을 준다.
+ * - afterRead: 읽은 item 의 key 최대값을 step ExecutionContext 에 기록한다. (chunk commit 때 같이 저장)
+ * - afterStep: step 이 COMPLETED 이면 mark 를 job ExecutionContext 에 저장한다. 실패한 실행의 mark 는 사용하지 않는다.
+ * 재시작이면 step ExecutionContext 에 남은 범위를 그대로 사용하므로, 실패 후 그 사이 추가된 row 는 다음 실행에서 읽는다.
+ * beforeStep 은 reader / writer 의 open 보다 먼저 호출되므로 callback 에서 바꾼 설정이 이번 실행에 적용된다.
+ * step 에는 {@link #registerListeners(SimpleStepBuilder)} 로 등록한다.
+ *
+ * @param <T> 읽는 item
+ */
+@Slf4j
+public class HighWaterMarkListener<T> implements StepExecutionListener, ItemReadListener<T> {
+
+    public static final String HIGH_WATER_MARK_KEY = "incremental.high-water-mark";
+
+    public static final String RUNS_SINCE_FULL_KEY = "incremental.runs-since-full";
+
+    public static final String FROM_KEY = "incremental.from";
+
+    public static final String FULL_REFRESH_KEY = "incremental.full-refresh";
+
+    public static final String MAX_SEEN_KEY = "incremental.max-seen";
+
+    public static final String FULL_REFRESH_PARAMETER = "fullRefresh";
+
+    /**
+     * mark 를 찾을 최근 job instance 수
+     */
+    private static final int LOOKBACK = 50;
+
+    private final JobExplorer jobExplorer;
+
+    private final ToLongFunction<T> keyExtractor;
+
+    private final int fullRefreshEvery;
+
+    private final Consumer<ExtractRange> rangeConfigurer;
+
+    private StepExecution stepExecution;
+
+    private long maxSeen;
+
+    /**
+     * @param jobExplorer 이전 실행의 mark 조회용
+     * @param keyExtractor item 의 증가하는 key (ex. id)
+     * @param fullRefreshEvery 몇 번째 실행마다 전체를 다시 읽을지, 0 이면 mark 가 없을 때만
+     * @param rangeConfigurer 이번 실행의 범위로 reader 조건과 writer 이어쓰기를 설정한다.
+     */
+    public HighWaterMarkListener(JobExplorer jobExplorer, ToLongFunction<T> keyExtractor, int fullRefreshEvery,
+                                 Consumer<ExtractRange> rangeConfigurer) {
+        this.jobExplorer = jobExplorer;
+        this.keyExtractor = keyExtractor;
+        this.fullRefreshEvery = fullRefreshEvery;
+        this.rangeConfigurer = rangeConfigurer;
+    }
+
+    /**
+     * step builder 에 beforeStep / afterRead listener 를 등록한다.
+     */
+    public <O> SimpleStepBuilder<T, O> registerListeners(SimpleStepBuilder<T, O> builder) {
+        builder.listener((StepExecutionListener) this);
+        builder.listener((ItemReadListener<T>) this);
+        return builder;
+    }
+
+    @Override
+    public void beforeStep(@NonNull StepExecution stepExecution) {
+        this.stepExecution = stepExecution;
+        ExecutionContext stepContext = stepExecution.getExecutionContext();
+        ExtractRange range;
+        if (stepContext.containsKey(FROM_KEY)) {
+            range = new ExtractRange(stepContext.getLong(FROM_KEY), Boolean.TRUE.equals(stepContext.get(FULL_REFRESH_KEY)));
+            maxSeen = stepContext.getLong(MAX_SEEN_KEY, range.from());
+            log.info("증분 추출 재시작: from={}, fullRefresh={}, maxSeen={}", range.from(), range.fullRefresh(), maxSeen);
+        } else {
+            JobExecution previous = findLastCompleted(stepExecution.getJobExecution());
+            range = nextRange(stepExecution.getJobExecution(), previous);
+            maxSeen = range.from();
+            stepContext.putLong(FROM_KEY, range.from());
+            stepContext.put(FULL_REFRESH_KEY, range.fullRefresh());
+            stepContext.putInt(RUNS_SINCE_FULL_KEY, range.fullRefresh() ? 0 : runsSinceFull(previous) + 1);
+            log.info("증분 추출: from={}, fullRefresh={}", range.from(), range.fullRefresh());
+        }
+        rangeConfigurer.accept(range);
+    }
+
+    @Override
+    public void afterRead(@NonNull T item) {
+        long key = keyExtractor.applyAsLong(item);
+        if (key > maxSeen) {
+            maxSeen = key;
+            stepExecution.getExecutionContext().putLong(MAX_SEEN_KEY, key);
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(@NonNull StepExecution stepExecution) {
+        if (stepExecution.getStatus() != BatchStatus.COMPLETED) {
+            return null;
+        }
+        int runsSinceFull = stepExecution.getExecutionContext().getInt(RUNS_SINCE_FULL_KEY, 0);
+        ExecutionContext jobContext = stepExecution.getJobExecution().getExecutionContext();
+        jobContext.putLong(HIGH_WATER_MARK_KEY, maxSeen);
+        jobContext.putInt(RUNS_SINCE_FULL_KEY, runsSinceFull);
+        log.info("증분 추출 완료: high-water mark={}, full refresh 이후 {} 번째", maxSeen, runsSinceFull);
+        return null;
+    }
+
+    private ExtractRange nextRange(JobExecution jobExecution, JobExecution previous) {
+        if (previous == null
+                || fullRefreshRequested(jobExecution, previous)
+                || (fullRefreshEvery > 0 && runsSinceFull(previous) + 1 >= fullRefreshEvery)) {
+            return ExtractRange.full();
+        }
+        return new ExtractRange(previous.getExecutionContext().getLong(HIGH_WATER_MARK_KEY), false);
+    }
+
+    /**
+     * fullRefresh parameter 가 있고(false 제외) 이전 실행이 같은 값으로 실행되지 않았으면 true
+     */
+    private static boolean fullRefreshRequested(JobExecution jobExecution, JobExecution previous) {
+        String value = jobExecution.getJobParameters().getString(FULL_REFRESH_PARAMETER);
+        if (value == null || value.isBlank() || "false".equalsIgnoreCase(value)) {
+            return false;
+        }
+        if (value.equals(previous.getJobParameters().getString(FULL_REFRESH_PARAMETER))) {
+            log.info("fullRefresh={} 는 이전 실행({})에서 이미 적용되어 무시합니다.", value, previous.getId());
+            return false;
+        }
+        return true;
+    }
+
+    private static int runsSinceFull(JobExecution previous) {
+        return previous == null ? 0 : previous.getExecutionContext().getInt(RUNS_SINCE_FULL_KEY, 0);
+    }
+
+    /**
+     * 지금 실행을 제외한 가장 최근의 mark 가 있는 COMPLETED 실행
+     */
+    private JobExecution findLastCompleted(JobExecution current) {
+        List<JobInstance> instances = jobExplorer.getJobInstances(current.getJobInstance().getJobName(), 0, LOOKBACK);
+        JobExecution latest = null;
+        for (JobInstance instance : instances) {
+            for (JobExecution execution : jobExplorer.getJobExecutions(instance)) {
+                if (execution.getId().equals(current.getId()) || execution.getStatus() != BatchStatus.COMPLETED
+                        || !execution.getExecutionContext().containsKey(HIGH_WATER_MARK_KEY)) {
+                    continue;
+                }
+                if (latest == null || execution.getId() > latest.getId()) {
+                    latest = execution;
+                }
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * 이번 실행에서 읽을 범위
+     *
+     * @param from 이 값보다 큰 key 만 읽는다. full refresh 이면 0
+     * @param fullRefresh true 이면 전체를 읽고 출력 파일을 새로 쓴다. false 이면 이전 출력 파일에 이어 쓴다.
+     */
+    public record ExtractRange(long from, boolean fullRefresh) {
+
+        public static ExtractRange full() {
+            return new ExtractRange(0, true);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.mardi2020.exbatch.chunk.lookup;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.lang.NonNull;
+
+/**
+ * item 의 key 로 다른 데이터를 조회해서 합치는(enrichment) processor
+ * - 읽은 item 의 key 를 afterRead 에서 모아두었다가, process 에서 cache 에 없는 key 가 나오면
+ *   모아둔 key 중 cache 에 없는 것을 {@link LookupLoader} 로 한 번에 조회한다.
+ *   chunk step 은 chunk 의 item 을 모두 읽은 뒤 process 하므로 chunk 당 조회는 한 번, cache 에 다 있으면 0 번이다.
+ * - cache 는 Caffeine(W-TinyLFU) 으로 maximumSize 개까지 유지하고, step 의 chunk / 스레드가 같이 사용한다.
+ *   값이 없는 key 도 저장해서 다시 조회하지 않는다.
+ * - preloader 를 지정하면 step 시작 시 그 결과로 cache 를 채운다.
+ * - cache 적중률은 cache.gets{result=hit|miss}, cache.evictions 등으로, 한 번에 조회한 시간과 횟수는 lookup.cache.load 로 기록한다.
+ * step 에는 processor 와 함께 {@link #registerListeners(SimpleStepBuilder)} 로 listener 를 등록한다.
+ *
+ * @param <I> 입력 item
+ * @param <K> 조회 key
+ * @param <V> 조회한 값
+ * @param <O> 결과 item
+ */
+@Slf4j
+public class CachingLookupProcessor<I, K, V, O> implements ItemProcessor<I, O>, ItemReadListener<I>,
+        StepExecutionListener {
+
+    private final String name;
+
+    private final Function<I, K> keyExtractor;
+
+    private final LookupLoader<K, V> loader;
+
+    private final BiFunction<I, V, O> combiner;
+
+    private final Cache<K, Optional<V>> cache;
+
+    private final Set<K> pendingKeys = ConcurrentHashMap.newKeySet();
+
+    private final Timer loadTimer;
+
+    private Supplier<Map<K, V>> preloader;
+
+    /**
+     * @param name cache 이름 (meter tag)
+     * @param maximumSize cache 에 유지할 최대 key 수
+     * @param expireAfterWrite 값을 다시 조회할 주기, null 이면 만료하지 않는다.
+     * @param keyExtractor item 에서 조회 key 를 꺼내는 함수
+     * @param loader key 들을 한 번에 조회하는 loader
+     * @param combiner item 과 조회한 값(없으면 null)으로 결과를 만드는 함수, null 을 돌려주면 filter 된다.
+     */
+    public CachingLookupProcessor(String name, long maximumSize, Duration expireAfterWrite,
+                                  Function<I, K> keyExtractor, LookupLoader<K, V> loader,
+                                  BiFunction<I, V, O> combiner) {
+        this.name = name;
+        this.keyExtractor = keyExtractor;
+        this.loader = loader;
+        this.combiner = combiner;
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(maximumSize).recordStats();
+        if (expireAfterWrite != null) {
+            builder.expireAfterWrite(expireAfterWrite);
+        }
+        this.cache = builder.build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, cache, name);
+        this.loadTimer = Timer.builder("lookup.cache.load")
+                .description("bulk lookup 조회 시간")
+                .tag("cache", name)
+                .register(Metrics.globalRegistry);
+    }
+
+    public void setPreloader(Supplier<Map<K, V>> preloader) {
+        this.preloader = preloader;
+    }
+
+    /**
+     * step builder 에 afterRead / beforeStep listener 를 등록한다.
+     */
+    public <T> SimpleStepBuilder<I, T> registerListeners(SimpleStepBuilder<I, T> builder) {
+        builder.listener((ItemReadListener<I>) this);
+        builder.listener((StepExecutionListener) this);
+        return builder;
+    }
+
+    @Override
+    public void beforeStep(@NonNull StepExecution stepExecution) {
+        pendingKeys.clear();
+        if (preloader == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        Map<K, V> values = preloader.get();
+        values.forEach((key, value) -> cache.put(key, Optional.ofNullable(value)));
+        log.info("lookup cache [{}] preload: {} 건, {} ms", name, values.size(),
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    @Override
+    public void afterRead(@NonNull I item) {
+        K key = keyExtractor.apply(item);
+        if (key != null) {
+            pendingKeys.add(key);
+        }
+    }
+
+    @Override
+    public O process(@NonNull I item) throws Exception {
+        K key = keyExtractor.apply(item);
+        if (key == null) {
+            return combiner.apply(item, null);
+        }
+        Optional<V> value = cache.getIfPresent(key);
+        if (value == null) {
+            value = load(key);
+        }
+        return combiner.apply(item, value.orElse(null));
+    }
+
+    /**
+     * 지금까지 모아둔 key 와 요청한 key 중 cache 에 없는 것을 한 번에 조회한다.
+     */
+    private Optional<V> load(K key) throws Exception {
+        Set<K> keys = new HashSet<>();
+        keys.add(key);
+        for (Iterator<K> iterator = pendingKeys.iterator(); iterator.hasNext(); ) {
+            keys.add(iterator.next());
+            iterator.remove();
+        }
+        Set<K> cached = cache.getAllPresent(keys).keySet();
+        keys.removeIf(each -> !each.equals(key) && cached.contains(each));
+
+        Map<K, V> loaded = loadTimer.recordCallable(() -> loader.loadAll(keys));
+        Map<K, Optional<V>> values = new HashMap<>(keys.size() * 2);
+        for (K each : keys) {
+            values.put(each, Optional.ofNullable(loaded.get(each)));
+        }
+        cache.putAll(values);
+        return values.get(key);
+    }
+}
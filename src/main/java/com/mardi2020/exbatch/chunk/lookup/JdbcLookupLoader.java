@@ -0,0 +1,68 @@
+package com.mardi2020.exbatch.chunk.lookup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * {@code WHERE key IN (:keys)} 형태의 sql 로 key 들을 한 번에 조회하는 loader
+ * DB 마다 IN 목록 길이 제한이 있으므로 batchSize 개씩 나눠서 조회한다.
+ */
+public class JdbcLookupLoader<K, V> implements LookupLoader<K, V> {
+
+    public static final String KEYS_PARAMETER = "keys";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final String sql;
+
+    private final RowMapper<V> rowMapper;
+
+    private final Function<V, K> keyOf;
+
+    private int batchSize = 1000;
+
+    /**
+     * @param sql :keys 파라미터를 IN 조건으로 쓰는 조회 sql
+     * @param keyOf 조회한 값에서 key 를 꺼내는 함수
+     */
+    public JdbcLookupLoader(DataSource dataSource, String sql, RowMapper<V> rowMapper, Function<V, K> keyOf) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.sql = sql;
+        this.rowMapper = rowMapper;
+        this.keyOf = keyOf;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Map<K, V> loadAll(Collection<K> keys) {
+        Map<K, V> values = new HashMap<>(keys.size() * 2);
+        List<K> batch = new ArrayList<>(Math.min(keys.size(), batchSize));
+        for (K key : keys) {
+            batch.add(key);
+            if (batch.size() == batchSize) {
+                load(batch, values);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            load(batch, values);
+        }
+        return values;
+    }
+
+    private void load(List<K> keys, Map<K, V> values) {
+        for (V value : jdbcTemplate.query(sql, Map.of(KEYS_PARAMETER, keys), rowMapper)) {
+            values.put(keyOf.apply(value), value);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.mardi2020.exbatch.chunk.lookup;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 여러 key 의 값을 한 번에 조회하는 loader
+ * 값이 없는 key 는 결과 map 에서 빠진다.
+ */
+@FunctionalInterface
+public interface LookupLoader<K, V> {
+
+    Map<K, V> loadAll(Collection<K> keys) throws Exception;
+}
@@ -0,0 +1,220 @@
+package com.mardi2020.exbatch.chunk.mapping;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 타입마다 한 번만 bean property 를 조사해 생성자 / getter / setter 를 LambdaMetafactory 로 만든 람다로 묶어 둔다.
+ * 이후 item 마다의 값 읽기/쓰기는 일반 메서드 호출과 같아서 BeanWrapper 처럼 PropertyDescriptor 조회나
+ * Method.invoke 를 하지 않는다. LambdaMetafactory 를 쓸 수 없는 경우(다른 module 등)에는 MethodHandle 로 대신한다.
+ */
+@Slf4j
+public final class BeanMapping<T> {
+
+    private static final ClassValue<BeanMapping<?>> CACHE = new ClassValue<>() {
+        @Override
+        protected BeanMapping<?> computeValue(Class<?> type) {
+            return new BeanMapping<>(type);
+        }
+    };
+
+    private final Class<T> type;
+
+    private final Supplier<T> constructor;
+
+    private final Map<String, PropertyAccessor<T>> properties;
+
+    private final Map<String, PropertyAccessor<T>> normalizedProperties;
+
+    @SuppressWarnings("unchecked")
+    public static <T> BeanMapping<T> of(Class<T> type) {
+        return (BeanMapping<T>) CACHE.get(type);
+    }
+
+    private BeanMapping(Class<T> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup = lookup(type);
+        this.constructor = constructor(lookup, type);
+
+        BeanInfo beanInfo;
+        try {
+            beanInfo = Introspector.getBeanInfo(type, Object.class);
+        } catch (IntrospectionException e) {
+            throw new IllegalArgumentException("bean 정보를 읽을 수 없습니다: " + type.getName(), e);
+        }
+        Map<String, PropertyAccessor<T>> byName = new LinkedHashMap<>();
+        Map<String, PropertyAccessor<T>> byNormalizedName = new LinkedHashMap<>();
+        for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
+            Method readMethod = descriptor.getReadMethod();
+            Method writeMethod = descriptor.getWriteMethod();
+            PropertyAccessor<T> accessor = new PropertyAccessor<>(descriptor.getName(), descriptor.getPropertyType(),
+                    readMethod == null ? null : getter(lookup, readMethod),
+                    writeMethod == null ? null : setter(lookup, writeMethod));
+            byName.put(accessor.name(), accessor);
+            byNormalizedName.put(normalize(accessor.name()), accessor);
+        }
+        this.properties = Collections.unmodifiableMap(byName);
+        this.normalizedProperties = byNormalizedName;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public T newInstance() {
+        if (constructor == null) {
+            throw new IllegalStateException("기본 생성자가 없습니다: " + type.getName());
+        }
+        return constructor.get();
+    }
+
+    /**
+     * @return property 이름 순서의 전체 property
+     */
+    public Map<String, PropertyAccessor<T>> getProperties() {
+        return properties;
+    }
+
+    /**
+     * 대소문자와 '_' 를 무시하고 찾는다. ("Name", "first_name" 같은 헤더/컬럼 이름용)
+     *
+     * @return 해당 property 가 없으면 null
+     */
+    public PropertyAccessor<T> findProperty(String name) {
+        PropertyAccessor<T> accessor = properties.get(name);
+        return accessor != null ? accessor : normalizedProperties.get(normalize(name));
+    }
+
+    public PropertyAccessor<T> getProperty(String name) {
+        PropertyAccessor<T> accessor = findProperty(name);
+        if (accessor == null) {
+            throw new IllegalArgumentException(type.getSimpleName() + " 에 property 가 없습니다: " + name);
+        }
+        return accessor;
+    }
+
+    public List<PropertyAccessor<T>> getProperties(String... names) {
+        List<PropertyAccessor<T>> accessors = new ArrayList<>(names.length);
+        for (String name : names) {
+            accessors.add(getProperty(name.trim()));
+        }
+        return accessors;
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static MethodHandles.Lookup lookup(Class<?> type) {
+        try {
+            // 람다 클래스가 대상 타입과 같은 package 에 정의되어 package-private 타입도 다룰 수 있다.
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            return MethodHandles.publicLookup();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> constructor(MethodHandles.Lookup lookup, Class<T> type) {
+        MethodHandle handle;
+        try {
+            handle = lookup.findConstructor(type, MethodType.methodType(void.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+        try {
+            CallSite site = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class), handle, handle.type());
+            return (Supplier<T>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            log.debug("LambdaMetafactory 를 사용할 수 없어 MethodHandle 로 생성합니다: {}", type.getName(), e);
+            MethodHandle generic = handle.asType(MethodType.methodType(Object.class));
+            return () -> {
+                try {
+                    return (T) generic.invokeExact();
+                } catch (Throwable t) {
+                    throw rethrow(t);
+                }
+            };
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Function<T, Object> getter(MethodHandles.Lookup lookup, Method method) {
+        MethodHandle handle = unreflect(lookup, method);
+        try {
+            // (T)int -> (T)Integer 처럼 primitive 반환값은 람다 안에서 boxing 된다.
+            CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class), handle, handle.type().wrap());
+            return (Function<T, Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            log.debug("LambdaMetafactory 를 사용할 수 없어 MethodHandle 로 읽습니다: {}", method, e);
+            MethodHandle generic = handle.asType(MethodType.methodType(Object.class, Object.class));
+            return target -> {
+                try {
+                    return generic.invokeExact((Object) target);
+                } catch (Throwable t) {
+                    throw rethrow(t);
+                }
+            };
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> BiConsumer<T, Object> setter(MethodHandles.Lookup lookup, Method method) {
+        MethodHandle handle = unreflect(lookup, method);
+        try {
+            // (T, Integer) 로 받아 unboxing 해서 (T, int) setter 를 호출한다. primitive property 에 null 을 넣으면 NPE
+            CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class), handle,
+                    handle.type().wrap().changeReturnType(void.class));
+            return (BiConsumer<T, Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            log.debug("LambdaMetafactory 를 사용할 수 없어 MethodHandle 로 씁니다: {}", method, e);
+            MethodHandle generic = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            return (target, value) -> {
+                try {
+                    generic.invokeExact((Object) target, value);
+                } catch (Throwable t) {
+                    throw rethrow(t);
+                }
+            };
+        }
+    }
+
+    private static MethodHandle unreflect(MethodHandles.Lookup lookup, Method method) {
+        try {
+            return lookup.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("접근할 수 없는 메서드입니다: " + method, e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (t instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(t);
+    }
+}
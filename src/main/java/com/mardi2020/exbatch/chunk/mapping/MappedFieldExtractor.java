@@ -0,0 +1,35 @@
+package com.mardi2020.exbatch.chunk.mapping;
+
+import java.util.List;
+import org.springframework.batch.item.file.transform.FieldExtractor;
+import org.springframework.lang.NonNull;
+
+/**
+ * BeanWrapperFieldExtractor 대신 쓰는 FieldExtractor
+ * names 순서의 getter 를 생성 시점에 찾아 두고, item 마다 그대로 호출해 배열로 돌려준다.
+ */
+public class MappedFieldExtractor<T> implements FieldExtractor<T> {
+
+    private final PropertyAccessor<T>[] accessors;
+
+    @SuppressWarnings("unchecked")
+    public MappedFieldExtractor(Class<T> type, String... names) {
+        List<PropertyAccessor<T>> properties = BeanMapping.of(type).getProperties(names);
+        this.accessors = properties.toArray(PropertyAccessor[]::new);
+        for (PropertyAccessor<T> accessor : accessors) {
+            if (!accessor.isReadable()) {
+                throw new IllegalArgumentException("읽을 수 없는 property 입니다: " + accessor.name());
+            }
+        }
+    }
+
+    @Override
+    @NonNull
+    public Object[] extract(@NonNull T item) {
+        Object[] values = new Object[accessors.length];
+        for (int i = 0; i < accessors.length; i++) {
+            values[i] = accessors[i].get(item);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,105 @@
+package com.mardi2020.exbatch.chunk.mapping;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.lang.NonNull;
+
+/**
+ * BeanPropertyRowMapper 대신 쓰는 RowMapper
+ * 생성 시점에 select 절 column 순서대로 property 를 묶어 두고, row 마다 column index 로 읽어 바로 넣는다.
+ * BeanPropertyRowMapper 처럼 row 마다 ResultSetMetaData 의 column 이름으로 property 를 찾지 않는다.
+ * column 이름은 대소문자와 '_' 를 무시하고 property 와 맞춘다. (first_name -> firstName)
+ * JDBC_PAGING_CHUNK_JOB 의 paging / cursor reader 와 JDBC_PAGING_PARTITION_CHUNK_JOB 의 reader 가 사용한다.
+ */
+public class MappedRowMapper<T> implements RowMapper<T> {
+
+    private final BeanMapping<T> mapping;
+
+    private final ColumnBinder<T>[] binders;
+
+    private final String columns;
+
+    @SuppressWarnings("unchecked")
+    public MappedRowMapper(Class<T> type, String... columns) {
+        this.mapping = BeanMapping.of(type);
+        List<PropertyAccessor<T>> accessors = mapping.getProperties(columns);
+        this.binders = new ColumnBinder[accessors.size()];
+        for (int i = 0; i < binders.length; i++) {
+            binders[i] = binder(accessors.get(i));
+        }
+        this.columns = String.join(", ", columns);
+    }
+
+    /**
+     * @return 생성자에 넘긴 순서의 select 절
+     */
+    public String getColumns() {
+        return columns;
+    }
+
+    @Override
+    @NonNull
+    public T mapRow(@NonNull ResultSet rs, int rowNum) throws SQLException {
+        T item = mapping.newInstance();
+        for (int i = 0; i < binders.length; i++) {
+            binders[i].bind(item, rs, i + 1);
+        }
+        return item;
+    }
+
+    private static <T> ColumnBinder<T> binder(PropertyAccessor<T> accessor) {
+        Class<?> type = accessor.type();
+        if (type == String.class) {
+            return (item, rs, index) -> accessor.set(item, rs.getString(index));
+        }
+        if (type == int.class) {
+            return (item, rs, index) -> accessor.set(item, rs.getInt(index));
+        }
+        if (type == long.class) {
+            return (item, rs, index) -> accessor.set(item, rs.getLong(index));
+        }
+        if (type == double.class) {
+            return (item, rs, index) -> accessor.set(item, rs.getDouble(index));
+        }
+        if (type == boolean.class) {
+            return (item, rs, index) -> accessor.set(item, rs.getBoolean(index));
+        }
+        if (type == Integer.class) {
+            return (item, rs, index) -> {
+                int value = rs.getInt(index);
+                accessor.set(item, rs.wasNull() ? null : value);
+            };
+        }
+        if (type == Long.class) {
+            return (item, rs, index) -> {
+                long value = rs.getLong(index);
+                accessor.set(item, rs.wasNull() ? null : value);
+            };
+        }
+        if (type == Double.class) {
+            return (item, rs, index) -> {
+                double value = rs.getDouble(index);
+                accessor.set(item, rs.wasNull() ? null : value);
+            };
+        }
+        if (type == Boolean.class) {
+            return (item, rs, index) -> {
+                boolean value = rs.getBoolean(index);
+                accessor.set(item, rs.wasNull() ? null : value);
+            };
+        }
+        if (type == BigDecimal.class) {
+            return (item, rs, index) -> accessor.set(item, rs.getBigDecimal(index));
+        }
+        return (item, rs, index) -> accessor.set(item, rs.getObject(index, type));
+    }
+
+    @FunctionalInterface
+    private interface ColumnBinder<T> {
+
+        void bind(T item, ResultSet rs, int index) throws SQLException;
+    }
+}
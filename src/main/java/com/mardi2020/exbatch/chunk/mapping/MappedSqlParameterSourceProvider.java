@@ -0,0 +1,85 @@
+package com.mardi2020.exbatch.chunk.mapping;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.batch.item.database.ItemSqlParameterSourceProvider;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.lang.NonNull;
+
+/**
+ * BeanPropertySqlParameterSource 대신 쓰는 ItemSqlParameterSourceProvider
+ * item 마다 BeanWrapper 를 만들지 않고, 미리 만든 getter 와 sql type 을 공유하는 가벼운 SqlParameterSource 로 감싼다.
+ */
+public class MappedSqlParameterSourceProvider<T> implements ItemSqlParameterSourceProvider<T> {
+
+    private final BeanMapping<T> mapping;
+
+    private final Map<String, PropertyAccessor<T>> readable = new HashMap<>();
+
+    private final Map<String, Integer> sqlTypes = new HashMap<>();
+
+    private final String[] parameterNames;
+
+    public MappedSqlParameterSourceProvider(Class<T> type) {
+        this.mapping = BeanMapping.of(type);
+        for (PropertyAccessor<T> accessor : mapping.getProperties().values()) {
+            if (accessor.isReadable()) {
+                readable.put(accessor.name(), accessor);
+                sqlTypes.put(accessor.name(), StatementCreatorUtils.javaTypeToSqlParameterType(accessor.type()));
+            }
+        }
+        this.parameterNames = readable.keySet().toArray(String[]::new);
+    }
+
+    @Override
+    @NonNull
+    public SqlParameterSource createSqlParameterSource(@NonNull T item) {
+        return new ItemParameterSource(item);
+    }
+
+    private PropertyAccessor<T> accessor(String paramName) {
+        PropertyAccessor<T> accessor = readable.get(paramName);
+        if (accessor == null) {
+            accessor = mapping.findProperty(paramName);
+            if (accessor != null && !accessor.isReadable()) {
+                accessor = null;
+            }
+        }
+        return accessor;
+    }
+
+    private final class ItemParameterSource implements SqlParameterSource {
+
+        private final T item;
+
+        private ItemParameterSource(T item) {
+            this.item = item;
+        }
+
+        @Override
+        public boolean hasValue(@NonNull String paramName) {
+            return accessor(paramName) != null;
+        }
+
+        @Override
+        public Object getValue(@NonNull String paramName) {
+            PropertyAccessor<T> accessor = accessor(paramName);
+            if (accessor == null) {
+                throw new IllegalArgumentException("No value registered for key '" + paramName + "'");
+            }
+            return accessor.get(item);
+        }
+
+        @Override
+        public int getSqlType(@NonNull String paramName) {
+            PropertyAccessor<T> accessor = accessor(paramName);
+            return accessor == null ? TYPE_UNKNOWN : sqlTypes.get(accessor.name());
+        }
+
+        @Override
+        public String[] getParameterNames() {
+            return parameterNames.clone();
+        }
+    }
+}
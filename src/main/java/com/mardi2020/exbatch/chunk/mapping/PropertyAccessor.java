@@ -0,0 +1,34 @@
+package com.mardi2020.exbatch.chunk.mapping;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * {@link BeanMapping} 이 미리 만들어 둔 property 하나의 getter / setter
+ * 읽기 전용이나 쓰기 전용 property 는 없는 쪽이 null 이다.
+ */
+public record PropertyAccessor<T>(String name, Class<?> type,
+                                  Function<T, Object> getter, BiConsumer<T, Object> setter) {
+
+    public Object get(T target) {
+        if (getter == null) {
+            throw new IllegalStateException("읽을 수 없는 property 입니다: " + name);
+        }
+        return getter.apply(target);
+    }
+
+    public void set(T target, Object value) {
+        if (setter == null) {
+            throw new IllegalStateException("쓸 수 없는 property 입니다: " + name);
+        }
+        setter.accept(target, value);
+    }
+
+    public boolean isReadable() {
+        return getter != null;
+    }
+
+    public boolean isWritable() {
+        return setter != null;
+    }
+}
@@ -0,0 +1,242 @@
+package com.mardi2020.exbatch.chunk.policy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+import org.springframework.lang.NonNull;
+
+/**
+ * chunk 처리 시간을 측정해서 목표 시간(targetLatency)에 맞게 chunk 크기를 늘리거나 줄이는 CompletionPolicy
+ * StepBuilder.chunk(policy, transactionManager) 와 listener(policy) 로 같이 등록해야 한다.
+ * - item 당 처리 시간의 이동 평균으로 목표 시간에 맞는 크기를 계산하고, 한 번에 2배 이상 바뀌지 않게 한다.
+ * - 마지막 GC 이후 heap 사용률이 heapBudget 을 넘거나 chunk 가 rollback 되면 크기를 절반으로 줄인다.
+ * - 크기가 바뀌면 등록된 listener(ex. keyset reader 의 setPageSize) 에도 알린다.
+ * - 현재 크기와 조정 횟수는 micrometer(spring.batch.chunk.size, spring.batch.chunk.size.adjustments) 와
+ *   step ExecutionContext 에 남기고, 재시작 시 마지막 크기부터 다시 시작한다.
+ *   gauge 는 job / step 마다 하나라서, 같은 JVM 에서 다시 실행하면(벤치마크, launcher) 새 정책이 같은 값을 이어서 갱신한다.
+ * step 실행 하나의 상태를 들고 있으므로 partition / multi-threaded step 에서 공유하면 안 된다.
+ */
+@Slf4j
+public class AdaptiveChunkCompletionPolicy extends SimpleCompletionPolicy implements ChunkListener {
+
+    public static final String CURRENT_SIZE_KEY = "chunk.size.current";
+
+    public static final String ADJUSTMENTS_KEY = "chunk.size.adjustments";
+
+    /**
+     * 계산된 크기가 현재 크기와 이 비율 이상 차이 날 때만 바꾼다.
+     */
+    private static final double CHANGE_THRESHOLD = 0.1;
+
+    private static final double SMOOTHING = 0.3;
+
+    /**
+     * job / step 별 spring.batch.chunk.size gauge 값
+     * micrometer 는 같은 이름 / tag 의 gauge 를 다시 등록하면 처음 등록한 것을 돌려주므로 정책 인스턴스가 아닌 이 값을 본다.
+     */
+    private static final Map<String, AtomicInteger> CHUNK_SIZES = new ConcurrentHashMap<>();
+
+    private final int initialSize;
+
+    private final boolean adaptive;
+
+    private final long targetNanos;
+
+    private final int minSize;
+
+    private final int maxSize;
+
+    private final double heapBudget;
+
+    private final List<IntConsumer> chunkSizeListeners = new CopyOnWriteArrayList<>();
+
+    private StepExecution stepExecution;
+
+    private long chunkStarted;
+
+    private int chunkStartReadCount;
+
+    private double nanosPerItem;
+
+    private long adjustments;
+
+    private String lastDecision = "initial";
+
+    private AtomicInteger chunkSizeGauge;
+
+    /**
+     * @param initialSize 시작 chunk 크기
+     * @param adaptive false 이면 크기를 바꾸지 않는다. (고정 크기 + 메트릭만)
+     * @param targetLatency chunk 하나(read ~ commit)의 목표 처리 시간
+     * @param minSize 최소 chunk 크기
+     * @param maxSize 최대 chunk 크기
+     * @param heapBudget 0 ~ 1, GC 후 heap 사용률이 이 값을 넘으면 chunk 를 줄인다.
+     */
+    public AdaptiveChunkCompletionPolicy(int initialSize, boolean adaptive, Duration targetLatency,
+                                         int minSize, int maxSize, double heapBudget) {
+        super(initialSize);
+        this.initialSize = initialSize;
+        this.adaptive = adaptive;
+        this.targetNanos = targetLatency.toNanos();
+        this.minSize = Math.min(minSize, initialSize);
+        this.maxSize = Math.max(maxSize, initialSize);
+        this.heapBudget = heapBudget;
+    }
+
+    /**
+     * chunk 크기가 바뀔 때마다 새 크기로 호출된다.
+     */
+    public void addChunkSizeListener(IntConsumer listener) {
+        chunkSizeListeners.add(listener);
+    }
+
+    @Override
+    public void beforeChunk(@NonNull ChunkContext context) {
+        StepExecution current = context.getStepContext().getStepExecution();
+        if (current != stepExecution) {
+            start(current);
+        }
+        chunkStarted = System.nanoTime();
+        chunkStartReadCount = current.getReadCount();
+    }
+
+    @Override
+    public void afterChunk(@NonNull ChunkContext context) {
+        long elapsed = System.nanoTime() - chunkStarted;
+        int items = stepExecution.getReadCount() - chunkStartReadCount;
+        if (items <= 0) {
+            return;
+        }
+        double sample = (double) elapsed / items;
+        nanosPerItem = nanosPerItem == 0 ? sample : SMOOTHING * sample + (1 - SMOOTHING) * nanosPerItem;
+
+        int size = getChunkSize();
+        if (heapUsageAfterGc() > heapBudget) {
+            resize(size / 2, "shrink.memory");
+            return;
+        }
+        int desired = (int) Math.min(Integer.MAX_VALUE, targetNanos / nanosPerItem);
+        desired = Math.max(size / 2, Math.min(desired, size * 2));
+        if (Math.abs(desired - size) >= size * CHANGE_THRESHOLD) {
+            resize(desired, desired > size ? "grow" : "shrink");
+        }
+    }
+
+    @Override
+    public void afterChunkError(@NonNull ChunkContext context) {
+        if (stepExecution != null) {
+            resize(getChunkSize() / 2, "shrink.rollback");
+        }
+    }
+
+    /**
+     * 새 step 실행 시작, 재시작이면 직전 실행의 마지막 크기부터 시작한다.
+     */
+    private void start(StepExecution current) {
+        stepExecution = current;
+        chunkSizeGauge = chunkSizeGauge(current.getJobExecution().getJobInstance().getJobName(),
+                current.getStepName());
+        nanosPerItem = 0;
+        adjustments = 0;
+        lastDecision = "initial";
+        ExecutionContext executionContext = current.getExecutionContext();
+        int size = adaptive && executionContext.containsKey(CURRENT_SIZE_KEY)
+                ? executionContext.getInt(CURRENT_SIZE_KEY) : initialSize;
+        setChunkSize(size);
+        executionContext.putInt(CURRENT_SIZE_KEY, size);
+        executionContext.putLong(ADJUSTMENTS_KEY, 0);
+        if (adaptive) {
+            chunkSizeListeners.forEach(listener -> listener.accept(size));
+        }
+    }
+
+    @Override
+    public void setChunkSize(int chunkSize) {
+        super.setChunkSize(chunkSize);
+        if (chunkSizeGauge != null) {
+            chunkSizeGauge.set(chunkSize);
+        }
+    }
+
+    private void resize(int requested, String decision) {
+        int size = getChunkSize();
+        int next = Math.max(minSize, Math.min(maxSize, requested));
+        if (!adaptive || next == size) {
+            return;
+        }
+        setChunkSize(next);
+        adjustments++;
+        lastDecision = decision;
+
+        ExecutionContext executionContext = stepExecution.getExecutionContext();
+        executionContext.putInt(CURRENT_SIZE_KEY, next);
+        executionContext.putLong(ADJUSTMENTS_KEY, adjustments);
+        Counter.builder("spring.batch.chunk.size.adjustments")
+                .description("chunk size changes")
+                .tag("spring.batch.chunk.step.name", stepExecution.getStepName())
+                .tag("decision", decision)
+                .register(registry())
+                .increment();
+        chunkSizeListeners.forEach(listener -> listener.accept(next));
+
+        log.info("[{}] chunk size {} -> {} ({}, {} us/item)",
+                stepExecution.getStepName(), size, next, decision, (long) (nanosPerItem / 1000));
+    }
+
+    public String getLastDecision() {
+        return lastDecision;
+    }
+
+    /**
+     * 마지막 GC 직후 기준 heap 사용률, 알 수 없으면 0
+     */
+    private static double heapUsageAfterGc() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        long max = Runtime.getRuntime().maxMemory();
+        return max == Long.MAX_VALUE || max <= 0 ? 0 : (double) used / max;
+    }
+
+    private static AtomicInteger chunkSizeGauge(String jobName, String stepName) {
+        return CHUNK_SIZES.computeIfAbsent(jobName + "/" + stepName, key -> {
+            AtomicInteger size = new AtomicInteger();
+            Gauge.builder("spring.batch.chunk.size", size, AtomicInteger::get)
+                    .description("current chunk size")
+                    .tag("spring.batch.chunk.job.name", jobName)
+                    .tag("spring.batch.chunk.step.name", stepName)
+                    .strongReference(true)
+                    .register(registry());
+            return size;
+        });
+    }
+
+    private static MeterRegistry registry() {
+        return Metrics.globalRegistry;
+    }
+}
@@ -0,0 +1,35 @@
+package com.mardi2020.exbatch.chunk.policy;
+
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * step 마다 AdaptiveChunkCompletionPolicy 를 만든다. (정책은 step 실행 상태를 들고 있어서 step 끼리 공유하지 않는다)
+ * exbatch.chunk.adaptive.enabled=false(기본) 이면 크기는 고정이고 메트릭만 남긴다.
+ */
+@Component
+public class AdaptiveChunkPolicyFactory {
+
+    @Value("${exbatch.chunk.adaptive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${exbatch.chunk.adaptive.target-latency:1s}")
+    private Duration targetLatency;
+
+    @Value("${exbatch.chunk.adaptive.min-size:10}")
+    private int minSize;
+
+    @Value("${exbatch.chunk.adaptive.max-size:5000}")
+    private int maxSize;
+
+    @Value("${exbatch.chunk.adaptive.heap-budget:0.7}")
+    private double heapBudget;
+
+    /**
+     * @param initialSize 시작 chunk 크기 (설정된 chunk size)
+     */
+    public AdaptiveChunkCompletionPolicy create(int initialSize) {
+        return new AdaptiveChunkCompletionPolicy(initialSize, enabled, targetLatency, minSize, maxSize, heapBudget);
+    }
+}
@@ -0,0 +1,50 @@
+package com.mardi2020.exbatch.chunk.reader;
+
+import java.sql.DatabaseMetaData;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+/**
+ * DataSource 의 DB 종류에 맞춰 cursor reader 의 fetch size 를 고른다.
+ * <pre>
+ * MySQL  : Integer.MIN_VALUE (row 단위 streaming), URL 에 useCursorFetch=true 가 있으면 설정값으로 server cursor fetch
+ * H2     : 설정값 (embedded 는 결과를 한 번에 만들고, TCP server 모드에서 왕복 단위가 된다)
+ * HSQLDB : 설정값 (memory DB 도 fetch size 만큼 나눠서 결과를 넘긴다)
+ * Derby  : 설정값 (embedded 는 store 에서 바로 읽으므로 network client 에서만 의미가 있다)
+ * </pre>
+ * MySQL 의 streaming / cursor fetch 는 result set 을 다 읽을 때까지 그 커넥션을 다른 쿼리에 쓸 수 없으므로
+ * JdbcCursorItemReader 의 기본값처럼 reader 전용 커넥션을 사용해야 한다.
+ */
+@Slf4j
+public final class CursorFetchSize {
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private static final String MYSQL_CURSOR_FETCH = "usecursorfetch=true";
+
+    private CursorFetchSize() {
+    }
+
+    /**
+     * @param fetchSize 설정한 fetch size, 0 이하면 {@link #DEFAULT_FETCH_SIZE}
+     */
+    public static int resolve(DataSource dataSource, int fetchSize) {
+        int size = fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE;
+        try {
+            DatabaseType databaseType = DatabaseType.fromMetaData(dataSource);
+            if (databaseType == DatabaseType.MYSQL) {
+                String url = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getURL);
+                if (url == null || !url.toLowerCase().contains(MYSQL_CURSOR_FETCH)) {
+                    size = Integer.MIN_VALUE;
+                }
+            }
+            log.info("cursor fetch size: {} ({})", size == Integer.MIN_VALUE ? "streaming" : size, databaseType);
+        } catch (MetaDataAccessException e) {
+            log.warn("DB 종류를 확인하지 못해 fetch size {} 를 사용합니다.", size, e);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,304 @@
+package com.mardi2020.exbatch.chunk.reader;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.NonNull;
+import org.springframework.util.ClassUtils;
+
+/**
+ * name,age,gender 형식의 csv 를 바이트 단위로 바로 파싱해서 Customer 로 만드는 reader
+ * FlatFileItemReader 는 line 마다 String 생성 -> tokenize -> FieldSet -> BeanWrapperFieldSetMapper(reflection) 를 거치는데,
+ * 이 reader 는 큰 버퍼로 읽은 바이트에서 구분자 위치만 찾아 필드를 바로 채운다.
+ * - 읽은 byte offset 을 ExecutionContext 에 저장하므로 재시작 시 앞 line 을 다시 읽지 않고 해당 위치로 바로 이동한다.
+ * - 필드 개수가 맞지 않거나 age 가 숫자가 아니면 FlatFileParseException 을 던지므로 기존 skip 정책을 그대로 쓸 수 있다.
+ * - 빈 line 은 건너뛴다. 따옴표(quote) 처리는 하지 않으므로 필드 안에 구분자가 들어가면 안 된다.
+ * - 구분자와 개행을 바이트로 비교하므로 UTF-8 처럼 ASCII 호환 인코딩만 지원한다.
+ * - startOffset/endOffset 을 지정하면 시작 위치가 [startOffset, endOffset) 안에 있는 line 만 읽는다. (파일 범위 파티셔닝용)
+ */
+@Slf4j
+public class CustomerCsvItemReader extends AbstractItemCountingItemStreamItemReader<Customer> {
+
+    private static final String OFFSET_KEY = "byte.offset";
+
+    private static final String LINE_KEY = "line.number";
+
+    private static final int FIELD_COUNT = 3;
+
+    private static final int GENDER_CACHE_SIZE = 8;
+
+    private final Resource resource;
+
+    private final Charset charset;
+
+    private final byte delimiter;
+
+    private int bufferSize = 1024 * 1024;
+
+    private long startOffset = 0;
+
+    private long endOffset = -1;
+
+    private ReadableByteChannel channel;
+
+    private byte[] buffer;
+
+    private int position;
+
+    private int limit;
+
+    private boolean endOfInput;
+
+    /**
+     * 다음에 읽을 line 의 시작 byte offset
+     */
+    private long offset;
+
+    private long lineNumber;
+
+    private final int[] fieldEnds = new int[FIELD_COUNT];
+
+    private final byte[][] genderBytes = new byte[GENDER_CACHE_SIZE][];
+
+    private final String[] genderValues = new String[GENDER_CACHE_SIZE];
+
+    /**
+     * @param resource 읽을 csv
+     * @param charset 파일 인코딩 (ASCII 호환)
+     * @param delimiter 필드 구분자
+     */
+    public CustomerCsvItemReader(Resource resource, Charset charset, char delimiter) {
+        byte[] encoded = String.valueOf(delimiter).getBytes(charset);
+        if (encoded.length != 1 || "\n".getBytes(charset).length != 1) {
+            throw new IllegalArgumentException("ASCII 호환 인코딩과 1byte 구분자만 지원합니다: " + charset);
+        }
+        this.resource = resource;
+        this.charset = charset;
+        this.delimiter = encoded[0];
+        setName(ClassUtils.getShortName(CustomerCsvItemReader.class));
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * @param startOffset 읽기 시작할 byte offset, line 의 시작 위치여야 한다.
+     */
+    public void setStartOffset(long startOffset) {
+        this.startOffset = startOffset;
+    }
+
+    /**
+     * @param endOffset 이 offset 이상에서 시작하는 line 은 읽지 않는다. 음수면 파일 끝까지 읽는다.
+     */
+    public void setEndOffset(long endOffset) {
+        this.endOffset = endOffset;
+    }
+
+    @Override
+    public void open(@NonNull ExecutionContext executionContext) {
+        offset = startOffset;
+        lineNumber = 0;
+        if (isSaveState() && executionContext.containsKey(getExecutionContextKey(OFFSET_KEY))) {
+            offset = executionContext.getLong(getExecutionContextKey(OFFSET_KEY));
+            lineNumber = executionContext.getLong(getExecutionContextKey(LINE_KEY), 0);
+        }
+        super.open(executionContext);
+    }
+
+    @Override
+    public void update(@NonNull ExecutionContext executionContext) {
+        super.update(executionContext);
+        if (isSaveState()) {
+            executionContext.putLong(getExecutionContextKey(OFFSET_KEY), offset);
+            executionContext.putLong(getExecutionContextKey(LINE_KEY), lineNumber);
+        }
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        if (!resource.exists()) {
+            throw new ItemStreamException("Input resource must exist: " + resource.getDescription());
+        }
+        channel = openChannel(offset);
+        buffer = new byte[bufferSize];
+        position = 0;
+        limit = 0;
+        endOfInput = false;
+    }
+
+    private ReadableByteChannel openChannel(long startOffset) throws IOException {
+        if (resource.isFile()) {
+            FileChannel fileChannel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ);
+            fileChannel.position(startOffset);
+            return fileChannel;
+        }
+        // jar 내부 등 파일이 아닌 resource 는 offset 만큼 건너뛴다.
+        InputStream inputStream = resource.getInputStream();
+        inputStream.skipNBytes(startOffset);
+        return Channels.newChannel(inputStream);
+    }
+
+    /**
+     * 재시작 위치는 open 에서 byte offset 으로 복원되므로 item 을 다시 읽으며 건너뛸 필요가 없다.
+     */
+    @Override
+    protected void jumpToItem(int itemIndex) {
+    }
+
+    @Override
+    protected Customer doRead() throws Exception {
+        while (true) {
+            if (endOffset >= 0 && offset >= endOffset) {
+                return null;
+            }
+            int newLine = indexOf((byte) '\n', position, limit);
+            if (newLine < 0 && !endOfInput) {
+                fill();
+                continue;
+            }
+            if (newLine < 0 && position >= limit) {
+                return null;
+            }
+
+            int lineStart = position;
+            int next = newLine < 0 ? limit : newLine + 1;
+            int lineEnd = newLine < 0 ? limit : newLine;
+            if (lineEnd > lineStart && buffer[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            offset += next - position;
+            position = next;
+            lineNumber++;
+
+            if (lineEnd == lineStart) {
+                continue;
+            }
+            return parse(lineStart, lineEnd);
+        }
+    }
+
+    private Customer parse(int start, int end) {
+        int fields = 0;
+        for (int i = start; i < end; i++) {
+            if (buffer[i] == delimiter) {
+                if (fields == FIELD_COUNT - 1) {
+                    throw parseException(start, end, "필드 개수가 " + FIELD_COUNT + " 개보다 많습니다.");
+                }
+                fieldEnds[fields++] = i;
+            }
+        }
+        if (fields != FIELD_COUNT - 1) {
+            throw parseException(start, end, "필드 개수가 " + FIELD_COUNT + " 개가 아닙니다.");
+        }
+        fieldEnds[FIELD_COUNT - 1] = end;
+
+        Customer customer = new Customer();
+        customer.setName(new String(buffer, start, fieldEnds[0] - start, charset));
+        customer.setAge(parseInt(fieldEnds[0] + 1, fieldEnds[1], start, end));
+        customer.setGender(gender(fieldEnds[1] + 1, fieldEnds[2]));
+        return customer;
+    }
+
+    private int parseInt(int from, int to, int lineStart, int lineEnd) {
+        while (from < to && buffer[from] == ' ') {
+            from++;
+        }
+        while (to > from && buffer[to - 1] == ' ') {
+            to--;
+        }
+        boolean negative = from < to && buffer[from] == '-';
+        int i = negative ? from + 1 : from;
+        if (i >= to || to - i > 9) {
+            throw parseException(lineStart, lineEnd, "age 값이 올바르지 않습니다.");
+        }
+        int value = 0;
+        for (; i < to; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw parseException(lineStart, lineEnd, "age 값이 숫자가 아닙니다.");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * gender 는 값 종류가 적으므로 같은 바이트열이면 이전에 만든 String 을 재사용한다.
+     */
+    private String gender(int from, int to) {
+        int length = to - from;
+        for (int i = 0; i < GENDER_CACHE_SIZE; i++) {
+            byte[] cached = genderBytes[i];
+            if (cached == null) {
+                genderBytes[i] = Arrays.copyOfRange(buffer, from, to);
+                genderValues[i] = new String(buffer, from, length, charset);
+                return genderValues[i];
+            }
+            if (Arrays.equals(cached, 0, cached.length, buffer, from, to)) {
+                return genderValues[i];
+            }
+        }
+        return new String(buffer, from, length, charset);
+    }
+
+    private FlatFileParseException parseException(int start, int end, String reason) {
+        String line = new String(buffer, start, end - start, charset);
+        return new FlatFileParseException("Parsing error at line: " + lineNumber + " in resource=["
+                + resource.getDescription() + "], input=[" + line + "]: " + reason, line, (int) lineNumber);
+    }
+
+    private int indexOf(byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 남은 바이트를 버퍼 앞으로 옮기고 채널에서 이어서 읽는다. 한 line 이 버퍼보다 크면 버퍼를 늘린다.
+     */
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        } else if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        position = 0;
+        limit = remaining;
+
+        ByteBuffer target = ByteBuffer.wrap(buffer, limit, buffer.length - limit);
+        int read = channel.read(target);
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        buffer = null;
+    }
+}
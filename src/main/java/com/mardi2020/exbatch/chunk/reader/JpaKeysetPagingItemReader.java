@@ -0,0 +1,181 @@
+package com.mardi2020.exbatch.chunk.reader;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.lang.NonNull;
+import org.springframework.util.ClassUtils;
+
+/**
+ * OFFSET(setFirstResult) 대신 마지막으로 읽은 id 를 기준으로 다음 페이지를 조회하는 JPA reader (keyset/seek 방식)
+ * 쿼리는 반드시 :lastId 파라미터를 사용하고 id desc 로 정렬되어야 한다.
+ * ex) SELECT c FROM Customer c WHERE c.age > :age AND c.id < :lastId ORDER BY c.id DESC
+ * 앞 페이지를 다시 스캔하지 않으므로 페이지 번호가 커져도 페이지당 조회 비용이 일정하다.
+ * 마지막으로 반환한 id 를 ExecutionContext 에 저장하므로 재시작 시 앞 데이터를 다시 읽지 않고 바로 이어서 조회한다.
+ * 페이지 조회 시간은 batch.reader.page{reader, last=true|false} timer 로 기록한다. (reader 는 setName 으로 지정한 이름)
+ * thread-safe 하지 않으므로 multi-threaded step 에서는 사용하지 않는다.
+ */
+public class JpaKeysetPagingItemReader<T> extends AbstractItemCountingItemStreamItemReader<T> {
+
+    public static final String LAST_ID_PARAMETER = "lastId";
+
+    private static final String LAST_ID_KEY = "last.id";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final String queryString;
+
+    private final Class<T> type;
+
+    private final Function<T, Long> idExtractor;
+
+    private Map<String, Object> parameterValues = Collections.emptyMap();
+
+    private volatile int pageSize = 10;
+
+    private EntityManager entityManager;
+
+    private List<T> results = Collections.emptyList();
+
+    private int current;
+
+    private boolean lastPage;
+
+    private long lastId;
+
+    private String name;
+
+    private Timer pageTimer;
+
+    private Timer lastPageTimer;
+
+    /**
+     * @param entityManagerFactory EntityManager 생성용
+     * @param queryString :lastId 조건과 id desc 정렬을 포함한 JPQL
+     * @param type 조회 결과 타입
+     * @param idExtractor item 에서 keyset 기준 id 를 꺼내는 함수
+     */
+    public JpaKeysetPagingItemReader(EntityManagerFactory entityManagerFactory, String queryString,
+                                     Class<T> type, Function<T, Long> idExtractor) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.queryString = queryString;
+        this.type = type;
+        this.idExtractor = idExtractor;
+        setName(ClassUtils.getShortName(JpaKeysetPagingItemReader.class));
+    }
+
+    @Override
+    public void setName(@NonNull String name) {
+        super.setName(name);
+        this.name = name;
+    }
+
+    public void setParameterValues(Map<String, Object> parameterValues) {
+        this.parameterValues = parameterValues;
+    }
+
+    /**
+     * 다음 페이지 조회부터 적용된다. keyset 방식이라 실행 중에 바꿔도 건너뛰거나 중복되는 데이터가 없다.
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public void open(@NonNull ExecutionContext executionContext) {
+        String key = getExecutionContextKey(LAST_ID_KEY);
+        lastId = isSaveState() && executionContext.containsKey(key) ? executionContext.getLong(key) : Long.MAX_VALUE;
+        super.open(executionContext);
+    }
+
+    @Override
+    public void update(@NonNull ExecutionContext executionContext) {
+        super.update(executionContext);
+        if (isSaveState()) {
+            executionContext.putLong(getExecutionContextKey(LAST_ID_KEY), lastId);
+        }
+    }
+
+    @Override
+    protected void doOpen() {
+        entityManager = entityManagerFactory.createEntityManager();
+        results = Collections.emptyList();
+        current = 0;
+        lastPage = false;
+        pageTimer = pageTimer(false);
+        lastPageTimer = pageTimer(true);
+    }
+
+    @Override
+    protected T doRead() {
+        if (current >= results.size()) {
+            if (lastPage) {
+                return null;
+            }
+            readPage();
+            if (results.isEmpty()) {
+                return null;
+            }
+        }
+        T item = results.get(current++);
+        lastId = idExtractor.apply(item);
+        return item;
+    }
+
+    private void readPage() {
+        long start = System.nanoTime();
+        int size = pageSize;
+
+        TypedQuery<T> query = entityManager.createQuery(queryString, type)
+                .setParameter(LAST_ID_PARAMETER, lastId)
+                .setMaxResults(size);
+        parameterValues.forEach(query::setParameter);
+
+        results = query.getResultList();
+        // 조회한 엔티티를 영속성 컨텍스트에서 분리해서 페이지가 늘어나도 힙 사용량이 쌓이지 않도록 함
+        entityManager.clear();
+
+        current = 0;
+        lastPage = results.size() < size;
+        (lastPage ? lastPageTimer : pageTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 마지막 페이지는 보통 짧아서 따로 구분한다.
+     */
+    private Timer pageTimer(boolean last) {
+        return Timer.builder("batch.reader.page")
+                .description("keyset reader 페이지 조회 시간")
+                .tag("reader", name)
+                .tag("last", String.valueOf(last))
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * 재시작 위치는 open 에서 lastId 로 복원되므로 앞 item 을 다시 읽으며 건너뛸 필요가 없다.
+     */
+    @Override
+    protected void jumpToItem(int itemIndex) {
+    }
+
+    @Override
+    protected void doClose() {
+        if (entityManager != null) {
+            entityManager.close();
+        }
+        results = Collections.emptyList();
+    }
+}
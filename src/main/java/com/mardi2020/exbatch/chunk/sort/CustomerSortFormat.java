@@ -0,0 +1,99 @@
+package com.mardi2020.exbatch.chunk.sort;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 외부 정렬 버퍼 / run 파일 / pending 파일에 쓰는 Customer 레코드 형식 (big endian)
+ * <pre>
+ * int   레코드 전체 길이 (이 4 byte 포함)
+ * byte  flags (bit 0: id null)
+ * int   age
+ * long  id
+ * short name 길이 (-1 = null) + UTF-8
+ * short gender 길이 (-1 = null) + UTF-8
+ * </pre>
+ * 정렬 키(age, name 앞부분) 는 고정 위치에 있어서 decode 없이 버퍼에서 바로 비교한다.
+ */
+final class CustomerSortFormat {
+
+    static final int AGE_OFFSET = 5;
+
+    static final int ID_OFFSET = 9;
+
+    static final int NAME_OFFSET = 17;
+
+    private static final int FLAGS_OFFSET = 4;
+
+    private static final byte ID_NULL = 1;
+
+    private static final int NULL_LENGTH = -1;
+
+    private CustomerSortFormat() {
+    }
+
+    /**
+     * @return null 이면 null, 문자열이 32767 byte 를 넘으면 IllegalArgumentException
+     */
+    static byte[] toBytes(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("정렬 레코드의 문자열이 너무 깁니다: " + bytes.length + " byte");
+        }
+        return bytes;
+    }
+
+    static int length(byte[] name, byte[] gender) {
+        return NAME_OFFSET + 2 + (name == null ? 0 : name.length) + 2 + (gender == null ? 0 : gender.length);
+    }
+
+    static int length(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset);
+    }
+
+    /**
+     * buffer 의 현재 위치에 쓴다. name / gender 는 {@link #toBytes(String)} 결과
+     */
+    static void put(ByteBuffer buffer, Customer customer, byte[] name, byte[] gender) {
+        buffer.putInt(length(name, gender))
+                .put(customer.getId() == null ? ID_NULL : 0)
+                .putInt(customer.getAge())
+                .putLong(customer.getId() == null ? 0 : customer.getId());
+        putBytes(buffer, name);
+        putBytes(buffer, gender);
+    }
+
+    static Customer get(ByteBuffer buffer, int offset) {
+        Customer customer = new Customer();
+        if ((buffer.get(offset + FLAGS_OFFSET) & ID_NULL) == 0) {
+            customer.setId(buffer.getLong(offset + ID_OFFSET));
+        }
+        customer.setAge(buffer.getInt(offset + AGE_OFFSET));
+        int nameLength = buffer.getShort(offset + NAME_OFFSET);
+        customer.setName(getString(buffer, offset + NAME_OFFSET + 2, nameLength));
+        int genderOffset = offset + NAME_OFFSET + 2 + Math.max(nameLength, 0);
+        customer.setGender(getString(buffer, genderOffset + 2, buffer.getShort(genderOffset)));
+        return customer;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putShort((short) NULL_LENGTH);
+        } else {
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer, int offset, int length) {
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
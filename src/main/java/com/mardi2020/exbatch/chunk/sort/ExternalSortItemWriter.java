@@ -0,0 +1,419 @@
+package com.mardi2020.exbatch.chunk.sort;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.support.AbstractItemStreamItemWriter;
+import org.springframework.lang.NonNull;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+/**
+ * 외부 정렬의 첫 단계, Customer 를 정렬된 run 파일로 나눠 쓰는 writer
+ * 레코드를 {@link CustomerSortFormat} 으로 direct buffer 에 모으고, 가득 차면 정렬해서 run 파일(run-N.bin)로 내린다.
+ * 메모리는 memoryLimit 안에서 레코드 버퍼(5/8) 와 정렬 index(3/8, 레코드당 20 byte) 로 나눠 쓴다.
+ * step 이 완료되면 남은 레코드를 마지막 run 으로 쓰고, run 디렉터리와 개수를 job ExecutionContext 에 올린다.
+ * 다음 step 에서 {@link SortedRunItemReader} 가 run 들을 병합해서 읽는다.
+ * <p>
+ * 재시작은 chunk 경계에서 한다.
+ * - 다 쓴 run 개수와, 아직 run 이 되지 못한 레코드를 덧붙인 pending 파일(pending-N.bin, N = run 개수) 의 길이를 저장한다.
+ * - run 을 내리면 이후 레코드는 새 pending 파일에 쓰고, 이전 pending 파일은 다음 chunk 에서(= commit 된 뒤) 지운다.
+ * - 재시작 시 저장된 개수 이후의 run 을 지우고, pending 파일의 레코드를 다시 버퍼에 채운다.
+ * chunk 의 item 은 update(commit 직전)에서 반영하고, rollback 된 chunk 는 버린다.
+ * 한 스레드에서만 사용한다.
+ */
+@Slf4j
+public class ExternalSortItemWriter extends AbstractItemStreamItemWriter<Customer> implements StepExecutionListener {
+
+    /**
+     * job ExecutionContext 에 올리는 run 디렉터리
+     */
+    public static final String RUN_DIRECTORY_KEY = "sort.run.directory";
+
+    /**
+     * job ExecutionContext 에 올리는 run 개수
+     */
+    public static final String RUN_COUNT_KEY = "sort.run.count";
+
+    private static final String DIRECTORY_KEY = "directory";
+
+    private static final String RUNS_KEY = "runs";
+
+    private static final String PENDING_BYTES_KEY = "pending.bytes";
+
+    /**
+     * offsets(int) + prefixes(long) + 정렬 순서(int) + 병합용 임시 배열(int)
+     */
+    private static final int INDEX_BYTES = 20;
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final Path tempDirectory;
+
+    private final SortKey key;
+
+    private final boolean descending;
+
+    private final long memoryLimit;
+
+    private Path directory;
+
+    private ByteBuffer buffer;
+
+    private ByteBuffer writeBuffer;
+
+    private int maxRecords;
+
+    private int count;
+
+    private int[] offsets = new int[0];
+
+    private long[] prefixes = new long[0];
+
+    private int[] order = new int[0];
+
+    private int[] merged = new int[0];
+
+    private int runs;
+
+    /**
+     * pending 파일에 이미 쓴 버퍼 위치
+     */
+    private int synced;
+
+    private FileChannel pendingChannel;
+
+    private final List<Path> spilledPending = new ArrayList<>();
+
+    private final List<Customer> buffered = new ArrayList<>();
+
+    private boolean rollbackHandlerRegistered;
+
+    /**
+     * @param tempDirectory run 디렉터리를 만들 위치, 실행마다 하위 디렉터리(sort-*) 를 새로 만든다.
+     * @param memoryLimit 정렬 버퍼 + index 의 최대 byte 수
+     */
+    public ExternalSortItemWriter(Path tempDirectory, SortKey key, boolean descending, long memoryLimit) {
+        if (memoryLimit < 1024 || memoryLimit > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("정렬 메모리는 1KB ~ 2GB 사이여야 합니다: " + memoryLimit);
+        }
+        this.tempDirectory = tempDirectory;
+        this.key = key;
+        this.descending = descending;
+        this.memoryLimit = memoryLimit;
+        setName(ClassUtils.getShortName(ExternalSortItemWriter.class));
+    }
+
+    @Override
+    public void open(@NonNull ExecutionContext executionContext) {
+        super.open(executionContext);
+        boolean restart = isSaveState() && executionContext.containsKey(getExecutionContextKey(DIRECTORY_KEY));
+        buffer = ByteBuffer.allocateDirect((int) (memoryLimit * 5 / 8));
+        writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        maxRecords = (int) (memoryLimit * 3 / 8 / INDEX_BYTES);
+        count = 0;
+        synced = 0;
+        spilledPending.clear();
+        buffered.clear();
+        try {
+            if (restart) {
+                directory = Path.of(executionContext.getString(getExecutionContextKey(DIRECTORY_KEY)));
+                runs = executionContext.getInt(getExecutionContextKey(RUNS_KEY));
+                restore(executionContext.getInt(getExecutionContextKey(PENDING_BYTES_KEY)));
+                return;
+            }
+            Files.createDirectories(tempDirectory);
+            directory = Files.createTempDirectory(tempDirectory, "sort-");
+            runs = 0;
+            pendingChannel = openPending(runs);
+        } catch (IOException e) {
+            throw new ItemStreamException("정렬 run 디렉터리를 열 수 없습니다: " + tempDirectory, e);
+        }
+    }
+
+    @Override
+    public void write(@NonNull Chunk<? extends Customer> chunk) {
+        registerRollbackHandler();
+        buffered.addAll(chunk.getItems());
+    }
+
+    /**
+     * chunk 트랜잭션 commit 직전에 호출되므로 여기서 버퍼에 반영하고(필요하면 run 을 내리고) pending 파일과 위치를 저장한다.
+     */
+    @Override
+    public void update(@NonNull ExecutionContext executionContext) {
+        super.update(executionContext);
+        if (pendingChannel == null) {
+            return;
+        }
+        try {
+            // 이전 chunk 가 commit 되었으므로 그때 run 으로 내린 레코드의 pending 파일은 필요 없다.
+            for (Path pending : spilledPending) {
+                Files.deleteIfExists(pending);
+            }
+            spilledPending.clear();
+            for (Customer customer : buffered) {
+                add(customer);
+            }
+            buffered.clear();
+            syncPending();
+        } catch (IOException e) {
+            throw new ItemStreamException("정렬 run 쓰기 실패: " + directory, e);
+        }
+        if (isSaveState()) {
+            executionContext.putString(getExecutionContextKey(DIRECTORY_KEY), directory.toString());
+            executionContext.putInt(getExecutionContextKey(RUNS_KEY), runs);
+            executionContext.putInt(getExecutionContextKey(PENDING_BYTES_KEY), synced);
+        }
+    }
+
+    /**
+     * 완료되면 남은 레코드를 마지막 run 으로 쓰고 run 목록을 job ExecutionContext 에 올린다.
+     * 실패하면 재시작을 위해 run / pending 파일을 그대로 둔다.
+     */
+    @Override
+    public ExitStatus afterStep(@NonNull StepExecution stepExecution) {
+        if (stepExecution.getStatus() != BatchStatus.COMPLETED || pendingChannel == null) {
+            return null;
+        }
+        try {
+            if (count > 0) {
+                spill();
+            }
+            pendingChannel.close();
+            pendingChannel = null;
+            spilledPending.add(pendingPath(runs));
+            for (Path pending : spilledPending) {
+                Files.deleteIfExists(pending);
+            }
+            spilledPending.clear();
+        } catch (IOException e) {
+            throw new ItemStreamException("정렬 run 쓰기 실패: " + directory, e);
+        }
+        ExecutionContext jobContext = stepExecution.getJobExecution().getExecutionContext();
+        jobContext.putString(RUN_DIRECTORY_KEY, directory.toString());
+        jobContext.putInt(RUN_COUNT_KEY, runs);
+        log.info("정렬 run {} 개 생성: {}", runs, directory);
+        return null;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        try {
+            if (pendingChannel != null) {
+                pendingChannel.close();
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("pending 파일을 닫을 수 없습니다: " + directory, e);
+        } finally {
+            pendingChannel = null;
+            buffer = null;
+            writeBuffer = null;
+        }
+    }
+
+    private void add(Customer customer) throws IOException {
+        byte[] name = CustomerSortFormat.toBytes(customer.getName());
+        byte[] gender = CustomerSortFormat.toBytes(customer.getGender());
+        int length = CustomerSortFormat.length(name, gender);
+        if (length > buffer.capacity()) {
+            throw new ItemStreamException("정렬 버퍼(" + buffer.capacity() + " byte) 보다 큰 레코드입니다: " + length);
+        }
+        if (length > buffer.remaining() || count == maxRecords) {
+            spill();
+        }
+        int offset = buffer.position();
+        CustomerSortFormat.put(buffer, customer, name, gender);
+        index(offset);
+    }
+
+    private void index(int offset) {
+        if (count == offsets.length) {
+            int capacity = Math.min(Math.max(count * 2, 1024), maxRecords);
+            offsets = Arrays.copyOf(offsets, capacity);
+            prefixes = Arrays.copyOf(prefixes, capacity);
+            order = new int[capacity];
+            merged = new int[capacity];
+        }
+        offsets[count] = offset;
+        prefixes[count] = key.prefix(buffer, offset);
+        count++;
+    }
+
+    /**
+     * 버퍼의 레코드를 정렬해서 다음 run 파일로 쓰고, 이후 레코드는 새 pending 파일에 쓴다.
+     */
+    private void spill() throws IOException {
+        int[] sorted = sort();
+        ByteBuffer records = buffer.duplicate();
+        try (FileChannel run = FileChannel.open(runPath(runs), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeBuffer.clear();
+            for (int i = 0; i < count; i++) {
+                int offset = offsets[sorted[i]];
+                records.limit(offset + CustomerSortFormat.length(buffer, offset)).position(offset);
+                if (records.remaining() > writeBuffer.remaining()) {
+                    writeFully(run, writeBuffer.flip());
+                    writeBuffer.clear();
+                }
+                if (records.remaining() > writeBuffer.remaining()) {
+                    writeFully(run, records);
+                } else {
+                    writeBuffer.put(records);
+                }
+            }
+            writeFully(run, writeBuffer.flip());
+        }
+        log.debug("정렬 run {} 저장: {} 건", runs, count);
+
+        pendingChannel.close();
+        spilledPending.add(pendingPath(runs));
+        runs++;
+        pendingChannel = openPending(runs);
+        buffer.clear();
+        count = 0;
+        synced = 0;
+    }
+
+    /**
+     * index 를 안정 병합 정렬(bottom-up) 한다. 키가 같으면 들어온 순서를 유지한다.
+     *
+     * @return 정렬된 레코드 번호 (앞의 count 개)
+     */
+    private int[] sort() {
+        int[] source = order;
+        int[] target = merged;
+        for (int i = 0; i < count; i++) {
+            source[i] = i;
+        }
+        for (int width = 1; width < count; width *= 2) {
+            for (int low = 0; low < count; low += 2 * width) {
+                int middle = Math.min(low + width, count);
+                int high = Math.min(low + 2 * width, count);
+                int left = low;
+                int right = middle;
+                for (int i = low; i < high; i++) {
+                    if (left < middle && (right >= high || compare(source[right], source[left]) >= 0)) {
+                        target[i] = source[left++];
+                    } else {
+                        target[i] = source[right++];
+                    }
+                }
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        return source;
+    }
+
+    private int compare(int left, int right) {
+        int compared = key.comparePrefix(prefixes[left], prefixes[right]);
+        if (compared == 0 && !key.isPrefixDecisive()) {
+            compared = key.compare(buffer, offsets[left], buffer, offsets[right]);
+        }
+        return descending ? -compared : compared;
+    }
+
+    private void syncPending() throws IOException {
+        if (buffer.position() == synced) {
+            return;
+        }
+        ByteBuffer records = buffer.duplicate();
+        records.limit(buffer.position()).position(synced);
+        writeFully(pendingChannel, records);
+        synced = buffer.position();
+    }
+
+    /**
+     * 저장된 run 개수 이후에 쓴 run 과 쓰지 않는 pending 파일을 지우고, pending 레코드를 다시 버퍼에 채운다.
+     */
+    private void restore(int pendingBytes) throws IOException {
+        if (pendingBytes > buffer.capacity()) {
+            throw new ItemStreamException("pending 레코드(" + pendingBytes + " byte) 가 정렬 버퍼보다 큽니다. "
+                    + "재시작할 때 정렬 메모리를 줄이지 마세요.");
+        }
+        for (int i = runs; Files.deleteIfExists(runPath(i)); i++) {
+            log.debug("commit 되지 않은 정렬 run {} 삭제", i);
+        }
+        for (int i = 0; i < runs; i++) {
+            Files.deleteIfExists(pendingPath(i));
+        }
+        for (int i = runs + 1; Files.deleteIfExists(pendingPath(i)); i++) {
+            log.debug("commit 되지 않은 pending 파일 {} 삭제", i);
+        }
+
+        pendingChannel = FileChannel.open(pendingPath(runs), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        pendingChannel.truncate(pendingBytes);
+        buffer.limit(pendingBytes);
+        while (buffer.hasRemaining()) {
+            if (pendingChannel.read(buffer, buffer.position()) < 0) {
+                throw new ItemStreamException("pending 파일이 저장된 길이보다 짧습니다: " + pendingPath(runs));
+            }
+        }
+        buffer.limit(buffer.capacity());
+        for (int offset = 0; offset < pendingBytes; offset += CustomerSortFormat.length(buffer, offset)) {
+            index(offset);
+        }
+        pendingChannel.position(pendingBytes);
+        synced = pendingBytes;
+        log.info("정렬 재시작: run {} 개, pending {} 건", runs, count);
+    }
+
+    private void registerRollbackHandler() {
+        if (rollbackHandlerRegistered || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        rollbackHandlerRegistered = true;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                rollbackHandlerRegistered = false;
+                if (status != STATUS_COMMITTED) {
+                    buffered.clear();
+                }
+            }
+        });
+    }
+
+    private FileChannel openPending(int index) throws IOException {
+        return FileChannel.open(pendingPath(index), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private Path runPath(int index) {
+        return runPath(directory, index);
+    }
+
+    private Path pendingPath(int index) {
+        return directory.resolve("pending-" + index + ".bin");
+    }
+
+    static Path runPath(Path directory, int index) {
+        return directory.resolve("run-" + index + ".bin");
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
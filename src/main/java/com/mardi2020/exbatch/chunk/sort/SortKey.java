@@ -0,0 +1,100 @@
+package com.mardi2020.exbatch.chunk.sort;
+
+import static com.mardi2020.exbatch.chunk.sort.CustomerSortFormat.AGE_OFFSET;
+import static com.mardi2020.exbatch.chunk.sort.CustomerSortFormat.NAME_OFFSET;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 외부 정렬 키, {@link CustomerSortFormat} 레코드를 decode 하지 않고 비교한다.
+ * 정렬 중에는 레코드마다 8 byte prefix 를 배열에 따로 두고 먼저 비교해서 버퍼 접근을 줄인다.
+ */
+public enum SortKey {
+
+    /**
+     * 나이, prefix 로 순서가 결정된다.
+     */
+    AGE {
+        @Override
+        long prefix(ByteBuffer buffer, int offset) {
+            return buffer.getInt(offset + AGE_OFFSET);
+        }
+
+        @Override
+        int comparePrefix(long left, long right) {
+            return Long.compare(left, right);
+        }
+
+        @Override
+        boolean isPrefixDecisive() {
+            return true;
+        }
+
+        @Override
+        int compare(ByteBuffer left, int leftOffset, ByteBuffer right, int rightOffset) {
+            return Integer.compare(left.getInt(leftOffset + AGE_OFFSET), right.getInt(rightOffset + AGE_OFFSET));
+        }
+    },
+
+    /**
+     * 이름 (UTF-8 byte 순서 = code point 순서), null 이 가장 앞이다.
+     * prefix 는 앞 8 byte 이고 같으면 전체 byte 를 비교한다.
+     */
+    NAME {
+        @Override
+        long prefix(ByteBuffer buffer, int offset) {
+            int length = buffer.getShort(offset + NAME_OFFSET);
+            long prefix = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                prefix = (prefix << 8) | (i < length ? buffer.get(offset + NAME_OFFSET + 2 + i) & 0xFF : 0);
+            }
+            return prefix;
+        }
+
+        @Override
+        int comparePrefix(long left, long right) {
+            return Long.compareUnsigned(left, right);
+        }
+
+        @Override
+        boolean isPrefixDecisive() {
+            return false;
+        }
+
+        @Override
+        int compare(ByteBuffer left, int leftOffset, ByteBuffer right, int rightOffset) {
+            int leftLength = left.getShort(leftOffset + NAME_OFFSET);
+            int rightLength = right.getShort(rightOffset + NAME_OFFSET);
+            if (leftLength < 0 || rightLength < 0) {
+                return Integer.compare(leftLength, rightLength);
+            }
+            int leftStart = leftOffset + NAME_OFFSET + 2;
+            int rightStart = rightOffset + NAME_OFFSET + 2;
+            int common = Math.min(leftLength, rightLength);
+            for (int i = 0; i < common; i++) {
+                int compared = Integer.compare(left.get(leftStart + i) & 0xFF, right.get(rightStart + i) & 0xFF);
+                if (compared != 0) {
+                    return compared;
+                }
+            }
+            return Integer.compare(leftLength, rightLength);
+        }
+    };
+
+    /**
+     * @param offset 레코드 시작 위치
+     */
+    abstract long prefix(ByteBuffer buffer, int offset);
+
+    abstract int comparePrefix(long left, long right);
+
+    /**
+     * prefix 가 같으면 키도 같은지 여부, false 이면 {@link #compare} 로 다시 비교한다.
+     */
+    abstract boolean isPrefixDecisive();
+
+    /**
+     * 두 레코드의 전체 키 비교 (오름차순)
+     */
+    abstract int compare(ByteBuffer left, int leftOffset, ByteBuffer right, int rightOffset);
+}
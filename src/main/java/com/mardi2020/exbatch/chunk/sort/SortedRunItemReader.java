@@ -0,0 +1,175 @@
+package com.mardi2020.exbatch.chunk.sort;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.PriorityQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.lang.NonNull;
+import org.springframework.util.ClassUtils;
+
+/**
+ * 외부 정렬의 두 번째 단계, {@link ExternalSortItemWriter} 가 쓴 정렬된 run 파일들을 k-way 병합해서 순서대로 읽는 reader
+ * run 목록은 beforeStep 에서 job ExecutionContext 로 받는다.
+ * run 마다 현재 레코드 하나와 읽기 버퍼(memoryLimit / run 개수, 8KB ~ 1MB) 만 메모리에 둔다.
+ * 키가 같으면 앞 run 의 레코드가 먼저 나오므로 입력 순서가 유지된다.
+ * 재시작은 읽은 건수만큼 다시 병합해서 건너뛴다. step 이 완료되면 run 디렉터리를 지운다.
+ */
+@Slf4j
+public class SortedRunItemReader extends AbstractItemCountingItemStreamItemReader<Customer>
+        implements StepExecutionListener {
+
+    private static final int MIN_READ_BUFFER_SIZE = 8 * 1024;
+
+    private static final int MAX_READ_BUFFER_SIZE = 1024 * 1024;
+
+    private final SortKey key;
+
+    private final boolean descending;
+
+    private final long memoryLimit;
+
+    private Path directory;
+
+    private int runs;
+
+    private PriorityQueue<RunCursor> cursors;
+
+    public SortedRunItemReader(SortKey key, boolean descending, long memoryLimit) {
+        this.key = key;
+        this.descending = descending;
+        this.memoryLimit = memoryLimit;
+        setName(ClassUtils.getShortName(SortedRunItemReader.class));
+    }
+
+    @Override
+    public void beforeStep(@NonNull StepExecution stepExecution) {
+        ExecutionContext jobContext = stepExecution.getJobExecution().getExecutionContext();
+        if (!jobContext.containsKey(ExternalSortItemWriter.RUN_DIRECTORY_KEY)) {
+            throw new IllegalStateException("정렬 run 이 없습니다. ExternalSortItemWriter step 이 먼저 완료되어야 합니다.");
+        }
+        directory = Path.of(jobContext.getString(ExternalSortItemWriter.RUN_DIRECTORY_KEY));
+        runs = jobContext.getInt(ExternalSortItemWriter.RUN_COUNT_KEY);
+    }
+
+    /**
+     * 완료되면 run 디렉터리를 지운다. 실패하면 재시작을 위해 남겨둔다.
+     */
+    @Override
+    public ExitStatus afterStep(@NonNull StepExecution stepExecution) {
+        if (stepExecution.getStatus() != BatchStatus.COMPLETED || directory == null) {
+            return null;
+        }
+        try {
+            for (int i = 0; i < runs; i++) {
+                Files.deleteIfExists(ExternalSortItemWriter.runPath(directory, i));
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            log.warn("정렬 run 디렉터리를 지우지 못했습니다: {}", directory, e);
+        }
+        return null;
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        if (directory == null) {
+            throw new ItemStreamException("run 목록이 없습니다. reader 를 step listener 로 등록해야 합니다.");
+        }
+        int bufferSize = (int) Math.max(MIN_READ_BUFFER_SIZE,
+                Math.min(MAX_READ_BUFFER_SIZE, memoryLimit / Math.max(runs, 1)));
+        cursors = new PriorityQueue<>(Math.max(runs, 1), this::compare);
+        for (int i = 0; i < runs; i++) {
+            RunCursor cursor = new RunCursor(i, new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(ExternalSortItemWriter.runPath(directory, i)),
+                            bufferSize)));
+            if (cursor.next()) {
+                cursors.add(cursor);
+            } else {
+                cursor.input.close();
+            }
+        }
+        log.info("정렬 run {} 개 병합 시작: {}", runs, directory);
+    }
+
+    @Override
+    protected Customer doRead() throws Exception {
+        RunCursor cursor = cursors.poll();
+        if (cursor == null) {
+            return null;
+        }
+        Customer customer = CustomerSortFormat.get(cursor.record, 0);
+        if (cursor.next()) {
+            cursors.add(cursor);
+        } else {
+            cursor.input.close();
+        }
+        return customer;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        if (cursors == null) {
+            return;
+        }
+        for (RunCursor cursor : cursors) {
+            cursor.input.close();
+        }
+        cursors = null;
+    }
+
+    private int compare(RunCursor left, RunCursor right) {
+        int compared = key.compare(left.record, 0, right.record, 0);
+        if (descending) {
+            compared = -compared;
+        }
+        return compared != 0 ? compared : Integer.compare(left.run, right.run);
+    }
+
+    /**
+     * run 파일 하나의 현재 레코드
+     */
+    private static final class RunCursor {
+
+        private final int run;
+
+        private final DataInputStream input;
+
+        private ByteBuffer record = ByteBuffer.allocate(256);
+
+        private RunCursor(int run, DataInputStream input) {
+            this.run = run;
+            this.input = input;
+        }
+
+        /**
+         * @return 파일 끝이면 false
+         */
+        private boolean next() throws IOException {
+            int length;
+            try {
+                length = input.readInt();
+            } catch (EOFException e) {
+                return false;
+            }
+            if (length > record.capacity()) {
+                record = ByteBuffer.allocate(Math.max(length, record.capacity() * 2));
+            }
+            record.putInt(0, length);
+            input.readFully(record.array(), Integer.BYTES, length - Integer.BYTES);
+            return true;
+        }
+    }
+}
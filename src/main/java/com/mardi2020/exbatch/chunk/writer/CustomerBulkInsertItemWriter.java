@@ -0,0 +1,131 @@
+package com.mardi2020.exbatch.chunk.writer;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+
+/**
+ * INSERT ... VALUES (?, ?, ?), (?, ?, ?), ... 형태의 multi-row insert 로 chunk 를 저장하는 writer
+ * JdbcBatchItemWriter 는 row 마다 BeanPropertySqlParameterSource(reflection) 를 만들고,
+ * 드라이버가 batch 를 재작성하지 않으면(MySQL rewriteBatchedStatements=false) row 마다 DB 왕복이 생긴다.
+ * 이 writer 는 maxRows / maxBytes 한도까지 row 를 한 statement 에 묶고 파라미터를 위치 기반으로 바로 바인딩한다.
+ * JdbcTemplate 을 사용하므로 chunk 트랜잭션에 그대로 참여한다.
+ * multi-row VALUES 는 MySQL, H2, HSQLDB, Derby 모두 지원한다.
+ */
+@Slf4j
+public class CustomerBulkInsertItemWriter implements ItemWriter<Customer> {
+
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?)";
+
+    /**
+     * row 하나의 고정 오버헤드 추정치 (괄호, 구분자, age 숫자)
+     */
+    private static final int ROW_OVERHEAD_BYTES = 24;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String insertPrefix;
+
+    private final Map<Integer, String> sqlCache = new ConcurrentHashMap<>();
+
+    private int maxRows = 500;
+
+    private long maxBytes = 1024 * 1024;
+
+    /**
+     * @param jdbcTemplate insert 실행용
+     * @param table name, age, gender 컬럼을 가진 테이블
+     */
+    public CustomerBulkInsertItemWriter(JdbcTemplate jdbcTemplate, String table) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertPrefix = "INSERT INTO " + table + " (name, age, gender) VALUES ";
+    }
+
+    /**
+     * @param maxRows statement 하나에 묶을 최대 row 수
+     */
+    public void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * @param maxBytes statement 하나의 최대 크기 추정치 (MySQL max_allowed_packet 보다 작게)
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void write(@NonNull Chunk<? extends Customer> chunk) throws Exception {
+        List<? extends Customer> items = chunk.getItems();
+        int from = 0;
+        long bytes = insertPrefix.length();
+
+        for (int i = 0; i < items.size(); i++) {
+            long rowBytes = estimateBytes(items.get(i));
+            int rows = i - from;
+            if (rows > 0 && (rows >= maxRows || bytes + rowBytes > maxBytes)) {
+                insert(items, from, rows);
+                from = i;
+                bytes = insertPrefix.length();
+            }
+            bytes += rowBytes;
+        }
+        if (from < items.size()) {
+            insert(items, from, items.size() - from);
+        }
+    }
+
+    private void insert(List<? extends Customer> items, int from, int rows) {
+        String sql = sql(rows);
+        int updated = jdbcTemplate.update(sql, ps -> {
+            int index = 1;
+            for (int i = from; i < from + rows; i++) {
+                index = bind(ps, index, items.get(i));
+            }
+        });
+        if (updated != rows) {
+            throw new JdbcUpdateAffectedIncorrectNumberOfRowsException(sql, rows, updated);
+        }
+    }
+
+    /**
+     * Customer 의 필드를 위치 기반으로 바인딩하고 다음 파라미터 위치를 반환한다.
+     */
+    private static int bind(PreparedStatement ps, int index, Customer customer) throws SQLException {
+        ps.setString(index, customer.getName());
+        ps.setInt(index + 1, customer.getAge());
+        ps.setString(index + 2, customer.getGender());
+        return index + 3;
+    }
+
+    private String sql(int rows) {
+        return sqlCache.computeIfAbsent(rows, count -> {
+            StringBuilder sql = new StringBuilder(insertPrefix.length() + count * (ROW_PLACEHOLDER.length() + 2));
+            sql.append(insertPrefix);
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(ROW_PLACEHOLDER);
+            }
+            return sql.toString();
+        });
+    }
+
+    private static long estimateBytes(Customer customer) {
+        String name = customer.getName();
+        String gender = customer.getGender();
+        // UTF-8 한 글자 최대 3byte 로 보수적으로 계산
+        return ROW_OVERHEAD_BYTES + (name == null ? 4 : name.length() * 3L) + (gender == null ? 4 : gender.length() * 3L);
+    }
+}
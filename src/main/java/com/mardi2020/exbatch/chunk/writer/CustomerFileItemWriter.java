@@ -0,0 +1,484 @@
+package com.mardi2020.exbatch.chunk.writer;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.FlatFileFooterCallback;
+import org.springframework.batch.item.file.FlatFileHeaderCallback;
+import org.springframework.batch.item.support.AbstractItemStreamItemWriter;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.NonNull;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Customer 를 구분자로 이어진 line 으로 바로 바이트 버퍼에 인코딩해서 FileChannel 로 쓰는 writer
+ * FlatFileItemWriter 는 line 마다 lineAggregator 로 String 을 만들고 Writer -> CharsetEncoder -> BufferedWriter 를 거치는데,
+ * 이 writer 는 재사용하는 byte[] 에 필드를 바로 인코딩하고(ASCII 문자열, 숫자는 String 생성 없음)
+ * 버퍼가 차면 4KB 단위로 맞춰서, chunk 가 끝나면 남은 만큼 한 번에 쓴다.
+ * - 쓴 byte offset 을 ExecutionContext 에 저장하고, 재시작 시 그 위치로 파일을 잘라낸 뒤 이어서 쓴다.
+ * - chunk 트랜잭션이 rollback 되면 그 chunk 에서 쓴 부분을 잘라낸다. (FlatFileItemWriter 의 transactional 과 같은 효과)
+ * - GZIP: chunk 내용을 모아뒀다가 commit 후에 압축해서 쓴다. 압축 파일은 잘라낼 수 없으므로 재시작은 지원하지 않는다.
+ * - append: 파일이 이미 있으면 header 없이 끝에 이어서 쓴다. (GZIP 은 새 gzip member 로 이어 붙인다)
+ * - asyncIo: 다 찬 버퍼를 전용 I/O 스레드에 넘기고 다른 버퍼에 계속 인코딩한다. (버퍼 2개)
+ *   offset 은 I/O 완료를 기다리지 않고 기록하므로, commit 직후 프로세스가 죽으면 마지막 chunk 가 파일에 없을 수 있다.
+ *   이 경우 재시작 시 파일이 offset 보다 짧아서 예외가 발생한다.
+ * 한 스레드에서만 사용한다. (partition 마다 writer 를 따로 만든다)
+ */
+@Slf4j
+public class CustomerFileItemWriter extends AbstractItemStreamItemWriter<Customer> {
+
+    public enum Field {
+        ID, NAME, AGE, GENDER
+    }
+
+    public enum Compression {
+        NONE, GZIP
+    }
+
+    private static final String OFFSET_KEY = "offset";
+
+    private static final String WRITTEN_KEY = "written";
+
+    private static final int ALIGNMENT = 4096;
+
+    /**
+     * int / long 최대 자리수 + 부호
+     */
+    private static final int MAX_NUMBER_LENGTH = 20;
+
+    private final Resource resource;
+
+    private final Field[] fields;
+
+    private Charset charset = StandardCharsets.UTF_8;
+
+    private byte[] delimiter = {','};
+
+    private byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private int bufferSize = 1024 * 1024;
+
+    private Compression compression = Compression.NONE;
+
+    private boolean asyncIo;
+
+    private boolean append;
+
+    private FlatFileHeaderCallback headerCallback;
+
+    private FlatFileFooterCallback footerCallback;
+
+    private FileChannel channel;
+
+    private OutputStream gzip;
+
+    private ExecutorService ioExecutor;
+
+    private final byte[][] buffers = new byte[2][];
+
+    private final Future<?>[] pendingIo = new Future<?>[2];
+
+    private int current;
+
+    private byte[] buffer;
+
+    private int length;
+
+    /**
+     * 지금까지 출력 대상으로 넘긴 byte 수 (파일 위치)
+     */
+    private long offset;
+
+    private long linesWritten;
+
+    private boolean rollbackHandlerRegistered;
+
+    private ItemStreamException failure;
+
+    private final byte[] digits = new byte[MAX_NUMBER_LENGTH];
+
+    /**
+     * @param resource 출력 파일
+     * @param fields 한 line 에 순서대로 쓸 필드
+     */
+    public CustomerFileItemWriter(Resource resource, Field... fields) {
+        this.resource = resource;
+        this.fields = fields;
+        setName(ClassUtils.getShortName(CustomerFileItemWriter.class));
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    public void setDelimiter(String delimiter) {
+        this.delimiter = delimiter.getBytes(charset);
+    }
+
+    public void setLineSeparator(String lineSeparator) {
+        this.lineSeparator = lineSeparator.getBytes(charset);
+    }
+
+    /**
+     * @param bufferSize 인코딩 버퍼 크기, 4KB 배수로 올림한다.
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = (bufferSize + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    public void setAsyncIo(boolean asyncIo) {
+        this.asyncIo = asyncIo;
+    }
+
+    /**
+     * 다음 open 부터 적용된다.
+     */
+    public void setAppend(boolean append) {
+        this.append = append;
+    }
+
+    public void setHeaderCallback(FlatFileHeaderCallback headerCallback) {
+        this.headerCallback = headerCallback;
+    }
+
+    public void setFooterCallback(FlatFileFooterCallback footerCallback) {
+        this.footerCallback = footerCallback;
+    }
+
+    @Override
+    public void open(@NonNull ExecutionContext executionContext) {
+        super.open(executionContext);
+        boolean restart = isSaveState() && executionContext.containsKey(getExecutionContextKey(OFFSET_KEY));
+        try {
+            Path path = resource.getFile().toPath();
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            buffers[0] = new byte[bufferSize];
+            buffers[1] = asyncIo ? new byte[bufferSize] : null;
+            buffer = buffers[0];
+            current = 0;
+            length = 0;
+            if (asyncIo) {
+                ioExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "file-writer-io-" + getName());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+
+            if (restart) {
+                if (compression != Compression.NONE) {
+                    throw new ItemStreamException("압축 출력은 재시작할 수 없습니다: " + resource.getDescription());
+                }
+                offset = executionContext.getLong(getExecutionContextKey(OFFSET_KEY));
+                linesWritten = executionContext.getLong(getExecutionContextKey(WRITTEN_KEY), 0);
+                channel = FileChannel.open(path, StandardOpenOption.WRITE);
+                if (channel.size() < offset) {
+                    throw new ItemStreamException("출력 파일이 마지막 commit 위치보다 짧습니다. file=" + channel.size()
+                            + ", offset=" + offset + ", resource=" + resource.getDescription());
+                }
+                channel.truncate(offset);
+                channel.position(offset);
+                return;
+            }
+
+            linesWritten = 0;
+            boolean appending = append && Files.exists(path);
+            if (appending) {
+                channel = FileChannel.open(path, StandardOpenOption.WRITE);
+                offset = channel.size();
+                channel.position(offset);
+            } else {
+                offset = 0;
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            if (compression == Compression.GZIP) {
+                gzip = new GZIPOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+            }
+            if (headerCallback != null && !appending) {
+                writeCallback(headerCallback::writeHeader);
+                append(lineSeparator);
+                drain(length);
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("출력 파일을 열 수 없습니다: " + resource.getDescription(), e);
+        }
+    }
+
+    @Override
+    public void update(@NonNull ExecutionContext executionContext) {
+        super.update(executionContext);
+        checkFailure();
+        if (isSaveState() && compression == Compression.NONE) {
+            executionContext.putLong(getExecutionContextKey(OFFSET_KEY), offset);
+            executionContext.putLong(getExecutionContextKey(WRITTEN_KEY), linesWritten);
+        }
+    }
+
+    @Override
+    public void write(@NonNull Chunk<? extends Customer> chunk) throws Exception {
+        checkFailure();
+        registerRollbackHandler();
+        for (Customer customer : chunk) {
+            encode(customer);
+        }
+        linesWritten += chunk.size();
+        if (compression == Compression.NONE || !rollbackHandlerRegistered) {
+            drain(length);
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (footerCallback != null) {
+                writeCallback(footerCallback::writeFooter);
+            }
+            drain(length);
+            awaitIo();
+            if (gzip != null) {
+                gzip.close();
+            } else {
+                channel.force(false);
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("출력 파일을 닫을 수 없습니다: " + resource.getDescription(), e);
+        } finally {
+            channel = null;
+            gzip = null;
+            if (ioExecutor != null) {
+                ioExecutor.shutdown();
+                ioExecutor = null;
+            }
+            buffers[0] = null;
+            buffers[1] = null;
+            buffer = null;
+        }
+    }
+
+    private void encode(Customer customer) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                append(delimiter);
+            }
+            switch (fields[i]) {
+                case ID -> {
+                    if (customer.getId() != null) {
+                        appendNumber(customer.getId());
+                    }
+                }
+                case NAME -> appendString(customer.getName());
+                case AGE -> appendNumber(customer.getAge());
+                case GENDER -> appendString(customer.getGender());
+            }
+        }
+        append(lineSeparator);
+    }
+
+    /**
+     * ASCII 문자열은 문자를 바로 바이트로 옮기고, 그 외 문자가 있으면 charset 으로 인코딩한다.
+     */
+    private void appendString(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        int size = value.length();
+        ensureCapacity(size);
+        int start = length;
+        for (int i = 0; i < size; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                length = start;
+                append(value.getBytes(charset));
+                return;
+            }
+            buffer[length++] = (byte) c;
+        }
+    }
+
+    private void appendNumber(long value) throws IOException {
+        int position = MAX_NUMBER_LENGTH;
+        long remaining = Math.abs(value);
+        do {
+            digits[--position] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        if (value < 0) {
+            digits[--position] = '-';
+        }
+        int size = MAX_NUMBER_LENGTH - position;
+        ensureCapacity(size);
+        System.arraycopy(digits, position, buffer, length, size);
+        length += size;
+    }
+
+    private void append(byte[] bytes) throws IOException {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void writeCallback(CallbackWriter callback) throws IOException {
+        StringWriter writer = new StringWriter();
+        callback.write(writer);
+        append(writer.toString().getBytes(charset));
+    }
+
+    /**
+     * 버퍼가 모자라면 4KB 배수만큼 먼저 내보내고, 그래도 모자라면 버퍼를 늘린다.
+     * 압축 출력은 commit 전까지 내보내지 않고 버퍼를 늘린다.
+     */
+    private void ensureCapacity(int size) throws IOException {
+        if (length + size <= buffer.length) {
+            return;
+        }
+        if (compression == Compression.NONE) {
+            int aligned = length / ALIGNMENT * ALIGNMENT;
+            if (aligned > 0) {
+                drain(aligned);
+            }
+        }
+        if (length + size > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + size));
+            buffers[current] = buffer;
+        }
+    }
+
+    /**
+     * 버퍼 앞에서 size byte 를 출력 대상으로 넘기고 나머지를 버퍼 앞으로 옮긴다.
+     */
+    private void drain(int size) throws IOException {
+        if (size == 0) {
+            return;
+        }
+        byte[] full = buffer;
+        if (ioExecutor == null) {
+            output(full, size);
+        } else {
+            pendingIo[current] = ioExecutor.submit(() -> {
+                output(full, size);
+                return null;
+            });
+            current ^= 1;
+            await(pendingIo[current]);
+            buffer = buffers[current];
+            if (buffer.length < length - size) {
+                buffer = new byte[full.length];
+                buffers[current] = buffer;
+            }
+        }
+        System.arraycopy(full, size, buffer, 0, length - size);
+        length -= size;
+        offset += size;
+    }
+
+    private void output(byte[] bytes, int size) throws IOException {
+        if (gzip != null) {
+            gzip.write(bytes, 0, size);
+            return;
+        }
+        ByteBuffer source = ByteBuffer.wrap(bytes, 0, size);
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    /**
+     * 트랜잭션이 rollback 되면 이번 트랜잭션에서 쓴 부분을 잘라내고, 압축 출력은 commit 후에 내보낸다.
+     */
+    private void registerRollbackHandler() {
+        if (rollbackHandlerRegistered || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        long committedOffset = offset;
+        long committedLines = linesWritten;
+        rollbackHandlerRegistered = true;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                rollbackHandlerRegistered = false;
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        if (compression != Compression.NONE) {
+                            drain(length);
+                        }
+                        return;
+                    }
+                    length = 0;
+                    linesWritten = committedLines;
+                    if (compression == Compression.NONE && channel != null) {
+                        awaitIo();
+                        channel.truncate(committedOffset);
+                        channel.position(committedOffset);
+                        offset = committedOffset;
+                    }
+                } catch (IOException | ItemStreamException e) {
+                    failure = e instanceof ItemStreamException streamException ? streamException
+                            : new ItemStreamException("rollback 처리 중 출력 파일 오류: " + resource.getDescription(), e);
+                }
+            }
+        });
+    }
+
+    private void awaitIo() {
+        await(pendingIo[0]);
+        await(pendingIo[1]);
+    }
+
+    private void await(Future<?> future) {
+        if (future == null) {
+            return;
+        }
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ItemStreamException("출력 I/O 대기 중 인터럽트", e);
+        } catch (ExecutionException e) {
+            throw new ItemStreamException("출력 I/O 실패: " + resource.getDescription(), e.getCause());
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @FunctionalInterface
+    private interface CallbackWriter {
+        void write(StringWriter writer) throws IOException;
+    }
+}
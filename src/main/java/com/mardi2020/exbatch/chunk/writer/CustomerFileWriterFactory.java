@@ -0,0 +1,108 @@
+package com.mardi2020.exbatch.chunk.writer;
+
+import com.mardi2020.exbatch.chunk.columnar.CustomerColumnarItemWriter;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileItemWriter.Compression;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileItemWriter.Field;
+import java.nio.charset.StandardCharsets;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.file.FlatFileItemWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * customer 파일 출력 writer 선택과 생성
+ * - exbatch.output.writer: flat-file(기본, FlatFileItemWriter) | fast(CustomerFileItemWriter)
+ *   | columnar(CustomerColumnarItemWriter, name/age/gender 만 .ccol 파일로 쓴다)
+ * - exbatch.output.compression: none(기본) | gzip, gzip 이면 파일 이름 뒤에 .gz 를 붙인다.
+ * - exbatch.output.async-io: true 이면 파일 쓰기를 별도 I/O 스레드에서 한다.
+ * - exbatch.output.buffer-size: 인코딩 버퍼 크기 (기본 1MB)
+ * - exbatch.output.row-group-size: 컬럼 파일 row group 의 row 수 (기본 65536)
+ * 이미 있는 출력 파일에 이어 쓰려면 open 전에 {@link #setAppend(ItemStreamWriter, boolean)} 를 호출한다.
+ */
+@Component
+public class CustomerFileWriterFactory {
+
+    public static final String FAST = "fast";
+
+    public static final String COLUMNAR = "columnar";
+
+    private static final String COLUMNAR_EXTENSION = ".ccol";
+
+    @Value("${exbatch.output.writer:flat-file}")
+    private String writerType;
+
+    @Value("${exbatch.output.compression:none}")
+    private String compression;
+
+    @Value("${exbatch.output.async-io:false}")
+    private boolean asyncIo;
+
+    @Value("${exbatch.output.buffer-size:1048576}")
+    private int bufferSize;
+
+    @Value("${exbatch.output.row-group-size:65536}")
+    private int rowGroupSize;
+
+    public String getWriterType() {
+        return writerType;
+    }
+
+    public boolean isFast() {
+        return FAST.equals(writerType);
+    }
+
+    public boolean isColumnar() {
+        return COLUMNAR.equals(writerType);
+    }
+
+    /**
+     * @param name ExecutionContext key prefix
+     * @param path 출력 파일 경로
+     * @param delimiter 필드 구분자
+     * @param fields 출력할 필드 (순서대로)
+     */
+    public CustomerFileItemWriter create(String name, String path, String delimiter, Field... fields) {
+        Compression outputCompression = Compression.valueOf(compression.toUpperCase());
+        String outputPath = outputCompression == Compression.GZIP ? path + ".gz" : path;
+
+        CustomerFileItemWriter writer = new CustomerFileItemWriter(new FileSystemResource(outputPath), fields);
+        writer.setName(name);
+        writer.setCharset(StandardCharsets.UTF_8);
+        writer.setDelimiter(delimiter);
+        writer.setCompression(outputCompression);
+        writer.setAsyncIo(asyncIo);
+        writer.setBufferSize(bufferSize);
+        return writer;
+    }
+
+    /**
+     * @param name ExecutionContext key prefix
+     * @param path 출력 파일 경로, 확장자는 .ccol 로 바꾼다.
+     */
+    public CustomerColumnarItemWriter createColumnar(String name, String path) {
+        int extension = path.lastIndexOf('.');
+        String outputPath = (extension > path.lastIndexOf('/') ? path.substring(0, extension) : path)
+                + COLUMNAR_EXTENSION;
+
+        CustomerColumnarItemWriter writer = new CustomerColumnarItemWriter(new FileSystemResource(outputPath));
+        writer.setName(name);
+        writer.setRowGroupSize(rowGroupSize);
+        return writer;
+    }
+
+    /**
+     * 이 factory / FlatFileItemWriterBuilder 로 만든 writer 의 이어쓰기 여부를 바꾼다. 다음 open 부터 적용된다.
+     */
+    public static void setAppend(ItemStreamWriter<?> writer, boolean append) {
+        if (writer instanceof FlatFileItemWriter<?> flatFileItemWriter) {
+            flatFileItemWriter.setAppendAllowed(append);
+        } else if (writer instanceof CustomerFileItemWriter customerFileItemWriter) {
+            customerFileItemWriter.setAppend(append);
+        } else if (writer instanceof CustomerColumnarItemWriter columnarItemWriter) {
+            columnarItemWriter.setAppend(append);
+        } else {
+            throw new IllegalArgumentException("이어쓰기를 지원하지 않는 writer: " + writer.getClass().getName());
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.mardi2020.exbatch.chunk.writer;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import com.mardi2020.exbatch.chunk.dedup.CustomerKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.lang.NonNull;
+
+/**
+ * natural key (name, age, gender) 가 이미 있으면 건너뛰고 없으면 insert 하는 multi-row upsert writer
+ * 같은 파일을 다시 적재하거나 겹치는 파일을 적재해도 row 가 중복되지 않는다.
+ * <pre>
+ * MySQL          : INSERT ... VALUES (...), (...) ON DUPLICATE KEY UPDATE id = id  (natural key unique index, useAffectedRows=true 필요)
+ * H2 / HSQLDB    : MERGE INTO ... USING (VALUES (...), (...)) ... WHEN NOT MATCHED THEN INSERT
+ * Derby / 그 외   : INSERT ... SELECT ... FROM (VALUES ...) WHERE NOT EXISTS (...)
+ * </pre>
+ * 한 statement 안에 같은 key 가 두 번 있으면 MERGE / NOT EXISTS 는 둘 다 insert 하므로, chunk 안의 중복은 먼저 걸러낸다.
+ * key 가 없는(name / gender 가 null) row 는 항상 insert 된다. (unique index 도 NULL 을 중복으로 보지 않는다)
+ * statement 를 나누는 기준은 {@link CustomerBulkInsertItemWriter} 와 같다.
+ * 새로 들어간 row / 이미 있던 row 수는 batch.upsert.rows{table, result=inserted|existing} 로 기록한다.
+ * natural key unique index 가 전제 조건이라 step 을 시작할 때(open) index 가 없으면 바로 실패한다.
+ * (MySQL: sql/customer_natural_key.sql, sql/customer2_natural_key.sql, 그 외: sql/customer_natural_key_portable.sql)
+ */
+@Slf4j
+public class CustomerUpsertItemWriter implements ItemStreamWriter<Customer> {
+
+    private static final Set<String> NATURAL_KEY = Set.of("name", "age", "gender");
+
+    /**
+     * DB 별 upsert 문
+     */
+    public enum Dialect {
+
+        MYSQL {
+            @Override
+            String sql(String table, int rows) {
+                return "INSERT INTO " + table + " (name, age, gender) VALUES "
+                        + repeat("(?, ?, ?)", rows) + " ON DUPLICATE KEY UPDATE id = id";
+            }
+        },
+
+        MERGE {
+            @Override
+            String sql(String table, int rows) {
+                return "MERGE INTO " + table + " t USING (VALUES " + repeat(TYPED_ROW, rows)
+                        + ") AS s (name, age, gender) ON " + KEY_MATCH
+                        + " WHEN NOT MATCHED THEN INSERT (name, age, gender) VALUES (s.name, s.age, s.gender)";
+            }
+        },
+
+        INSERT_IF_ABSENT {
+            @Override
+            String sql(String table, int rows) {
+                return "INSERT INTO " + table + " (name, age, gender) SELECT s.name, s.age, s.gender FROM (VALUES "
+                        + repeat(TYPED_ROW, rows) + ") AS s (name, age, gender)"
+                        + " WHERE NOT EXISTS (SELECT 1 FROM " + table + " t WHERE " + KEY_MATCH + ")";
+            }
+        };
+
+        /**
+         * VALUES 목록의 파라미터는 타입을 추론하지 못하는 DB 가 있어서 CAST 한다.
+         */
+        private static final String TYPED_ROW =
+                "(CAST(? AS VARCHAR(255)), CAST(? AS INTEGER), CAST(? AS VARCHAR(255)))";
+
+        private static final String KEY_MATCH = "t.name = s.name AND t.age = s.age AND t.gender = s.gender";
+
+        abstract String sql(String table, int rows);
+
+        public static Dialect of(DatabaseType databaseType) {
+            return switch (databaseType) {
+                case MYSQL, MARIADB -> MYSQL;
+                case H2, HSQL -> MERGE;
+                default -> INSERT_IF_ABSENT;
+            };
+        }
+
+        /**
+         * DB 종류를 확인하지 못하면 {@link #INSERT_IF_ABSENT}
+         */
+        public static Dialect resolve(DataSource dataSource) {
+            try {
+                Dialect dialect = of(DatabaseType.fromMetaData(dataSource));
+                log.info("upsert dialect: {}", dialect);
+                return dialect;
+            } catch (MetaDataAccessException e) {
+                log.warn("DB 종류를 확인하지 못해 {} 를 사용합니다.", INSERT_IF_ABSENT, e);
+                return INSERT_IF_ABSENT;
+            }
+        }
+
+        private static String repeat(String row, int rows) {
+            StringBuilder values = new StringBuilder(rows * (row.length() + 2));
+            for (int i = 0; i < rows; i++) {
+                if (i > 0) {
+                    values.append(", ");
+                }
+                values.append(row);
+            }
+            return values.toString();
+        }
+    }
+
+    /**
+     * row 하나의 고정 오버헤드 추정치 (CAST 를 포함한 placeholder, age 숫자)
+     */
+    private static final int ROW_OVERHEAD_BYTES = 80;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String table;
+
+    private final Dialect dialect;
+
+    private final Map<Integer, String> sqlCache = new ConcurrentHashMap<>();
+
+    private final Counter inserted;
+
+    private final Counter existing;
+
+    private int maxRows = 500;
+
+    private long maxBytes = 1024 * 1024;
+
+    /**
+     * @param table name, age, gender 컬럼을 가진 테이블
+     */
+    public CustomerUpsertItemWriter(JdbcTemplate jdbcTemplate, String table, Dialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.dialect = dialect;
+        this.inserted = counter(table, "inserted");
+        this.existing = counter(table, "existing");
+    }
+
+    /**
+     * @param maxRows statement 하나에 묶을 최대 row 수
+     */
+    public void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * @param maxBytes statement 하나의 최대 크기 추정치 (MySQL max_allowed_packet 보다 작게)
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void open(@NonNull ExecutionContext executionContext) {
+        if (!hasNaturalKeyIndex(jdbcTemplate, table)) {
+            throw new ItemStreamException(table + " 에 natural key (name, age, gender) unique index 가 없습니다. "
+                    + "sql/customer_natural_key*.sql 로 먼저 만들어 주세요.");
+        }
+    }
+
+    /**
+     * table 에 (name, age, gender) 로만 이루어진 unique index 가 있는지 확인한다. (index 이름은 보지 않는다)
+     */
+    public static boolean hasNaturalKeyIndex(JdbcTemplate jdbcTemplate, String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String name : new String[]{table, table.toUpperCase(Locale.ROOT)}) {
+                Map<String, Set<String>> columns = new HashMap<>();
+                try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), null, name, true, true)) {
+                    while (indexes.next()) {
+                        String index = indexes.getString("INDEX_NAME");
+                        String column = indexes.getString("COLUMN_NAME");
+                        if (index != null && column != null) {
+                            columns.computeIfAbsent(index, key -> new HashSet<>()).add(column.toLowerCase(Locale.ROOT));
+                        }
+                    }
+                }
+                if (columns.containsValue(NATURAL_KEY)) {
+                    return true;
+                }
+            }
+            return false;
+        }));
+    }
+
+    @Override
+    public void write(@NonNull Chunk<? extends Customer> chunk) {
+        List<Customer> items = distinct(chunk.getItems());
+        int from = 0;
+        long bytes = 0;
+
+        for (int i = 0; i < items.size(); i++) {
+            long rowBytes = estimateBytes(items.get(i));
+            int rows = i - from;
+            if (rows > 0 && (rows >= maxRows || bytes + rowBytes > maxBytes)) {
+                upsert(items, from, rows);
+                from = i;
+                bytes = 0;
+            }
+            bytes += rowBytes;
+        }
+        if (from < items.size()) {
+            upsert(items, from, items.size() - from);
+        }
+        existing.increment(chunk.size() - items.size());
+    }
+
+    private void upsert(List<Customer> items, int from, int rows) {
+        int updated = jdbcTemplate.update(sqlCache.computeIfAbsent(rows, count -> dialect.sql(table, count)), ps -> {
+            int index = 1;
+            for (int i = from; i < from + rows; i++) {
+                Customer customer = items.get(i);
+                ps.setString(index++, customer.getName());
+                ps.setInt(index++, customer.getAge());
+                ps.setString(index++, customer.getGender());
+            }
+        });
+        // id = id 는 값을 바꾸지 않으므로 MySQL 은 이미 있던 row 를 0 으로 센다.
+        // Connector/J 기본값(useAffectedRows=false) 은 1 로 세므로 application-mysql.yml 의 URL 에 useAffectedRows=true 를 준다.
+        int insertedRows = Math.min(updated, rows);
+        inserted.increment(insertedRows);
+        existing.increment(rows - insertedRows);
+    }
+
+    /**
+     * 같은 natural key 는 처음 것만 남긴다.
+     */
+    private static List<Customer> distinct(List<? extends Customer> items) {
+        List<Customer> distinct = new ArrayList<>(items.size());
+        Set<CustomerKey> keys = new HashSet<>(items.size() * 2);
+        for (Customer customer : items) {
+            CustomerKey key = CustomerKey.of(customer);
+            if (key == null || keys.add(key)) {
+                distinct.add(customer);
+            }
+        }
+        return distinct;
+    }
+
+    private static long estimateBytes(Customer customer) {
+        String name = customer.getName();
+        String gender = customer.getGender();
+        // UTF-8 한 글자 최대 3byte 로 보수적으로 계산
+        return ROW_OVERHEAD_BYTES + (name == null ? 4 : name.length() * 3L) + (gender == null ? 4 : gender.length() * 3L);
+    }
+
+    private static Counter counter(String table, String result) {
+        return Counter.builder("batch.upsert.rows")
+                .description("upsert 결과별 row 수")
+                .tag("table", table)
+                .tag("result", result)
+                .register(Metrics.globalRegistry);
+    }
+}
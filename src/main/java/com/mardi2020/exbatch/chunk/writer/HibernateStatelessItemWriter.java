@@ -0,0 +1,52 @@
+package com.mardi2020.exbatch.chunk.writer;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.lang.NonNull;
+
+/**
+ * Hibernate StatelessSession 으로 엔티티를 insert 하는 writer
+ * JpaItemWriter(usePersist) 는 chunk 의 모든 엔티티를 commit 까지 영속성 컨텍스트에 들고 있어서
+ * chunk 가 커질수록 dirty checking / flush 비용과 메모리가 늘어난다.
+ * StatelessSession 은 1차 캐시와 dirty checking 이 없어 insert 만 바로 실행하고, chunk 가 끝나면 세션을 닫는다.
+ * 현재 chunk 트랜잭션의 JDBC 커넥션을 그대로 사용하므로 rollback 도 chunk 단위로 동작한다.
+ * id 가 IDENTITY 이면 insert 마다 생성된 id 를 받아야 하므로 JDBC batch 로 묶이지 않는다.
+ * (묶어서 insert 하려면 JPA_ITEM_WRITER_JOB 의 jdbc 모드를 쓴다)
+ */
+@Slf4j
+public class HibernateStatelessItemWriter<T> implements ItemWriter<T> {
+
+    private final SessionFactory sessionFactory;
+
+    private final DataSource dataSource;
+
+    /**
+     * @param entityManagerFactory Hibernate SessionFactory 를 꺼낼 EntityManagerFactory
+     * @param dataSource chunk 트랜잭션에 묶인 커넥션을 얻기 위한 DataSource
+     */
+    public HibernateStatelessItemWriter(EntityManagerFactory entityManagerFactory, DataSource dataSource) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void write(@NonNull Chunk<? extends T> chunk) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        StatelessSession session = sessionFactory.openStatelessSession(connection);
+        try {
+            for (T item : chunk) {
+                session.insert(item);
+            }
+        } finally {
+            session.close();
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.mardi2020.exbatch.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * chunk step 의 비동기 processor(AsyncItemProcessor) 가 사용하는 executor 설정
+ * Java 21 이상이면 virtual thread 를, Java 17 이면 고정 크기 platform thread pool 을 사용한다.
+ */
+@Slf4j
+@Configuration
+public class AsyncProcessingConfig {
+
+    /**
+     * 동시에 실행되는 processor 스레드 수
+     */
+    @Value("${exbatch.async.concurrency:16}")
+    private int concurrency;
+
+    @Bean
+    public TaskExecutor asyncProcessingTaskExecutor() {
+        SimpleAsyncTaskExecutor virtualExecutor = new SimpleAsyncTaskExecutor("async-process-");
+        try {
+            virtualExecutor.setVirtualThreads(true);
+            virtualExecutor.setConcurrencyLimit(concurrency);
+            log.info("async processor executor: virtual threads (concurrency={})", concurrency);
+            return virtualExecutor;
+        } catch (UnsupportedOperationException e) {
+            // JDK 21 미만
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setThreadNamePrefix("async-process-");
+            executor.setCorePoolSize(concurrency);
+            executor.setMaxPoolSize(concurrency);
+            executor.setWaitForTasksToCompleteOnShutdown(true);
+            log.info("async processor executor: platform thread pool (concurrency={})", concurrency);
+            return executor;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.mardi2020.exbatch.config;
+
+import com.mardi2020.exbatch.repository.BatchMetadataPostProcessor;
+import com.mardi2020.exbatch.repository.CompactExecutionContextSerializer;
+import com.mardi2020.exbatch.repository.InMemoryBatchMetadata;
+import java.time.Duration;
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.dao.DefaultExecutionContextSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 배치 메타데이터(BATCH_* 테이블) 쓰기 설정, chunk 가 작은 job 에서 메타데이터 쓰기 비용을 줄이는 용도
+ * - exbatch.batch-metadata.flush-chunks: step 상태 / ExecutionContext 를 몇 chunk 마다 쓸지 (기본 0 = 매 chunk)
+ * - exbatch.batch-metadata.flush-interval: 마지막으로 쓴 뒤 이 시간이 지나면 쓴다. (기본 0 = 사용 안 함)
+ * - exbatch.batch-metadata.serializer: compact 면 ExecutionContext 를 {@link CompactExecutionContextSerializer} 로 저장
+ * - exbatch.batch-metadata.store: memory 면 메타데이터를 별도 in-memory H2 에 둔다. (재시작 불가)
+ * flush 설정을 쓰면 비정상 종료 후 재시작 시 마지막 flush 이후 chunk 가 다시 처리된다. (CoalescingStepUpdateInterceptor)
+ * ex) --spring.profiles.active=mysql,lean-metadata
+ */
+@Configuration
+public class BatchMetadataConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "exbatch.batch-metadata.serializer", havingValue = "compact")
+    public ExecutionContextSerializer executionContextSerializer() {
+        return new CompactExecutionContextSerializer();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "exbatch.batch-metadata.store", havingValue = "memory")
+    public InMemoryBatchMetadata inMemoryBatchMetadata(ObjectProvider<ExecutionContextSerializer> serializer)
+            throws Exception {
+        return new InMemoryBatchMetadata(serializer.getIfAvailable(DefaultExecutionContextSerializer::new));
+    }
+
+    @Bean
+    public static BatchMetadataPostProcessor batchMetadataPostProcessor(
+            ObjectProvider<InMemoryBatchMetadata> inMemoryBatchMetadata,
+            @Value("${exbatch.batch-metadata.flush-chunks:0}") int flushChunks,
+            @Value("${exbatch.batch-metadata.flush-interval:0ms}") Duration flushInterval) {
+        return new BatchMetadataPostProcessor(inMemoryBatchMetadata, flushChunks, flushInterval);
+    }
+}
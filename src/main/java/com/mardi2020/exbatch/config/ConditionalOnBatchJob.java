@@ -0,0 +1,25 @@
+package com.mardi2020.exbatch.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.springframework.context.annotation.Conditional;
+
+/**
+ * job 설정 class 에 붙여서, fast startup 모드(exbatch.fast-startup=true) 에서는 실행할 job 의 설정만 등록한다.
+ * 실행할 job 은 spring.batch.job.name 과 exbatch.launcher.jobs 에 있는 job 이다.
+ * fast startup 모드가 아니면 항상 등록한다.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Conditional(OnBatchJobCondition.class)
+public @interface ConditionalOnBatchJob {
+
+    /**
+     * 이 설정이 만드는 job 이름
+     */
+    String value();
+}
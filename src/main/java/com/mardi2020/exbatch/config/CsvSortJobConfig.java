@@ -0,0 +1,167 @@
+package com.mardi2020.exbatch.config;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import com.mardi2020.exbatch.chunk.mapping.MappedFieldExtractor;
+import com.mardi2020.exbatch.chunk.policy.AdaptiveChunkCompletionPolicy;
+import com.mardi2020.exbatch.chunk.policy.AdaptiveChunkPolicyFactory;
+import com.mardi2020.exbatch.chunk.reader.CustomerCsvItemReader;
+import com.mardi2020.exbatch.chunk.sort.ExternalSortItemWriter;
+import com.mardi2020.exbatch.chunk.sort.SortKey;
+import com.mardi2020.exbatch.chunk.sort.SortedRunItemReader;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileItemWriter.Field;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileWriterFactory;
+import com.mardi2020.exbatch.metrics.StepMetricsListener;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * customer csv 를 DB 에 적재하지 않고 나이 / 이름 순으로 정렬해서 파일로 쓰는 job
+ * 1. csvSortStep: csv 를 읽어 정렬된 run 파일로 나눠 쓴다. (ExternalSortItemWriter)
+ *    FLAT_FILE_WRITER_CHUNK_JOB 과 같이 파싱할 수 없는 줄은 건너뛴다.
+ * 2. csvSortMergeStep: run 파일을 병합해서 정렬 순서대로 출력 파일에 쓴다. (SortedRunItemReader)
+ * - exbatch.sort.key: age(기본) | name
+ * - exbatch.sort.descending: 내림차순 여부 (기본 false), 키가 같으면 입력 순서를 유지한다.
+ * - exbatch.sort.memory-limit: 정렬 버퍼 + index 최대 크기 (기본 64MB), 넘으면 run 파일로 내린다.
+ * - exbatch.sort.temp-dir: run 파일을 둘 디렉터리 (기본 ./output/sort)
+ * 출력 writer 는 exbatch.output.writer 를 따른다. (CustomerFileWriterFactory)
+ */
+@Slf4j
+@Configuration
+@ConditionalOnBatchJob(CsvSortJobConfig.CSV_SORT_JOB)
+@RequiredArgsConstructor
+public class CsvSortJobConfig {
+
+    public static final int CHUNK_SIZE = 100;
+
+    public static final String ENCODING = "UTF-8";
+
+    public static final String CSV_SORT_JOB = "CSV_SORT_JOB";
+
+    private static final String OUTPUT_PATH = "./output/customer_sorted.csv";
+
+    @Value("${exbatch.chunk-size:" + CHUNK_SIZE + "}")
+    private int chunkSize;
+
+    @Value("${exbatch.input.customer-csv:classpath:customer.csv}")
+    private Resource customerCsv;
+
+    @Value("${exbatch.sort.key:age}")
+    private String sortKey;
+
+    @Value("${exbatch.sort.descending:false}")
+    private boolean descending;
+
+    @Value("${exbatch.sort.memory-limit:64MB}")
+    private DataSize memoryLimit;
+
+    @Value("${exbatch.sort.temp-dir:./output/sort}")
+    private String tempDir;
+
+    private final CustomerFileWriterFactory fileWriterFactory;
+
+    @Bean
+    public CustomerCsvItemReader csvSortItemReader() {
+        CustomerCsvItemReader reader = new CustomerCsvItemReader(customerCsv, Charset.forName(ENCODING), ',');
+        reader.setName("csvSortItemReader");
+        return reader;
+    }
+
+    @Bean
+    public ExternalSortItemWriter externalSortItemWriter() {
+        return new ExternalSortItemWriter(Path.of(tempDir), key(), descending, memoryLimit.toBytes());
+    }
+
+    @Bean
+    public SortedRunItemReader sortedRunItemReader() {
+        return new SortedRunItemReader(key(), descending, memoryLimit.toBytes());
+    }
+
+    @Bean
+    public ItemStreamWriter<Customer> sortedFileItemWriter() {
+        if (fileWriterFactory.isColumnar()) {
+            return fileWriterFactory.createColumnar("sortedFileItemWriter", OUTPUT_PATH);
+        }
+        if (fileWriterFactory.isFast()) {
+            return fileWriterFactory.create("sortedFileItemWriter", OUTPUT_PATH, ",",
+                    Field.NAME, Field.AGE, Field.GENDER);
+        }
+        return new FlatFileItemWriterBuilder<Customer>()
+                .name("sortedFileItemWriter")
+                .resource(new FileSystemResource(OUTPUT_PATH))
+                .encoding(ENCODING)
+                .delimited().delimiter(",")
+                .fieldExtractor(new MappedFieldExtractor<>(Customer.class, "name", "age", "gender"))
+                .build();
+    }
+
+    @Bean
+    public Step csvSortStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                            AdaptiveChunkPolicyFactory chunkPolicyFactory,
+                            StepMetricsListener stepMetricsListener) {
+        log.info("------------------ Init csvSortStep (key={}, descending={}, memory={}) -----------------",
+                sortKey, descending, memoryLimit);
+
+        AdaptiveChunkCompletionPolicy completionPolicy = chunkPolicyFactory.create(chunkSize);
+        ExternalSortItemWriter writer = externalSortItemWriter();
+
+        return stepMetricsListener.instrument(new StepBuilder("csvSortStep", jobRepository)
+                .<Customer, Customer>chunk(completionPolicy, transactionManager)
+                .reader(csvSortItemReader())
+                .faultTolerant()
+                .skipPolicy((exception, skipCount) -> exception instanceof FlatFileParseException)
+                .writer(writer)
+                .listener(writer)
+                .listener(completionPolicy))
+                .build();
+    }
+
+    @Bean
+    public Step csvSortMergeStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                 AdaptiveChunkPolicyFactory chunkPolicyFactory,
+                                 StepMetricsListener stepMetricsListener) {
+        log.info("------------------ Init csvSortMergeStep -----------------");
+
+        AdaptiveChunkCompletionPolicy completionPolicy = chunkPolicyFactory.create(chunkSize);
+        SortedRunItemReader reader = sortedRunItemReader();
+
+        return stepMetricsListener.instrument(new StepBuilder("csvSortMergeStep", jobRepository)
+                .<Customer, Customer>chunk(completionPolicy, transactionManager)
+                .reader(reader)
+                .writer(sortedFileItemWriter())
+                .listener(reader)
+                .listener(completionPolicy))
+                .build();
+    }
+
+    @Bean
+    public Job csvSortJob(Step csvSortStep, Step csvSortMergeStep, JobRepository jobRepository) {
+        log.info("------------------ Init csvSortJob -----------------");
+        return new JobBuilder(CSV_SORT_JOB, jobRepository)
+                .incrementer(new RunIdIncrementer())
+                .start(csvSortStep)
+                .next(csvSortMergeStep)
+                .build();
+    }
+
+    private SortKey key() {
+        return SortKey.valueOf(sortKey.toUpperCase());
+    }
+}
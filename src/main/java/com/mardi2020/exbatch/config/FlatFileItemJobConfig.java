@@ -1,8 +1,21 @@
 package com.mardi2020.exbatch.config;
 
 import com.mardi2020.exbatch.chunk.AggregateCustomerProcessor;
+import com.mardi2020.exbatch.chunk.aggregate.Aggregation;
+import com.mardi2020.exbatch.chunk.aggregate.CustomerAggregateFooterCallback;
+import com.mardi2020.exbatch.chunk.aggregate.GroupAggregator;
 import com.mardi2020.exbatch.chunk.data.Customer;
-import java.util.concurrent.ConcurrentHashMap;
+import com.mardi2020.exbatch.chunk.policy.AdaptiveChunkCompletionPolicy;
+import com.mardi2020.exbatch.chunk.policy.AdaptiveChunkPolicyFactory;
+import com.mardi2020.exbatch.chunk.reader.CustomerCsvItemReader;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileItemWriter;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileItemWriter.Field;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileWriterFactory;
+import com.mardi2020.exbatch.metrics.StepMetricsListener;
+import com.mardi2020.exbatch.remote.RemoteChunkItemWriter;
+import java.nio.charset.Charset;
+import java.util.EnumSet;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
@@ -12,19 +25,22 @@ import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.core.step.skip.SkipPolicy;
 import org.springframework.batch.item.ItemProcessor;
-import org.springframework.batch.item.file.FlatFileItemReader;
-import org.springframework.batch.item.file.FlatFileItemWriter;
+import org.springframework.batch.item.ItemStreamWriter;
 import org.springframework.batch.item.file.FlatFileParseException;
-import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
 import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
+import org.springframework.batch.item.file.transform.LineAggregator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.transaction.PlatformTransactionManager;
 
 @Configuration
+@ConditionalOnBatchJob(FlatFileItemJobConfig.FLAT_FILE_WRITER_CHUNK_JOB)
 @Slf4j
+@RequiredArgsConstructor
 public class FlatFileItemJobConfig {
 
     public static final int CHUNK_SIZE = 100;
@@ -33,53 +49,109 @@ public class FlatFileItemJobConfig {
 
     public static final String FLAT_FILE_WRITER_CHUNK_JOB = "FLAT_FILE_WRITER_CHUNK_JOB";
 
-    private final ConcurrentHashMap<String, Integer> aggregateInfos = new ConcurrentHashMap<>();
+    public static final String HEADER = "ID,AGE";
 
-    private final ItemProcessor<Customer, Customer> itemProcessor = new AggregateCustomerProcessor(aggregateInfos);
+    public static final LineAggregator<Customer> CUSTOMER_LINE_AGGREGATOR =
+            customer -> customer.getName() + "," + customer.getAge(); // implements LineAggregator<T>
 
+    /**
+     * chunk 크기, 기본값은 CHUNK_SIZE (벤치마크에서 바꿔가며 측정)
+     */
+    @Value("${exbatch.chunk-size:" + CHUNK_SIZE + "}")
+    private int chunkSize;
+
+    /**
+     * 읽을 customer csv (ex. file:./build/benchmark/customer.csv)
+     */
+    @Value("${exbatch.input.customer-csv:classpath:customer.csv}")
+    private Resource customerCsv;
+
+    /**
+     * 성별 그룹으로 나이를 집계한다. 결과는 step 종료 시 ExecutionContext 에 올라가고 footer 에서 사용한다.
+     * reader 가 byte offset 으로 재시작하므로 stream 으로도 등록해서 commit 된 집계값에서 이어서 누적한다.
+     */
+    private final GroupAggregator<Customer> customerAggregator = new GroupAggregator<>(
+            "gender", Customer::getGender, Customer::getAge, EnumSet.allOf(Aggregation.class));
+
+    private final CustomerAggregateFooterCallback footerCallback = new CustomerAggregateFooterCallback();
+
+    private final ItemProcessor<Customer, Customer> itemProcessor = new AggregateCustomerProcessor(customerAggregator);
+
+    private final CustomerFileWriterFactory fileWriterFactory;
+
+    /**
+     * customer.csv 를 바이트 단위로 바로 파싱하는 reader (FieldSet/reflection 미사용)
+     */
     @Bean
-    public FlatFileItemReader<Customer> flatFileItemReader() {
-        return new FlatFileItemReaderBuilder<Customer>()
-                .name("FlatFileItemReader")
-                .resource(new ClassPathResource("customer.csv"))
-                .encoding(ENCODING)
-                .delimited().delimiter(",")
-                .names("name", "age", "gender")
-                .targetType(Customer.class)
-                .build();
+    public CustomerCsvItemReader flatFileItemReader() {
+        CustomerCsvItemReader reader = new CustomerCsvItemReader(
+                customerCsv, Charset.forName(ENCODING), ',');
+        reader.setName("FlatFileItemReader");
+        return reader;
     }
 
     @Bean
-    public FlatFileItemWriter<Customer> flatFileItemWriter() {
+    public ItemStreamWriter<Customer> flatFileItemWriter() {
+        if (fileWriterFactory.isFast()) {
+            CustomerFileItemWriter writer = fileWriterFactory.create(
+                    "flatFileItemWriter", "./output/customer_new.csv", ",", Field.NAME, Field.AGE);
+            writer.setHeaderCallback(headerWriter -> headerWriter.write(HEADER));
+            writer.setFooterCallback(footerCallback);
+            return writer;
+        }
+
         return new FlatFileItemWriterBuilder<Customer>()
                 .name("flatFileItemWriter")
                 .resource(new FileSystemResource("./output/customer_new.csv"))
                 .encoding(ENCODING)
-                .delimited().delimiter("\t")
-                .names("Name", "Age", "Gender")
                 .append(false)
-                .lineAggregator(customer -> customer.getName() + "," + customer.getAge()) // implements LineAggregator<T>
-                .headerCallback(writer -> writer.write("ID,AGE")) // implements FlatFileHeaderCallback
-                .footerCallback(writer -> { // implements FlatFileFooterCallback
-                    writer.write("총 고객 수: " + aggregateInfos.get("TOTAL_CUSTOMERS"));
-                    writer.write(System.lineSeparator());
-                    writer.write("총 나이: " + aggregateInfos.get("TOTAL_AGES"));
-                })
+                .lineAggregator(CUSTOMER_LINE_AGGREGATOR)
+                .headerCallback(writer -> writer.write(HEADER)) // implements FlatFileHeaderCallback
+                .footerCallback(footerCallback) // implements FlatFileFooterCallback
                 .build();
     }
 
 
     @Bean
-    public Step flatFileStep(JobRepository jobRepository, PlatformTransactionManager transactionManager) {
+    public Step flatFileStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                             AdaptiveChunkPolicyFactory chunkPolicyFactory,
+                             StepMetricsListener stepMetricsListener,
+                             ObjectProvider<RemoteChunkItemWriter> remoteChunkItemWriter) {
         log.info("------------------ Init flatFileStep -----------------");
 
-        return new StepBuilder("flatFileStep", jobRepository)
-                .<Customer, Customer>chunk(CHUNK_SIZE, transactionManager)
+        AdaptiveChunkCompletionPolicy completionPolicy = chunkPolicyFactory.create(chunkSize);
+
+        RemoteChunkItemWriter remoteWriter = remoteChunkItemWriter.getIfAvailable();
+        if (remoteWriter != null) {
+            // remote chunking: processor / writer 는 worker 에서 실행된다. (RemoteChunkingConfig)
+            // worker 가 보낸 집계값을 customerAggregator 에 합치고, 출력 파일에는 header 와 전체 footer 만 쓴다.
+            remoteWriter.setAggregator(customerAggregator);
+            return stepMetricsListener.instrument(new StepBuilder("flatFileStep", jobRepository)
+                    .<Customer, Customer>chunk(completionPolicy, transactionManager)
+                    .reader(flatFileItemReader())
+                    .faultTolerant()
+                    .skipPolicy((exception, skipCount) -> exception instanceof FlatFileParseException)
+                    .writer(remoteWriter)
+                    .stream(flatFileItemWriter())
+                    .stream(customerAggregator)
+                    .listener(customerAggregator)
+                    .listener(footerCallback)
+                    .listener(remoteWriter) // afterStep 이 집계기보다 먼저 호출되도록 나중에 등록한다.
+                    .listener(completionPolicy))
+                    .build();
+        }
+
+        return stepMetricsListener.instrument(new StepBuilder("flatFileStep", jobRepository)
+                .<Customer, Customer>chunk(completionPolicy, transactionManager)
                 .reader(flatFileItemReader())
                 .processor(itemProcessor) //
                 .faultTolerant()
                 .skipPolicy((exception, skipCount) -> exception instanceof FlatFileParseException) // skip 정책은 faultTolerant() 호출 후 수행
                 .writer(flatFileItemWriter())
+                .stream(customerAggregator) // 재시작 시 commit 된 집계값에서 이어서 누적한다.
+                .listener(customerAggregator)
+                .listener(footerCallback)
+                .listener(completionPolicy))
                 .build();
     }
 
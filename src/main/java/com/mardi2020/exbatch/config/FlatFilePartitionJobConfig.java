@@ -0,0 +1,202 @@
+package com.mardi2020.exbatch.config;
+
+import com.mardi2020.exbatch.chunk.AggregateCustomerProcessor;
+import com.mardi2020.exbatch.chunk.aggregate.Aggregation;
+import com.mardi2020.exbatch.chunk.aggregate.CustomerAggregateFooterCallback;
+import com.mardi2020.exbatch.chunk.aggregate.GroupAggregator;
+import com.mardi2020.exbatch.chunk.aggregate.StepAggregateCollector;
+import com.mardi2020.exbatch.chunk.data.Customer;
+import com.mardi2020.exbatch.chunk.reader.CustomerCsvItemReader;
+import com.mardi2020.exbatch.metrics.StepMetricsListener;
+import com.mardi2020.exbatch.partition.CsvFileRangePartitioner;
+import com.mardi2020.exbatch.tasklet.FileMergeTasklet;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.file.FlatFileItemWriter;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * FLAT_FILE_WRITER_CHUNK_JOB 의 파티셔닝 버전
+ * customer.csv 를 line 경계에 맞춘 byte 범위로 나눠 여러 스레드에서 동시에 읽고,
+ * 파티션별 임시 파일을 마지막 step 에서 header/footer 와 함께 customer_new.csv 로 합친다.
+ * footer 합계는 파티션 step 마다 자기 StepExecution 에 집계값을 기록하고, merge step 에서 그 값들을 합쳐서 사용한다.
+ * 재시작으로 일부 파티션만 다시 실행되어도 끝난 파티션의 집계값은 이전 실행의 StepExecution 에서 읽는다.
+ * job parameter
+ * - partitionCount: 파일을 몇 개 범위로 나눌지 (기본 4)
+ * - gridSize: 동시에 실행할 worker 수 (기본 4)
+ */
+@Configuration
+@ConditionalOnBatchJob(FlatFilePartitionJobConfig.FLAT_FILE_PARTITION_CHUNK_JOB)
+@Slf4j
+public class FlatFilePartitionJobConfig {
+
+    public static final int CHUNK_SIZE = 100;
+    public static final String ENCODING = "UTF-8";
+    public static final String OUTPUT_PREFIX = "./output/customer_new";
+    public static final String FLAT_FILE_PARTITION_CHUNK_JOB = "FLAT_FILE_PARTITION_CHUNK_JOB";
+
+    private static final String DEFAULT_PARTITION_COUNT = "4";
+    private static final String DEFAULT_GRID_SIZE = "4";
+
+    private final CustomerAggregateFooterCallback footerCallback = new CustomerAggregateFooterCallback();
+
+    private final Resource input = new ClassPathResource("customer.csv");
+
+    @Bean
+    @JobScope
+    public CsvFileRangePartitioner csvFileRangePartitioner(
+            @Value("#{jobParameters['partitionCount'] ?: " + DEFAULT_PARTITION_COUNT + "}") int partitionCount) {
+        return new CsvFileRangePartitioner(input, partitionCount, OUTPUT_PREFIX);
+    }
+
+    @Bean
+    @StepScope
+    public CustomerCsvItemReader partitionCsvItemReader(
+            @Value("#{stepExecutionContext['startOffset']}") Long startOffset,
+            @Value("#{stepExecutionContext['endOffset']}") Long endOffset) {
+        CustomerCsvItemReader reader = new CustomerCsvItemReader(input, Charset.forName(ENCODING), ',');
+        reader.setName("partitionCsvItemReader");
+        reader.setStartOffset(startOffset);
+        reader.setEndOffset(endOffset);
+        return reader;
+    }
+
+    /**
+     * 파티션 step 마다 따로 누적하고 자기 StepExecution 에 기록한다.
+     */
+    @Bean
+    @StepScope
+    public GroupAggregator<Customer> partitionGroupAggregator() {
+        return customerAggregator();
+    }
+
+    /**
+     * 파티션 파일에는 본문만 쓰고 header/footer 는 merge step 에서 붙인다.
+     */
+    @Bean
+    @StepScope
+    public FlatFileItemWriter<Customer> partitionFlatFileItemWriter(
+            @Value("#{stepExecutionContext['outputFile']}") String outputFile) {
+        return new FlatFileItemWriterBuilder<Customer>()
+                .name("partitionFlatFileItemWriter")
+                .resource(new FileSystemResource(outputFile))
+                .encoding(ENCODING)
+                .lineAggregator(FlatFileItemJobConfig.CUSTOMER_LINE_AGGREGATOR)
+                .build();
+    }
+
+    @Bean
+    public Step flatFilePartitionWorkerStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                            StepMetricsListener stepMetricsListener) {
+        GroupAggregator<Customer> aggregator = partitionGroupAggregator();
+        return stepMetricsListener.instrument(new StepBuilder("flatFilePartitionWorkerStep", jobRepository)
+                .<Customer, Customer>chunk(CHUNK_SIZE, transactionManager)
+                .reader(partitionCsvItemReader(null, null))
+                .processor(new AggregateCustomerProcessor(aggregator))
+                .faultTolerant()
+                .skipPolicy((exception, skipCount) -> exception instanceof FlatFileParseException)
+                .writer(partitionFlatFileItemWriter(null))
+                .stream(aggregator)
+                .listener((StepExecutionListener) aggregator))
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public Step flatFilePartitionStep(JobRepository jobRepository,
+                                      Step flatFilePartitionWorkerStep,
+                                      CsvFileRangePartitioner csvFileRangePartitioner,
+                                      @Value("#{jobParameters['gridSize'] ?: " + DEFAULT_GRID_SIZE + "}") int gridSize,
+                                      @Value("#{jobParameters['partitionCount'] ?: " + DEFAULT_PARTITION_COUNT + "}") int partitionCount) {
+        log.info("------------------ Init flatFilePartitionStep (partitions={}, gridSize={}) -----------------",
+                partitionCount, gridSize);
+
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("csv-partition-");
+        taskExecutor.setConcurrencyLimit(gridSize);
+
+        return new StepBuilder("flatFilePartitionStep", jobRepository)
+                .partitioner("flatFilePartitionWorkerStep", csvFileRangePartitioner)
+                .step(flatFilePartitionWorkerStep)
+                .gridSize(partitionCount)
+                .taskExecutor(taskExecutor)
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public FileMergeTasklet flatFilePartitionMergeTasklet(
+            @Value("#{jobParameters['partitionCount'] ?: " + DEFAULT_PARTITION_COUNT + "}") int partitionCount) {
+        List<Resource> sources = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            sources.add(new FileSystemResource(CsvFileRangePartitioner.outputFile(OUTPUT_PREFIX, i)));
+        }
+        FileMergeTasklet tasklet = new FileMergeTasklet(sources, new FileSystemResource(OUTPUT_PREFIX + ".csv"), true);
+        tasklet.setEncoding(Charset.forName(ENCODING));
+        tasklet.setHeaderCallback(writer -> writer.write(FlatFileItemJobConfig.HEADER));
+        tasklet.setFooterCallback(footerCallback);
+        return tasklet;
+    }
+
+    /**
+     * 파티션 worker step 들의 집계값을 합쳐서 merge step 의 ExecutionContext 에 올린다.
+     */
+    @Bean
+    @JobScope
+    public StepAggregateCollector flatFilePartitionAggregateCollector(
+            JobRepository jobRepository,
+            @Value("#{jobParameters['partitionCount'] ?: " + DEFAULT_PARTITION_COUNT + "}") int partitionCount) {
+        List<String> stepNames = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            stepNames.add("flatFilePartitionWorkerStep:" + CsvFileRangePartitioner.partitionName(i));
+        }
+        return new StepAggregateCollector(jobRepository, stepNames, customerAggregator());
+    }
+
+    @Bean
+    public Step flatFilePartitionMergeStep(JobRepository jobRepository,
+                                           PlatformTransactionManager transactionManager,
+                                           FileMergeTasklet flatFilePartitionMergeTasklet,
+                                           StepAggregateCollector flatFilePartitionAggregateCollector) {
+        // beforeStep 은 등록 순서대로 호출되므로 footer callback 보다 먼저 집계값이 올라간다.
+        return new StepBuilder("flatFilePartitionMergeStep", jobRepository)
+                .tasklet(flatFilePartitionMergeTasklet, transactionManager)
+                .listener(flatFilePartitionAggregateCollector)
+                .listener(footerCallback)
+                .build();
+    }
+
+    private static GroupAggregator<Customer> customerAggregator() {
+        return new GroupAggregator<>("gender", Customer::getGender, Customer::getAge, EnumSet.allOf(Aggregation.class));
+    }
+
+    @Bean
+    public Job flatFilePartitionJob(Step flatFilePartitionStep, Step flatFilePartitionMergeStep, JobRepository jobRepository) {
+        log.info("------------------ Init flatFilePartitionJob -----------------");
+        return new JobBuilder(FLAT_FILE_PARTITION_CHUNK_JOB, jobRepository)
+                .incrementer(new RunIdIncrementer())
+                .start(flatFilePartitionStep)
+                .next(flatFilePartitionMergeStep)
+                .build();
+    }
+}
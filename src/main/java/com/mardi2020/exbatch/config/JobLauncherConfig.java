@@ -0,0 +1,73 @@
+package com.mardi2020.exbatch.config;
+
+import com.mardi2020.exbatch.launch.ConnectionQuotaPostProcessor;
+import com.mardi2020.exbatch.launch.JobConnectionQuota;
+import com.mardi2020.exbatch.launch.JobDag;
+import com.mardi2020.exbatch.launch.JobDagLauncher;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.converter.DefaultJobParametersConverter;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 한 프로세스에서 여러 job 을 동시에 / 선행 관계 순서로 실행하는 launcher 설정
+ * - exbatch.launcher.jobs: 실행할 job 목록과 선행 관계 (형식은 {@link JobDag}), 지정하면 launcher 가 동작한다.
+ * - exbatch.launcher.parallelism: 동시에 실행할 최대 job 수 (기본 4)
+ * - exbatch.launcher.connection-quota: job 별 최대 커넥션 수 기본값 (기본 0 = 제한 없음)
+ * - exbatch.launcher.connection-timeout: quota 대기 시간 (기본 30s)
+ * spring.batch.job.name 의 job 이 같이 실행되지 않도록 launcher profile 로 띄운다. (application-launcher.yml)
+ * 옵션이 아닌 인자(key=value) 는 모든 job 의 job parameter 로 넘긴다.
+ * ex) --spring.profiles.active=mysql,launcher fullRefresh=2024-05-01
+ * (fullRefresh 는 증분 추출 job 에서 이전 실행과 값이 다를 때만 적용되므로 날짜처럼 매번 바뀌는 값을 준다)
+ */
+@Configuration
+@ConditionalOnExpression(JobLauncherConfig.LAUNCHER_ENABLED)
+public class JobLauncherConfig {
+
+    static final String LAUNCHER_ENABLED = "'${exbatch.launcher.jobs:}' != ''";
+
+    @Bean
+    public static JobConnectionQuota jobConnectionQuota(
+            @Value("${exbatch.launcher.connection-timeout:30s}") Duration timeout) {
+        return new JobConnectionQuota(timeout);
+    }
+
+    @Bean
+    public static ConnectionQuotaPostProcessor connectionQuotaPostProcessor(JobConnectionQuota jobConnectionQuota) {
+        return new ConnectionQuotaPostProcessor(jobConnectionQuota);
+    }
+
+    @Bean
+    public JobDagLauncher jobDagLauncher(List<Job> jobs, JobLauncher jobLauncher, JobExplorer jobExplorer,
+                                         JobConnectionQuota jobConnectionQuota,
+                                         ApplicationEventPublisher eventPublisher,
+                                         @Value("${exbatch.launcher.parallelism:4}") int parallelism) {
+        return new JobDagLauncher(jobs, jobLauncher, jobExplorer, jobConnectionQuota, eventPublisher, parallelism);
+    }
+
+    @Bean
+    public ApplicationRunner jobDagLauncherRunner(JobDagLauncher jobDagLauncher,
+                                                  @Value("${exbatch.launcher.jobs}") String jobs,
+                                                  @Value("${exbatch.launcher.connection-quota:0}") int connectionQuota) {
+        return args -> {
+            Properties parameters = new Properties();
+            for (String arg : args.getNonOptionArgs()) {
+                int equals = arg.indexOf('=');
+                if (equals > 0) {
+                    parameters.setProperty(arg.substring(0, equals), arg.substring(equals + 1));
+                }
+            }
+            jobDagLauncher.run(JobDag.parse(jobs, connectionQuota),
+                    new DefaultJobParametersConverter().getJobParameters(parameters));
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package com.mardi2020.exbatch.config;
+
+import com.mardi2020.exbatch.metrics.HikariMetricsPostProcessor;
+import com.mardi2020.exbatch.metrics.PrometheusFileExporter;
+import com.mardi2020.exbatch.metrics.StepMetricsListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.nio.file.Path;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 배치 메트릭 설정
+ * PrometheusMeterRegistry 를 micrometer global registry 에도 추가하므로
+ * Spring Batch 기본 메트릭(spring.batch.*)과 chunk 크기 메트릭도 같이 내보내진다.
+ * - exbatch.metrics.sample-rate: read / process 시간을 몇 개 item 마다 한 번 잴지 (기본 16)
+ * - exbatch.metrics.prometheus.dir: .prom 파일을 쓸 디렉터리 (기본 ./output/metrics)
+ * - exbatch.metrics.prometheus.port: scrape endpoint 포트 (기본 0 = 사용 안 함)
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * context 가 닫힐 때(close 는 destroy method 로 추론된다) global registry 에서 빼고 닫는다.
+     * 빼지 않으면 같은 JVM 에서 context 를 다시 띄울 때마다(벤치마크) 이전 registry 가 meter 와 gauge 대상 객체를 계속 붙잡고 있다.
+     */
+    @Bean
+    public PrometheusMeterRegistry prometheusMeterRegistry() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT) {
+            @Override
+            public void close() {
+                Metrics.removeRegistry(this);
+                super.close();
+            }
+        };
+        Metrics.addRegistry(registry);
+        return registry;
+    }
+
+    @Bean
+    public PrometheusFileExporter prometheusFileExporter(
+            PrometheusMeterRegistry prometheusMeterRegistry,
+            @Value("${exbatch.metrics.prometheus.dir:./output/metrics}") String directory,
+            @Value("${spring.batch.job.name:ex-batch}") String jobName,
+            @Value("${exbatch.metrics.prometheus.port:0}") int port) {
+        return new PrometheusFileExporter(prometheusMeterRegistry, Path.of(directory), jobName, port);
+    }
+
+    @Bean
+    public StepMetricsListener stepMetricsListener(PrometheusMeterRegistry prometheusMeterRegistry,
+                                                   PrometheusFileExporter prometheusFileExporter,
+                                                   @Value("${exbatch.metrics.sample-rate:16}") int sampleRate) {
+        return new StepMetricsListener(prometheusMeterRegistry, sampleRate, prometheusFileExporter);
+    }
+
+    @Bean
+    public static HikariMetricsPostProcessor hikariMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new HikariMetricsPostProcessor(meterRegistry);
+    }
+}
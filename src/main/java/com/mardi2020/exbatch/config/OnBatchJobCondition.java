@@ -0,0 +1,47 @@
+package com.mardi2020.exbatch.config;
+
+import com.mardi2020.exbatch.launch.JobDag;
+import com.mardi2020.exbatch.launch.JobDag.Node;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * {@link ConditionalOnBatchJob} 의 job 이 이번 실행 대상인지 확인한다.
+ */
+class OnBatchJobCondition extends SpringBootCondition {
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Map<String, Object> attributes = metadata.getAnnotationAttributes(ConditionalOnBatchJob.class.getName());
+        String jobName = (String) attributes.get("value");
+        Environment environment = context.getEnvironment();
+        if (!environment.getProperty("exbatch.fast-startup", Boolean.class, false)) {
+            return ConditionOutcome.match("fast startup 모드가 아님");
+        }
+        Set<String> selected = selectedJobs(environment);
+        return selected.contains(jobName)
+                ? ConditionOutcome.match("실행할 job: " + jobName)
+                : ConditionOutcome.noMatch(jobName + " 은 실행 대상이 아님 " + selected);
+    }
+
+    private static Set<String> selectedJobs(Environment environment) {
+        Set<String> selected = new HashSet<>();
+        String jobName = environment.getProperty("spring.batch.job.name", "");
+        if (!jobName.isBlank()) {
+            selected.add(jobName.trim());
+        }
+        String launcherJobs = environment.getProperty("exbatch.launcher.jobs", "");
+        if (!launcherJobs.isBlank()) {
+            for (Node node : JobDag.parse(launcherJobs, 0).getNodes()) {
+                selected.add(node.name());
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,147 @@
+package com.mardi2020.exbatch.config;
+
+import static com.mardi2020.exbatch.config.FlatFileItemJobConfig.CUSTOMER_LINE_AGGREGATOR;
+import static com.mardi2020.exbatch.config.FlatFileItemJobConfig.ENCODING;
+import static com.mardi2020.exbatch.config.FlatFileItemJobConfig.HEADER;
+
+import com.mardi2020.exbatch.chunk.AggregateCustomerProcessor;
+import com.mardi2020.exbatch.chunk.aggregate.Aggregation;
+import com.mardi2020.exbatch.chunk.aggregate.GroupAggregator;
+import com.mardi2020.exbatch.chunk.data.Customer;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileItemWriter;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileItemWriter.Field;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileWriterFactory;
+import com.mardi2020.exbatch.remote.ChunkTransport;
+import com.mardi2020.exbatch.remote.LocalChunkWorkers;
+import com.mardi2020.exbatch.remote.RemoteChunkHandler;
+import com.mardi2020.exbatch.remote.RemoteChunkItemWriter;
+import com.mardi2020.exbatch.remote.RemoteChunkWorker;
+import com.mardi2020.exbatch.remote.SocketChunkTransport;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * flatFileStep 의 remote chunking 설정
+ * manager 는 customer.csv 를 읽어 chunk 를 TCP 로 worker 에 보내고, worker 가 AggregateCustomerProcessor 와 writer 를 실행한다.
+ * - exbatch.remote.workers: worker 주소 목록 (ex. localhost:9701,localhost:9702), 지정하면 flatFileStep 이 remote 로 동작한다.
+ * - exbatch.remote.local-workers: manager JVM 안에 띄울 loopback worker 수 (기본 0), worker 수를 바꿔가며 처리량을 볼 때 사용한다.
+ * - exbatch.remote.throttle-limit: 응답을 기다리는 최대 chunk 수 (기본 0 = worker 수 * 2)
+ * - exbatch.remote.reply-timeout / connect-timeout: 응답 / 연결 대기 시간
+ * worker 프로세스는 remote-worker profile 로 띄운다. (application-remote-worker.yml)
+ * ex) --spring.profiles.active=h2db,remote-worker --exbatch.remote.port=9701
+ * worker 는 ./output/customer_new_worker-{port}.csv 에 header 와 데이터를 따로 쓴다.
+ * worker 의 집계값은 chunk 응답에 실려 manager 에서 합쳐지고, 전체 footer 는 manager 의 ./output/customer_new.csv 에 쓴다.
+ * (manager 파일에는 header 와 footer 만 있다)
+ */
+@Configuration
+@RequiredArgsConstructor
+public class RemoteChunkingConfig {
+
+    private static final String MANAGER_ENABLED =
+            "'${exbatch.remote.workers:}' != '' or ${exbatch.remote.local-workers:0} > 0";
+
+    private final CustomerFileWriterFactory fileWriterFactory;
+
+    @Value("${exbatch.remote.workers:}")
+    private String workers;
+
+    @Value("${exbatch.remote.local-workers:0}")
+    private int localWorkers;
+
+    @Value("${exbatch.remote.throttle-limit:0}")
+    private int throttleLimit;
+
+    @Value("${exbatch.remote.reply-timeout:5m}")
+    private Duration replyTimeout;
+
+    @Value("${exbatch.remote.connect-timeout:30s}")
+    private Duration connectTimeout;
+
+    @Bean
+    @ConditionalOnExpression("${exbatch.remote.local-workers:0} > 0")
+    public LocalChunkWorkers localChunkWorkers(PlatformTransactionManager transactionManager) {
+        return new LocalChunkWorkers(localWorkers, index -> workerHandler("local-" + index, transactionManager));
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnExpression(MANAGER_ENABLED)
+    public ChunkTransport remoteChunkTransport(ObjectProvider<LocalChunkWorkers> localChunkWorkers) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        Arrays.stream(workers.split(","))
+                .map(String::trim)
+                .filter(address -> !address.isEmpty())
+                .map(RemoteChunkingConfig::parseAddress)
+                .forEach(addresses::add);
+        localChunkWorkers.ifAvailable(local -> addresses.addAll(local.getAddresses()));
+        return new SocketChunkTransport(addresses, connectTimeout);
+    }
+
+    @Bean
+    @ConditionalOnExpression(MANAGER_ENABLED)
+    public RemoteChunkItemWriter remoteChunkItemWriter(ChunkTransport remoteChunkTransport) {
+        int limit = throttleLimit > 0 ? throttleLimit : remoteChunkTransport.getWorkerCount() * 2;
+        return new RemoteChunkItemWriter(remoteChunkTransport, limit, replyTimeout);
+    }
+
+    @Bean
+    @Profile("remote-worker")
+    public RemoteChunkWorker remoteChunkWorker(PlatformTransactionManager transactionManager,
+                                               @Value("${exbatch.remote.bind-address:127.0.0.1}") String bindAddress,
+                                               @Value("${exbatch.remote.port:9701}") int port)
+            throws UnknownHostException {
+        return new RemoteChunkWorker(workerHandler(String.valueOf(port), transactionManager),
+                InetAddress.getByName(bindAddress), port, false);
+    }
+
+    /**
+     * worker 마다 집계기와 출력 파일을 따로 둔다. 집계값은 chunk 마다 응답으로 manager 에 보낸다.
+     */
+    private RemoteChunkHandler workerHandler(String workerId, PlatformTransactionManager transactionManager) {
+        GroupAggregator<Customer> aggregator = new GroupAggregator<>(
+                "gender", Customer::getGender, Customer::getAge, EnumSet.allOf(Aggregation.class));
+        return new RemoteChunkHandler(new AggregateCustomerProcessor(aggregator),
+                workerWriter("./output/customer_new_worker-" + workerId + ".csv"), transactionManager, aggregator);
+    }
+
+    private ItemWriter<Customer> workerWriter(String path) {
+        if (fileWriterFactory.isFast()) {
+            CustomerFileItemWriter writer = fileWriterFactory.create(
+                    "remoteWorkerItemWriter", path, ",", Field.NAME, Field.AGE);
+            writer.setHeaderCallback(headerWriter -> headerWriter.write(HEADER));
+            return writer;
+        }
+        return new FlatFileItemWriterBuilder<Customer>()
+                .name("remoteWorkerItemWriter")
+                .resource(new FileSystemResource(path))
+                .encoding(ENCODING)
+                .lineAggregator(CUSTOMER_LINE_AGGREGATOR)
+                .headerCallback(writer -> writer.write(HEADER))
+                .build();
+    }
+
+    private static InetSocketAddress parseAddress(String address) {
+        int separator = address.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("worker 주소는 host:port 형식이어야 합니다: " + address);
+        }
+        return new InetSocketAddress(address.substring(0, separator),
+                Integer.parseInt(address.substring(separator + 1)));
+    }
+}
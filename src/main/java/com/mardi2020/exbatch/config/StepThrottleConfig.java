@@ -0,0 +1,44 @@
+package com.mardi2020.exbatch.config;
+
+import com.mardi2020.exbatch.throttle.StepThrottle;
+import com.mardi2020.exbatch.throttle.StepThrottlePostProcessor;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 운영 DB 를 같이 쓸 때 paging step 의 속도를 제한하는 설정 (exbatch.throttle.enabled=true 일 때)
+ * - exbatch.throttle.items-per-second: 초당 read item 수 상한 (기본 0 = 제한 없음)
+ * - exbatch.throttle.queries-per-second: 초당 query 수 상한 (기본 0 = 제한 없음)
+ * - exbatch.throttle.adaptive: query latency / 커넥션 대기 수를 보고 상한 아래로 조절할지 (기본 true)
+ *   상한에 비율을 곱하는 방식이므로 위의 상한 중 하나는 지정해야 한다. (없으면 시작할 때 경고하고 조절하지 않는다)
+ * - exbatch.throttle.target-query-latency: 평균 query 실행 시간 목표 (기본 50ms)
+ * - exbatch.throttle.max-pending-connections: 허용할 풀의 커넥션 대기 스레드 수 (기본 0)
+ * - exbatch.throttle.min-factor: 상한 대비 최소 비율 (기본 0.1)
+ * - exbatch.throttle.adjust-interval: 비율을 다시 계산하는 간격 (기본 1s)
+ * 실행 중에는 JMX com.mardi2020.exbatch:type=StepThrottle 로 상한과 목표를 바꿀 수 있다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "exbatch.throttle.enabled", havingValue = "true")
+public class StepThrottleConfig {
+
+    @Bean
+    public static StepThrottle stepThrottle(
+            @Value("${exbatch.throttle.items-per-second:0}") double itemsPerSecond,
+            @Value("${exbatch.throttle.queries-per-second:0}") double queriesPerSecond,
+            @Value("${exbatch.throttle.adaptive:true}") boolean adaptive,
+            @Value("${exbatch.throttle.target-query-latency:50ms}") Duration targetQueryLatency,
+            @Value("${exbatch.throttle.max-pending-connections:0}") int maxPendingConnections,
+            @Value("${exbatch.throttle.min-factor:0.1}") double minFactor,
+            @Value("${exbatch.throttle.adjust-interval:1s}") Duration adjustInterval) {
+        return new StepThrottle(itemsPerSecond, queriesPerSecond, adaptive, targetQueryLatency,
+                maxPendingConnections, minFactor, adjustInterval);
+    }
+
+    @Bean
+    public static StepThrottlePostProcessor stepThrottlePostProcessor(StepThrottle stepThrottle) {
+        return new StepThrottlePostProcessor(stepThrottle);
+    }
+}
@@ -2,6 +2,17 @@ package com.mardi2020.exbatch.config.paging;
 
 import com.mardi2020.exbatch.chunk.CustomerItemSqlParameterSourceProvider;
 import com.mardi2020.exbatch.chunk.data.Customer;
+import com.mardi2020.exbatch.chunk.dedup.CustomerDedupProcessor;
+import com.mardi2020.exbatch.chunk.dedup.JdbcCustomerKeyStore;
+import com.mardi2020.exbatch.chunk.policy.AdaptiveChunkCompletionPolicy;
+import com.mardi2020.exbatch.chunk.policy.AdaptiveChunkPolicyFactory;
+import com.mardi2020.exbatch.chunk.reader.CustomerCsvItemReader;
+import com.mardi2020.exbatch.chunk.writer.CustomerBulkInsertItemWriter;
+import com.mardi2020.exbatch.chunk.writer.CustomerUpsertItemWriter;
+import com.mardi2020.exbatch.chunk.writer.CustomerUpsertItemWriter.Dialect;
+import com.mardi2020.exbatch.config.ConditionalOnBatchJob;
+import com.mardi2020.exbatch.metrics.StepMetricsListener;
+import java.nio.charset.Charset;
 import javax.sql.DataSource;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,18 +21,20 @@ import org.springframework.batch.core.Step;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.database.JdbcBatchItemWriter;
 import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
-import org.springframework.batch.item.file.FlatFileItemReader;
-import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.PlatformTransactionManager;
 
 @Slf4j
 @Configuration
+@ConditionalOnBatchJob(JdbcBatchItemJobConfig.JDBC_BATCH_WRITER_CHUNK_JOB)
 @RequiredArgsConstructor
 public class JdbcBatchItemJobConfig {
 
@@ -31,21 +44,45 @@ public class JdbcBatchItemJobConfig {
 
     private final DataSource dataSource;
 
+    /**
+     * customer2 저장 방식
+     * - jdbc: JdbcBatchItemWriter (row 단위 batch)
+     * - bulk: multi-row INSERT ... VALUES (...), (...) 로 묶어서 저장
+     * - upsert: 이미 저장된 row(name, age, gender 가 같은) 는 걸러내고 나머지를 upsert, 다시 실행해도 중복되지 않는다.
+     *   전제 조건으로 natural key unique index 를 따로 만들어 둔다. 기본 DDL 에는 없으며, 없으면 step 을 시작할 때 실패한다.
+     *   MySQL 은 index 로 중복을 거르고, 그 외 DB 는 index 가 없으면 존재 확인이 full scan 이 된다.
+     *   (MySQL: sql/customer2_natural_key.sql, H2 / HSQLDB / Derby: sql/customer_natural_key_portable.sql)
+     */
+    @Value("${exbatch.jdbc-batch.writer:jdbc}")
+    private String writerType;
+
+    /**
+     * upsert: 이번 실행에서 새로 들어올 것으로 예상하는 row 수 (dedup filter 크기)
+     */
+    @Value("${exbatch.dedup.expected-rows:1000000}")
+    private long dedupExpectedRows;
+
+    /**
+     * upsert: dedup filter 오탐률, 오탐이면 DB 로 한 번 더 확인한다.
+     */
+    @Value("${exbatch.dedup.false-positive-rate:0.01}")
+    private double dedupFalsePositiveRate;
+
+    @Value("${exbatch.chunk-size:" + CHUNK_SIZE + "}")
+    private int chunkSize;
+
+    @Value("${exbatch.input.customer-csv:classpath:customer.csv}")
+    private Resource customerCsv;
+
     @Bean
-    public FlatFileItemReader<Customer> flatFileItemReader() {
-
-        return new FlatFileItemReaderBuilder<Customer>()
-                .name("FlatFileItemReader")
-                .resource(new ClassPathResource("./customer.csv"))
-                .encoding(ENCODING)
-                .delimited().delimiter(",")
-                .names("name", "age", "gender")
-                .targetType(Customer.class)
-                .build();
+    public CustomerCsvItemReader jdbcBatchCsvItemReader() {
+        CustomerCsvItemReader reader = new CustomerCsvItemReader(customerCsv, Charset.forName(ENCODING), ',');
+        reader.setName("FlatFileItemReader");
+        return reader;
     }
 
     @Bean
-    public JdbcBatchItemWriter<Customer> flatFileItemWriter() {
+    public JdbcBatchItemWriter<Customer> jdbcBatchItemWriter() {
 
         return new JdbcBatchItemWriterBuilder<Customer>()
                 .dataSource(dataSource)
@@ -54,24 +91,56 @@ public class JdbcBatchItemJobConfig {
                 .build();
     }
 
+    @Bean
+    public CustomerBulkInsertItemWriter customerBulkInsertItemWriter() {
+        CustomerBulkInsertItemWriter writer = new CustomerBulkInsertItemWriter(new JdbcTemplate(dataSource), "customer2");
+        writer.setMaxRows(chunkSize);
+        return writer;
+    }
+
+    @Bean
+    public CustomerDedupProcessor jdbcBatchDedupProcessor() {
+        return new CustomerDedupProcessor("customer2", new JdbcCustomerKeyStore(dataSource, "customer2"),
+                dedupExpectedRows, dedupFalsePositiveRate);
+    }
+
+    @Bean
+    public CustomerUpsertItemWriter jdbcBatchUpsertItemWriter() {
+        CustomerUpsertItemWriter writer = new CustomerUpsertItemWriter(new JdbcTemplate(dataSource), "customer2",
+                Dialect.resolve(dataSource));
+        writer.setMaxRows(chunkSize);
+        return writer;
+    }
 
     @Bean
-    public Step flatFileStep(JobRepository jobRepository, PlatformTransactionManager transactionManager) {
-        log.info("------------------ Init flatFileStep -----------------");
+    public Step jdbcBatchStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                              AdaptiveChunkPolicyFactory chunkPolicyFactory,
+                              StepMetricsListener stepMetricsListener) {
+        log.info("------------------ Init jdbcBatchStep (writer={}) -----------------", writerType);
 
-        return new StepBuilder("flatFileStep", jobRepository)
-                .<Customer, Customer>chunk(CHUNK_SIZE, transactionManager)
-                .reader(flatFileItemReader())
-                .writer(flatFileItemWriter())
-                .build();
+        AdaptiveChunkCompletionPolicy completionPolicy = chunkPolicyFactory.create(chunkSize);
+        SimpleStepBuilder<Customer, Customer> builder = new StepBuilder("flatFileStep", jobRepository)
+                .<Customer, Customer>chunk(completionPolicy, transactionManager)
+                .reader(jdbcBatchCsvItemReader())
+                .listener(completionPolicy);
+
+        switch (writerType) {
+            case "bulk" -> builder.writer(customerBulkInsertItemWriter());
+            case "upsert" -> {
+                CustomerDedupProcessor dedupProcessor = jdbcBatchDedupProcessor();
+                dedupProcessor.registerListeners(builder.processor(dedupProcessor).writer(jdbcBatchUpsertItemWriter()));
+            }
+            default -> builder.writer(jdbcBatchItemWriter());
+        }
+        return stepMetricsListener.instrument(builder).build();
     }
 
     @Bean
-    public Job flatFileJob(Step flatFileStep, JobRepository jobRepository) {
-        log.info("------------------ Init flatFileJob -----------------");
+    public Job jdbcBatchJob(Step jdbcBatchStep, JobRepository jobRepository) {
+        log.info("------------------ Init jdbcBatchJob -----------------");
         return new JobBuilder(JDBC_BATCH_WRITER_CHUNK_JOB, jobRepository)
                 .incrementer(new RunIdIncrementer())
-                .start(flatFileStep)
+                .start(jdbcBatchStep)
                 .build();
     }
 }
@@ -0,0 +1,201 @@
+package com.mardi2020.exbatch.config.paging;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import com.mardi2020.exbatch.chunk.mapping.MappedFieldExtractor;
+import com.mardi2020.exbatch.config.ConditionalOnBatchJob;
+import com.mardi2020.exbatch.metrics.StepMetricsListener;
+import com.mardi2020.exbatch.partition.CustomerIdRangePartitioner;
+import com.mardi2020.exbatch.throttle.StepThrottle;
+import com.mardi2020.exbatch.tasklet.FileMergeTasklet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.PagingQueryProvider;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
+import org.springframework.batch.item.database.support.SqlPagingQueryProviderFactoryBean;
+import org.springframework.batch.item.file.FlatFileItemWriter;
+import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * JDBC_PAGING_CHUNK_JOB 의 파티셔닝 버전
+ * id 범위로 나눈 파티션을 TaskExecutor 에서 동시에 처리하고, 마지막 step 에서 파티션 파일을 하나로 합친다.
+ * job parameter
+ * - partitionCount: id 범위를 몇 개로 나눌지 (기본 4)
+ * - gridSize: 동시에 실행할 worker 수 (기본 4)
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Configuration
+@ConditionalOnBatchJob(JdbcPagingPartitionJobConfig.JDBC_PAGING_PARTITION_CHUNK_JOB)
+public class JdbcPagingPartitionJobConfig {
+
+    public static final int CHUNK_SIZE = 100;
+    public static final int MIN_AGE = 20;
+    public static final String ENCODING = "UTF-8";
+    public static final String OUTPUT_PREFIX = "./output/customer_new_v1";
+    public static final String JDBC_PAGING_PARTITION_CHUNK_JOB = "JDBC_PAGING_PARTITION_CHUNK_JOB";
+
+    private static final String DEFAULT_PARTITION_COUNT = "4";
+    private static final String DEFAULT_GRID_SIZE = "4";
+
+    private final DataSource dataSource;
+
+    @Value("${exbatch.chunk-size:" + CHUNK_SIZE + "}")
+    private int chunkSize;
+
+    /**
+     * 파티션 reader 가 한 번에 가져오는 row 수 (page/fetch size), 기본값은 CHUNK_SIZE
+     */
+    @Value("${exbatch.fetch-size:" + CHUNK_SIZE + "}")
+    private int fetchSize;
+
+    @Bean
+    @JobScope
+    public CustomerIdRangePartitioner customerIdRangePartitioner(
+            @Value("#{jobParameters['partitionCount'] ?: " + DEFAULT_PARTITION_COUNT + "}") int partitionCount) {
+        return new CustomerIdRangePartitioner(new JdbcTemplate(dataSource), MIN_AGE, partitionCount, OUTPUT_PREFIX);
+    }
+
+    @Bean
+    @StepScope
+    public JdbcPagingItemReader<Customer> customerPartitionPagingItemReader(
+            @Value("#{stepExecutionContext['minId']}") Long minId,
+            @Value("#{stepExecutionContext['maxId']}") Long maxId) throws Exception {
+
+        Map<String, Object> parameterValue = new HashMap<>();
+        parameterValue.put("age", MIN_AGE);
+        parameterValue.put("minId", minId);
+        parameterValue.put("maxId", maxId);
+
+        return new JdbcPagingItemReaderBuilder<Customer>()
+                .name("customerPartitionPagingItemReader")
+                .pageSize(fetchSize)
+                .fetchSize(fetchSize)
+                .dataSource(dataSource)
+                .rowMapper(JdbcPagingReaderJobConfig.CUSTOMER_ROW_MAPPER)
+                .queryProvider(partitionQueryProvider())
+                .parameterValues(parameterValue)
+                .build();
+    }
+
+    private PagingQueryProvider partitionQueryProvider() throws Exception {
+        SqlPagingQueryProviderFactoryBean queryProvider = new SqlPagingQueryProviderFactoryBean();
+        queryProvider.setDataSource(dataSource);
+        queryProvider.setSelectClause(JdbcPagingReaderJobConfig.CUSTOMER_ROW_MAPPER.getColumns());
+        queryProvider.setFromClause("from customer");
+        queryProvider.setWhereClause("where age >= :age and id between :minId and :maxId");
+
+        Map<String, Order> sortKeys = new HashMap<>(1);
+        sortKeys.put("id", Order.DESCENDING);
+
+        queryProvider.setSortKeys(sortKeys);
+
+        return queryProvider.getObject();
+    }
+
+    @Bean
+    @StepScope
+    public FlatFileItemWriter<Customer> customerPartitionFlatFileItemWriter(
+            @Value("#{stepExecutionContext['outputFile']}") String outputFile) {
+        return new FlatFileItemWriterBuilder<Customer>()
+                .name("customerPartitionFlatFileItemWriter")
+                .resource(new FileSystemResource(outputFile))
+                .encoding(ENCODING)
+                .delimited().delimiter("\t")
+                .fieldExtractor(new MappedFieldExtractor<>(Customer.class, "name", "age", "gender"))
+                .build();
+    }
+
+    @Bean
+    public Step customerJdbcPagingWorkerStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                             StepMetricsListener stepMetricsListener,
+                                             ObjectProvider<StepThrottle> stepThrottle) throws Exception {
+        SimpleStepBuilder<Customer, Customer> builder = new StepBuilder("customerJdbcPagingWorkerStep", jobRepository)
+                .<Customer, Customer>chunk(chunkSize, transactionManager)
+                .reader(customerPartitionPagingItemReader(null, null))
+                .writer(customerPartitionFlatFileItemWriter(null));
+        // 동시에 실행되는 worker 들이 같은 한도를 나눠 쓴다.
+        StepThrottle throttle = stepThrottle.getIfAvailable();
+        if (throttle != null) {
+            throttle.registerListeners(builder);
+        }
+        return stepMetricsListener.instrument(builder).build();
+    }
+
+    @Bean
+    @JobScope
+    public Step customerJdbcPagingPartitionStep(JobRepository jobRepository,
+                                                Step customerJdbcPagingWorkerStep,
+                                                CustomerIdRangePartitioner customerIdRangePartitioner,
+                                                @Value("#{jobParameters['gridSize'] ?: " + DEFAULT_GRID_SIZE + "}") int gridSize,
+                                                @Value("#{jobParameters['partitionCount'] ?: " + DEFAULT_PARTITION_COUNT + "}") int partitionCount) {
+        log.info("------------------ Init customerJdbcPagingPartitionStep (partitions={}, gridSize={}) -----------------",
+                partitionCount, gridSize);
+
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("customer-partition-");
+        taskExecutor.setConcurrencyLimit(gridSize);
+
+        return new StepBuilder("customerJdbcPagingPartitionStep", jobRepository)
+                .partitioner("customerJdbcPagingWorkerStep", customerIdRangePartitioner)
+                .step(customerJdbcPagingWorkerStep)
+                .gridSize(partitionCount)
+                .taskExecutor(taskExecutor)
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public FileMergeTasklet customerPartitionMergeTasklet(
+            @Value("#{jobParameters['partitionCount'] ?: " + DEFAULT_PARTITION_COUNT + "}") int partitionCount) {
+        List<Resource> sources = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            sources.add(new FileSystemResource(CustomerIdRangePartitioner.outputFile(OUTPUT_PREFIX, i)));
+        }
+        return new FileMergeTasklet(sources, new FileSystemResource(OUTPUT_PREFIX + ".csv"), true);
+    }
+
+    @Bean
+    public Step customerPartitionMergeStep(JobRepository jobRepository,
+                                           PlatformTransactionManager transactionManager,
+                                           FileMergeTasklet customerPartitionMergeTasklet) {
+        return new StepBuilder("customerPartitionMergeStep", jobRepository)
+                .tasklet(customerPartitionMergeTasklet, transactionManager)
+                .build();
+    }
+
+    @Bean
+    public Job customerJdbcPagingPartitionJob(Step customerJdbcPagingPartitionStep,
+                                              Step customerPartitionMergeStep,
+                                              JobRepository jobRepository) {
+        log.info("------------------ Init customerJdbcPagingPartitionJob -----------------");
+        return new JobBuilder(JDBC_PAGING_PARTITION_CHUNK_JOB, jobRepository)
+                .incrementer(new RunIdIncrementer())
+                .start(customerJdbcPagingPartitionStep)
+                .next(customerPartitionMergeStep)
+                .build();
+    }
+}
@@ -1,6 +1,17 @@
 package com.mardi2020.exbatch.config.paging;
 
 import com.mardi2020.exbatch.chunk.data.Customer;
+import com.mardi2020.exbatch.chunk.incremental.HighWaterMarkListener;
+import com.mardi2020.exbatch.chunk.mapping.MappedFieldExtractor;
+import com.mardi2020.exbatch.chunk.mapping.MappedRowMapper;
+import com.mardi2020.exbatch.chunk.policy.AdaptiveChunkCompletionPolicy;
+import com.mardi2020.exbatch.chunk.policy.AdaptiveChunkPolicyFactory;
+import com.mardi2020.exbatch.chunk.reader.CursorFetchSize;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileItemWriter.Field;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileWriterFactory;
+import com.mardi2020.exbatch.config.ConditionalOnBatchJob;
+import com.mardi2020.exbatch.metrics.StepMetricsListener;
+import com.mardi2020.exbatch.throttle.StepThrottle;
 import java.util.HashMap;
 import java.util.Map;
 import javax.sql.DataSource;
@@ -8,47 +19,126 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.database.JdbcCursorItemReader;
 import org.springframework.batch.item.database.JdbcPagingItemReader;
 import org.springframework.batch.item.database.Order;
 import org.springframework.batch.item.database.PagingQueryProvider;
+import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
 import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
 import org.springframework.batch.item.database.support.SqlPagingQueryProviderFactoryBean;
-import org.springframework.batch.item.file.FlatFileItemWriter;
 import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.FileSystemResource;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
 import org.springframework.transaction.PlatformTransactionManager;
 
 @Slf4j
 @RequiredArgsConstructor
 @Configuration
+@ConditionalOnBatchJob(JdbcPagingReaderJobConfig.JDBC_PAGING_CHUNK_JOB)
 public class JdbcPagingReaderJobConfig {
 
     public static final int CHUNK_SIZE = 2;
     public static final String ENCODING = "UTF-8";
     public static final String JDBC_PAGING_CHUNK_JOB = "JDBC_PAGING_CHUNK_JOB";
+    public static final String CURSOR_READER = "cursor";
+
+    /**
+     * select 절 column 순서로 property 를 묶어 둔 RowMapper, select 절도 여기서 만든다. (getColumns)
+     * 상태가 없어서 paging / cursor reader 와 파티셔닝 버전(JdbcPagingPartitionJobConfig) 이 같이 쓴다.
+     */
+    public static final MappedRowMapper<Customer> CUSTOMER_ROW_MAPPER =
+            new MappedRowMapper<>(Customer.class, "id", "name", "age", "gender");
 
     private final DataSource dataSource;
 
+    private final CustomerFileWriterFactory fileWriterFactory;
+
+    @Value("${exbatch.chunk-size:" + CHUNK_SIZE + "}")
+    private int chunkSize;
+
+    /**
+     * DB 에서 한 번에 가져오는 row 수 (page/fetch size), 기본값은 CHUNK_SIZE
+     */
+    @Value("${exbatch.fetch-size:" + CHUNK_SIZE + "}")
+    private int fetchSize;
+
+    /**
+     * paging(기본): page 마다 쿼리 | cursor: 쿼리 한 번으로 열어둔 cursor 에서 streaming
+     */
+    @Value("${exbatch.jdbc-paging.reader:paging}")
+    private String readerType;
+
+    /**
+     * cursor reader 의 fetch size, 0 이면 DB 종류에 맞춰 고른다. (CursorFetchSize)
+     */
+    @Value("${exbatch.jdbc-cursor.fetch-size:0}")
+    private int cursorFetchSize;
+
+    /**
+     * true 이면 이전 성공 실행의 최대 id 이후 row 만 읽어서 출력 파일에 이어 쓴다. (HighWaterMarkListener)
+     */
+    @Value("${exbatch.incremental.enabled:false}")
+    private boolean incremental;
+
+    /**
+     * 증분 추출 시 몇 번째 실행마다 전체를 다시 읽을지, 0 이면 하지 않는다. (job parameter fullRefresh=<실행마다 다른 값> 으로 한 번 할 수도 있다)
+     */
+    @Value("${exbatch.incremental.full-refresh-every:0}")
+    private int fullRefreshEvery;
+
     @Bean
     public JdbcPagingItemReader<Customer> jdbcPagingItemReader() throws Exception {
 
-        Map<String, Object> parameterValue = new HashMap<>();
-        parameterValue.put("age", 20);
-
         return new JdbcPagingItemReaderBuilder<Customer>()
                 .name("jdbcPagingItemReader")
-                .fetchSize(CHUNK_SIZE)
+                .pageSize(fetchSize)
+                .fetchSize(fetchSize)
                 .dataSource(dataSource)
-                .rowMapper(new BeanPropertyRowMapper<>(Customer.class))
+                .rowMapper(CUSTOMER_ROW_MAPPER)
                 .queryProvider(queryProvider())
-                .parameterValues(parameterValue)
+                .parameterValues(pagingParameterValues(0))
+                .build();
+    }
+
+    private Map<String, Object> pagingParameterValues(long fromId) {
+        Map<String, Object> parameterValue = new HashMap<>();
+        parameterValue.put("age", 20);
+        if (incremental) {
+            parameterValue.put("fromId", fromId);
+        }
+        return parameterValue;
+    }
+
+    private ArgumentPreparedStatementSetter cursorArguments(long fromId) {
+        return new ArgumentPreparedStatementSetter(incremental ? new Object[]{20, fromId} : new Object[]{20});
+    }
+
+    /**
+     * jdbcPagingItemReader 와 같은 조건 / 정렬을 쿼리 한 번으로 읽는다.
+     * reader 전용 커넥션으로 cursor 를 step 이 끝날 때까지 열어둔다.
+     */
+    @Bean
+    public JdbcCursorItemReader<Customer> jdbcCursorItemReader() {
+        return new JdbcCursorItemReaderBuilder<Customer>()
+                .name("jdbcCursorItemReader")
+                .dataSource(dataSource)
+                .sql("SELECT " + CUSTOMER_ROW_MAPPER.getColumns() + " FROM customer WHERE age >= ?"
+                        + (incremental ? " AND id > ?" : "") + " ORDER BY id DESC")
+                .preparedStatementSetter(cursorArguments(0))
+                .fetchSize(CursorFetchSize.resolve(dataSource, cursorFetchSize))
+                .rowMapper(CUSTOMER_ROW_MAPPER)
                 .build();
     }
 
@@ -56,9 +146,9 @@ public class JdbcPagingReaderJobConfig {
     public PagingQueryProvider queryProvider() throws Exception {
         SqlPagingQueryProviderFactoryBean queryProvider = new SqlPagingQueryProviderFactoryBean();
         queryProvider.setDataSource(dataSource);  // DB 에 맞는 PagingQueryProvider 를 선택하기 위함
-        queryProvider.setSelectClause("id, name, age, gender");
+        queryProvider.setSelectClause(CUSTOMER_ROW_MAPPER.getColumns());
         queryProvider.setFromClause("from customer");
-        queryProvider.setWhereClause("where age >= :age");
+        queryProvider.setWhereClause(incremental ? "where age >= :age and id > :fromId" : "where age >= :age");
 
         Map<String, Order> sortKeys = new HashMap<>(1);
         sortKeys.put("id", Order.DESCENDING);
@@ -69,26 +159,60 @@ public class JdbcPagingReaderJobConfig {
     }
 
     @Bean
-    public FlatFileItemWriter<Customer> customerFlatFileItemWriter() {
+    public ItemStreamWriter<Customer> customerFlatFileItemWriter() {
+        if (fileWriterFactory.isColumnar()) {
+            return fileWriterFactory.createColumnar("customerFlatFileItemWriter", "./output/customer_new_v1.csv");
+        }
+        if (fileWriterFactory.isFast()) {
+            return fileWriterFactory.create("customerFlatFileItemWriter", "./output/customer_new_v1.csv", "\t",
+                    Field.NAME, Field.AGE, Field.GENDER);
+        }
         return new FlatFileItemWriterBuilder<Customer>()
                 .name("customerFlatFileItemWriter")
                 .resource(new FileSystemResource("./output/customer_new_v1.csv"))
                 .encoding(ENCODING)
                 .delimited().delimiter("\t")
-                .names("Name", "Age", "Gender")
+                .fieldExtractor(new MappedFieldExtractor<>(Customer.class, "name", "age", "gender"))
                 .build();
     }
 
 
     @Bean
-    public Step customerJdbcPagingStep(JobRepository jobRepository, PlatformTransactionManager transactionManager) throws Exception {
+    public Step customerJdbcPagingStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                       AdaptiveChunkPolicyFactory chunkPolicyFactory,
+                                       StepMetricsListener stepMetricsListener,
+                                       JobExplorer jobExplorer,
+                                       ObjectProvider<StepThrottle> stepThrottle) throws Exception {
         log.info("------------------ Init customerJdbcPagingStep -----------------");
 
-        return new StepBuilder("customerJdbcPagingStep", jobRepository)
-                .<Customer, Customer>chunk(CHUNK_SIZE, transactionManager)
-                .reader(jdbcPagingItemReader())
-                .writer(customerFlatFileItemWriter())
-                .build();
+        // JdbcPagingItemReader 는 LIMIT 이 초기화 시점 pageSize 로 고정되므로 page size 는 맞추지 않는다.
+        AdaptiveChunkCompletionPolicy completionPolicy = chunkPolicyFactory.create(chunkSize);
+
+        AbstractItemCountingItemStreamItemReader<Customer> reader =
+                CURSOR_READER.equals(readerType) ? jdbcCursorItemReader() : jdbcPagingItemReader();
+
+        ItemStreamWriter<Customer> writer = customerFlatFileItemWriter();
+
+        SimpleStepBuilder<Customer, Customer> builder = new StepBuilder("customerJdbcPagingStep", jobRepository)
+                .<Customer, Customer>chunk(completionPolicy, transactionManager)
+                .reader(reader)
+                .writer(writer)
+                .listener(completionPolicy);
+        if (incremental) {
+            new HighWaterMarkListener<Customer>(jobExplorer, Customer::getId, fullRefreshEvery, range -> {
+                if (reader instanceof JdbcCursorItemReader<Customer> cursorReader) {
+                    cursorReader.setPreparedStatementSetter(cursorArguments(range.from()));
+                } else {
+                    ((JdbcPagingItemReader<Customer>) reader).setParameterValues(pagingParameterValues(range.from()));
+                }
+                CustomerFileWriterFactory.setAppend(writer, !range.fullRefresh());
+            }).registerListeners(builder);
+        }
+        StepThrottle throttle = stepThrottle.getIfAvailable();
+        if (throttle != null) {
+            throttle.registerListeners(builder);
+        }
+        return stepMetricsListener.instrument(builder).build();
     }
 
     @Bean
@@ -1,7 +1,20 @@
 package com.mardi2020.exbatch.config.paging.jpajpbconfig;
 
 import com.mardi2020.exbatch.chunk.data.Customer;
+import com.mardi2020.exbatch.chunk.dedup.CustomerDedupProcessor;
+import com.mardi2020.exbatch.chunk.dedup.JdbcCustomerKeyStore;
+import com.mardi2020.exbatch.chunk.policy.AdaptiveChunkCompletionPolicy;
+import com.mardi2020.exbatch.chunk.policy.AdaptiveChunkPolicyFactory;
+import com.mardi2020.exbatch.chunk.reader.CustomerCsvItemReader;
+import com.mardi2020.exbatch.chunk.writer.CustomerBulkInsertItemWriter;
+import com.mardi2020.exbatch.chunk.writer.CustomerUpsertItemWriter;
+import com.mardi2020.exbatch.chunk.writer.CustomerUpsertItemWriter.Dialect;
+import com.mardi2020.exbatch.chunk.writer.HibernateStatelessItemWriter;
+import com.mardi2020.exbatch.config.ConditionalOnBatchJob;
+import com.mardi2020.exbatch.metrics.StepMetricsListener;
 import jakarta.persistence.EntityManagerFactory;
+import java.nio.charset.Charset;
+import javax.sql.DataSource;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
@@ -9,19 +22,22 @@ import org.springframework.batch.core.Step;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.JpaItemWriter;
 import org.springframework.batch.item.database.builder.JpaItemWriterBuilder;
-import org.springframework.batch.item.file.FlatFileItemReader;
-import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.PlatformTransactionManager;
 
 @Slf4j
 @RequiredArgsConstructor
 @Configuration
+@ConditionalOnBatchJob(JpaItemJobConfig.JPA_ITEM_WRITER_JOB)
 public class JpaItemJobConfig {
 
     /**
@@ -33,17 +49,38 @@ public class JpaItemJobConfig {
 
     private final EntityManagerFactory entityManagerFactory;
 
+    private final DataSource dataSource;
+
+    /**
+     * 저장 방식, 모두 Customer 엔티티의 테이블(customer) 에 적재한다.
+     * - jpa: JpaItemWriter (persist, 영속성 컨텍스트 사용)
+     * - stateless: Hibernate StatelessSession 으로 insert (영속성 컨텍스트 미사용)
+     * - jdbc: 영속성 컨텍스트 없이 multi-row insert (IDENTITY id 에서도 한 statement 로 묶인다)
+     * - upsert: 이미 있는 row 는 걸러내고 나머지를 upsert (JdbcBatchItemJobConfig 의 upsert 와 같다)
+     *   전제 조건으로 natural key unique index 를 따로 만들어 둔다. 기본 DDL 에는 없으며, 없으면 step 을 시작할 때 실패한다.
+     *   MySQL 은 index 로 중복을 거르고, 그 외 DB 는 index 가 없으면 존재 확인이 full scan 이 된다.
+     *   (MySQL: sql/customer_natural_key.sql, H2 / HSQLDB / Derby: sql/customer_natural_key_portable.sql)
+     */
+    @Value("${exbatch.jpa-item.writer:jpa}")
+    private String writerType;
+
+    @Value("${exbatch.dedup.expected-rows:1000000}")
+    private long dedupExpectedRows;
+
+    @Value("${exbatch.dedup.false-positive-rate:0.01}")
+    private double dedupFalsePositiveRate;
+
+    @Value("${exbatch.chunk-size:" + CHUNK_SIZE + "}")
+    private int chunkSize;
+
+    @Value("${exbatch.input.customer-csv:classpath:customer.csv}")
+    private Resource customerCsv;
+
     @Bean
-    public FlatFileItemReader<Customer> flatFileItemReader() {
-
-        return new FlatFileItemReaderBuilder<Customer>()
-                .name("FlatFileItemReader")
-                .resource(new ClassPathResource("./customer.csv"))
-                .encoding(ENCODING)
-                .delimited().delimiter(",")
-                .names("name", "age", "gender")
-                .targetType(Customer.class)
-                .build();
+    public CustomerCsvItemReader jpaItemCsvItemReader() {
+        CustomerCsvItemReader reader = new CustomerCsvItemReader(customerCsv, Charset.forName(ENCODING), ',');
+        reader.setName("FlatFileItemReader");
+        return reader;
     }
 
     @Bean
@@ -54,24 +91,67 @@ public class JpaItemJobConfig {
                 .build();
     }
 
+    @Bean
+    public HibernateStatelessItemWriter<Customer> statelessItemWriter() {
+        return new HibernateStatelessItemWriter<>(entityManagerFactory, dataSource);
+    }
+
+    @Bean
+    public CustomerBulkInsertItemWriter jpaJobBulkInsertItemWriter() {
+        CustomerBulkInsertItemWriter writer = new CustomerBulkInsertItemWriter(new JdbcTemplate(dataSource), Customer.TABLE);
+        writer.setMaxRows(chunkSize);
+        return writer;
+    }
 
     @Bean
-    public Step flatFileStep(JobRepository jobRepository, PlatformTransactionManager transactionManager) {
-        log.info("------------------ Init flatFileStep -----------------");
+    public CustomerDedupProcessor jpaJobDedupProcessor() {
+        return new CustomerDedupProcessor(Customer.TABLE, new JdbcCustomerKeyStore(dataSource, Customer.TABLE),
+                dedupExpectedRows, dedupFalsePositiveRate);
+    }
 
-        return new StepBuilder("flatFileStep", jobRepository)
-                .<Customer, Customer>chunk(CHUNK_SIZE, transactionManager)
-                .reader(flatFileItemReader())
-                .writer(jpaItemWriter())
-                .build();
+    @Bean
+    public CustomerUpsertItemWriter jpaJobUpsertItemWriter() {
+        CustomerUpsertItemWriter writer = new CustomerUpsertItemWriter(new JdbcTemplate(dataSource), Customer.TABLE,
+                Dialect.resolve(dataSource));
+        writer.setMaxRows(chunkSize);
+        return writer;
+    }
+
+    private ItemWriter<Customer> customerWriter() {
+        return switch (writerType) {
+            case "stateless" -> statelessItemWriter();
+            case "jdbc" -> jpaJobBulkInsertItemWriter();
+            default -> jpaItemWriter();
+        };
+    }
+
+    @Bean
+    public Step jpaItemStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                            AdaptiveChunkPolicyFactory chunkPolicyFactory,
+                            StepMetricsListener stepMetricsListener) {
+        log.info("------------------ Init jpaItemStep (writer={}) -----------------", writerType);
+
+        AdaptiveChunkCompletionPolicy completionPolicy = chunkPolicyFactory.create(chunkSize);
+
+        SimpleStepBuilder<Customer, Customer> builder = new StepBuilder("flatFileStep", jobRepository)
+                .<Customer, Customer>chunk(completionPolicy, transactionManager)
+                .reader(jpaItemCsvItemReader())
+                .listener(completionPolicy);
+        if ("upsert".equals(writerType)) {
+            CustomerDedupProcessor dedupProcessor = jpaJobDedupProcessor();
+            dedupProcessor.registerListeners(builder.processor(dedupProcessor).writer(jpaJobUpsertItemWriter()));
+        } else {
+            builder.writer(customerWriter());
+        }
+        return stepMetricsListener.instrument(builder).build();
     }
 
     @Bean
-    public Job flatFileJob(Step flatFileStep, JobRepository jobRepository) {
-        log.info("------------------ Init flatFileJob -----------------");
+    public Job jpaItemJob(Step jpaItemStep, JobRepository jobRepository) {
+        log.info("------------------ Init jpaItemJob -----------------");
         return new JobBuilder(JPA_ITEM_WRITER_JOB, jobRepository)
                 .incrementer(new RunIdIncrementer())
-                .start(flatFileStep)
+                .start(jpaItemStep)
                 .build();
     }
 }
\ No newline at end of file
@@ -1,29 +1,50 @@
 package com.mardi2020.exbatch.config.paging.jpajpbconfig;
 
 import com.mardi2020.exbatch.chunk.CustomerItemProcessor;
+import com.mardi2020.exbatch.chunk.async.AsyncItemProcessor;
+import com.mardi2020.exbatch.chunk.async.AsyncItemWriter;
 import com.mardi2020.exbatch.chunk.data.Customer;
+import com.mardi2020.exbatch.chunk.incremental.HighWaterMarkListener;
+import com.mardi2020.exbatch.chunk.mapping.MappedFieldExtractor;
+import com.mardi2020.exbatch.chunk.policy.AdaptiveChunkCompletionPolicy;
+import com.mardi2020.exbatch.chunk.policy.AdaptiveChunkPolicyFactory;
+import com.mardi2020.exbatch.chunk.reader.JpaKeysetPagingItemReader;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileItemWriter.Field;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileWriterFactory;
+import com.mardi2020.exbatch.config.ConditionalOnBatchJob;
+import com.mardi2020.exbatch.metrics.StepMetricsListener;
+import com.mardi2020.exbatch.throttle.StepThrottle;
 import jakarta.persistence.EntityManagerFactory;
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
 import javax.sql.DataSource;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamWriter;
 import org.springframework.batch.item.database.JpaPagingItemReader;
 import org.springframework.batch.item.database.builder.JpaPagingItemReaderBuilder;
-import org.springframework.batch.item.file.FlatFileItemWriter;
 import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 
 @Slf4j
 @Configuration
+@ConditionalOnBatchJob(JpaPagingReaderJobConfig.JPA_PAGING_CHUNK_JOB)
 @RequiredArgsConstructor
 public class JpaPagingReaderJobConfig {
 
@@ -38,18 +59,83 @@ public class JpaPagingReaderJobConfig {
 
     private final EntityManagerFactory entityManagerFactory;
 
+    private final CustomerFileWriterFactory fileWriterFactory;
+
+    @Value("${exbatch.chunk-size:" + CHUNK_SIZE + "}")
+    private int chunkSize;
+
+    @Value("${exbatch.fetch-size:" + CHUNK_SIZE + "}")
+    private int fetchSize;
+
+    /**
+     * true 이면 OFFSET 페이징 대신 keyset(id) 페이징 reader 를 사용한다.
+     */
+    @Value("${exbatch.jpa-paging.keyset:false}")
+    private boolean keysetPaging;
+
+    /**
+     * true 이면 processor 를 asyncProcessingTaskExecutor 에서 비동기로 실행한다.
+     */
+    @Value("${exbatch.jpa-paging.async:false}")
+    private boolean asyncProcessing;
+
+    /**
+     * 비동기 처리 시 동시에 처리 중일 수 있는 최대 item 수, 넘으면 reader 가 대기한다.
+     */
+    @Value("${exbatch.async.max-in-flight:64}")
+    private int maxInFlight;
+
+    /**
+     * true 이면 이전 성공 실행의 최대 id 이후 row 만 읽어서 출력 파일에 이어 쓴다. (HighWaterMarkListener)
+     */
+    @Value("${exbatch.incremental.enabled:false}")
+    private boolean incremental;
+
+    /**
+     * 증분 추출 시 몇 번째 실행마다 전체를 다시 읽을지, 0 이면 하지 않는다. (job parameter fullRefresh=<실행마다 다른 값> 으로 한 번 할 수도 있다)
+     */
+    @Value("${exbatch.incremental.full-refresh-every:0}")
+    private int fullRefreshEvery;
+
     @Bean
     public JpaPagingItemReader<Customer> customerJpaPagingItemReader() throws Exception {
 
         return new JpaPagingItemReaderBuilder<Customer>()
                 .name("customerJpaPagingItemReader")
-                .queryString("SELECT c FROM Customer c WHERE c.age > :age order by id desc")
-                .pageSize(CHUNK_SIZE)
+                .queryString("SELECT c FROM Customer c WHERE c.age > :age"
+                        + (incremental ? " AND c.id > :fromId" : "") + " order by id desc")
+                .pageSize(fetchSize)
                 .entityManagerFactory(entityManagerFactory)
-                .parameterValues(Collections.singletonMap("age", 20))
+                .parameterValues(parameterValues(0))
                 .build();
     }
 
+    /**
+     * customerJpaPagingItemReader 의 keyset 페이징 버전
+     * 마지막으로 읽은 id 보다 작은 데이터만 조회하므로 OFFSET 으로 앞 페이지를 다시 스캔하지 않는다.
+     */
+    @Bean
+    public JpaKeysetPagingItemReader<Customer> customerJpaKeysetItemReader() {
+        JpaKeysetPagingItemReader<Customer> reader = new JpaKeysetPagingItemReader<>(
+                entityManagerFactory,
+                "SELECT c FROM Customer c WHERE c.age > :age AND c.id < :lastId"
+                        + (incremental ? " AND c.id > :fromId" : "") + " ORDER BY c.id DESC",
+                Customer.class,
+                Customer::getId);
+        reader.setName("customerJpaKeysetItemReader");
+        reader.setPageSize(fetchSize);
+        reader.setParameterValues(parameterValues(0));
+        return reader;
+    }
+
+    private Map<String, Object> parameterValues(long fromId) {
+        Map<String, Object> parameterValues = new HashMap<>();
+        parameterValues.put("age", 20);
+        if (incremental) {
+            parameterValues.put("fromId", fromId);
+        }
+        return parameterValues;
+    }
 
 //    @Bean
 //    public JpaPagingItemReader<Customer> customerJpaPagingItemReader() throws Exception {
@@ -64,36 +150,98 @@ public class JpaPagingReaderJobConfig {
 //    }
 
     @Bean
-    public FlatFileItemWriter<Customer> customerJpaFlatFileItemWriter() {
+    public ItemStreamWriter<Customer> customerJpaFlatFileItemWriter() {
+        if (fileWriterFactory.isColumnar()) {
+            return fileWriterFactory.createColumnar("customerJpaFlatFileItemWriter", "./output/customer_new_v2.csv");
+        }
+        if (fileWriterFactory.isFast()) {
+            return fileWriterFactory.create("customerJpaFlatFileItemWriter", "./output/customer_new_v2.csv", "\t",
+                    Field.NAME, Field.AGE, Field.GENDER);
+        }
 
         return new FlatFileItemWriterBuilder<Customer>()
                 .name("customerJpaFlatFileItemWriter")
                 .resource(new FileSystemResource("./output/customer_new_v2.csv"))
                 .encoding(ENCODING)
                 .delimited().delimiter("\t")
-                .names("Name", "Age", "Gender")
+                .fieldExtractor(new MappedFieldExtractor<>(Customer.class, "name", "age", "gender"))
                 .build();
     }
 
 
     @Bean
-    public Step customerJpaPagingStep(JobRepository jobRepository, PlatformTransactionManager transactionManager) throws Exception {
-        log.info("------------------ Init customerJpaPagingStep -----------------");
+    public Step customerJpaPagingStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                      TaskExecutor asyncProcessingTaskExecutor,
+                                      AdaptiveChunkPolicyFactory chunkPolicyFactory,
+                                      StepMetricsListener stepMetricsListener,
+                                      JobExplorer jobExplorer,
+                                      ObjectProvider<StepThrottle> stepThrottle) throws Exception {
+        log.info("------------------ Init customerJpaPagingStep (keyset={}, async={}) -----------------",
+                keysetPaging, asyncProcessing);
+
+        ItemStreamReader<Customer> reader = keysetPaging ? customerJpaKeysetItemReader() : customerJpaPagingItemReader();
+
+        AdaptiveChunkCompletionPolicy completionPolicy = chunkPolicyFactory.create(chunkSize);
+        if (keysetPaging) {
+            // keyset reader 는 다음 페이지부터 바뀐 크기로 조회한다. (OFFSET 페이징은 중간에 바꾸면 row 가 밀린다)
+            completionPolicy.addChunkSizeListener(customerJpaKeysetItemReader()::setPageSize);
+        }
+
+        if (asyncProcessing) {
+            return stepMetricsListener.instrument(throttled(incremental(new StepBuilder("customerJpaPagingStep", jobRepository)
+                    .<Customer, Future<Customer>>chunk(completionPolicy, transactionManager)
+                    .reader(reader)
+                    .processor(new AsyncItemProcessor<>(new CustomerItemProcessor(), asyncProcessingTaskExecutor, maxInFlight))
+                    .writer(new AsyncItemWriter<>(customerJpaFlatFileItemWriter()))
+                    .listener(completionPolicy), jobExplorer), stepThrottle))
+                    .build();
+        }
 
-        return new StepBuilder("customerJpaPagingStep", jobRepository)
-                .<Customer, Customer>chunk(CHUNK_SIZE, transactionManager)
-                .reader(customerJpaPagingItemReader())
+        return stepMetricsListener.instrument(throttled(incremental(new StepBuilder("customerJpaPagingStep", jobRepository)
+                .<Customer, Customer>chunk(completionPolicy, transactionManager)
+                .reader(reader)
                 .processor(new CustomerItemProcessor())
                 .writer(customerJpaFlatFileItemWriter())
+                .listener(completionPolicy), jobExplorer), stepThrottle))
                 .build();
     }
 
+    /**
+     * exbatch.throttle.enabled=true 이면 step throttle listener 를 등록한다.
+     */
+    private static <O> SimpleStepBuilder<Customer, O> throttled(SimpleStepBuilder<Customer, O> builder,
+                                                               ObjectProvider<StepThrottle> stepThrottle) {
+        StepThrottle throttle = stepThrottle.getIfAvailable();
+        return throttle == null ? builder : throttle.registerListeners(builder);
+    }
+
+    /**
+     * 증분 추출이면 step 시작 시 reader 의 fromId 와 writer 의 이어쓰기를 설정하는 listener 를 등록한다.
+     */
+    private <O> SimpleStepBuilder<Customer, O> incremental(SimpleStepBuilder<Customer, O> builder,
+                                                          JobExplorer jobExplorer) throws Exception {
+        if (!incremental) {
+            return builder;
+        }
+        JpaPagingItemReader<Customer> pagingReader = customerJpaPagingItemReader();
+        JpaKeysetPagingItemReader<Customer> keysetReader = customerJpaKeysetItemReader();
+        ItemStreamWriter<Customer> writer = customerJpaFlatFileItemWriter();
+        return new HighWaterMarkListener<Customer>(jobExplorer, Customer::getId, fullRefreshEvery, range -> {
+            if (keysetPaging) {
+                keysetReader.setParameterValues(parameterValues(range.from()));
+            } else {
+                pagingReader.setParameterValues(parameterValues(range.from()));
+            }
+            CustomerFileWriterFactory.setAppend(writer, !range.fullRefresh());
+        }).registerListeners(builder);
+    }
+
     @Bean
-    public Job customerJpaPagingJob(Step customerJdbcPagingStep, JobRepository jobRepository) {
+    public Job customerJpaPagingJob(Step customerJpaPagingStep, JobRepository jobRepository) {
         log.info("------------------ Init customerJpaPagingJob -----------------");
         return new JobBuilder(JPA_PAGING_CHUNK_JOB, jobRepository)
                 .incrementer(new RunIdIncrementer())
-                .start(customerJdbcPagingStep)
+                .start(customerJpaPagingStep)
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.mardi2020.exbatch.launch;
+
+import javax.sql.DataSource;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.lang.NonNull;
+
+/**
+ * DataSource bean 을 {@link JobConnectionQuota} 가 적용된 proxy 로 감싼다.
+ * unwrap / isWrapperFor 는 원래 DataSource 로 전달되므로 풀 구현체(HikariDataSource) 를 꺼내 쓰는 코드는 그대로 동작한다.
+ */
+public class ConnectionQuotaPostProcessor implements BeanPostProcessor {
+
+    private final JobConnectionQuota connectionQuota;
+
+    public ConnectionQuotaPostProcessor(JobConnectionQuota connectionQuota) {
+        this.connectionQuota = connectionQuota;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+        if (!(bean instanceof DataSource)) {
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addInterface(DataSource.class);
+        proxyFactory.addAdvice(connectionQuota);
+        return proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,103 @@
+package com.mardi2020.exbatch.launch;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.lang.NonNull;
+
+/**
+ * 같은 커넥션 풀을 쓰는 job 들이 동시에 실행될 때 job 별로 빌릴 수 있는 커넥션 수를 제한하는 DataSource interceptor
+ * getConnection 을 호출한 스레드의 step context 로 job 을 구분하고, 그 job 의 quota 만큼만 커넥션을 내준다.
+ * 커넥션을 close 하면 quota 를 돌려준다.
+ * step context 가 없는 스레드(job 시작 / 종료 메타데이터, 비동기 processor 등) 와 quota 가 없는 job 은 제한하지 않는다.
+ * reader 가 별도 커넥션을 쓰는 step(cursor reader, JPA reader) 은 트랜잭션 커넥션과 함께 최소 2개가 필요하다.
+ * quota 를 기다리다 timeout 이 지나면 풀의 connectionTimeout 과 같이 SQLTransientConnectionException 이 발생한다.
+ */
+public class JobConnectionQuota implements MethodInterceptor {
+
+    private final Map<String, Semaphore> quotas = new ConcurrentHashMap<>();
+
+    private final Duration timeout;
+
+    public JobConnectionQuota(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param quota 0 이하이면 제한하지 않는다.
+     */
+    public void setQuota(String jobName, int quota) {
+        if (quota > 0) {
+            quotas.put(jobName, new Semaphore(quota, true));
+        } else {
+            quotas.remove(jobName);
+        }
+    }
+
+    /**
+     * 지금 더 빌릴 수 있는 커넥션 수, quota 가 없으면 -1
+     */
+    public int getAvailable(String jobName) {
+        Semaphore semaphore = quotas.get(jobName);
+        return semaphore == null ? -1 : semaphore.availablePermits();
+    }
+
+    @Override
+    public Object invoke(@NonNull MethodInvocation invocation) throws Throwable {
+        if (!"getConnection".equals(invocation.getMethod().getName())) {
+            return invocation.proceed();
+        }
+        StepContext context = StepSynchronizationManager.getContext();
+        Semaphore semaphore = context == null ? null : quotas.get(context.getJobName());
+        if (semaphore == null) {
+            return invocation.proceed();
+        }
+
+        if (!semaphore.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new SQLTransientConnectionException("job " + context.getJobName() + " 의 커넥션 quota 를 "
+                    + timeout.toMillis() + "ms 동안 얻지 못했습니다.");
+        }
+        Connection connection;
+        try {
+            connection = (Connection) invocation.proceed();
+        } catch (Throwable e) {
+            semaphore.release();
+            throw e;
+        }
+        return releasing(connection, semaphore);
+    }
+
+    private static Connection releasing(Connection connection, Semaphore semaphore) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(JobConnectionQuota.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        try {
+                            connection.close();
+                        } finally {
+                            semaphore.release();
+                        }
+                        return null;
+                    }
+                    if ("unwrap".equals(method.getName()) && ((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
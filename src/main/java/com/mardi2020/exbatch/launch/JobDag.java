@@ -0,0 +1,113 @@
+package com.mardi2020.exbatch.launch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 한 프로세스에서 실행할 job 목록과 선행 job 관계
+ * 형식: "JOB[(quota)][:선행 JOB,선행 JOB]" 을 ';' 또는 줄바꿈으로 구분한다.
+ * - quota: 이 job 이 동시에 쓸 수 있는 최대 커넥션 수, 생략하면 exbatch.launcher.connection-quota
+ * ex) JPA_ITEM_WRITER_JOB; JDBC_PAGING_CHUNK_JOB(3):JPA_ITEM_WRITER_JOB; JPA_PAGING_CHUNK_JOB(3):JPA_ITEM_WRITER_JOB
+ *     CSV 를 customer 테이블에 적재하고 나면 customer 를 읽는 두 paging export 를 동시에 실행한다.
+ */
+public class JobDag {
+
+    private final Map<String, Node> nodes;
+
+    private JobDag(Map<String, Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * @param spec job 목록
+     * @param defaultQuota quota 를 생략한 job 의 커넥션 quota, 0 이면 제한 없음
+     */
+    public static JobDag parse(String spec, int defaultQuota) {
+        Map<String, Node> nodes = new LinkedHashMap<>();
+        for (String entry : spec.split("[;\\n]")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int colon = entry.indexOf(':');
+            String head = (colon < 0 ? entry : entry.substring(0, colon)).trim();
+            List<String> dependsOn = new ArrayList<>();
+            if (colon >= 0) {
+                for (String dependency : entry.substring(colon + 1).split(",")) {
+                    if (!dependency.isBlank()) {
+                        dependsOn.add(dependency.trim());
+                    }
+                }
+            }
+
+            String name = head;
+            int quota = defaultQuota;
+            int paren = head.indexOf('(');
+            if (paren >= 0) {
+                if (!head.endsWith(")")) {
+                    throw new IllegalArgumentException("job quota 형식이 잘못되었습니다: " + entry);
+                }
+                name = head.substring(0, paren).trim();
+                quota = Integer.parseInt(head.substring(paren + 1, head.length() - 1).trim());
+            }
+            if (nodes.put(name, new Node(name, quota, List.copyOf(dependsOn))) != null) {
+                throw new IllegalArgumentException("job 이 두 번 지정되었습니다: " + name);
+            }
+        }
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("실행할 job 이 없습니다.");
+        }
+        JobDag dag = new JobDag(nodes);
+        dag.checkAcyclic();
+        return dag;
+    }
+
+    public Collection<Node> getNodes() {
+        return nodes.values();
+    }
+
+    public Node getNode(String name) {
+        return nodes.get(name);
+    }
+
+    private void checkAcyclic() {
+        Map<String, Integer> state = new HashMap<>();
+        for (Node node : nodes.values()) {
+            visit(node, state, new ArrayList<>());
+        }
+    }
+
+    /**
+     * state: 1 = 방문 중, 2 = 완료
+     */
+    private void visit(Node node, Map<String, Integer> state, List<String> path) {
+        Integer current = state.get(node.name());
+        if (current != null && current == 2) {
+            return;
+        }
+        path.add(node.name());
+        if (current != null) {
+            throw new IllegalArgumentException("job 선행 관계에 순환이 있습니다: " + String.join(" -> ", path));
+        }
+        state.put(node.name(), 1);
+        for (String dependency : node.dependsOn()) {
+            Node dependencyNode = nodes.get(dependency);
+            if (dependencyNode == null) {
+                throw new IllegalArgumentException(node.name() + " 의 선행 job " + dependency + " 이 목록에 없습니다.");
+            }
+            visit(dependencyNode, state, path);
+        }
+        state.put(node.name(), 2);
+        path.remove(path.size() - 1);
+    }
+
+    /**
+     * @param quota 동시에 쓸 수 있는 최대 커넥션 수, 0 이면 제한 없음
+     */
+    public record Node(String name, int quota, List<String> dependsOn) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.mardi2020.exbatch.launch;
+
+import com.mardi2020.exbatch.launch.JobDag.Node;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.boot.autoconfigure.batch.JobExecutionEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * {@link JobDag} 의 job 들을 선행 job 이 모두 COMPLETED 가 된 순서대로 실행한다.
+ * 선행 관계가 없는 job 은 최대 parallelism 개까지 동시에 실행하고, 선행 job 이 실패하면 뒤의 job 은 실행하지 않는다.
+ * 각 job 은 launcher 스레드에서 동기 JobLauncher 로 실행하므로 launcher 스레드 수가 동시에 실행되는 job 수가 된다.
+ * 끝난 JobExecution 은 JobExecutionEvent 로 발행해서 Spring Boot 의 exit code 에 반영한다.
+ * job 끼리 같은 상태를 가진 bean(reader / writer) 을 공유하면 동시에 실행하지 않도록 선행 관계를 준다.
+ */
+@Slf4j
+public class JobDagLauncher {
+
+    private final Map<String, Job> jobs;
+
+    private final JobLauncher jobLauncher;
+
+    private final JobExplorer jobExplorer;
+
+    private final JobConnectionQuota connectionQuota;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final int parallelism;
+
+    public JobDagLauncher(List<Job> jobs, JobLauncher jobLauncher, JobExplorer jobExplorer,
+                          JobConnectionQuota connectionQuota, ApplicationEventPublisher eventPublisher,
+                          int parallelism) {
+        this.jobs = new LinkedHashMap<>();
+        jobs.forEach(job -> this.jobs.put(job.getName(), job));
+        this.jobLauncher = jobLauncher;
+        this.jobExplorer = jobExplorer;
+        this.connectionQuota = connectionQuota;
+        this.eventPublisher = eventPublisher;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 모든 job 이 끝날 때까지 기다린다.
+     *
+     * @return job 이름별 JobExecution, 선행 job 실패로 실행하지 않은 job 은 없다.
+     */
+    public Map<String, JobExecution> run(JobDag dag, JobParameters parameters) {
+        for (Node node : dag.getNodes()) {
+            if (!jobs.containsKey(node.name())) {
+                throw new IllegalArgumentException("job bean 이 없습니다: " + node.name() + " (등록된 job: " + jobs.keySet() + ")");
+            }
+            connectionQuota.setQuota(node.name(), node.quota());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("job-launcher-"));
+        // launcher 스레드가 선행 job 결과를 읽는 동안 아래에서 계속 추가하므로 ConcurrentHashMap
+        Map<String, CompletableFuture<JobExecution>> futures = new ConcurrentHashMap<>();
+        try {
+            for (Node node : dag.getNodes()) {
+                schedule(dag, node, parameters, futures, executor);
+            }
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        Map<String, JobExecution> executions = new LinkedHashMap<>();
+        for (Node node : dag.getNodes()) {
+            JobExecution execution = futures.get(node.name()).join();
+            if (execution != null) {
+                executions.put(node.name(), execution);
+            }
+        }
+        log.info("job launcher 완료: {}", summary(dag, executions));
+        return executions;
+    }
+
+    private CompletableFuture<JobExecution> schedule(JobDag dag, Node node, JobParameters parameters,
+                                                     Map<String, CompletableFuture<JobExecution>> futures,
+                                                     ExecutorService executor) {
+        CompletableFuture<JobExecution> scheduled = futures.get(node.name());
+        if (scheduled != null) {
+            return scheduled;
+        }
+        CompletableFuture<?>[] dependencies = node.dependsOn().stream()
+                .map(dependency -> schedule(dag, dag.getNode(dependency), parameters, futures, executor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture<JobExecution> future = CompletableFuture.allOf(dependencies).thenApplyAsync(ignored -> {
+            for (String dependency : node.dependsOn()) {
+                JobExecution execution = futures.get(dependency).join();
+                if (execution == null || execution.getStatus() != BatchStatus.COMPLETED) {
+                    log.warn("{} 실행 안 함: 선행 job {} 이 COMPLETED 가 아닙니다.", node.name(), dependency);
+                    return null;
+                }
+            }
+            return launch(jobs.get(node.name()), parameters);
+        }, executor);
+        futures.put(node.name(), future);
+        return future;
+    }
+
+    private JobExecution launch(Job job, JobParameters parameters) {
+        try {
+            JobParameters jobParameters = job.getJobParametersIncrementer() == null ? parameters
+                    : new JobParametersBuilder(parameters, jobExplorer).getNextJobParameters(job).toJobParameters();
+            log.info("job 시작: {} {}", job.getName(), jobParameters);
+            JobExecution execution = jobLauncher.run(job, jobParameters);
+            eventPublisher.publishEvent(new JobExecutionEvent(execution));
+            return execution;
+        } catch (Exception e) {
+            // 이미 실행 중 / 완료된 instance 등 launcher 에서 거절된 경우
+            log.error("job 을 시작하지 못했습니다: {}", job.getName(), e);
+            return null;
+        }
+    }
+
+    private static String summary(JobDag dag, Map<String, JobExecution> executions) {
+        StringBuilder summary = new StringBuilder();
+        for (Node node : dag.getNodes()) {
+            JobExecution execution = executions.get(node.name());
+            summary.append(node.name()).append('=').append(execution == null ? "SKIPPED" : execution.getStatus())
+                    .append(' ');
+        }
+        return summary.toString().trim();
+    }
+}
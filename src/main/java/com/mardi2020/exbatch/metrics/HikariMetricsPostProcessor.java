@@ -0,0 +1,39 @@
+package com.mardi2020.exbatch.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.lang.NonNull;
+
+/**
+ * Hikari 커넥션 풀 메트릭(hikaricp.connections.acquire = 커넥션 대기 시간, pending, active 등)을 MeterRegistry 에 연결한다.
+ * 풀은 처음 커넥션을 요청할 때 시작되므로 그 전에 tracker 를 설정한다.
+ * 다른 post processor 가 DataSource 를 proxy 로 감싸기 전에 설정하도록 초기화 전 단계에서 처리한다.
+ */
+@Slf4j
+public class HikariMetricsPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> registry;
+
+    public HikariMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(@NonNull Object bean, @NonNull String beanName) {
+        if (bean instanceof HikariDataSource dataSource
+                && dataSource.getMetricRegistry() == null
+                && dataSource.getMetricsTrackerFactory() == null) {
+            try {
+                dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry.getObject()));
+            } catch (IllegalStateException e) {
+                // 이미 시작된 풀
+                log.warn("Hikari pool [{}] 이 이미 시작되어 메트릭을 연결하지 못했습니다.", dataSource.getPoolName());
+            }
+        }
+        return bean;
+    }
+}
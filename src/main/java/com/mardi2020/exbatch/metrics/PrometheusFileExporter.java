@@ -0,0 +1,90 @@
+package com.mardi2020.exbatch.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * PrometheusMeterRegistry 의 내용을 Prometheus text 형식으로 내보낸다.
+ * - 파일: step 이 끝날 때와 application 종료 시 {directory}/{name}.prom 을 덮어쓴다. (node_exporter textfile collector 용)
+ * - HTTP: port 가 0 보다 크면 localhost:{port}/metrics 로 scrape 할 수 있다.
+ */
+@Slf4j
+public class PrometheusFileExporter implements InitializingBean, DisposableBean {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final PrometheusMeterRegistry registry;
+
+    private final Path file;
+
+    private final int port;
+
+    private HttpServer server;
+
+    /**
+     * @param directory 파일을 쓸 디렉터리
+     * @param name 파일 이름 (확장자 제외, 보통 job 이름)
+     * @param port scrape endpoint 포트, 0 이면 띄우지 않는다.
+     */
+    public PrometheusFileExporter(PrometheusMeterRegistry registry, Path directory, String name, int port) {
+        this.registry = registry;
+        this.file = directory.resolve(name + ".prom");
+        this.port = port;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (port <= 0) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        log.info("prometheus scrape endpoint: http://localhost:{}/metrics", port);
+    }
+
+    /**
+     * 임시 파일에 쓴 뒤 교체하므로 읽는 쪽에서 중간 상태를 보지 않는다.
+     */
+    public synchronized void dump() {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Files.writeString(temp, registry.scrape(), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("metrics 파일 저장 실패: " + file, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            dump();
+        } catch (UncheckedIOException e) {
+            log.warn("{}", e.getMessage(), e);
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+}
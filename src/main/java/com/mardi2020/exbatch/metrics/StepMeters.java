@@ -0,0 +1,174 @@
+package com.mardi2020.exbatch.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.springframework.batch.core.StepExecution;
+
+/**
+ * step(job 이름 + step 이름) 하나의 meter 묶음
+ * 한 step 실행은 한 스레드에서만 갱신하므로 item 마다 호출되는 메서드는 동기화 없이 필드만 바꾼다.
+ * 카운터들은 item 마다 올리지 않고 chunk 가 끝날 때 StepExecution 의 누적값과의 차이만큼 올린다.
+ */
+class StepMeters {
+
+    private static final Duration MIN_ITEM_LATENCY = Duration.ofNanos(100);
+
+    private static final Duration MAX_ITEM_LATENCY = Duration.ofSeconds(10);
+
+    final Timer readTimer;
+
+    final Timer processTimer;
+
+    final Timer writeTimer;
+
+    final Timer chunkTimer;
+
+    private final Counter readItems;
+
+    private final Counter writeItems;
+
+    private final Counter filterItems;
+
+    private final Counter commits;
+
+    private final Counter rollbacks;
+
+    private final Counter readSkips;
+
+    private final Counter processSkips;
+
+    private final Counter writeSkips;
+
+    private final int sampleMask;
+
+    private StepExecution stepExecution;
+
+    private long stepStarted;
+
+    private volatile double itemsPerSecond;
+
+    private long readCount;
+
+    private long processCount;
+
+    long readStarted;
+
+    long processStarted;
+
+    long writeStarted;
+
+    long chunkStarted;
+
+    private long lastRead;
+
+    private long lastWrite;
+
+    private long lastFilter;
+
+    private long lastCommit;
+
+    private long lastRollback;
+
+    private long lastReadSkip;
+
+    private long lastProcessSkip;
+
+    private long lastWriteSkip;
+
+    /**
+     * @param sampleRate 2 의 거듭제곱, read/process 시간은 sampleRate 개 중 하나만 측정한다.
+     */
+    StepMeters(MeterRegistry registry, String jobName, String stepName, int sampleRate) {
+        Tags tags = Tags.of("job.name", jobName, "step.name", stepName);
+        this.sampleMask = sampleRate - 1;
+        this.readTimer = itemTimer("batch.item.read", "item read latency (sampled)", tags, registry);
+        this.processTimer = itemTimer("batch.item.process", "item process latency (sampled)", tags, registry);
+        this.writeTimer = Timer.builder("batch.chunk.write").description("chunk write latency")
+                .tags(tags).publishPercentileHistogram().register(registry);
+        this.chunkTimer = Timer.builder("batch.chunk").description("chunk latency (read ~ commit)")
+                .tags(tags).publishPercentileHistogram().register(registry);
+        this.readItems = counter("batch.items.read", tags, registry);
+        this.writeItems = counter("batch.items.written", tags, registry);
+        this.filterItems = counter("batch.items.filtered", tags, registry);
+        this.commits = counter("batch.chunk.commits", tags, registry);
+        this.rollbacks = counter("batch.chunk.rollbacks", tags, registry);
+        this.readSkips = counter("batch.item.skips", tags.and("phase", "read"), registry);
+        this.processSkips = counter("batch.item.skips", tags.and("phase", "process"), registry);
+        this.writeSkips = counter("batch.item.skips", tags.and("phase", "write"), registry);
+        Gauge.builder("batch.items.per.second", this, meters -> meters.itemsPerSecond)
+                .description("written items per second of the current step execution")
+                .tags(tags).strongReference(true).register(registry);
+    }
+
+    void start(StepExecution stepExecution) {
+        this.stepExecution = stepExecution;
+        this.stepStarted = System.nanoTime();
+        this.itemsPerSecond = 0;
+        this.readCount = 0;
+        this.processCount = 0;
+        this.readStarted = 0;
+        this.processStarted = 0;
+        snapshot();
+    }
+
+    boolean sampleRead() {
+        return (readCount++ & sampleMask) == 0;
+    }
+
+    boolean sampleProcess() {
+        return (processCount++ & sampleMask) == 0;
+    }
+
+    static void record(Timer timer, long startedNanos) {
+        timer.record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 마지막 flush 이후 StepExecution 누적값의 증가분을 카운터에 반영한다.
+     */
+    void flush() {
+        if (stepExecution == null) {
+            return;
+        }
+        readItems.increment(stepExecution.getReadCount() - lastRead);
+        writeItems.increment(stepExecution.getWriteCount() - lastWrite);
+        filterItems.increment(stepExecution.getFilterCount() - lastFilter);
+        commits.increment(stepExecution.getCommitCount() - lastCommit);
+        rollbacks.increment(stepExecution.getRollbackCount() - lastRollback);
+        readSkips.increment(stepExecution.getReadSkipCount() - lastReadSkip);
+        processSkips.increment(stepExecution.getProcessSkipCount() - lastProcessSkip);
+        writeSkips.increment(stepExecution.getWriteSkipCount() - lastWriteSkip);
+        snapshot();
+
+        long elapsed = System.nanoTime() - stepStarted;
+        itemsPerSecond = elapsed <= 0 ? 0 : stepExecution.getWriteCount() * 1e9 / elapsed;
+    }
+
+    private void snapshot() {
+        lastRead = stepExecution.getReadCount();
+        lastWrite = stepExecution.getWriteCount();
+        lastFilter = stepExecution.getFilterCount();
+        lastCommit = stepExecution.getCommitCount();
+        lastRollback = stepExecution.getRollbackCount();
+        lastReadSkip = stepExecution.getReadSkipCount();
+        lastProcessSkip = stepExecution.getProcessSkipCount();
+        lastWriteSkip = stepExecution.getWriteSkipCount();
+    }
+
+    private static Timer itemTimer(String name, String description, Tags tags, MeterRegistry registry) {
+        return Timer.builder(name).description(description).tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_ITEM_LATENCY)
+                .maximumExpectedValue(MAX_ITEM_LATENCY)
+                .register(registry);
+    }
+
+    private static Counter counter(String name, Tags tags, MeterRegistry registry) {
+        return Counter.builder(name).tags(tags).register(registry);
+    }
+}
@@ -0,0 +1,201 @@
+package com.mardi2020.exbatch.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.item.Chunk;
+import org.springframework.lang.NonNull;
+
+/**
+ * chunk step 의 read / process / write / chunk 시간과 처리량, skip, commit / rollback 수를 micrometer 로 기록하는 listener
+ * meter 는 job.name, step.name 으로 tag 된다. (partition worker 는 partition 별 step 이름)
+ * item 마다 호출되는 read / process 는 sampleRate 개 중 하나만 시간을 재고, 객체를 만들지 않는다.
+ * step 실행 중인 스레드에 meter 묶음을 ThreadLocal 로 붙여두므로 partition worker 처럼 step 마다 스레드가 다르면 같이 써도 된다.
+ * (한 step 을 여러 스레드가 같이 실행하는 multi-threaded step 은 지원하지 않는다)
+ * 프로세스에서 처음 item 을 읽은 시점의 JVM uptime 을 batch.startup.first.item 으로 기록한다. (기동 시간 비교용)
+ * step 에는 {@link #instrument(SimpleStepBuilder)} 로 등록한다.
+ */
+@Slf4j
+public class StepMetricsListener implements StepExecutionListener, ChunkListener,
+        ItemReadListener<Object>, ItemProcessListener<Object, Object>, ItemWriteListener<Object> {
+
+    private final MeterRegistry registry;
+
+    private final int sampleRate;
+
+    private final PrometheusFileExporter exporter;
+
+    private final Map<String, StepMeters> metersByStep = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<StepMeters> current = new ThreadLocal<>();
+
+    private volatile long firstItemUptimeMillis = -1;
+
+    /**
+     * @param sampleRate read / process 시간 측정 간격, 2 의 거듭제곱으로 올림한다.
+     * @param exporter step 이 끝날 때마다 파일로 내보낼 exporter (없으면 null)
+     */
+    public StepMetricsListener(MeterRegistry registry, int sampleRate, PrometheusFileExporter exporter) {
+        this.registry = registry;
+        this.sampleRate = sampleRate <= 1 ? 1 : Integer.highestOneBit((sampleRate - 1) << 1);
+        this.exporter = exporter;
+    }
+
+    /**
+     * step builder 에 모든 listener 인터페이스로 등록한다.
+     */
+    public <I, O> SimpleStepBuilder<I, O> instrument(SimpleStepBuilder<I, O> builder) {
+        builder.listener((StepExecutionListener) this);
+        builder.listener((ChunkListener) this);
+        builder.listener((ItemReadListener<Object>) this);
+        builder.listener((ItemProcessListener<Object, Object>) this);
+        builder.listener((ItemWriteListener<Object>) this);
+        return builder;
+    }
+
+    @Override
+    public void beforeStep(@NonNull StepExecution stepExecution) {
+        String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+        StepMeters meters = metersByStep.computeIfAbsent(jobName + "/" + stepExecution.getStepName(),
+                key -> new StepMeters(registry, jobName, stepExecution.getStepName(), sampleRate));
+        meters.start(stepExecution);
+        current.set(meters);
+    }
+
+    @Override
+    public ExitStatus afterStep(@NonNull StepExecution stepExecution) {
+        StepMeters meters = current.get();
+        if (meters != null) {
+            meters.flush();
+            current.remove();
+        }
+        if (exporter != null) {
+            exporter.dump();
+        }
+        return null;
+    }
+
+    @Override
+    public void beforeChunk(@NonNull ChunkContext context) {
+        StepMeters meters = current.get();
+        if (meters != null) {
+            meters.chunkStarted = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterChunk(@NonNull ChunkContext context) {
+        StepMeters meters = current.get();
+        if (meters != null) {
+            StepMeters.record(meters.chunkTimer, meters.chunkStarted);
+            meters.flush();
+        }
+    }
+
+    @Override
+    public void afterChunkError(@NonNull ChunkContext context) {
+        StepMeters meters = current.get();
+        if (meters != null) {
+            meters.flush();
+        }
+    }
+
+    @Override
+    public void beforeRead() {
+        StepMeters meters = current.get();
+        if (meters != null && meters.sampleRead()) {
+            meters.readStarted = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterRead(@NonNull Object item) {
+        if (firstItemUptimeMillis < 0) {
+            recordFirstItem();
+        }
+        StepMeters meters = current.get();
+        if (meters != null && meters.readStarted != 0) {
+            StepMeters.record(meters.readTimer, meters.readStarted);
+            meters.readStarted = 0;
+        }
+    }
+
+    @Override
+    public void onReadError(@NonNull Exception ex) {
+        StepMeters meters = current.get();
+        if (meters != null) {
+            meters.readStarted = 0;
+        }
+    }
+
+    @Override
+    public void beforeProcess(@NonNull Object item) {
+        StepMeters meters = current.get();
+        if (meters != null && meters.sampleProcess()) {
+            meters.processStarted = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterProcess(@NonNull Object item, Object result) {
+        StepMeters meters = current.get();
+        if (meters != null && meters.processStarted != 0) {
+            StepMeters.record(meters.processTimer, meters.processStarted);
+            meters.processStarted = 0;
+        }
+    }
+
+    @Override
+    public void onProcessError(@NonNull Object item, @NonNull Exception e) {
+        StepMeters meters = current.get();
+        if (meters != null) {
+            meters.processStarted = 0;
+        }
+    }
+
+    @Override
+    public void beforeWrite(@NonNull Chunk<?> items) {
+        StepMeters meters = current.get();
+        if (meters != null) {
+            meters.writeStarted = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterWrite(@NonNull Chunk<?> items) {
+        StepMeters meters = current.get();
+        if (meters != null) {
+            StepMeters.record(meters.writeTimer, meters.writeStarted);
+        }
+    }
+
+    @Override
+    public void onWriteError(@NonNull Exception exception, @NonNull Chunk<?> items) {
+        afterWrite(items);
+    }
+
+    private synchronized void recordFirstItem() {
+        if (firstItemUptimeMillis >= 0) {
+            return;
+        }
+        firstItemUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        TimeGauge.builder("batch.startup.first.item", this, TimeUnit.MILLISECONDS,
+                        listener -> listener.firstItemUptimeMillis)
+                .description("JVM 시작부터 첫 item 을 읽을 때까지 걸린 시간")
+                .register(registry);
+        log.info("JVM 시작 후 첫 item 까지 {} ms", firstItemUptimeMillis);
+    }
+}
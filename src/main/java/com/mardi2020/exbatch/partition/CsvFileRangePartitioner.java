@@ -0,0 +1,165 @@
+package com.mardi2020.exbatch.partition;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.NonNull;
+
+/**
+ * 하나의 큰 csv 파일을 N 개의 byte 범위로 나누는 Partitioner
+ * 각 경계는 다음 line 의 시작 위치로 맞추므로 모든 line 은 정확히 하나의 파티션에만 속한다.
+ * 파티션 순서대로 출력 파일을 이어붙이면 원본 line 순서가 유지된다.
+ * 파일 시스템의 파일이면 경계 근처만 읽고, jar 내부 classpath resource 처럼 파일이 아니면 처음부터 한 번 흘려 읽으며 경계를 찾는다.
+ */
+@Slf4j
+public class CsvFileRangePartitioner implements Partitioner {
+
+    public static final String START_OFFSET = "startOffset";
+    public static final String END_OFFSET = "endOffset";
+    public static final String PARTITION_INDEX = "partitionIndex";
+    public static final String OUTPUT_FILE = "outputFile";
+
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+
+    private final Resource resource;
+
+    private final int partitionCount;
+
+    private final String outputFilePrefix;
+
+    /**
+     * @param resource 나눌 파일
+     * @param partitionCount 나눌 파티션 개수, 0 이하이면 gridSize 사용
+     * @param outputFilePrefix 파티션별 출력 파일 prefix
+     */
+    public CsvFileRangePartitioner(Resource resource, int partitionCount, String outputFilePrefix) {
+        this.resource = resource;
+        this.partitionCount = partitionCount;
+        this.outputFilePrefix = outputFilePrefix;
+    }
+
+    @Override
+    @NonNull
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        int count = partitionCount > 0 ? partitionCount : Math.max(gridSize, 1);
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>(count);
+
+        long[] ends;
+        try {
+            ends = resource.isFile() ? fileBoundaries(count) : streamBoundaries(count);
+        } catch (IOException e) {
+            throw new UncheckedIOException("파일 범위를 나눌 수 없습니다: " + resource.getDescription(), e);
+        }
+
+        long start = 0;
+        for (int i = 0; i < count; i++) {
+            long end = Math.max(start, ends[i]);
+
+            ExecutionContext context = new ExecutionContext();
+            context.putLong(START_OFFSET, start);
+            context.putLong(END_OFFSET, end);
+            context.putInt(PARTITION_INDEX, i);
+            context.putString(OUTPUT_FILE, outputFile(outputFilePrefix, i));
+            partitions.put(partitionName(i), context);
+            log.info("partition{}: byte {} ~ {}", i, start, end);
+
+            start = end;
+        }
+        return partitions;
+    }
+
+    /**
+     * 파티션별 끝 offset, 각 경계는 size * (i + 1) / count 이후의 첫 line 시작 위치
+     */
+    private long[] fileBoundaries(int count) throws IOException {
+        try (FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] ends = new long[count];
+            for (int i = 0; i < count; i++) {
+                ends[i] = i == count - 1 ? size : nextLineStart(channel, size * (i + 1) / count, size);
+            }
+            return ends;
+        }
+    }
+
+    /**
+     * {@link #fileBoundaries(int)} 와 같은 경계를 처음부터 순서대로 읽으며 찾는다.
+     */
+    private long[] streamBoundaries(int count) throws IOException {
+        long size = resource.contentLength();
+        long[] ends = new long[count];
+        ends[count - 1] = size;
+        int next = 0;
+        while (next < count - 1 && size * (next + 1) / count <= 0) {
+            ends[next++] = 0;
+        }
+
+        try (InputStream in = resource.getInputStream()) {
+            byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+            long position = 0;
+            int read;
+            while (next < count - 1 && (read = in.read(buffer)) > 0) {
+                for (int i = 0; i < read && next < count - 1; i++) {
+                    if (buffer[i] != '\n') {
+                        continue;
+                    }
+                    long lineStart = position + i + 1;
+                    while (next < count - 1 && lineStart >= size * (next + 1) / count) {
+                        ends[next++] = lineStart;
+                    }
+                }
+                position += read;
+            }
+        }
+        while (next < count - 1) {
+            ends[next++] = size;
+        }
+        return ends;
+    }
+
+    /**
+     * position 이 line 중간이면 다음 line 의 시작 위치를, line 시작이면 그대로 반환한다.
+     */
+    private long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        if (position <= 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        // 바로 앞 바이트가 개행이면 position 이 line 의 시작
+        long scan = position - 1;
+        while (scan < size) {
+            buffer.clear();
+            int read = channel.read(buffer, scan);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return scan + i + 1;
+                }
+            }
+            scan += read;
+        }
+        return size;
+    }
+
+    /**
+     * 파티션 이름, worker StepExecution 이름은 {workerStep}:{partitionName} 이 된다.
+     */
+    public static String partitionName(int partitionIndex) {
+        return "partition" + partitionIndex;
+    }
+
+    public static String outputFile(String prefix, int partitionIndex) {
+        return prefix + ".partition" + partitionIndex + ".csv";
+    }
+}
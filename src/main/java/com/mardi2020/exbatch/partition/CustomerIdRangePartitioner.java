@@ -0,0 +1,93 @@
+package com.mardi2020.exbatch.partition;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+
+/**
+ * customer 테이블의 MIN(id) ~ MAX(id) 구간을 N개의 id 범위로 나누는 Partitioner
+ * partition0 이 가장 큰 id 구간을 가지므로, 파티션 순서대로 파일을 이어붙이면 id desc 정렬이 유지된다.
+ * 데이터가 partitionCount 보다 적어도 항상 partitionCount 개의 파티션을 만든다. (빈 범위는 빈 파일이 됨)
+ */
+@Slf4j
+public class CustomerIdRangePartitioner implements Partitioner {
+
+    public static final String MIN_ID = "minId";
+    public static final String MAX_ID = "maxId";
+    public static final String PARTITION_INDEX = "partitionIndex";
+    public static final String OUTPUT_FILE = "outputFile";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int age;
+
+    private final int partitionCount;
+
+    private final String outputFilePrefix;
+
+    /**
+     * @param jdbcTemplate MIN/MAX 조회용
+     * @param age where age >= :age 조건 값 (worker reader 와 동일해야 함)
+     * @param partitionCount 나눌 파티션 개수, 0 이하이면 gridSize 사용
+     * @param outputFilePrefix 파티션별 출력 파일 prefix
+     */
+    public CustomerIdRangePartitioner(JdbcTemplate jdbcTemplate, int age, int partitionCount, String outputFilePrefix) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.age = age;
+        this.partitionCount = partitionCount;
+        this.outputFilePrefix = outputFilePrefix;
+    }
+
+    @Override
+    @NonNull
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        int count = partitionCount > 0 ? partitionCount : Math.max(gridSize, 1);
+
+        long[] bounds = jdbcTemplate.queryForObject(
+                "select min(id), max(id) from customer where age >= ?",
+                (rs, rowNum) -> {
+                    long min = rs.getLong(1);
+                    return rs.wasNull() ? null : new long[]{min, rs.getLong(2)};
+                },
+                age);
+
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>(count);
+        long rangeSize = bounds == null ? 0 : ((bounds[1] - bounds[0]) / count) + 1;
+
+        for (int i = 0; i < count; i++) {
+            ExecutionContext context = new ExecutionContext();
+            long maxId;
+            long minId;
+            if (bounds == null) {
+                // 조회 대상이 없으면 빈 범위
+                minId = 1;
+                maxId = 0;
+            } else {
+                maxId = bounds[1] - (rangeSize * i);
+                minId = Math.max(bounds[0], maxId - rangeSize + 1);
+                if (maxId < bounds[0]) {
+                    minId = 1;
+                    maxId = 0;
+                }
+            }
+            context.putLong(MIN_ID, minId);
+            context.putLong(MAX_ID, maxId);
+            context.putInt(PARTITION_INDEX, i);
+            context.putString(OUTPUT_FILE, outputFile(outputFilePrefix, i));
+            partitions.put("partition" + i, context);
+            log.info("partition{}: id {} ~ {}", i, minId, maxId);
+        }
+        return partitions;
+    }
+
+    /**
+     * 파티션별 출력 파일 경로, merge step 에서도 같은 규칙으로 파일을 찾는다.
+     */
+    public static String outputFile(String prefix, int partitionIndex) {
+        return prefix + ".partition" + partitionIndex + ".csv";
+    }
+}
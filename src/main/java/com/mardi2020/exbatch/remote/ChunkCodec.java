@@ -0,0 +1,233 @@
+package com.mardi2020.exbatch.remote;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * chunk 요청 / 응답의 binary 형식 (Java 직렬화 미사용)
+ * <pre>
+ * frame    := length(int) type(1) payload
+ * request  := sequence(long) count(varint) customer*
+ * customer := flags(1: id, name, gender 존재 여부) [id(varlong)] [name(string)] age(zigzag varint) [gender(string)]
+ * response := sequence(long) writeCount(varint) filterCount(varint) hasError(1) [error(string)]
+ *             aggregateCount(varint) (key(string) value(zigzag varint))*
+ * string   := length(varint) UTF-8
+ * </pre>
+ * Customer 한 건은 보통 10~20 byte 다.
+ */
+public final class ChunkCodec {
+
+    static final byte REQUEST = 1;
+
+    static final byte RESPONSE = 2;
+
+    private static final int HAS_ID = 1;
+
+    private static final int HAS_NAME = 1 << 1;
+
+    private static final int HAS_GENDER = 1 << 2;
+
+    private ChunkCodec() {
+    }
+
+    public static byte[] encode(ChunkRequest request) {
+        Output output = new Output(16 + request.items().size() * 24);
+        output.writeByte(REQUEST);
+        output.writeLong(request.sequence());
+        output.writeVarLong(request.items().size());
+        for (Customer customer : request.items()) {
+            int flags = (customer.getId() != null ? HAS_ID : 0)
+                    | (customer.getName() != null ? HAS_NAME : 0)
+                    | (customer.getGender() != null ? HAS_GENDER : 0);
+            output.writeByte(flags);
+            if (customer.getId() != null) {
+                output.writeVarLong(customer.getId());
+            }
+            if (customer.getName() != null) {
+                output.writeString(customer.getName());
+            }
+            output.writeVarLong(zigzag(customer.getAge()));
+            if (customer.getGender() != null) {
+                output.writeString(customer.getGender());
+            }
+        }
+        return output.toByteArray();
+    }
+
+    public static byte[] encode(ChunkResponse response) {
+        Output output = new Output(32);
+        output.writeByte(RESPONSE);
+        output.writeLong(response.sequence());
+        output.writeVarLong(response.writeCount());
+        output.writeVarLong(response.filterCount());
+        output.writeByte(response.error() == null ? 0 : 1);
+        if (response.error() != null) {
+            output.writeString(response.error());
+        }
+        output.writeVarLong(response.aggregate().size());
+        for (Map.Entry<String, Long> entry : response.aggregate().entrySet()) {
+            output.writeString(entry.getKey());
+            output.writeVarLong(zigzag(entry.getValue()));
+        }
+        return output.toByteArray();
+    }
+
+    public static ChunkRequest decodeRequest(byte[] frame) {
+        Input input = new Input(frame, REQUEST);
+        long sequence = input.readLong();
+        int count = (int) input.readVarLong();
+        List<Customer> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int flags = input.readByte();
+            Customer customer = new Customer();
+            if ((flags & HAS_ID) != 0) {
+                customer.setId(input.readVarLong());
+            }
+            if ((flags & HAS_NAME) != 0) {
+                customer.setName(input.readString());
+            }
+            customer.setAge((int) unzigzag(input.readVarLong()));
+            if ((flags & HAS_GENDER) != 0) {
+                customer.setGender(input.readString());
+            }
+            items.add(customer);
+        }
+        return new ChunkRequest(sequence, items);
+    }
+
+    public static ChunkResponse decodeResponse(byte[] frame) {
+        Input input = new Input(frame, RESPONSE);
+        long sequence = input.readLong();
+        int writeCount = (int) input.readVarLong();
+        int filterCount = (int) input.readVarLong();
+        String error = input.readByte() == 0 ? null : input.readString();
+        int aggregateCount = (int) input.readVarLong();
+        Map<String, Long> aggregate = new LinkedHashMap<>(aggregateCount * 2);
+        for (int i = 0; i < aggregateCount; i++) {
+            aggregate.put(input.readString(), unzigzag(input.readVarLong()));
+        }
+        return new ChunkResponse(sequence, writeCount, filterCount, error, aggregate);
+    }
+
+    static void writeFrame(DataOutputStream out, byte[] frame) throws IOException {
+        out.writeInt(frame.length);
+        out.write(frame);
+        out.flush();
+    }
+
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        byte[] frame = new byte[in.readInt()];
+        in.readFully(frame);
+        return frame;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Output {
+
+        private byte[] bytes;
+
+        private int length;
+
+        private Output(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        private void ensure(int size) {
+            if (length + size > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + size));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            bytes[length++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private void writeString(String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(encoded.length);
+            ensure(encoded.length);
+            System.arraycopy(encoded, 0, bytes, length, encoded.length);
+            length += encoded.length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] bytes;
+
+        private int position;
+
+        private Input(byte[] bytes, byte expectedType) {
+            this.bytes = bytes;
+            if (readByte() != expectedType) {
+                throw new IllegalArgumentException("잘못된 메시지 타입: " + bytes[0]);
+            }
+        }
+
+        private int readByte() {
+            return bytes[position++] & 0xFF;
+        }
+
+        private long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        private String readString() {
+            int size = (int) readVarLong();
+            String value = new String(bytes, position, size, StandardCharsets.UTF_8);
+            position += size;
+            return value;
+        }
+    }
+}
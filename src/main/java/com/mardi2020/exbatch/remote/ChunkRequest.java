@@ -0,0 +1,12 @@
+package com.mardi2020.exbatch.remote;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.util.List;
+
+/**
+ * manager 가 worker 로 보내는 chunk
+ *
+ * @param sequence transport 안에서 유일한 번호, 응답과 짝을 맞춘다.
+ */
+public record ChunkRequest(long sequence, List<Customer> items) {
+}
@@ -0,0 +1,25 @@
+package com.mardi2020.exbatch.remote;
+
+import java.util.Map;
+
+/**
+ * worker 가 chunk 를 처리한 결과
+ *
+ * @param error 실패 시 예외 메시지, 성공이면 null
+ * @param aggregate 이 chunk 에서 worker 가 집계한 값 (GroupAggregator 가 publish 한 long 값, ex. TOTAL.COUNT), 없으면 빈 map
+ */
+public record ChunkResponse(long sequence, int writeCount, int filterCount, String error,
+                            Map<String, Long> aggregate) {
+
+    public ChunkResponse(long sequence, int writeCount, int filterCount, String error) {
+        this(sequence, writeCount, filterCount, error, Map.of());
+    }
+
+    public static ChunkResponse failed(long sequence, String error) {
+        return new ChunkResponse(sequence, 0, 0, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.mardi2020.exbatch.remote;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * manager 와 worker 사이에 chunk 를 주고받는 통로
+ * 요청은 바로 보내고, 응답은 worker 가 처리를 끝내면 future 로 받는다.
+ */
+public interface ChunkTransport extends AutoCloseable {
+
+    CompletableFuture<ChunkResponse> send(ChunkRequest request);
+
+    /**
+     * @return 요청을 나눠 받는 worker 수
+     */
+    int getWorkerCount();
+
+    @Override
+    void close();
+}
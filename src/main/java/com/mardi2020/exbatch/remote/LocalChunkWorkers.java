@@ -0,0 +1,52 @@
+package com.mardi2020.exbatch.remote;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * manager JVM 안에 loopback TCP worker 를 count 개 띄운다.
+ * 별도 프로세스 없이 한 장비에서 worker 수에 따른 처리량을 비교할 때 사용한다.
+ */
+public class LocalChunkWorkers implements InitializingBean, DisposableBean {
+
+    private final int count;
+
+    private final IntFunction<RemoteChunkHandler> handlerFactory;
+
+    private final List<RemoteChunkWorker> workers = new ArrayList<>();
+
+    /**
+     * @param handlerFactory worker 번호(0 부터)로 handler 를 만든다.
+     */
+    public LocalChunkWorkers(int count, IntFunction<RemoteChunkHandler> handlerFactory) {
+        this.count = count;
+        this.handlerFactory = handlerFactory;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        for (int i = 0; i < count; i++) {
+            RemoteChunkWorker worker = new RemoteChunkWorker(handlerFactory.apply(i),
+                    InetAddress.getLoopbackAddress(), 0, true);
+            worker.afterPropertiesSet();
+            workers.add(worker);
+        }
+    }
+
+    public List<InetSocketAddress> getAddresses() {
+        return workers.stream().map(RemoteChunkWorker::getAddress).toList();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (RemoteChunkWorker worker : workers) {
+            worker.destroy();
+        }
+        workers.clear();
+    }
+}
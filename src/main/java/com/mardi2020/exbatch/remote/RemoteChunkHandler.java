@@ -0,0 +1,117 @@
+package com.mardi2020.exbatch.remote;
+
+import com.mardi2020.exbatch.chunk.aggregate.GroupAggregator;
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * worker 에서 받은 chunk 를 processor -> writer 로 처리하는 handler
+ * chunk 하나를 트랜잭션 하나로 처리하고, 실패하면 rollback 후 예외 메시지를 응답으로 돌려준다.
+ * writer 는 ItemStream 이면 worker 가 떠 있는 동안 열어둔다. (worker 쪽 재시작 상태는 저장하지 않는다)
+ * writer 가 한 스레드 전용인 경우가 많으므로 chunk 는 한 번에 하나씩 처리한다.
+ * processor 가 채우는 {@link GroupAggregator} 를 주면 chunk 마다 집계값을 응답에 실어 보내고 초기화한다.
+ * (manager 가 합쳐서 footer 를 쓴다, {@link RemoteChunkItemWriter#setAggregator(GroupAggregator)})
+ */
+@Slf4j
+public class RemoteChunkHandler {
+
+    private final ItemProcessor<Customer, Customer> processor;
+
+    private final ItemWriter<Customer> writer;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final GroupAggregator<Customer> aggregator;
+
+    public RemoteChunkHandler(ItemProcessor<Customer, Customer> processor, ItemWriter<Customer> writer,
+                              PlatformTransactionManager transactionManager) {
+        this(processor, writer, transactionManager, null);
+    }
+
+    /**
+     * @param aggregator processor 가 누적하는 집계기, 없으면 null
+     */
+    public RemoteChunkHandler(ItemProcessor<Customer, Customer> processor, ItemWriter<Customer> writer,
+                              PlatformTransactionManager transactionManager, GroupAggregator<Customer> aggregator) {
+        this.processor = processor;
+        this.writer = writer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.aggregator = aggregator;
+    }
+
+    public void open() {
+        if (writer instanceof ItemStream stream) {
+            stream.open(new ExecutionContext());
+        }
+    }
+
+    public void close() {
+        if (writer instanceof ItemStream stream) {
+            stream.close();
+        }
+    }
+
+    public synchronized ChunkResponse handle(ChunkRequest request) {
+        try {
+            return transactionTemplate.execute(status -> process(request));
+        } catch (RuntimeException e) {
+            Throwable cause = e instanceof ChunkFailedException ? e.getCause() : e;
+            log.warn("remote chunk 처리 실패: sequence={}", request.sequence(), cause);
+            return ChunkResponse.failed(request.sequence(), cause.toString());
+        }
+    }
+
+    private ChunkResponse process(ChunkRequest request) {
+        if (aggregator != null) {
+            // 실패한 chunk 의 집계값이 다음 chunk 에 섞이지 않도록 chunk 마다 새로 시작한다.
+            aggregator.reset();
+        }
+        try {
+            List<Customer> outputs = new ArrayList<>(request.items().size());
+            for (Customer item : request.items()) {
+                Customer output = processor.process(item);
+                if (output != null) {
+                    outputs.add(output);
+                }
+            }
+            writer.write(new Chunk<>(outputs));
+            return new ChunkResponse(request.sequence(), outputs.size(),
+                    request.items().size() - outputs.size(), null, aggregate());
+        } catch (Exception e) {
+            throw new ChunkFailedException(e);
+        }
+    }
+
+    private Map<String, Long> aggregate() {
+        if (aggregator == null) {
+            return Map.of();
+        }
+        ExecutionContext published = new ExecutionContext();
+        aggregator.publish(published);
+        Map<String, Long> aggregate = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : published.entrySet()) {
+            if (entry.getValue() instanceof Long value) {
+                aggregate.put(entry.getKey(), value);
+            }
+        }
+        return aggregate;
+    }
+
+    private static class ChunkFailedException extends RuntimeException {
+
+        ChunkFailedException(Exception cause) {
+            super(cause);
+        }
+    }
+}
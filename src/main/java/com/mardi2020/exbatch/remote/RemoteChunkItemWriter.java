@@ -0,0 +1,137 @@
+package com.mardi2020.exbatch.remote;
+
+import com.mardi2020.exbatch.chunk.aggregate.GroupAggregator;
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.lang.NonNull;
+
+/**
+ * manager step 의 writer 로, chunk 를 처리하지 않고 {@link ChunkTransport} 로 worker 에 보낸다. (remote chunking)
+ * 응답을 기다리지 않고 다음 chunk 를 읽으며, 응답을 기다리는 chunk 가 throttleLimit 개가 되면 가장 오래된 응답을 기다린다.
+ * worker 가 실패를 응답하면 다음 write 에서 예외를 던져 step 을 실패시킨다.
+ * afterStep 에서 남은 응답을 모두 기다리고, worker 에서 filter 된 수를 StepExecution 의 write / filter 수에 반영한다.
+ * manager 의 commit 은 worker 의 처리 완료를 보장하지 않으므로 worker 쪽 결과는 재시작으로 복구되지 않는다.
+ * {@link #setAggregator(GroupAggregator)} 를 지정하면 응답에 실려 온 worker 의 chunk 집계값을 합친다.
+ * step listener 로도 등록해야 한다. 집계기보다 나중에 등록해야 afterStep 에서 남은 응답까지 합친 뒤 집계기가 publish 한다.
+ */
+@Slf4j
+public class RemoteChunkItemWriter implements ItemWriter<Customer>, StepExecutionListener {
+
+    private final ChunkTransport transport;
+
+    private final int throttleLimit;
+
+    private final Duration replyTimeout;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Deque<CompletableFuture<ChunkResponse>> inFlight = new ArrayDeque<>();
+
+    private long filtered;
+
+    private GroupAggregator<?> aggregator;
+
+    /**
+     * @param throttleLimit 응답을 기다리는 최대 chunk 수
+     * @param replyTimeout 응답 하나를 기다리는 최대 시간
+     */
+    public RemoteChunkItemWriter(ChunkTransport transport, int throttleLimit, Duration replyTimeout) {
+        this.transport = transport;
+        this.throttleLimit = throttleLimit;
+        this.replyTimeout = replyTimeout;
+    }
+
+    /**
+     * worker 가 보낸 집계값을 합칠 집계기 (worker 와 같은 groupName / aggregations)
+     */
+    public void setAggregator(GroupAggregator<?> aggregator) {
+        this.aggregator = aggregator;
+    }
+
+    @Override
+    public void beforeStep(@NonNull StepExecution stepExecution) {
+        inFlight.clear();
+        filtered = 0;
+    }
+
+    @Override
+    public void write(@NonNull Chunk<? extends Customer> chunk) throws Exception {
+        collectCompleted();
+        while (inFlight.size() >= throttleLimit) {
+            check(await(inFlight.pollFirst()));
+        }
+        inFlight.addLast(transport.send(new ChunkRequest(sequence.incrementAndGet(), new ArrayList<>(chunk.getItems()))));
+    }
+
+    @Override
+    public ExitStatus afterStep(@NonNull StepExecution stepExecution) {
+        try {
+            while (!inFlight.isEmpty()) {
+                check(await(inFlight.pollFirst()));
+            }
+        } catch (Exception e) {
+            log.error("remote chunk 응답 실패: {}", stepExecution.getStepName(), e);
+            inFlight.clear();
+            stepExecution.setStatus(BatchStatus.FAILED);
+            stepExecution.addFailureException(e);
+            return ExitStatus.FAILED.addExitDescription(e);
+        }
+        stepExecution.setWriteCount(stepExecution.getWriteCount() - filtered);
+        stepExecution.setFilterCount(stepExecution.getFilterCount() + filtered);
+        log.info("remote chunk 완료: {} (workers={}, worker filter={})", stepExecution.getStepName(),
+                transport.getWorkerCount(), filtered);
+        return null;
+    }
+
+    private void collectCompleted() throws Exception {
+        while (!inFlight.isEmpty() && inFlight.peekFirst().isDone()) {
+            check(await(inFlight.pollFirst()));
+        }
+    }
+
+    private ChunkResponse await(CompletableFuture<ChunkResponse> future) throws Exception {
+        try {
+            return future.get(replyTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (TimeoutException e) {
+            throw new TimeoutException("remote chunk 응답 대기 시간 초과: " + replyTimeout);
+        }
+    }
+
+    private void check(ChunkResponse response) {
+        if (!response.isSuccess()) {
+            throw new RemoteChunkFailedException(
+                    "worker 처리 실패: sequence=" + response.sequence() + ", " + response.error());
+        }
+        filtered += response.filterCount();
+        if (aggregator != null && !response.aggregate().isEmpty()) {
+            ExecutionContext published = new ExecutionContext();
+            response.aggregate().forEach(published::putLong);
+            aggregator.merge(published);
+        }
+    }
+
+    public static class RemoteChunkFailedException extends RuntimeException {
+
+        public RemoteChunkFailedException(String message) {
+            super(message);
+        }
+    }
+}
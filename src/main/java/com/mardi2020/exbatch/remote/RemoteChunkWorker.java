@@ -0,0 +1,111 @@
+package com.mardi2020.exbatch.remote;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * manager 의 chunk 요청을 TCP 로 받아 {@link RemoteChunkHandler} 로 처리하고 결과를 돌려주는 worker
+ * 연결마다 스레드 하나가 요청을 순서대로 처리한다.
+ * daemon 이 아니면 수신 스레드가 JVM 을 살려두므로 worker 전용 프로세스로 띄울 수 있다.
+ */
+@Slf4j
+public class RemoteChunkWorker implements InitializingBean, DisposableBean {
+
+    private final RemoteChunkHandler handler;
+
+    private final InetAddress bindAddress;
+
+    private final int port;
+
+    private final boolean daemon;
+
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    private ServerSocket serverSocket;
+
+    /**
+     * @param port 수신 포트, 0 이면 비어 있는 포트를 사용한다.
+     * @param daemon 수신 스레드를 daemon 으로 띄울지 여부
+     */
+    public RemoteChunkWorker(RemoteChunkHandler handler, InetAddress bindAddress, int port, boolean daemon) {
+        this.handler = handler;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.daemon = daemon;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        handler.open();
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(bindAddress, port));
+        Thread acceptor = new Thread(this::accept, "remote-chunk-worker-" + getAddress().getPort());
+        acceptor.setDaemon(daemon);
+        acceptor.start();
+        log.info("remote chunk worker 시작: {}", getAddress());
+    }
+
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) serverSocket.getLocalSocketAddress();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                client.setTcpNoDelay(true);
+                clients.add(client);
+                Thread thread = new Thread(() -> serve(client),
+                        "remote-chunk-worker-" + getAddress().getPort() + "-" + client.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("remote chunk worker accept 실패", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream(), 64 * 1024));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()))) {
+            while (true) {
+                ChunkRequest request = ChunkCodec.decodeRequest(ChunkCodec.readFrame(in));
+                ChunkCodec.writeFrame(out, ChunkCodec.encode(handler.handle(request)));
+            }
+        } catch (EOFException e) {
+            log.info("manager 연결 종료: {}", client.getRemoteSocketAddress());
+        } catch (IOException e) {
+            if (!serverSocket.isClosed()) {
+                log.warn("manager 연결 오류: {}", client.getRemoteSocketAddress(), e);
+            }
+        } finally {
+            clients.remove(client);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        serverSocket.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+        handler.close();
+        log.info("remote chunk worker 종료: {}", getAddress());
+    }
+}
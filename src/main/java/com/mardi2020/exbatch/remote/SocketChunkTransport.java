@@ -0,0 +1,169 @@
+package com.mardi2020.exbatch.remote;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * TCP socket 으로 worker 들에게 chunk 를 round-robin 으로 보내는 transport
+ * worker 마다 연결 하나를 두고, 응답은 연결별 수신 스레드가 sequence 로 찾아 future 를 완료한다.
+ * 연결은 처음 보낼 때 맺고, worker 가 아직 떠 있지 않으면 connectTimeout 동안 다시 시도한다.
+ * 연결이 끊기면 그 연결로 보낸 요청의 future 는 예외로 완료된다.
+ */
+@Slf4j
+public class SocketChunkTransport implements ChunkTransport {
+
+    private static final long RETRY_INTERVAL_MILLIS = 200;
+
+    private final List<Connection> connections = new ArrayList<>();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Duration connectTimeout;
+
+    public SocketChunkTransport(List<InetSocketAddress> workers, Duration connectTimeout) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("worker 주소가 없습니다.");
+        }
+        for (InetSocketAddress worker : workers) {
+            connections.add(new Connection(worker));
+        }
+        this.connectTimeout = connectTimeout;
+    }
+
+    @Override
+    public CompletableFuture<ChunkResponse> send(ChunkRequest request) {
+        Connection connection = connections.get(Math.floorMod(next.getAndIncrement(), connections.size()));
+        return connection.send(request);
+    }
+
+    @Override
+    public int getWorkerCount() {
+        return connections.size();
+    }
+
+    @Override
+    public void close() {
+        connections.forEach(Connection::close);
+    }
+
+    private final class Connection {
+
+        private final InetSocketAddress address;
+
+        private final Map<Long, CompletableFuture<ChunkResponse>> pending = new ConcurrentHashMap<>();
+
+        private Socket socket;
+
+        private DataOutputStream out;
+
+        private Connection(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        private synchronized CompletableFuture<ChunkResponse> send(ChunkRequest request) {
+            CompletableFuture<ChunkResponse> future = new CompletableFuture<>();
+            try {
+                connect();
+                pending.put(request.sequence(), future);
+                ChunkCodec.writeFrame(out, ChunkCodec.encode(request));
+            } catch (IOException e) {
+                pending.remove(request.sequence());
+                future.completeExceptionally(new IOException("worker 전송 실패: " + address, e));
+                disconnect();
+            }
+            return future;
+        }
+
+        private void connect() throws IOException {
+            if (socket != null) {
+                return;
+            }
+            long deadline = System.nanoTime() + connectTimeout.toNanos();
+            while (true) {
+                try {
+                    Socket connected = new Socket();
+                    connected.setTcpNoDelay(true);
+                    connected.connect(address, (int) connectTimeout.toMillis());
+                    socket = connected;
+                    break;
+                } catch (IOException e) {
+                    if (System.nanoTime() > deadline) {
+                        throw e;
+                    }
+                    sleepBeforeRetry();
+                }
+            }
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+            Socket receiving = socket;
+            Thread receiver = new Thread(() -> receive(receiving, in), "remote-chunk-reply-" + address.getPort());
+            receiver.setDaemon(true);
+            receiver.start();
+            log.info("remote chunk worker 연결: {}", address);
+        }
+
+        private void receive(Socket receiving, DataInputStream in) {
+            try {
+                while (!receiving.isClosed()) {
+                    ChunkResponse response = ChunkCodec.decodeResponse(ChunkCodec.readFrame(in));
+                    CompletableFuture<ChunkResponse> future = pending.remove(response.sequence());
+                    if (future != null) {
+                        future.complete(response);
+                    }
+                }
+            } catch (IOException e) {
+                if (!receiving.isClosed()) {
+                    log.warn("remote chunk worker 연결 끊김: {}", address, e);
+                }
+            } finally {
+                IOException closed = new IOException("worker 연결이 끊겼습니다: " + address);
+                pending.values().forEach(future -> future.completeExceptionally(closed));
+                pending.clear();
+                synchronized (this) {
+                    if (socket == receiving) {
+                        disconnect();
+                    }
+                }
+            }
+        }
+
+        private synchronized void disconnect() {
+            if (socket == null) {
+                return;
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("socket close 실패: {}", address, e);
+            }
+            socket = null;
+            out = null;
+        }
+
+        private void close() {
+            disconnect();
+        }
+
+        private void sleepBeforeRetry() throws IOException {
+            try {
+                Thread.sleep(RETRY_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("worker 연결 대기 중 인터럽트: " + address, e);
+            }
+        }
+    }
+}
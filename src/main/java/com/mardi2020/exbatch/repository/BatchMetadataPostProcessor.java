@@ -0,0 +1,56 @@
+package com.mardi2020.exbatch.repository;
+
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.lang.NonNull;
+
+/**
+ * 배치 설정이 만든 JobRepository / JobExplorer 를 메타데이터 설정에 맞게 바꾼다.
+ * - in-memory 저장소를 쓰면 {@link InMemoryBatchMetadata} 의 JobRepository / JobExplorer 로 교체한다.
+ * - flush 설정이 있으면 JobRepository 를 {@link CoalescingStepUpdateInterceptor} 로 감싼다.
+ */
+@Slf4j
+public class BatchMetadataPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<InMemoryBatchMetadata> inMemoryBatchMetadata;
+
+    private final int flushChunks;
+
+    private final Duration flushInterval;
+
+    public BatchMetadataPostProcessor(ObjectProvider<InMemoryBatchMetadata> inMemoryBatchMetadata,
+                                      int flushChunks, Duration flushInterval) {
+        this.inMemoryBatchMetadata = inMemoryBatchMetadata;
+        this.flushChunks = flushChunks;
+        this.flushInterval = flushInterval;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+        if (bean instanceof JobRepository jobRepository) {
+            InMemoryBatchMetadata inMemory = inMemoryBatchMetadata.getIfAvailable();
+            return coalesce(inMemory != null ? inMemory.getJobRepository() : jobRepository);
+        }
+        if (bean instanceof JobExplorer) {
+            InMemoryBatchMetadata inMemory = inMemoryBatchMetadata.getIfAvailable();
+            return inMemory != null ? inMemory.getJobExplorer() : bean;
+        }
+        return bean;
+    }
+
+    private JobRepository coalesce(JobRepository jobRepository) {
+        if (!CoalescingStepUpdateInterceptor.isEnabled(flushChunks, flushInterval)) {
+            return jobRepository;
+        }
+        log.info("batch metadata: step update 를 {} chunk / {} 마다 flush", flushChunks, flushInterval);
+        ProxyFactory proxyFactory = new ProxyFactory(jobRepository);
+        proxyFactory.addInterface(JobRepository.class);
+        proxyFactory.addAdvice(new CoalescingStepUpdateInterceptor(flushChunks, flushInterval));
+        return (JobRepository) proxyFactory.getProxy();
+    }
+}
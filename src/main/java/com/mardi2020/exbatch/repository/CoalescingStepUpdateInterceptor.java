@@ -0,0 +1,135 @@
+package com.mardi2020.exbatch.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.lang.NonNull;
+
+/**
+ * JobRepository 의 chunk 마다 호출되는 step 메타데이터 쓰기를 모아서 N chunk 또는 T 시간마다 한 번만 쓰는 interceptor
+ * TaskletStep 은 commit 마다 update(StepExecution)(BATCH_STEP_EXECUTION) 과
+ * updateExecutionContext(StepExecution)(BATCH_STEP_EXECUTION_CONTEXT) 을 호출하는데,
+ * step 이 실행 중(STARTED)인 동안에는 이를 건너뛰고, flush 시점에 현재 StepExecution 상태를 한 번에 쓴다.
+ * 첫 update 와 step 이 끝날 때(COMPLETED / FAILED / STOPPED 등) 의 쓰기는 그대로 실행되므로 최종 상태는 항상 저장된다.
+ * 별도 스레드 없이 호출 시점에만 판단하므로 시간 조건도 다음 chunk commit 때 반영된다.
+ *
+ * step 이 실패로 끝나도 종료 시점의 상태는 쓰이지만, 프로세스가 비정상 종료(kill, OOM 등)되면 재시작 단위가
+ * chunk 에서 flush 단위로 커진다. 마지막 flush 이후 commit 된 chunk 는 재시작 때 다시 처리되므로,
+ * writer 가 멱등이 아니면 중복이 생길 수 있다. 외부에서 요청한 stop 도 flush 때 감지된다.
+ */
+public class CoalescingStepUpdateInterceptor implements MethodInterceptor {
+
+    private final int flushChunks;
+
+    private final long flushIntervalNanos;
+
+    private final Map<Long, PendingUpdate> pending = new ConcurrentHashMap<>();
+
+    private final Counter stepWritten = counter("step", "written");
+
+    private final Counter stepDeferred = counter("step", "deferred");
+
+    private final Counter contextWritten = counter("context", "written");
+
+    private final Counter contextDeferred = counter("context", "deferred");
+
+    /**
+     * @param flushChunks 0 이면 chunk 수로는 flush 하지 않는다.
+     * @param flushInterval 0 이면 시간으로는 flush 하지 않는다.
+     */
+    public CoalescingStepUpdateInterceptor(int flushChunks, Duration flushInterval) {
+        this.flushChunks = flushChunks;
+        this.flushIntervalNanos = flushInterval.toNanos();
+    }
+
+    public static boolean isEnabled(int flushChunks, Duration flushInterval) {
+        return flushChunks > 1 || !flushInterval.isZero();
+    }
+
+    @Override
+    public Object invoke(@NonNull MethodInvocation invocation) throws Throwable {
+        Object[] arguments = invocation.getArguments();
+        if (arguments.length != 1 || !(arguments[0] instanceof StepExecution stepExecution)
+                || stepExecution.getId() == null) {
+            return invocation.proceed();
+        }
+        String method = invocation.getMethod().getName();
+        boolean context = "updateExecutionContext".equals(method);
+        if (!context && !"update".equals(method)) {
+            return invocation.proceed();
+        }
+
+        if (stepExecution.getStatus() != BatchStatus.STARTED) {
+            // step 종료 / 중지: 모아둔 것과 상관없이 바로 쓴다.
+            if (!context) {
+                pending.remove(stepExecution.getId());
+            }
+            return written(invocation, context);
+        }
+
+        PendingUpdate update = pending.computeIfAbsent(stepExecution.getId(), id -> new PendingUpdate());
+        synchronized (update) {
+            if (!update.started) {
+                // STARTED 상태를 처음 기록하는 update 는 바로 쓴다.
+                update.started = !context;
+                update.lastFlushNanos = System.nanoTime();
+                return written(invocation, context);
+            }
+            if (context) {
+                update.contextDirty = true;
+                contextDeferred.increment();
+                return null;
+            }
+            update.chunks++;
+            if (!update.isDue(System.nanoTime())) {
+                stepDeferred.increment();
+                return null;
+            }
+            if (update.contextDirty) {
+                ((JobRepository) invocation.getThis()).updateExecutionContext(stepExecution);
+                contextWritten.increment();
+            }
+            update.chunks = 0;
+            update.contextDirty = false;
+            update.lastFlushNanos = System.nanoTime();
+            return written(invocation, false);
+        }
+    }
+
+    private Object written(MethodInvocation invocation, boolean context) throws Throwable {
+        Object result = invocation.proceed();
+        (context ? contextWritten : stepWritten).increment();
+        return result;
+    }
+
+    private static Counter counter(String type, String result) {
+        return Counter.builder("batch.metadata.updates")
+                .description("step metadata writes (written) and writes merged into a later flush (deferred)")
+                .tag("type", type)
+                .tag("result", result)
+                .register(Metrics.globalRegistry);
+    }
+
+    private final class PendingUpdate {
+
+        private boolean started;
+
+        private boolean contextDirty;
+
+        private int chunks;
+
+        private long lastFlushNanos;
+
+        private boolean isDue(long now) {
+            return (flushChunks > 0 && chunks >= flushChunks)
+                    || (flushIntervalNanos > 0 && now - lastFlushNanos >= flushIntervalNanos);
+        }
+    }
+}
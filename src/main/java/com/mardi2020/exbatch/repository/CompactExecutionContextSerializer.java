@@ -0,0 +1,243 @@
+package com.mardi2020.exbatch.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.dao.DefaultExecutionContextSerializer;
+import org.springframework.lang.NonNull;
+
+/**
+ * ExecutionContext 를 타입 태그 + varint 로 직렬화하는 serializer
+ * ExecutionContext 에는 주로 reader/writer 의 read.count, offset 같은 숫자와 짧은 문자열이 들어가는데,
+ * 기본 serializer(Java 직렬화 HashMap + Base64) 는 클래스 정보까지 쓰므로 값보다 메타데이터가 훨씬 크다.
+ *
+ * <pre>
+ * context := '#' base64(version(1) count(varint) entry*)
+ * entry   := key(string) tag(1) value
+ * string  := length(varint) UTF-8
+ * </pre>
+ * JdbcExecutionContextDao 가 결과를 UTF-8 문자열로 저장하므로 binary 는 Base64 로 감싼다.
+ * 문자열 / 숫자 / boolean / Date 외의 값은 Java 직렬화로 넣는다.
+ * '#' 로 시작하지 않는 기존 context(기본 serializer 로 저장된 것) 는 기본 serializer 로 읽으므로 설정을 바꿔도 재시작할 수 있다.
+ */
+public class CompactExecutionContextSerializer implements ExecutionContextSerializer {
+
+    private static final int PREFIX = '#';
+
+    private static final int VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BOOLEAN_TRUE = 5;
+    private static final byte BOOLEAN_FALSE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte SHORT = 8;
+    private static final byte BYTE = 9;
+    private static final byte DATE = 10;
+    private static final byte SERIALIZED = 11;
+
+    private final DefaultExecutionContextSerializer fallback = new DefaultExecutionContextSerializer();
+
+    @Override
+    public void serialize(@NonNull Map<String, Object> context, @NonNull OutputStream out) throws IOException {
+        Output buffer = new Output();
+        buffer.write(VERSION);
+        buffer.writeVarLong(context.size());
+        for (Map.Entry<String, Object> entry : context.entrySet()) {
+            buffer.writeString(entry.getKey());
+            writeValue(buffer, entry.getKey(), entry.getValue());
+        }
+        out.write(PREFIX);
+        out.write(Base64.getEncoder().encode(buffer.toByteArray()));
+    }
+
+    @Override
+    @NonNull
+    public Map<String, Object> deserialize(@NonNull InputStream in) throws IOException {
+        PushbackInputStream input = new PushbackInputStream(in, 1);
+        int first = input.read();
+        if (first != PREFIX) {
+            if (first >= 0) {
+                input.unread(first);
+            }
+            return fallback.deserialize(input);
+        }
+        Input buffer = new Input(Base64.getDecoder().decode(input.readAllBytes()));
+        int version = buffer.read();
+        if (version != VERSION) {
+            throw new IOException("지원하지 않는 ExecutionContext 버전입니다: " + version);
+        }
+        int count = (int) buffer.readVarLong();
+        Map<String, Object> context = new HashMap<>(Math.max(16, count * 2));
+        for (int i = 0; i < count; i++) {
+            String key = buffer.readString();
+            context.put(key, readValue(buffer));
+        }
+        return context;
+    }
+
+    private static void writeValue(Output out, String key, Object value) throws IOException {
+        if (value == null) {
+            out.write(NULL);
+        } else if (value instanceof String string) {
+            out.write(STRING);
+            out.writeString(string);
+        } else if (value instanceof Integer number) {
+            out.write(INTEGER);
+            out.writeVarLong(zigzag(number));
+        } else if (value instanceof Long number) {
+            out.write(LONG);
+            out.writeVarLong(zigzag(number));
+        } else if (value instanceof Double number) {
+            out.write(DOUBLE);
+            out.writeVarLong(Double.doubleToRawLongBits(number));
+        } else if (value instanceof Boolean bool) {
+            out.write(bool ? BOOLEAN_TRUE : BOOLEAN_FALSE);
+        } else if (value instanceof Float number) {
+            out.write(FLOAT);
+            out.writeVarLong(Float.floatToRawIntBits(number) & 0xFFFFFFFFL);
+        } else if (value instanceof Short number) {
+            out.write(SHORT);
+            out.writeVarLong(zigzag(number));
+        } else if (value instanceof Byte number) {
+            out.write(BYTE);
+            out.write(number);
+        } else if (value.getClass() == Date.class) {
+            out.write(DATE);
+            out.writeVarLong(zigzag(((Date) value).getTime()));
+        } else if (value instanceof Serializable) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+                objectOut.writeObject(value);
+            }
+            out.write(SERIALIZED);
+            out.writeLengthPrefixed(bytes.toByteArray());
+        } else {
+            throw new IllegalArgumentException("ExecutionContext 값은 Serializable 이어야 합니다: "
+                    + key + " (" + value.getClass().getName() + ")");
+        }
+    }
+
+    private static Object readValue(Input in) throws IOException {
+        byte tag = (byte) in.read();
+        return switch (tag) {
+            case NULL -> null;
+            case STRING -> in.readString();
+            case INTEGER -> (int) unzigzag(in.readVarLong());
+            case LONG -> unzigzag(in.readVarLong());
+            case DOUBLE -> Double.longBitsToDouble(in.readVarLong());
+            case BOOLEAN_TRUE -> Boolean.TRUE;
+            case BOOLEAN_FALSE -> Boolean.FALSE;
+            case FLOAT -> Float.intBitsToFloat((int) in.readVarLong());
+            case SHORT -> (short) unzigzag(in.readVarLong());
+            case BYTE -> (byte) in.read();
+            case DATE -> new Date(unzigzag(in.readVarLong()));
+            case SERIALIZED -> {
+                try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(in.readLengthPrefixed()))) {
+                    yield objectIn.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("ExecutionContext 값의 클래스를 찾을 수 없습니다.", e);
+                }
+            }
+            default -> throw new IOException("알 수 없는 ExecutionContext 값 태그입니다: " + tag);
+        };
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        Output() {
+            super(128);
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeLengthPrefixed(byte[] bytes) {
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeString(String value) {
+            writeLengthPrefixed(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] data;
+
+        private int position;
+
+        Input(byte[] data) {
+            this.data = data;
+        }
+
+        int read() throws IOException {
+            if (position >= data.length) {
+                throw new IOException("ExecutionContext 데이터가 잘렸습니다.");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("잘못된 varint 입니다.");
+        }
+
+        byte[] readLengthPrefixed() throws IOException {
+            int length = (int) readVarLong();
+            if (length < 0 || position + length > data.length) {
+                throw new IOException("ExecutionContext 데이터가 잘렸습니다.");
+            }
+            byte[] bytes = new byte[length];
+            System.arraycopy(data, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+
+        String readString() throws IOException {
+            int length = (int) readVarLong();
+            if (length < 0 || position + length > data.length) {
+                throw new IOException("ExecutionContext 데이터가 잘렸습니다.");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
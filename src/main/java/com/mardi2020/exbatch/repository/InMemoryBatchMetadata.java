@@ -0,0 +1,69 @@
+package com.mardi2020.exbatch.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+
+/**
+ * 업무 DataSource 와 분리된 in-memory H2 에 배치 메타데이터를 두는 JobRepository / JobExplorer
+ * 메타데이터 쓰기가 업무 DB 의 commit 과 커넥션 풀을 쓰지 않는 대신, 프로세스가 끝나면 실행 이력이 사라지므로
+ * 실패한 job 을 다음 실행에서 재시작할 수 없다. 매번 처음부터 다시 돌려도 되는 job 에만 사용한다.
+ * DataSource 를 bean 으로 등록하지 않으므로 업무 DataSource 자동 설정에는 영향이 없다.
+ */
+@Slf4j
+public class InMemoryBatchMetadata implements DisposableBean {
+
+    private final EmbeddedDatabase dataSource;
+
+    private final JobRepository jobRepository;
+
+    private final JobExplorer jobExplorer;
+
+    public InMemoryBatchMetadata(ExecutionContextSerializer serializer) throws Exception {
+        this.dataSource = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("classpath:org/springframework/batch/core/schema-h2.sql")
+                .build();
+        JdbcTransactionManager transactionManager = new JdbcTransactionManager(dataSource);
+
+        JobRepositoryFactoryBean repositoryFactory = new JobRepositoryFactoryBean();
+        repositoryFactory.setDataSource(dataSource);
+        repositoryFactory.setTransactionManager(transactionManager);
+        repositoryFactory.setDatabaseType(DatabaseType.H2.name());
+        repositoryFactory.setSerializer(serializer);
+        repositoryFactory.afterPropertiesSet();
+        this.jobRepository = repositoryFactory.getObject();
+
+        JobExplorerFactoryBean explorerFactory = new JobExplorerFactoryBean();
+        explorerFactory.setDataSource(dataSource);
+        explorerFactory.setTransactionManager(transactionManager);
+        explorerFactory.setSerializer(serializer);
+        explorerFactory.afterPropertiesSet();
+        this.jobExplorer = explorerFactory.getObject();
+
+        log.info("batch metadata: in-memory H2 (재시작 불가)");
+    }
+
+    public JobRepository getJobRepository() {
+        return jobRepository;
+    }
+
+    public JobExplorer getJobExplorer() {
+        return jobExplorer;
+    }
+
+    @Override
+    public void destroy() {
+        dataSource.shutdown();
+    }
+}
@@ -0,0 +1,123 @@
+package com.mardi2020.exbatch.tasklet;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.file.FlatFileFooterCallback;
+import org.springframework.batch.item.file.FlatFileHeaderCallback;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.NonNull;
+
+/**
+ * 파티션 step 들이 만든 파일을 순서대로 하나의 파일로 이어붙이는 Tasklet
+ * 문자열로 다시 읽지 않고 FileChannel.transferTo 로 바이트 그대로 복사한다.
+ * header/footer callback 을 지정하면 FlatFileItemWriter 와 같은 형식(header + 개행, 본문, footer)으로 앞뒤에 붙인다.
+ */
+@Slf4j
+public class FileMergeTasklet implements Tasklet {
+
+    private final List<Resource> sources;
+
+    private final Resource target;
+
+    private final boolean deleteSources;
+
+    private FlatFileHeaderCallback headerCallback;
+
+    private FlatFileFooterCallback footerCallback;
+
+    private Charset encoding = StandardCharsets.UTF_8;
+
+    /**
+     * @param sources 이어붙일 파일 목록 (순서 유지)
+     * @param target 최종 출력 파일
+     * @param deleteSources 병합 후 원본 파일 삭제 여부
+     */
+    public FileMergeTasklet(List<Resource> sources, Resource target, boolean deleteSources) {
+        this.sources = sources;
+        this.target = target;
+        this.deleteSources = deleteSources;
+    }
+
+    public void setHeaderCallback(FlatFileHeaderCallback headerCallback) {
+        this.headerCallback = headerCallback;
+    }
+
+    public void setFooterCallback(FlatFileFooterCallback footerCallback) {
+        this.footerCallback = footerCallback;
+    }
+
+    public void setEncoding(Charset encoding) {
+        this.encoding = encoding;
+    }
+
+    @Override
+    public RepeatStatus execute(@NonNull StepContribution contribution,
+                                @NonNull ChunkContext chunkContext) throws Exception {
+        Path targetPath = target.getFile().toPath();
+        if (targetPath.getParent() != null) {
+            Files.createDirectories(targetPath.getParent());
+        }
+
+        long totalBytes = 0;
+        try (FileChannel out = FileChannel.open(targetPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (headerCallback != null) {
+                StringWriter header = new StringWriter();
+                headerCallback.writeHeader(header);
+                header.write(System.lineSeparator());
+                write(header.toString(), out);
+            }
+            for (Resource source : sources) {
+                totalBytes += transfer(source.getFile().toPath(), out);
+            }
+            if (footerCallback != null) {
+                StringWriter footer = new StringWriter();
+                footerCallback.writeFooter(footer);
+                write(footer.toString(), out);
+            }
+        }
+        log.info("{} 개 파일 병합 완료: {} ({} bytes)", sources.size(), targetPath, totalBytes);
+
+        if (deleteSources) {
+            for (Resource source : sources) {
+                Files.deleteIfExists(source.getFile().toPath());
+            }
+        }
+        return RepeatStatus.FINISHED;
+    }
+
+    private void write(String text, FileChannel out) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(encoding));
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+    private long transfer(Path source, FileChannel out) throws IOException {
+        if (!Files.exists(source)) {
+            log.warn("병합 대상 파일이 없습니다: {}", source);
+            return 0;
+        }
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.mardi2020.exbatch.throttle;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.lang.NonNull;
+
+/**
+ * DataSource 가 내주는 커넥션의 statement 실행(execute*) 을 {@link StepThrottle} 에 알리는 interceptor
+ * step context 가 있는 스레드에서 실행할 때만 query permit 을 가져가고 실행 시간을 기록한다.
+ * (job 시작 / 종료 메타데이터 등 step 밖의 query 는 제한하지 않는다)
+ * executeBatch 는 한 번의 query 로 센다. cursor reader 의 fetch 는 execute 에 포함되지 않으므로 세지 않는다.
+ */
+public class QueryThrottleInterceptor implements MethodInterceptor {
+
+    private final StepThrottle throttle;
+
+    public QueryThrottleInterceptor(StepThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    @Override
+    public Object invoke(@NonNull MethodInvocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        if ("getConnection".equals(invocation.getMethod().getName()) && result instanceof Connection connection) {
+            return proxy(Connection.class, (method, args) -> {
+                Object value = invoke(connection, method, args);
+                return value instanceof Statement statement && Statement.class.isAssignableFrom(method.getReturnType())
+                        ? throttled(method.getReturnType(), statement)
+                        : value;
+            });
+        }
+        return result;
+    }
+
+    private Object throttled(Class<?> type, Statement statement) {
+        return proxy(type, (method, args) -> {
+            if (!method.getName().startsWith("execute") || StepSynchronizationManager.getContext() == null) {
+                return invoke(statement, method, args);
+            }
+            throttle.acquireQuery();
+            long start = System.nanoTime();
+            try {
+                return invoke(statement, method, args);
+            } finally {
+                throttle.recordQuery(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private static Object proxy(Class<?> type, Handler handler) {
+        return Proxy.newProxyInstance(QueryThrottleInterceptor.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if ("unwrap".equals(method.getName()) && ((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    return handler.handle(method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private interface Handler {
+
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+}
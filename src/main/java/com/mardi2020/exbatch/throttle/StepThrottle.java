@@ -0,0 +1,302 @@
+package com.mardi2020.exbatch.throttle;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.lang.NonNull;
+
+/**
+ * 운영 DB 를 같이 쓰는 chunk step 의 속도를 제한하는 listener
+ * - read item 수와 query 수를 각각 token bucket 으로 초당 상한 이하로 맞춘다.
+ *   query 는 {@link QueryThrottleInterceptor} 가 step 스레드의 statement 실행마다 permit 을 가져간다.
+ * - adaptive 이면 chunk 가 끝날 때 adjustInterval 마다 직전 구간의 평균 query 실행 시간과 풀의 커넥션 대기 스레드 수를 보고
+ *   목표를 넘으면 상한에 곱하는 비율을 줄이고(x{@value #DECREASE}), 아니면 조금씩 늘린다(+{@value #INCREASE}). (AIMD)
+ *   비율은 minFactor 아래로 내려가지 않는다. 비율은 상한에 곱하므로 상한이 하나도 없으면 조절하지 않는다. (시작할 때 경고)
+ * - 상한과 목표는 JMX({@link StepThrottleMXBean}) 로 실행 중에 바꿀 수 있다.
+ * 대기 시간은 batch.throttle.wait{type=items|queries}, 현재 비율은 batch.throttle.factor 로 기록한다.
+ * step 에는 {@link #registerListeners(SimpleStepBuilder)} 로 등록한다. 여러 step / 스레드가 같은 한도를 나눠 쓴다.
+ */
+@Slf4j
+public class StepThrottle implements StepThrottleMXBean, ItemReadListener<Object>, ChunkListener,
+        InitializingBean, DisposableBean {
+
+    static final String OBJECT_NAME = "com.mardi2020.exbatch:type=StepThrottle";
+
+    static final double DECREASE = 0.7;
+
+    static final double INCREASE = 0.05;
+
+    private final TokenBucket items = new TokenBucket(0);
+
+    private final TokenBucket queries = new TokenBucket(0);
+
+    private final LongAdder queryCount = new LongAdder();
+
+    private final LongAdder queryNanos = new LongAdder();
+
+    private final Timer itemWait;
+
+    private final Timer queryWait;
+
+    private final double minFactor;
+
+    private final long adjustIntervalNanos;
+
+    private volatile double itemsPerSecond;
+
+    private volatile double queriesPerSecond;
+
+    private volatile boolean adaptive;
+
+    private volatile long targetQueryLatencyNanos;
+
+    private volatile int maxPendingConnections;
+
+    private volatile double factor = 1.0;
+
+    private volatile double queryLatencyMillis;
+
+    private volatile IntSupplier pendingConnections = () -> -1;
+
+    private long lastAdjust = System.nanoTime();
+
+    /**
+     * @param minFactor adaptive 조절로 내려갈 수 있는 상한 대비 최소 비율 (0 ~ 1)
+     * @param adjustInterval 비율을 다시 계산하는 최소 간격
+     */
+    public StepThrottle(double itemsPerSecond, double queriesPerSecond, boolean adaptive,
+                        Duration targetQueryLatency, int maxPendingConnections,
+                        double minFactor, Duration adjustInterval) {
+        this.itemsPerSecond = itemsPerSecond;
+        this.queriesPerSecond = queriesPerSecond;
+        this.adaptive = adaptive;
+        this.targetQueryLatencyNanos = targetQueryLatency.toNanos();
+        this.maxPendingConnections = maxPendingConnections;
+        this.minFactor = Math.max(0.01, Math.min(1.0, minFactor));
+        this.adjustIntervalNanos = adjustInterval.toNanos();
+        this.itemWait = waitTimer("items");
+        this.queryWait = waitTimer("queries");
+        Gauge.builder("batch.throttle.factor", this, StepThrottle::getFactor)
+                .description("throttle 상한에 곱하는 현재 비율")
+                .register(Metrics.globalRegistry);
+        applyRates();
+    }
+
+    /**
+     * 커넥션 풀의 대기 스레드 수를 읽는 방법 (Hikari 풀이면 {@link StepThrottlePostProcessor} 가 설정한다)
+     */
+    public void setPendingConnections(IntSupplier pendingConnections) {
+        this.pendingConnections = pendingConnections;
+    }
+
+    /**
+     * step builder 에 read / chunk listener 로 등록한다.
+     */
+    public <I, O> SimpleStepBuilder<I, O> registerListeners(SimpleStepBuilder<I, O> builder) {
+        builder.listener((ItemReadListener<Object>) this);
+        builder.listener((ChunkListener) this);
+        return builder;
+    }
+
+    @Override
+    public void beforeRead() {
+        record(itemWait, items.acquire(1));
+    }
+
+    @Override
+    public void afterChunk(@NonNull ChunkContext context) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (now - lastAdjust < adjustIntervalNanos) {
+                return;
+            }
+            lastAdjust = now;
+        }
+        adjust();
+    }
+
+    /**
+     * statement 를 실행하기 전에 호출한다.
+     */
+    void acquireQuery() {
+        record(queryWait, queries.acquire(1));
+    }
+
+    /**
+     * statement 실행 시간
+     */
+    void recordQuery(long nanos) {
+        queryCount.increment();
+        queryNanos.add(nanos);
+    }
+
+    /**
+     * 직전 구간의 query latency 와 커넥션 대기 수로 비율을 다시 정한다.
+     */
+    synchronized void adjust() {
+        long count = queryCount.sumThenReset();
+        long nanos = queryNanos.sumThenReset();
+        queryLatencyMillis = count == 0 ? 0 : (double) nanos / count / TimeUnit.MILLISECONDS.toNanos(1);
+        if (!adaptive || !hasLimit()) {
+            return;
+        }
+
+        int pending = getPendingConnections();
+        boolean slow = count > 0 && nanos / count > targetQueryLatencyNanos;
+        boolean congested = pending > maxPendingConnections;
+        double next = slow || congested ? Math.max(minFactor, factor * DECREASE) : Math.min(1.0, factor + INCREASE);
+        if (next != factor) {
+            if (next < factor) {
+                log.info("throttle 비율 {} -> {} (query latency {} ms, 커넥션 대기 {})",
+                        String.format("%.2f", factor), String.format("%.2f", next),
+                        String.format("%.1f", queryLatencyMillis), pending);
+            }
+            factor = next;
+            applyRates();
+        }
+    }
+
+    private boolean hasLimit() {
+        return itemsPerSecond > 0 || queriesPerSecond > 0;
+    }
+
+    private synchronized void applyRates() {
+        double ratio = adaptive ? factor : 1.0;
+        items.setRate(itemsPerSecond > 0 ? itemsPerSecond * ratio : 0);
+        queries.setRate(queriesPerSecond > 0 ? queriesPerSecond * ratio : 0);
+    }
+
+    @Override
+    public double getItemsPerSecond() {
+        return itemsPerSecond;
+    }
+
+    @Override
+    public void setItemsPerSecond(double itemsPerSecond) {
+        log.info("throttle items/sec 상한 변경: {} -> {}", this.itemsPerSecond, itemsPerSecond);
+        this.itemsPerSecond = itemsPerSecond;
+        applyRates();
+    }
+
+    @Override
+    public double getQueriesPerSecond() {
+        return queriesPerSecond;
+    }
+
+    @Override
+    public void setQueriesPerSecond(double queriesPerSecond) {
+        log.info("throttle queries/sec 상한 변경: {} -> {}", this.queriesPerSecond, queriesPerSecond);
+        this.queriesPerSecond = queriesPerSecond;
+        applyRates();
+    }
+
+    @Override
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    @Override
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        applyRates();
+    }
+
+    @Override
+    public long getTargetQueryLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(targetQueryLatencyNanos);
+    }
+
+    @Override
+    public void setTargetQueryLatencyMillis(long targetQueryLatencyMillis) {
+        this.targetQueryLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetQueryLatencyMillis);
+    }
+
+    @Override
+    public int getMaxPendingConnections() {
+        return maxPendingConnections;
+    }
+
+    @Override
+    public void setMaxPendingConnections(int maxPendingConnections) {
+        this.maxPendingConnections = maxPendingConnections;
+    }
+
+    @Override
+    public double getFactor() {
+        return factor;
+    }
+
+    @Override
+    public double getCurrentItemsPerSecond() {
+        return items.getRate();
+    }
+
+    @Override
+    public double getCurrentQueriesPerSecond() {
+        return queries.getRate();
+    }
+
+    @Override
+    public double getQueryLatencyMillis() {
+        return queryLatencyMillis;
+    }
+
+    @Override
+    public int getPendingConnections() {
+        return pendingConnections.getAsInt();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+        log.info("step throttle: items/sec={}, queries/sec={}, adaptive={} (JMX {})",
+                itemsPerSecond, queriesPerSecond, adaptive, OBJECT_NAME);
+        if (!hasLimit()) {
+            log.warn("step throttle 상한이 없어 속도를 제한하지 않습니다.{} "
+                            + "exbatch.throttle.items-per-second 또는 queries-per-second 를 지정하세요.",
+                    adaptive ? " adaptive 조절도 상한에 비율을 곱하는 방식이라 동작하지 않습니다." : "");
+        }
+    }
+
+    @Override
+    public void destroy() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+    }
+
+    private static void record(Timer timer, long waitNanos) {
+        if (waitNanos > 0) {
+            timer.record(waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer waitTimer(String type) {
+        return Timer.builder("batch.throttle.wait")
+                .description("throttle 로 기다린 시간")
+                .tag("type", type)
+                .register(Metrics.globalRegistry);
+    }
+}
@@ -0,0 +1,56 @@
+package com.mardi2020.exbatch.throttle;
+
+/**
+ * 실행 중에 JMX(jconsole, jmxterm 등) 로 {@link StepThrottle} 의 한도를 확인하고 바꾸기 위한 인터페이스
+ * ObjectName: com.mardi2020.exbatch:type=StepThrottle
+ */
+public interface StepThrottleMXBean {
+
+    /**
+     * 초당 read item 수 상한, 0 이하이면 제한하지 않는다.
+     */
+    double getItemsPerSecond();
+
+    void setItemsPerSecond(double itemsPerSecond);
+
+    /**
+     * 초당 query(statement 실행) 수 상한, 0 이하이면 제한하지 않는다.
+     */
+    double getQueriesPerSecond();
+
+    void setQueriesPerSecond(double queriesPerSecond);
+
+    /**
+     * query latency / 커넥션 대기 수를 보고 상한보다 낮게 조절할지
+     */
+    boolean isAdaptive();
+
+    void setAdaptive(boolean adaptive);
+
+    long getTargetQueryLatencyMillis();
+
+    void setTargetQueryLatencyMillis(long targetQueryLatencyMillis);
+
+    int getMaxPendingConnections();
+
+    void setMaxPendingConnections(int maxPendingConnections);
+
+    /**
+     * 상한에 곱하는 현재 비율 (minFactor ~ 1)
+     */
+    double getFactor();
+
+    double getCurrentItemsPerSecond();
+
+    double getCurrentQueriesPerSecond();
+
+    /**
+     * 마지막 조절 구간의 평균 query 실행 시간
+     */
+    double getQueryLatencyMillis();
+
+    /**
+     * 풀에서 커넥션을 기다리는 스레드 수, Hikari 풀이 아니거나 시작 전이면 -1
+     */
+    int getPendingConnections();
+}
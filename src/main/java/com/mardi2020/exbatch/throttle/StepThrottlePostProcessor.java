@@ -0,0 +1,48 @@
+package com.mardi2020.exbatch.throttle;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.lang.NonNull;
+
+/**
+ * DataSource bean 을 {@link QueryThrottleInterceptor} 가 적용된 proxy 로 감싸고,
+ * Hikari 풀이면 커넥션 대기 스레드 수를 {@link StepThrottle} 에 연결한다. (DataSource 가 하나라고 가정한다)
+ * unwrap / isWrapperFor 는 원래 DataSource 로 전달된다.
+ */
+@Slf4j
+public class StepThrottlePostProcessor implements BeanPostProcessor {
+
+    private final StepThrottle throttle;
+
+    public StepThrottlePostProcessor(StepThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+        if (!(bean instanceof DataSource dataSource)) {
+            return bean;
+        }
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+                throttle.setPendingConnections(() -> {
+                    // 풀은 처음 커넥션을 요청할 때 시작된다.
+                    HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+                    return pool == null ? -1 : pool.getThreadsAwaitingConnection();
+                });
+            }
+        } catch (SQLException e) {
+            log.warn("DataSource [{}] 의 커넥션 풀을 확인하지 못해 커넥션 대기 수는 보지 않습니다.", beanName, e);
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addInterface(DataSource.class);
+        proxyFactory.addAdvice(new QueryThrottleInterceptor(throttle));
+        return proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,82 @@
+package com.mardi2020.exbatch.throttle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 초당 rate 개씩 permit 이 채워지는 token bucket
+ * 쓰지 않은 permit 은 1초 분량까지 모아둘 수 있다. (잠시 쉬었다가 다시 시작할 때의 burst)
+ * permit 이 모자라면 먼저 빌려 쓰고(잔량이 음수가 된다) 빌린 만큼 기다리므로, 기다리는 스레드끼리 도착 순서대로 나눠 쓴다.
+ * rate 가 0 이하이면 제한하지 않는다. rate 는 실행 중에 바꿀 수 있다.
+ * 시간은 nanoClock 으로 읽는다. (기본 System.nanoTime, 테스트에서는 고정된 시계를 넣는다)
+ */
+public class TokenBucket {
+
+    private static final double BURST_SECONDS = 1.0;
+
+    private double permitsPerSecond;
+
+    private double maxStored;
+
+    private double stored;
+
+    private final LongSupplier nanoClock;
+
+    private long lastRefill;
+
+    public TokenBucket(double permitsPerSecond) {
+        this(permitsPerSecond, System::nanoTime);
+    }
+
+    TokenBucket(double permitsPerSecond, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.lastRefill = nanoClock.getAsLong();
+        setRate(permitsPerSecond);
+    }
+
+    public synchronized double getRate() {
+        return permitsPerSecond;
+    }
+
+    public synchronized void setRate(double permitsPerSecond) {
+        refill(nanoClock.getAsLong());
+        this.permitsPerSecond = permitsPerSecond;
+        this.maxStored = Math.max(1, permitsPerSecond * BURST_SECONDS);
+        this.stored = Math.min(stored, maxStored);
+    }
+
+    /**
+     * permit 을 얻을 때까지 기다린다. 기다리는 중에 interrupt 되면 interrupt 상태를 남기고 바로 돌아온다.
+     * @return 기다린 시간 (ns)
+     */
+    public long acquire(int permits) {
+        long wait = reserve(permits);
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return wait;
+    }
+
+    /**
+     * permit 을 가져가고, 그 permit 이 채워질 때까지 남은 시간을 돌려준다.
+     */
+    synchronized long reserve(int permits) {
+        if (permitsPerSecond <= 0) {
+            return 0;
+        }
+        refill(nanoClock.getAsLong());
+        stored -= permits;
+        return stored >= 0 ? 0 : (long) (-stored / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private void refill(long now) {
+        if (permitsPerSecond > 0) {
+            stored = Math.min(maxStored, stored + (now - lastRefill) * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        }
+        lastRefill = now;
+    }
+}
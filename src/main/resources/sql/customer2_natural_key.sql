@@ -0,0 +1,9 @@
+-- 이미 만들어진 customer2 에 natural key unique index 를 추가한다. (exbatch.jdbc-batch.writer=upsert)
+-- 지금까지 중복 적재된 row 는 id 가 가장 작은 것만 남긴다.
+delete c
+from testdb.customer2 c
+         join testdb.customer2 d
+              on c.name = d.name and c.age = d.age and c.gender = d.gender and c.id > d.id;
+
+alter table testdb.customer2
+    add unique key uk_customer2_natural (name, age, gender);
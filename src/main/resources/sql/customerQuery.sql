@@ -4,4 +4,4 @@ create table testdb.customer2
     name   varchar(100) null,
     age    int          null,
     gender varchar(10)  null
-);
\ No newline at end of file
+);
@@ -0,0 +1,10 @@
+-- customer 에 natural key unique index 를 추가한다. (exbatch.jpa-item.writer=upsert)
+-- index 가 있으면 다른 writer 모드로 같은 row 를 다시 적재할 때 중복 key 오류가 나므로 upsert 로만 적재할 때 적용한다.
+-- 지금까지 중복 적재된 row 는 id 가 가장 작은 것만 남긴다.
+delete c
+from testdb.customer c
+         join testdb.customer d
+              on c.name = d.name and c.age = d.age and c.gender = d.gender and c.id > d.id;
+
+alter table testdb.customer
+    add unique key uk_customer_natural (name, age, gender);
@@ -0,0 +1,18 @@
+-- H2 / HSQLDB / Derby 용 natural key unique index (MySQL 은 customer_natural_key.sql, customer2_natural_key.sql)
+-- upsert writer 로 적재할 테이블에만 적용한다. index 가 없으면 MERGE / NOT EXISTS 의 존재 확인이 full scan 이 된다.
+-- 지금까지 중복 적재된 row 는 id 가 가장 작은 것만 남긴다.
+DELETE FROM customer2
+WHERE EXISTS (SELECT 1
+              FROM customer2 d
+              WHERE d.name = customer2.name AND d.age = customer2.age AND d.gender = customer2.gender
+                AND d.id < customer2.id);
+
+CREATE UNIQUE INDEX uk_customer2_natural ON customer2 (name, age, gender);
+
+DELETE FROM customer
+WHERE EXISTS (SELECT 1
+              FROM customer d
+              WHERE d.name = customer.name AND d.age = customer.age AND d.gender = customer.gender
+                AND d.id < customer.id);
+
+CREATE UNIQUE INDEX uk_customer_natural ON customer (name, age, gender);
@@ -0,0 +1,104 @@
+package com.mardi2020.exbatch.chunk.aggregate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mardi2020.exbatch.chunk.AggregateCustomerProcessor;
+import com.mardi2020.exbatch.chunk.data.Customer;
+import com.mardi2020.exbatch.chunk.reader.CustomerCsvItemReader;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileItemWriter;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileItemWriter.Field;
+import com.mardi2020.exbatch.repository.InMemoryBatchMetadata;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.dao.DefaultExecutionContextSerializer;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.core.io.FileSystemResource;
+
+class CustomerAggregateFooterCallbackTest {
+
+    @TempDir
+    Path directory;
+
+    private boolean failOnLastItem = true;
+
+    @Test
+    void footerTotalsCoverItemsCommittedBeforeRestart() throws Exception {
+        Path input = directory.resolve("customer.csv");
+        Files.writeString(input, "A,20,Male\nB,30,Female\nC,40,Male\nD,50,Female\nE,60,Male\n");
+        Path output = directory.resolve("out.csv");
+
+        InMemoryBatchMetadata metadata = new InMemoryBatchMetadata(new DefaultExecutionContextSerializer());
+        try {
+            TaskExecutorJobLauncher jobLauncher = new TaskExecutorJobLauncher();
+            jobLauncher.setJobRepository(metadata.getJobRepository());
+            jobLauncher.afterPropertiesSet();
+
+            // 마지막 chunk 에서 E 를 집계한 뒤 실패한다. 앞의 두 chunk(A ~ D) 는 commit 되어 있다.
+            assertThat(jobLauncher.run(job(metadata.getJobRepository(), input, output), new JobParameters())
+                    .getStatus()).isEqualTo(BatchStatus.FAILED);
+
+            failOnLastItem = false;
+            assertThat(jobLauncher.run(job(metadata.getJobRepository(), input, output), new JobParameters())
+                    .getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        } finally {
+            metadata.destroy();
+        }
+
+        // 재시작한 step 은 E 만 읽지만 footer 는 commit 된 집계값에서 이어서 센 전체 합계다.
+        assertThat(Files.readAllLines(output, StandardCharsets.UTF_8)).containsExactly(
+                "NAME,AGE", "A,20", "B,30", "C,40", "D,50", "E,60", "총 고객 수: 5", "총 나이: 200");
+    }
+
+    /**
+     * FlatFileItemJobConfig.flatFileStep 과 같은 방식으로 집계기 / footer 를 등록한다.
+     */
+    private Job job(JobRepository jobRepository, Path input, Path output) {
+        GroupAggregator<Customer> aggregator = new GroupAggregator<>(
+                "gender", Customer::getGender, Customer::getAge, EnumSet.allOf(Aggregation.class));
+        CustomerAggregateFooterCallback footerCallback = new CustomerAggregateFooterCallback();
+        AggregateCustomerProcessor aggregateProcessor = new AggregateCustomerProcessor(aggregator);
+        ItemProcessor<Customer, Customer> processor = item -> {
+            Customer processed = aggregateProcessor.process(item);
+            if (failOnLastItem && "E".equals(item.getName())) {
+                throw new IllegalStateException("boom");
+            }
+            return processed;
+        };
+
+        CustomerCsvItemReader reader = new CustomerCsvItemReader(
+                new FileSystemResource(input), StandardCharsets.UTF_8, ',');
+        reader.setName("reader");
+        CustomerFileItemWriter writer = new CustomerFileItemWriter(new FileSystemResource(output), Field.NAME, Field.AGE);
+        writer.setName("writer");
+        writer.setCharset(StandardCharsets.UTF_8);
+        writer.setDelimiter(",");
+        writer.setHeaderCallback(header -> header.write("NAME,AGE"));
+        writer.setFooterCallback(footerCallback);
+
+        Step step = new StepBuilder("flatFileStep", jobRepository)
+                .<Customer, Customer>chunk(2, new ResourcelessTransactionManager())
+                .reader(reader)
+                .processor(processor)
+                .writer(writer)
+                .stream(aggregator)
+                .listener(aggregator)
+                .listener(footerCallback)
+                .build();
+        return new JobBuilder("footerRestartJob", jobRepository)
+                .start(step)
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+package com.mardi2020.exbatch.chunk.aggregate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.util.EnumSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+
+class GroupAggregatorTest {
+
+    @Test
+    void aggregatesWithoutLosingUpdatesAcrossThreads() throws Exception {
+        GroupAggregator<Customer> aggregator = new GroupAggregator<>(
+                "gender", Customer::getGender, Customer::getAge, EnumSet.allOf(Aggregation.class));
+        Customer male = customer(30, "Male");
+        Customer female = customer(40, "Female");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    aggregator.accumulate(i % 2 == 0 ? male : female);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        ExecutionContext context = new ExecutionContext();
+        aggregator.publish(context);
+
+        assertThat(context.getLong("TOTAL.COUNT")).isEqualTo(40_000);
+        assertThat(context.getLong("TOTAL.SUM")).isEqualTo(20_000 * 30 + 20_000 * 40);
+        assertThat(context.getLong("TOTAL.MIN")).isEqualTo(30);
+        assertThat(context.getLong("TOTAL.MAX")).isEqualTo(40);
+        assertThat(context.getLong("gender.Male.COUNT")).isEqualTo(20_000);
+        assertThat(context.getDouble("gender.Female.AVG")).isEqualTo(40.0);
+    }
+
+    @Test
+    void mergesPublishedPartitionsAndResumesFromCommittedValues() {
+        GroupAggregator<Customer> partition0 = aggregator();
+        partition0.accumulate(customer(20, "Male"));
+        partition0.accumulate(customer(50, "Female"));
+        GroupAggregator<Customer> partition1 = aggregator();
+        partition1.accumulate(customer(30, "Male"));
+        ExecutionContext context0 = new ExecutionContext();
+        partition0.publish(context0);
+        ExecutionContext context1 = new ExecutionContext();
+        partition1.publish(context1);
+        context1.putLong("partitionCsvItemReader.read.count", 1);
+
+        GroupAggregator<Customer> merged = aggregator();
+        merged.merge(context0);
+        merged.merge(context1);
+        ExecutionContext result = new ExecutionContext();
+        merged.publish(result);
+
+        assertThat(result.getLong("TOTAL.COUNT")).isEqualTo(3);
+        assertThat(result.getLong("TOTAL.SUM")).isEqualTo(100);
+        assertThat(result.getLong("TOTAL.MIN")).isEqualTo(20);
+        assertThat(result.getLong("TOTAL.MAX")).isEqualTo(50);
+        assertThat(result.getLong("gender.Male.COUNT")).isEqualTo(2);
+        assertThat(result.getDouble("gender.Male.AVG")).isEqualTo(25.0);
+
+        // 재시작: beforeStep 에서 초기화한 뒤 open 에서 commit 된 값부터 이어서 누적한다.
+        GroupAggregator<Customer> restarted = aggregator();
+        restarted.reset();
+        restarted.open(context0);
+        restarted.accumulate(customer(40, "Male"));
+        ExecutionContext updated = new ExecutionContext();
+        restarted.update(updated);
+        assertThat(updated.getLong("TOTAL.COUNT")).isEqualTo(3);
+        assertThat(updated.getLong("TOTAL.SUM")).isEqualTo(110);
+        assertThat(updated.getLong("gender.Female.MAX")).isEqualTo(50);
+    }
+
+    private GroupAggregator<Customer> aggregator() {
+        return new GroupAggregator<>("gender", Customer::getGender, Customer::getAge, EnumSet.allOf(Aggregation.class));
+    }
+
+    private Customer customer(int age, String gender) {
+        Customer customer = new Customer();
+        customer.setName("name");
+        customer.setAge(age);
+        customer.setGender(gender);
+        return customer;
+    }
+}
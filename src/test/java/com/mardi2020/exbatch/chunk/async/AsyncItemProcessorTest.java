@@ -0,0 +1,68 @@
+package com.mardi2020.exbatch.chunk.async;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+class AsyncItemProcessorTest {
+
+    @Test
+    void writesResultsInReadOrderAndSkipsFilteredItems() throws Exception {
+        AsyncItemProcessor<Integer, Integer> processor = new AsyncItemProcessor<>(item -> {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(5));
+            return item % 3 == 0 ? null : item * 10;
+        }, new SimpleAsyncTaskExecutor(), 4);
+        List<Integer> written = new ArrayList<>();
+        AsyncItemWriter<Integer> writer = new AsyncItemWriter<>(chunk -> written.addAll(chunk.getItems()));
+
+        Chunk<Future<Integer>> chunk = new Chunk<>();
+        for (int i = 1; i <= 10; i++) {
+            chunk.add(processor.process(i));
+        }
+        writer.write(chunk);
+
+        assertThat(written).containsExactly(10, 20, 40, 50, 70, 80, 100);
+    }
+
+    @Test
+    void limitsInFlightItems() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AsyncItemProcessor<Integer, Integer> processor = new AsyncItemProcessor<>(item -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(10);
+            running.decrementAndGet();
+            return item;
+        }, new SimpleAsyncTaskExecutor(), 2);
+
+        Chunk<Future<Integer>> chunk = new Chunk<>();
+        for (int i = 0; i < 8; i++) {
+            chunk.add(processor.process(i));
+        }
+        new AsyncItemWriter<Integer>(items -> { }).write(chunk);
+
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void rethrowsProcessorException() throws Exception {
+        AsyncItemProcessor<Integer, Integer> processor = new AsyncItemProcessor<>(item -> {
+            throw new IllegalStateException("lookup failed");
+        }, new SimpleAsyncTaskExecutor(), 1);
+
+        Chunk<Future<Integer>> chunk = new Chunk<>();
+        chunk.add(processor.process(1));
+
+        assertThatThrownBy(() -> new AsyncItemWriter<Integer>(items -> { }).write(chunk))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("lookup failed");
+    }
+}
@@ -0,0 +1,157 @@
+package com.mardi2020.exbatch.chunk.columnar;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.core.io.FileSystemResource;
+
+class CustomerColumnarItemWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesRowGroupsReadableByReader() throws Exception {
+        Path file = directory.resolve("out.ccol");
+        CustomerColumnarItemWriter writer = writer(file, 2);
+        ExecutionContext executionContext = new ExecutionContext();
+        writer.open(executionContext);
+        writer.write(Chunk.of(customer("Alice", 28, "Female"), customer(null, 34, "Male"),
+                customer("김철수", 41, null)));
+        writer.update(executionContext);
+        writer.write(Chunk.of(customer("Bob", -3, "Male")));
+        writer.update(executionContext);
+        writer.close();
+
+        CustomerColumnarItemReader reader = new CustomerColumnarItemReader(new FileSystemResource(file));
+        assertThat(readAll(reader)).extracting(Customer::getName, Customer::getAge, Customer::getGender)
+                .containsExactly(
+                        tuple("Alice", 28, "Female"),
+                        tuple(null, 34, "Male"),
+                        tuple("김철수", 41, null),
+                        tuple("Bob", -3, "Male"));
+        assertThat(Files.exists(Path.of(file + ".pending0"))).isFalse();
+    }
+
+    @Test
+    void restartResumesFromLastCommittedRowGroup() throws Exception {
+        Path file = directory.resolve("restart.ccol");
+        ExecutionContext executionContext = new ExecutionContext();
+
+        CustomerColumnarItemWriter writer = writer(file, 2);
+        writer.open(executionContext);
+        writer.write(Chunk.of(customer("A", 1, "Male"), customer("B", 2, "Female"), customer("C", 3, "Male")));
+        writer.update(executionContext);
+        ExecutionContext committed = new ExecutionContext(executionContext);
+        writer.write(Chunk.of(customer("D", 4, "Male"), customer("E", 5, "Male")));
+        writer.update(executionContext);
+        // 두 번째 chunk 의 commit 전에 step 이 실패해서 닫힌다.
+        closeAfterFailure(writer);
+
+        CustomerColumnarItemWriter restarted = writer(file, 2);
+        restarted.open(committed);
+        restarted.write(Chunk.of(customer("D2", 4, "Female")));
+        restarted.update(committed);
+        restarted.close();
+
+        CustomerColumnarItemReader reader = new CustomerColumnarItemReader(new FileSystemResource(file));
+        assertThat(readAll(reader)).extracting(Customer::getName).containsExactly("A", "B", "C", "D2");
+        assertThat(reader.getTotalRows()).isEqualTo(4);
+    }
+
+    @Test
+    void appendKeepsExistingRowGroups() throws Exception {
+        Path file = directory.resolve("append.ccol");
+        CustomerColumnarItemWriter writer = writer(file, 2);
+        writer.open(new ExecutionContext());
+        writer.write(Chunk.of(customer("A", 1, "Male"), customer("B", 2, "Female"), customer("C", 3, "Male")));
+        writer.close();
+
+        CustomerColumnarItemWriter appender = writer(file, 2);
+        appender.setAppend(true);
+        appender.open(new ExecutionContext());
+        appender.write(Chunk.of(customer("D", 4, "Female")));
+        appender.close();
+
+        CustomerColumnarItemReader reader = new CustomerColumnarItemReader(new FileSystemResource(file));
+        assertThat(readAll(reader)).extracting(Customer::getName).containsExactly("A", "B", "C", "D");
+        assertThat(reader.getTotalRows()).isEqualTo(4);
+    }
+
+    @Test
+    void readerRestartSkipsRowGroups() throws Exception {
+        Path file = directory.resolve("skip.ccol");
+        CustomerColumnarItemWriter writer = writer(file, 3);
+        writer.open(new ExecutionContext());
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            customers.add(customer("name" + i, i, i % 2 == 0 ? "Male" : "Female"));
+        }
+        writer.write(new Chunk<>(customers));
+        writer.close();
+
+        ExecutionContext executionContext = new ExecutionContext();
+        CustomerColumnarItemReader reader = new CustomerColumnarItemReader(new FileSystemResource(file));
+        reader.open(executionContext);
+        for (int i = 0; i < 7; i++) {
+            reader.read();
+        }
+        reader.update(executionContext);
+        reader.close();
+
+        CustomerColumnarItemReader restarted = new CustomerColumnarItemReader(new FileSystemResource(file));
+        restarted.open(executionContext);
+        assertThat(restarted.read().getName()).isEqualTo("name7");
+        assertThat(restarted.read().getGender()).isEqualTo("Male");
+        restarted.close();
+    }
+
+    private static List<Customer> readAll(CustomerColumnarItemReader reader) throws Exception {
+        List<Customer> customers = new ArrayList<>();
+        reader.open(new ExecutionContext());
+        Customer customer;
+        while ((customer = reader.read()) != null) {
+            customers.add(customer);
+        }
+        reader.close();
+        return customers;
+    }
+
+    private static CustomerColumnarItemWriter writer(Path file, int rowGroupSize) {
+        CustomerColumnarItemWriter writer = new CustomerColumnarItemWriter(new FileSystemResource(file));
+        writer.setRowGroupSize(rowGroupSize);
+        return writer;
+    }
+
+    private static void closeAfterFailure(CustomerColumnarItemWriter writer) {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        stepExecution.setStatus(BatchStatus.FAILED);
+        StepSynchronizationManager.register(stepExecution);
+        try {
+            writer.close();
+        } finally {
+            StepSynchronizationManager.close();
+        }
+    }
+
+    private static Customer customer(String name, int age, String gender) {
+        Customer customer = new Customer();
+        customer.setName(name);
+        customer.setAge(age);
+        customer.setGender(gender);
+        return customer;
+    }
+}
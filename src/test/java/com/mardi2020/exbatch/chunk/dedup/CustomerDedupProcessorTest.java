@@ -0,0 +1,104 @@
+package com.mardi2020.exbatch.chunk.dedup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+
+class CustomerDedupProcessorTest {
+
+    private final Set<CustomerKey> stored = new HashSet<>();
+
+    private final List<Collection<CustomerKey>> lookups = new ArrayList<>();
+
+    private final CustomerKeyStore keyStore = new CustomerKeyStore() {
+        @Override
+        public long count() {
+            return stored.size();
+        }
+
+        @Override
+        public void forEachKey(Consumer<CustomerKey> consumer) {
+            stored.forEach(consumer);
+        }
+
+        @Override
+        public Set<CustomerKey> findExisting(Collection<CustomerKey> keys) {
+            lookups.add(List.copyOf(keys));
+            Set<CustomerKey> existing = new HashSet<>(keys);
+            existing.retainAll(stored);
+            return existing;
+        }
+    };
+
+    @Test
+    void filtersStoredRowsWithOneLookupPerChunk() {
+        stored.add(new CustomerKey("kim", 30, "M"));
+        stored.add(new CustomerKey("lee", 40, "F"));
+        CustomerDedupProcessor processor = new CustomerDedupProcessor("test", keyStore, 100, 0.01);
+        processor.beforeStep(new JobExecution(new JobInstance(1L, "job"), 1L, new JobParameters())
+                .createStepExecution("step"));
+
+        Customer park = customer("park", 20, "M");
+        Customer noGender = customer("choi", 50, null);
+        assertThat(chunk(processor, customer("kim", 30, "M"), park, customer("lee", 40, "F"), noGender))
+                .containsExactly(park, noGender);
+        assertThat(lookups).hasSize(1);
+        assertThat(lookups.get(0)).containsExactlyInAnyOrder(
+                new CustomerKey("kim", 30, "M"), new CustomerKey("lee", 40, "F"));
+
+        // 앞 chunk 의 park 가 commit 된 뒤 다시 들어오면 DB 로 확인해서 걸러낸다.
+        stored.add(CustomerKey.of(park));
+        Customer jung = customer("jung", 33, "F");
+        assertThat(chunk(processor, customer("park", 20, "M"), jung)).containsExactly(jung);
+        assertThat(lookups).hasSize(2);
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegativesAndBoundedFalsePositives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(new CustomerKey("name" + i, i % 90, "M").hash64());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain(new CustomerKey("name" + i, i % 90, "M").hash64())).isTrue();
+            if (filter.mightContain(new CustomerKey("name" + i, i % 90, "F").hash64())) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(300);
+    }
+
+    private static List<Customer> chunk(CustomerDedupProcessor processor, Customer... items) {
+        for (Customer item : items) {
+            processor.afterRead(item);
+        }
+        List<Customer> written = new ArrayList<>();
+        for (Customer item : items) {
+            Customer processed = processor.process(item);
+            if (processed != null) {
+                written.add(processed);
+            }
+        }
+        return written;
+    }
+
+    private static Customer customer(String name, int age, String gender) {
+        Customer customer = new Customer();
+        customer.setName(name);
+        customer.setAge(age);
+        customer.setGender(gender);
+        return customer;
+    }
+}
@@ -0,0 +1,125 @@
+package com.mardi2020.exbatch.chunk.incremental;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mardi2020.exbatch.chunk.incremental.HighWaterMarkListener.ExtractRange;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+
+class HighWaterMarkListenerTest {
+
+    private final List<JobExecution> executions = new ArrayList<>();
+
+    private final List<ExtractRange> ranges = new ArrayList<>();
+
+    @Test
+    void readsPastLastCompletedMarkAndRefreshesPeriodically() {
+        HighWaterMarkListener<Long> listener = listener(3);
+
+        run(listener, new JobParameters(), BatchStatus.COMPLETED, 7L, 3L);
+        run(listener, new JobParameters(), BatchStatus.COMPLETED, 9L);
+        run(listener, new JobParameters(), BatchStatus.FAILED, 12L);
+        run(listener, new JobParameters(), BatchStatus.COMPLETED);
+        run(listener, new JobParameters(), BatchStatus.COMPLETED, 10L);
+
+        // 실패한 실행의 mark(12) 는 사용하지 않고, full refresh 이후 3 번째 실행은 다시 전체를 읽는다.
+        assertThat(ranges).containsExactly(
+                ExtractRange.full(),
+                new ExtractRange(7, false),
+                new ExtractRange(9, false),
+                new ExtractRange(9, false),
+                ExtractRange.full());
+    }
+
+    @Test
+    void fullRefreshParameterForcesFullRead() {
+        HighWaterMarkListener<Long> listener = listener(0);
+
+        run(listener, new JobParameters(), BatchStatus.COMPLETED, 5L);
+        run(listener, new JobParametersBuilder().addString("fullRefresh", "true").toJobParameters(),
+                BatchStatus.COMPLETED, 2L);
+        run(listener, new JobParameters(), BatchStatus.COMPLETED);
+
+        // full refresh 로 다시 읽은 범위의 최대값이 새 mark 가 된다.
+        assertThat(ranges).containsExactly(ExtractRange.full(), ExtractRange.full(), new ExtractRange(2, false));
+    }
+
+    @Test
+    void fullRefreshParameterCopiedByIncrementerAppliesOnce() {
+        HighWaterMarkListener<Long> listener = listener(0);
+        JobParameters refresh = new JobParametersBuilder().addString("fullRefresh", "true").toJobParameters();
+        JobParameters nextRefresh = new JobParametersBuilder().addString("fullRefresh", "2").toJobParameters();
+
+        run(listener, new JobParameters(), BatchStatus.COMPLETED, 5L);
+        run(listener, refresh, BatchStatus.COMPLETED, 3L);
+        run(listener, refresh, BatchStatus.COMPLETED, 6L);
+        run(listener, nextRefresh, BatchStatus.COMPLETED, 4L);
+
+        assertThat(ranges).containsExactly(
+                ExtractRange.full(), ExtractRange.full(), new ExtractRange(3, false), ExtractRange.full());
+    }
+
+    @Test
+    void restartKeepsRangeAndMaxSeen() {
+        HighWaterMarkListener<Long> listener = listener(0);
+        run(listener, new JobParameters(), BatchStatus.COMPLETED, 4L);
+
+        JobExecution failed = execution(new JobParameters());
+        StepExecution stepExecution = failed.createStepExecution("step");
+        listener.beforeStep(stepExecution);
+        listener.afterRead(8L);
+
+        JobExecution restarted = execution(new JobParameters());
+        StepExecution restartedStep = restarted.createStepExecution("step");
+        restartedStep.getExecutionContext().putAll(stepExecution.getExecutionContext());
+        listener.beforeStep(restartedStep);
+        restartedStep.setStatus(BatchStatus.COMPLETED);
+        listener.afterStep(restartedStep);
+
+        assertThat(ranges).containsExactly(ExtractRange.full(), new ExtractRange(4, false), new ExtractRange(4, false));
+        assertThat(restarted.getExecutionContext().getLong(HighWaterMarkListener.HIGH_WATER_MARK_KEY)).isEqualTo(8L);
+    }
+
+    private void run(HighWaterMarkListener<Long> listener, JobParameters parameters, BatchStatus status, Long... ids) {
+        JobExecution jobExecution = execution(parameters);
+        StepExecution stepExecution = jobExecution.createStepExecution("step");
+        listener.beforeStep(stepExecution);
+        for (Long id : ids) {
+            listener.afterRead(id);
+        }
+        stepExecution.setStatus(status);
+        listener.afterStep(stepExecution);
+        jobExecution.setStatus(status);
+    }
+
+    private JobExecution execution(JobParameters parameters) {
+        long id = executions.size() + 1;
+        JobExecution jobExecution = new JobExecution(new JobInstance(id, "job"), id, parameters);
+        jobExecution.setStatus(BatchStatus.STARTED);
+        executions.add(jobExecution);
+        return jobExecution;
+    }
+
+    private HighWaterMarkListener<Long> listener(int fullRefreshEvery) {
+        JobExplorer jobExplorer = (JobExplorer) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{JobExplorer.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getJobInstances" -> executions.stream().map(JobExecution::getJobInstance).toList();
+                    case "getJobExecutions" -> executions.stream()
+                            .filter(execution -> execution.getJobInstance().equals(args[0]))
+                            .toList();
+                    default -> null;
+                });
+        ToLongFunction<Long> key = Long::longValue;
+        return new HighWaterMarkListener<>(jobExplorer, key, fullRefreshEvery, ranges::add);
+    }
+}
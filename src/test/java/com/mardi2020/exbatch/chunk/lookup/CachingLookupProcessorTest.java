@@ -0,0 +1,74 @@
+package com.mardi2020.exbatch.chunk.lookup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+class CachingLookupProcessorTest {
+
+    private static final Map<Integer, String> PHONES = Map.of(1, "010-1111", 2, "010-2222", 3, "010-3333");
+
+    private final List<Set<Integer>> loads = new ArrayList<>();
+
+    private final LookupLoader<Integer, String> loader = this::load;
+
+    @Test
+    void loadsWholeChunkWithSingleQueryAndCachesMisses() throws Exception {
+        CachingLookupProcessor<Integer, Integer, String, String> processor = processor();
+
+        List<String> results = chunk(processor, 1, 2, 4);
+        assertThat(results).containsExactly("1:010-1111", "2:010-2222", "4:null");
+        assertThat(loads).containsExactly(Set.of(1, 2, 4));
+
+        assertThat(chunk(processor, 2, 4, 3)).containsExactly("2:010-2222", "4:null", "3:010-3333");
+        assertThat(loads).containsExactly(Set.of(1, 2, 4), Set.of(3));
+    }
+
+    @Test
+    void preloadWarmsCacheAtStepStart() throws Exception {
+        CachingLookupProcessor<Integer, Integer, String, String> processor = processor();
+        processor.setPreloader(() -> new HashMap<>(PHONES));
+        processor.beforeStep(MetaDataInstanceFactory.createStepExecution());
+
+        assertThat(chunk(processor, 3, 1)).containsExactly("3:010-3333", "1:010-1111");
+        assertThat(loads).isEmpty();
+    }
+
+    private CachingLookupProcessor<Integer, Integer, String, String> processor() {
+        return new CachingLookupProcessor<>("test-" + System.nanoTime(), 100, null,
+                item -> item, loader, (item, phone) -> item + ":" + phone);
+    }
+
+    /**
+     * chunk step 처럼 모두 읽은 뒤 처리한다.
+     */
+    private static List<String> chunk(CachingLookupProcessor<Integer, Integer, String, String> processor,
+                                      Integer... items) throws Exception {
+        for (Integer item : items) {
+            processor.afterRead(item);
+        }
+        List<String> results = new ArrayList<>();
+        for (Integer item : items) {
+            results.add(processor.process(item));
+        }
+        return results;
+    }
+
+    private Map<Integer, String> load(Collection<Integer> keys) {
+        loads.add(Set.copyOf(keys));
+        Map<Integer, String> values = new HashMap<>();
+        for (Integer key : keys) {
+            if (PHONES.containsKey(key)) {
+                values.put(key, PHONES.get(key));
+            }
+        }
+        return values;
+    }
+}
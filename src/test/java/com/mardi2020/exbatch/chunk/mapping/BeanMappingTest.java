@@ -0,0 +1,77 @@
+package com.mardi2020.exbatch.chunk.mapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.sql.Types;
+import org.h2.tools.SimpleResultSet;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.file.transform.DefaultFieldSet;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+class BeanMappingTest {
+
+    @Test
+    void mapsFieldSetByNameOrder() {
+        MappedFieldSetMapper<Customer> mapper = new MappedFieldSetMapper<>(Customer.class, "Name", "Age", "Gender");
+
+        Customer customer = mapper.mapFieldSet(new DefaultFieldSet(new String[]{"Alice", " 28 ", "Female"}));
+
+        assertThat(customer.getName()).isEqualTo("Alice");
+        assertThat(customer.getAge()).isEqualTo(28);
+        assertThat(customer.getGender()).isEqualTo("Female");
+    }
+
+    @Test
+    void mapsRowsByColumnIndexAndKeepsNullId() throws Exception {
+        SimpleResultSet resultSet = new SimpleResultSet();
+        resultSet.addColumn("ID", Types.BIGINT, 19, 0);
+        resultSet.addColumn("NAME", Types.VARCHAR, 100, 0);
+        resultSet.addColumn("AGE", Types.INTEGER, 10, 0);
+        resultSet.addColumn("GENDER", Types.VARCHAR, 10, 0);
+        resultSet.addRow(7L, "Bob", 34, "Male");
+        resultSet.addRow(null, "Kim", 41, null);
+        MappedRowMapper<Customer> mapper = new MappedRowMapper<>(Customer.class, "id", "name", "age", "gender");
+
+        resultSet.next();
+        Customer bob = mapper.mapRow(resultSet, 0);
+        resultSet.next();
+        Customer kim = mapper.mapRow(resultSet, 1);
+
+        assertThat(mapper.getColumns()).isEqualTo("id, name, age, gender");
+        assertThat(bob.getId()).isEqualTo(7L);
+        assertThat(bob.getAge()).isEqualTo(34);
+        assertThat(kim.getId()).isNull();
+        assertThat(kim.getName()).isEqualTo("Kim");
+        assertThat(kim.getGender()).isNull();
+    }
+
+    @Test
+    void providesParameterSourceAndFieldExtractor() {
+        Customer customer = new Customer();
+        customer.setName("Alice");
+        customer.setAge(28);
+        customer.setGender("Female");
+
+        SqlParameterSource source = new MappedSqlParameterSourceProvider<>(Customer.class)
+                .createSqlParameterSource(customer);
+
+        assertThat(source.hasValue("name")).isTrue();
+        assertThat(source.getValue("age")).isEqualTo(28);
+        assertThat(source.getSqlType("age")).isEqualTo(Types.INTEGER);
+        assertThat(source.getParameterNames()).containsExactlyInAnyOrder("id", "name", "age", "gender");
+        assertThat(source.hasValue("email")).isFalse();
+        assertThatThrownBy(() -> source.getValue("email")).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(new MappedFieldExtractor<>(Customer.class, "name", "age", "gender").extract(customer))
+                .containsExactly("Alice", 28, "Female");
+    }
+
+    @Test
+    void rejectsUnknownPropertyAtConstruction() {
+        assertThatThrownBy(() -> new MappedFieldExtractor<>(Customer.class, "name", "email"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("email");
+    }
+}
@@ -0,0 +1,101 @@
+package com.mardi2020.exbatch.chunk.policy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+class AdaptiveChunkCompletionPolicyTest {
+
+    @Test
+    void growsAtMostTwiceWhenChunksAreFasterThanTarget() {
+        AdaptiveChunkCompletionPolicy policy =
+                new AdaptiveChunkCompletionPolicy(10, true, Duration.ofSeconds(10), 1, 1000, 1.0);
+        List<Integer> pageSizes = new ArrayList<>();
+        policy.addChunkSizeListener(pageSizes::add);
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+
+        runChunk(policy, chunkContext, stepExecution);
+        assertThat(policy.getChunkSize()).isEqualTo(20);
+
+        runChunk(policy, chunkContext, stepExecution);
+        assertThat(policy.getChunkSize()).isEqualTo(40);
+        assertThat(policy.getLastDecision()).isEqualTo("grow");
+        assertThat(pageSizes).containsExactly(10, 20, 40);
+        assertThat(stepExecution.getExecutionContext().getInt(AdaptiveChunkCompletionPolicy.CURRENT_SIZE_KEY))
+                .isEqualTo(40);
+    }
+
+    @Test
+    void halvesOnRollback() {
+        AdaptiveChunkCompletionPolicy policy =
+                new AdaptiveChunkCompletionPolicy(100, true, Duration.ofSeconds(10), 10, 1000, 1.0);
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+
+        policy.beforeChunk(chunkContext);
+        policy.afterChunkError(chunkContext);
+
+        assertThat(policy.getChunkSize()).isEqualTo(50);
+        assertThat(policy.getLastDecision()).isEqualTo("shrink.rollback");
+    }
+
+    @Test
+    void keepsFixedSizeWhenDisabled() {
+        AdaptiveChunkCompletionPolicy policy =
+                new AdaptiveChunkCompletionPolicy(100, false, Duration.ofSeconds(10), 10, 1000, 1.0);
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+
+        runChunk(policy, chunkContext, stepExecution);
+        policy.afterChunkError(chunkContext);
+
+        assertThat(policy.getChunkSize()).isEqualTo(100);
+    }
+
+    @Test
+    void chunkSizeGaugeFollowsLatestRunOfStep() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        try {
+            AdaptiveChunkCompletionPolicy first =
+                    new AdaptiveChunkCompletionPolicy(10, false, Duration.ofSeconds(10), 1, 1000, 1.0);
+            StepExecution firstExecution = MetaDataInstanceFactory.createStepExecution(
+                    MetaDataInstanceFactory.createJobExecution("gaugeJob", 1L, 1L), "gaugeStep", 1L);
+            first.beforeChunk(new ChunkContext(new StepContext(firstExecution)));
+
+            // 같은 JVM 에서 다시 실행한 step 의 새 정책
+            AdaptiveChunkCompletionPolicy second =
+                    new AdaptiveChunkCompletionPolicy(100, true, Duration.ofSeconds(10), 10, 1000, 1.0);
+            JobExecution secondJob = MetaDataInstanceFactory.createJobExecution("gaugeJob", 2L, 2L);
+            StepExecution secondExecution = MetaDataInstanceFactory.createStepExecution(secondJob, "gaugeStep", 2L);
+            ChunkContext chunkContext = new ChunkContext(new StepContext(secondExecution));
+            second.beforeChunk(chunkContext);
+            second.afterChunkError(chunkContext);
+
+            assertThat(registry.get("spring.batch.chunk.size")
+                    .tag("spring.batch.chunk.job.name", "gaugeJob")
+                    .tag("spring.batch.chunk.step.name", "gaugeStep")
+                    .gauge().value()).isEqualTo(50.0);
+        } finally {
+            Metrics.removeRegistry(registry);
+        }
+    }
+
+    private static void runChunk(AdaptiveChunkCompletionPolicy policy, ChunkContext chunkContext,
+                                 StepExecution stepExecution) {
+        policy.beforeChunk(chunkContext);
+        stepExecution.setReadCount(stepExecution.getReadCount() + policy.getChunkSize());
+        policy.afterChunk(chunkContext);
+    }
+}
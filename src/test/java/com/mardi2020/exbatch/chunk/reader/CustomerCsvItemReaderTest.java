@@ -0,0 +1,75 @@
+package com.mardi2020.exbatch.chunk.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.core.io.FileSystemResource;
+
+class CustomerCsvItemReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void parsesLinesAndThrowsParseExceptionForBrokenLine() throws Exception {
+        Path file = write("Alice,28,Female\r\nbroken line\n\n김철수,34,Male");
+        CustomerCsvItemReader reader = reader(file, 8);
+        reader.open(new ExecutionContext());
+
+        Customer alice = reader.read();
+        assertThat(alice.getName()).isEqualTo("Alice");
+        assertThat(alice.getAge()).isEqualTo(28);
+        assertThat(alice.getGender()).isEqualTo("Female");
+
+        assertThatThrownBy(reader::read)
+                .isInstanceOf(FlatFileParseException.class)
+                .satisfies(e -> assertThat(((FlatFileParseException) e).getInput()).isEqualTo("broken line"));
+
+        Customer kim = reader.read();
+        assertThat(kim.getName()).isEqualTo("김철수");
+        assertThat(kim.getAge()).isEqualTo(34);
+        assertThat(reader.read()).isNull();
+        reader.close();
+    }
+
+    @Test
+    void restartsFromSavedByteOffset() throws Exception {
+        Path file = write("Alice,28,Female\nBob,34,Male\nCharlie,23,Male\n");
+        ExecutionContext context = new ExecutionContext();
+
+        CustomerCsvItemReader reader = reader(file, 1024);
+        reader.open(context);
+        reader.read();
+        reader.update(context);
+        reader.close();
+
+        CustomerCsvItemReader restarted = reader(file, 1024);
+        restarted.open(context);
+        assertThat(restarted.read().getName()).isEqualTo("Bob");
+        assertThat(restarted.read().getName()).isEqualTo("Charlie");
+        assertThat(restarted.read()).isNull();
+        restarted.close();
+    }
+
+    private CustomerCsvItemReader reader(Path file, int bufferSize) {
+        CustomerCsvItemReader reader = new CustomerCsvItemReader(
+                new FileSystemResource(file), StandardCharsets.UTF_8, ',');
+        reader.setName("testReader");
+        reader.setBufferSize(bufferSize);
+        return reader;
+    }
+
+    private Path write(String content) throws Exception {
+        Path file = tempDir.resolve("customer.csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+}
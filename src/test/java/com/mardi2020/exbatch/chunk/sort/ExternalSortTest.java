@@ -0,0 +1,121 @@
+package com.mardi2020.exbatch.chunk.sort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+
+class ExternalSortTest {
+
+    private static final String[] NAMES = {"kim", "lee", "park", "choi", "jung", "kang", "cho", "yoon", "jang", "lim",
+            "한", "오", null, "kimberly", "kim"};
+
+    @TempDir
+    Path tempDir;
+
+    private final JobExecution jobExecution = new JobExecution(new JobInstance(1L, "job"), 1L, new JobParameters());
+
+    @Test
+    void sortsByNameAcrossSpilledRunsKeepingInputOrder() throws Exception {
+        List<Customer> customers = customers(500);
+        ExternalSortItemWriter writer = new ExternalSortItemWriter(tempDir, SortKey.NAME, false, 2048);
+        ExecutionContext context = new ExecutionContext();
+        writer.open(context);
+        for (int i = 0; i < customers.size(); i += 50) {
+            writer.write(new Chunk<>(customers.subList(i, i + 50)));
+            writer.update(context);
+        }
+        complete(writer);
+
+        assertThat(jobExecution.getExecutionContext().getInt(ExternalSortItemWriter.RUN_COUNT_KEY)).isGreaterThan(3);
+        // 이름이 같으면 id(입력 순서) 오름차순
+        assertThat(merge(SortKey.NAME, false))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(customers.stream()
+                        .sorted(Comparator.comparing(Customer::getName,
+                                Comparator.nullsFirst(Comparator.naturalOrder())))
+                        .toList());
+    }
+
+    @Test
+    void restartReloadsCommittedPendingRecordsOnly() throws Exception {
+        List<Customer> customers = customers(300);
+        ExternalSortItemWriter writer = new ExternalSortItemWriter(tempDir, SortKey.AGE, true, 2048);
+        ExecutionContext committed = new ExecutionContext();
+        writer.open(committed);
+        for (int i = 0; i < 150; i += 30) {
+            writer.write(new Chunk<>(customers.subList(i, i + 30)));
+            writer.update(committed);
+        }
+        // commit 되지 않은 chunk: run 을 내렸지만 ExecutionContext 는 저장되지 않았다.
+        writer.write(new Chunk<>(customers.subList(150, 300)));
+        writer.update(new ExecutionContext(committed));
+        writer.close();
+
+        ExternalSortItemWriter restarted = new ExternalSortItemWriter(tempDir, SortKey.AGE, true, 2048);
+        restarted.open(committed);
+        for (int i = 150; i < 300; i += 30) {
+            restarted.write(new Chunk<>(customers.subList(i, i + 30)));
+            restarted.update(committed);
+        }
+        complete(restarted);
+
+        assertThat(ids(merge(SortKey.AGE, true))).containsExactlyElementsOf(ids(customers.stream()
+                .sorted(Comparator.comparingInt(Customer::getAge).reversed())
+                .toList()));
+        assertThat(Files.exists(Path.of(
+                jobExecution.getExecutionContext().getString(ExternalSortItemWriter.RUN_DIRECTORY_KEY)))).isFalse();
+    }
+
+    private void complete(ExternalSortItemWriter writer) {
+        StepExecution stepExecution = jobExecution.createStepExecution("sortStep");
+        stepExecution.setStatus(BatchStatus.COMPLETED);
+        writer.afterStep(stepExecution);
+        writer.close();
+    }
+
+    private List<Customer> merge(SortKey key, boolean descending) throws Exception {
+        SortedRunItemReader reader = new SortedRunItemReader(key, descending, 2048);
+        StepExecution stepExecution = jobExecution.createStepExecution("mergeStep");
+        reader.beforeStep(stepExecution);
+        reader.open(new ExecutionContext());
+        List<Customer> sorted = new ArrayList<>();
+        for (Customer customer = reader.read(); customer != null; customer = reader.read()) {
+            sorted.add(customer);
+        }
+        reader.close();
+        stepExecution.setStatus(BatchStatus.COMPLETED);
+        reader.afterStep(stepExecution);
+        return sorted;
+    }
+
+    private static List<Customer> customers(int count) {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Customer customer = new Customer();
+            customer.setId((long) i);
+            customer.setName(NAMES[(i * 7) % NAMES.length]);
+            customer.setAge((i * 31) % 90);
+            customer.setGender(i % 3 == 0 ? null : (i % 2 == 0 ? "F" : "M"));
+            customers.add(customer);
+        }
+        return customers;
+    }
+
+    private static List<Long> ids(List<Customer> customers) {
+        return customers.stream().map(Customer::getId).toList();
+    }
+}
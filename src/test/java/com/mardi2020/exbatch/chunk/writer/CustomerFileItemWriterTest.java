@@ -0,0 +1,97 @@
+package com.mardi2020.exbatch.chunk.writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mardi2020.exbatch.chunk.data.Customer;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileItemWriter.Compression;
+import com.mardi2020.exbatch.chunk.writer.CustomerFileItemWriter.Field;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.FileSystemResource;
+
+class CustomerFileItemWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restartTruncatesUncommittedLines() throws Exception {
+        Path file = directory.resolve("out.csv");
+        ExecutionContext executionContext = new ExecutionContext();
+
+        CustomerFileItemWriter writer = writer(file);
+        writer.setHeaderCallback(header -> header.write("NAME,AGE,GENDER"));
+        writer.open(executionContext);
+        writer.write(Chunk.of(customer("Alice", 28, "Female"), customer("김철수", 34, "Male")));
+        writer.update(executionContext);
+        writer.write(Chunk.of(customer("Uncommitted", 1, "Male")));
+        // update 없이 step 이 실패해서 닫힌다. 닫을 때 내려간 commit 되지 않은 줄은 재시작할 때 잘라낸다.
+        writer.close();
+
+        CustomerFileItemWriter restarted = writer(file);
+        restarted.setFooterCallback(footer -> footer.write("END"));
+        restarted.open(executionContext);
+        restarted.write(Chunk.of(customer("Bob", -3, "Male")));
+        restarted.update(executionContext);
+        restarted.close();
+
+        assertThat(Files.readString(file, StandardCharsets.UTF_8))
+                .isEqualTo("NAME,AGE,GENDER\nAlice,28,Female\n김철수,34,Male\nBob,-3,Male\nEND");
+    }
+
+    @Test
+    void growsBufferForLongLinesAndWritesGzip() throws Exception {
+        Path file = directory.resolve("out.csv.gz");
+        CustomerFileItemWriter writer = writer(file);
+        writer.setBufferSize(1);
+        writer.setCompression(Compression.GZIP);
+        writer.open(new ExecutionContext());
+        String longName = "x".repeat(10_000);
+        writer.write(Chunk.of(customer(longName, 1, "Male"), customer("Diana", 45, "Female")));
+        writer.close();
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo(longName + ",1,Male\nDiana,45,Female\n");
+        }
+    }
+
+    @Test
+    void asyncIoKeepsLineOrder() throws Exception {
+        Path file = directory.resolve("async.csv");
+        CustomerFileItemWriter writer = writer(file);
+        writer.setBufferSize(4096);
+        writer.setAsyncIo(true);
+        writer.open(new ExecutionContext());
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 2_000; i++) {
+            writer.write(Chunk.of(customer("name" + i, i, "Male")));
+            expected.append("name").append(i).append(',').append(i).append(",Male\n");
+        }
+        writer.close();
+
+        assertThat(Files.readString(file)).isEqualTo(expected.toString());
+    }
+
+    private static CustomerFileItemWriter writer(Path file) {
+        CustomerFileItemWriter writer = new CustomerFileItemWriter(
+                new FileSystemResource(file), Field.NAME, Field.AGE, Field.GENDER);
+        writer.setLineSeparator("\n");
+        return writer;
+    }
+
+    private static Customer customer(String name, int age, String gender) {
+        Customer customer = new Customer();
+        customer.setName(name);
+        customer.setAge(age);
+        customer.setGender(gender);
+        return customer;
+    }
+}
@@ -0,0 +1,92 @@
+package com.mardi2020.exbatch.launch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+class JobConnectionQuotaTest {
+
+    private final AtomicInteger open = new AtomicInteger();
+
+    private final JobConnectionQuota quota = new JobConnectionQuota(Duration.ofMillis(50));
+
+    private final DataSource dataSource = quoted(quota);
+
+    @AfterEach
+    void closeStepContext() {
+        StepSynchronizationManager.close();
+    }
+
+    @Test
+    void limitsConnectionsOfJobAndReleasesOnClose() throws Exception {
+        quota.setQuota("LIMITED", 2);
+        StepSynchronizationManager.register(MetaDataInstanceFactory.createJobExecution("LIMITED", 1L, 1L)
+                .createStepExecution("step"));
+
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        assertThat(quota.getAvailable("LIMITED")).isZero();
+        assertThatThrownBy(dataSource::getConnection)
+                .isInstanceOf(SQLTransientConnectionException.class)
+                .hasMessageContaining("LIMITED");
+        assertThat(open).hasValue(2);
+
+        first.close();
+        assertThat(quota.getAvailable("LIMITED")).isEqualTo(1);
+        Connection third = dataSource.getConnection();
+        second.close();
+        third.close();
+        assertThat(quota.getAvailable("LIMITED")).isEqualTo(2);
+        assertThat(open).hasValue(0);
+    }
+
+    @Test
+    void doesNotLimitJobsWithoutQuotaOrThreadsWithoutStep() throws Exception {
+        quota.setQuota("LIMITED", 1);
+        for (int i = 0; i < 3; i++) {
+            dataSource.getConnection();
+        }
+
+        StepSynchronizationManager.register(MetaDataInstanceFactory.createJobExecution("OTHER", 1L, 1L)
+                .createStepExecution("step"));
+        for (int i = 0; i < 3; i++) {
+            dataSource.getConnection();
+        }
+
+        assertThat(open).hasValue(6);
+        assertThat(quota.getAvailable("LIMITED")).isEqualTo(1);
+        assertThat(quota.getAvailable("OTHER")).isEqualTo(-1);
+    }
+
+    private DataSource quoted(JobConnectionQuota quota) {
+        DataSource target = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    if (!"getConnection".equals(method.getName())) {
+                        return "hashCode".equals(method.getName()) ? System.identityHashCode(proxy) : null;
+                    }
+                    open.incrementAndGet();
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                            (connection, connectionMethod, connectionArgs) -> {
+                                if ("close".equals(connectionMethod.getName())) {
+                                    open.decrementAndGet();
+                                }
+                                return null;
+                            });
+                });
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addInterface(DataSource.class);
+        proxyFactory.addAdvice(quota);
+        return (DataSource) proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,165 @@
+package com.mardi2020.exbatch.launch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.lang.NonNull;
+
+class JobDagLauncherTest {
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    private final Set<String> failing = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private final List<Object> published = new CopyOnWriteArrayList<>();
+
+    @Test
+    void runsJobsAfterTheirDependenciesComplete() {
+        JobDagLauncher launcher = launcher(4, "LOAD", "EXPORT_A", "EXPORT_B", "REPORT");
+
+        Map<String, JobExecution> executions = launcher.run(
+                JobDag.parse("REPORT: EXPORT_A, EXPORT_B; EXPORT_A: LOAD; EXPORT_B: LOAD; LOAD", 0), new JobParameters());
+
+        assertThat(executions).containsOnlyKeys("LOAD", "EXPORT_A", "EXPORT_B", "REPORT");
+        assertThat(executions.values()).allMatch(execution -> execution.getStatus() == BatchStatus.COMPLETED);
+        assertThat(events.indexOf("end LOAD")).isLessThan(events.indexOf("start EXPORT_A"));
+        assertThat(events.indexOf("end LOAD")).isLessThan(events.indexOf("start EXPORT_B"));
+        assertThat(events.indexOf("start REPORT"))
+                .isGreaterThan(events.indexOf("end EXPORT_A"))
+                .isGreaterThan(events.indexOf("end EXPORT_B"));
+        assertThat(published).hasSize(4);
+    }
+
+    @Test
+    void skipsDependentsOfFailedJob() {
+        failing.add("LOAD");
+        JobDagLauncher launcher = launcher(2, "LOAD", "EXPORT", "REPORT", "INDEPENDENT");
+
+        Map<String, JobExecution> executions = launcher.run(
+                JobDag.parse("LOAD; EXPORT: LOAD; REPORT: EXPORT; INDEPENDENT", 0), new JobParameters());
+
+        assertThat(executions).containsOnlyKeys("LOAD", "INDEPENDENT");
+        assertThat(executions.get("LOAD").getStatus()).isEqualTo(BatchStatus.FAILED);
+        assertThat(executions.get("INDEPENDENT").getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(events).doesNotContain("start EXPORT", "start REPORT");
+    }
+
+    @Test
+    void runsIndependentJobsConcurrentlyUpToParallelism() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        JobDagLauncher concurrent = launcher(2, job -> {
+            bothStarted.countDown();
+            awaitQuietly(bothStarted);
+        }, "A", "B");
+
+        concurrent.run(JobDag.parse("A; B", 0), new JobParameters());
+
+        assertThat(bothStarted.getCount()).isZero();
+        assertThat(maxRunning).hasValue(2);
+
+        maxRunning.set(0);
+        JobDagLauncher serial = launcher(1, job -> sleepQuietly(Duration.ofMillis(20)), "C", "D", "E");
+        serial.run(JobDag.parse("C; D; E", 0), new JobParameters());
+
+        assertThat(maxRunning).hasValue(1);
+    }
+
+    @Test
+    void appliesConnectionQuotaPerJob() {
+        JobConnectionQuota quota = new JobConnectionQuota(Duration.ofMillis(10));
+        JobDagLauncher launcher = new JobDagLauncher(List.of(job("A"), job("B")), (job, parameters) ->
+                execution(job.getName(), parameters, BatchStatus.COMPLETED), null, quota, published::add, 1);
+
+        launcher.run(JobDag.parse("A(3); B", 0), new JobParameters());
+
+        assertThat(quota.getAvailable("A")).isEqualTo(3);
+        assertThat(quota.getAvailable("B")).isEqualTo(-1);
+    }
+
+    private JobDagLauncher launcher(int parallelism, String... jobNames) {
+        return launcher(parallelism, job -> {
+        }, jobNames);
+    }
+
+    private JobDagLauncher launcher(int parallelism, JobBody body, String... jobNames) {
+        List<Job> jobs = Arrays.stream(jobNames).map(JobDagLauncherTest::job).toList();
+        return new JobDagLauncher(jobs, (job, parameters) -> {
+            events.add("start " + job.getName());
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                body.run(job.getName());
+            } finally {
+                running.decrementAndGet();
+                events.add("end " + job.getName());
+            }
+            return execution(job.getName(), parameters,
+                    failing.contains(job.getName()) ? BatchStatus.FAILED : BatchStatus.COMPLETED);
+        }, null, new JobConnectionQuota(Duration.ofSeconds(1)), published::add, parallelism);
+    }
+
+    private JobExecution execution(String jobName, JobParameters parameters, BatchStatus status) {
+        long id = ids.incrementAndGet();
+        JobExecution execution = new JobExecution(new JobInstance(id, jobName), id, parameters);
+        execution.setStatus(status);
+        return execution;
+    }
+
+    private static Job job(String name) {
+        return new Job() {
+
+            @NonNull
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public void execute(@NonNull JobExecution execution) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepQuietly(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface JobBody {
+
+        void run(String jobName);
+    }
+}
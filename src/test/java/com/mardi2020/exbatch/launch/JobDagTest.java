@@ -0,0 +1,31 @@
+package com.mardi2020.exbatch.launch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.mardi2020.exbatch.launch.JobDag.Node;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class JobDagTest {
+
+    @Test
+    void parsesQuotaAndDependencies() {
+        JobDag dag = JobDag.parse("LOAD; EXPORT_A(3): LOAD;\n EXPORT_B : LOAD, EXPORT_A", 2);
+
+        assertThat(dag.getNodes()).containsExactly(
+                new Node("LOAD", 2, List.of()),
+                new Node("EXPORT_A", 3, List.of("LOAD")),
+                new Node("EXPORT_B", 2, List.of("LOAD", "EXPORT_A")));
+    }
+
+    @Test
+    void rejectsCycleAndUnknownDependency() {
+        assertThatThrownBy(() -> JobDag.parse("A:C; B:A; C:B", 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("A -> C -> B -> A");
+        assertThatThrownBy(() -> JobDag.parse("A:MISSING", 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("MISSING");
+    }
+}
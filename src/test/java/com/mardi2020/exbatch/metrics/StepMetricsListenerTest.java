@@ -0,0 +1,46 @@
+package com.mardi2020.exbatch.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+class StepMetricsListenerTest {
+
+    @Test
+    void recordsSampledReadsAndChunkCountDeltas() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        StepMetricsListener listener = new StepMetricsListener(registry, 4, null);
+        StepExecution stepExecution = MetaDataInstanceFactory.createJobExecution("job", 1L, 1L).createStepExecution("step");
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+
+        listener.beforeStep(stepExecution);
+        listener.beforeChunk(chunkContext);
+        for (int i = 0; i < 8; i++) {
+            listener.beforeRead();
+            listener.afterRead("item");
+        }
+        listener.beforeWrite(new Chunk<>());
+        listener.afterWrite(new Chunk<>());
+        stepExecution.setReadCount(8);
+        stepExecution.setWriteCount(7);
+        stepExecution.setReadSkipCount(1);
+        stepExecution.incrementCommitCount();
+        listener.afterChunk(chunkContext);
+        listener.afterStep(stepExecution);
+
+        assertThat(registry.get("batch.item.read").tag("step.name", "step").timer().count()).isEqualTo(2);
+        assertThat(registry.get("batch.chunk.write").timer().count()).isEqualTo(1);
+        assertThat(registry.get("batch.chunk").timer().count()).isEqualTo(1);
+        assertThat(registry.get("batch.items.read").counter().count()).isEqualTo(8);
+        assertThat(registry.get("batch.items.written").counter().count()).isEqualTo(7);
+        assertThat(registry.get("batch.chunk.commits").counter().count()).isEqualTo(1);
+        assertThat(registry.get("batch.item.skips").tag("phase", "read").counter().count()).isEqualTo(1);
+        assertThat(registry.get("batch.startup.first.item").timeGauge().value()).isPositive();
+    }
+}
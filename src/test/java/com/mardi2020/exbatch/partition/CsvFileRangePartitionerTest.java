@@ -0,0 +1,44 @@
+package com.mardi2020.exbatch.partition;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+
+class CsvFileRangePartitionerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void streamedResourceGetsSameLineAlignedRangesAsFile() throws Exception {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            csv.append("name").append(i).append(',').append(20 + i % 50).append(",Male\n");
+        }
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+        Path file = Files.write(directory.resolve("customer.csv"), bytes);
+
+        Map<String, ExecutionContext> fromFile =
+                new CsvFileRangePartitioner(new FileSystemResource(file), 4, "out").partition(1);
+        Map<String, ExecutionContext> fromStream =
+                new CsvFileRangePartitioner(new ByteArrayResource(bytes), 4, "out").partition(1);
+
+        assertThat(fromStream).isEqualTo(fromFile);
+        long start = 0;
+        for (int i = 0; i < 4; i++) {
+            ExecutionContext context = fromStream.get(CsvFileRangePartitioner.partitionName(i));
+            assertThat(context.getLong(CsvFileRangePartitioner.START_OFFSET)).isEqualTo(start);
+            start = context.getLong(CsvFileRangePartitioner.END_OFFSET);
+            assertThat(start == bytes.length || bytes[(int) start - 1] == '\n').isTrue();
+        }
+        assertThat(start).isEqualTo(bytes.length);
+    }
+}
@@ -0,0 +1,166 @@
+package com.mardi2020.exbatch.remote;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.mardi2020.exbatch.chunk.AggregateCustomerProcessor;
+import com.mardi2020.exbatch.chunk.aggregate.Aggregation;
+import com.mardi2020.exbatch.chunk.aggregate.GroupAggregator;
+import com.mardi2020.exbatch.chunk.data.Customer;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+class RemoteChunkingTest {
+
+    @Test
+    void codecRoundTripsCustomers() {
+        Customer full = customer("김철수", -41, "Male");
+        full.setId(1234567890123L);
+        Customer empty = customer(null, 0, null);
+
+        byte[] frame = ChunkCodec.encode(new ChunkRequest(7, List.of(full, empty)));
+        ChunkRequest decoded = ChunkCodec.decodeRequest(frame);
+
+        assertThat(decoded.sequence()).isEqualTo(7);
+        assertThat(decoded.items()).extracting(Customer::getId, Customer::getName, Customer::getAge, Customer::getGender)
+                .containsExactly(
+                        tuple(1234567890123L, "김철수", -41, "Male"),
+                        tuple(null, null, 0, null));
+
+        ChunkResponse response = ChunkCodec.decodeResponse(ChunkCodec.encode(ChunkResponse.failed(9, "boom")));
+        assertThat(response.isSuccess()).isFalse();
+        assertThat(response.error()).isEqualTo("boom");
+
+        ChunkResponse aggregated = ChunkCodec.decodeResponse(ChunkCodec.encode(
+                new ChunkResponse(10, 2, 0, null, Map.of("TOTAL.COUNT", 2L, "TOTAL.MIN", -5L))));
+        assertThat(aggregated.aggregate()).containsOnly(entry("TOTAL.COUNT", 2L), entry("TOTAL.MIN", -5L));
+    }
+
+    @Test
+    void mergesWorkerAggregatesIntoManagerAggregator() throws Exception {
+        LocalChunkWorkers workers = new LocalChunkWorkers(2, index -> {
+            GroupAggregator<Customer> aggregator = aggregator();
+            return new RemoteChunkHandler(new AggregateCustomerProcessor(aggregator), chunk -> {
+            }, new ResourcelessTransactionManager(), aggregator);
+        });
+        workers.afterPropertiesSet();
+
+        try (SocketChunkTransport transport = new SocketChunkTransport(workers.getAddresses(), Duration.ofSeconds(5))) {
+            GroupAggregator<Customer> managerAggregator = aggregator();
+            RemoteChunkItemWriter writer = new RemoteChunkItemWriter(transport, 2, Duration.ofSeconds(10));
+            writer.setAggregator(managerAggregator);
+            StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+            managerAggregator.beforeStep(stepExecution);
+            writer.beforeStep(stepExecution);
+            for (int i = 0; i < 5; i++) {
+                writer.write(Chunk.of(customer("a" + i, 30, "Male"), customer("b" + i, 10 + i, "Female")));
+            }
+            writer.afterStep(stepExecution);
+            managerAggregator.afterStep(stepExecution);
+
+            ExecutionContext context = stepExecution.getExecutionContext();
+            assertThat(context.getLong("TOTAL.COUNT")).isEqualTo(10);
+            assertThat(context.getLong("TOTAL.SUM")).isEqualTo(5 * 30 + 10 + 11 + 12 + 13 + 14);
+            assertThat(context.getLong("gender.Female.MIN")).isEqualTo(10);
+            assertThat(context.getLong("gender.Female.MAX")).isEqualTo(14);
+            assertThat(context.getLong("gender.Male.COUNT")).isEqualTo(5);
+        } finally {
+            workers.destroy();
+        }
+    }
+
+    @Test
+    void distributesChunksAcrossWorkers() throws Exception {
+        List<Customer> written = new CopyOnWriteArrayList<>();
+        ItemProcessor<Customer, Customer> filterMinors = item -> item.getAge() < 20 ? null : item;
+        LocalChunkWorkers workers = new LocalChunkWorkers(2, index -> new RemoteChunkHandler(
+                filterMinors, chunk -> written.addAll(chunk.getItems()), new ResourcelessTransactionManager()));
+        workers.afterPropertiesSet();
+
+        try (SocketChunkTransport transport = new SocketChunkTransport(workers.getAddresses(), Duration.ofSeconds(5))) {
+            RemoteChunkItemWriter writer = new RemoteChunkItemWriter(transport, 2, Duration.ofSeconds(10));
+            StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+            writer.beforeStep(stepExecution);
+            for (int i = 0; i < 10; i++) {
+                writer.write(Chunk.of(customer("a" + i, 30, "Male"), customer("b" + i, 10, "Female")));
+            }
+            stepExecution.setWriteCount(20);
+
+            assertThat(writer.afterStep(stepExecution)).isNull();
+            assertThat(written).hasSize(10).allMatch(customer -> customer.getAge() == 30);
+            assertThat(stepExecution.getWriteCount()).isEqualTo(10);
+            assertThat(stepExecution.getFilterCount()).isEqualTo(10);
+        } finally {
+            workers.destroy();
+        }
+    }
+
+    @Test
+    void workerFailureFailsStep() throws Exception {
+        LocalChunkWorkers workers = new LocalChunkWorkers(1, index -> new RemoteChunkHandler(
+                item -> {
+                    throw new IllegalStateException("bad item");
+                },
+                chunk -> {
+                }, new ResourcelessTransactionManager()));
+        workers.afterPropertiesSet();
+
+        try (SocketChunkTransport transport = new SocketChunkTransport(workers.getAddresses(), Duration.ofSeconds(5))) {
+            RemoteChunkItemWriter writer = new RemoteChunkItemWriter(transport, 1, Duration.ofSeconds(10));
+            writer.beforeStep(MetaDataInstanceFactory.createStepExecution());
+            writer.write(Chunk.of(customer("a", 1, "Male")));
+
+            assertThatThrownBy(() -> writer.write(Chunk.of(customer("b", 2, "Male"))))
+                    .isInstanceOf(RemoteChunkItemWriter.RemoteChunkFailedException.class)
+                    .hasMessageContaining("bad item");
+        } finally {
+            workers.destroy();
+        }
+    }
+
+    @Test
+    void afterStepReportsFailedReply() throws Exception {
+        LocalChunkWorkers workers = new LocalChunkWorkers(1, index -> new RemoteChunkHandler(
+                item -> item,
+                chunk -> {
+                    throw new IllegalStateException("disk full");
+                }, new ResourcelessTransactionManager()));
+        workers.afterPropertiesSet();
+
+        try (SocketChunkTransport transport = new SocketChunkTransport(workers.getAddresses(), Duration.ofSeconds(5))) {
+            RemoteChunkItemWriter writer = new RemoteChunkItemWriter(transport, 4, Duration.ofSeconds(10));
+            StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+            writer.beforeStep(stepExecution);
+            writer.write(Chunk.of(customer("a", 1, "Male")));
+
+            assertThat(writer.afterStep(stepExecution).getExitCode()).isEqualTo(ExitStatus.FAILED.getExitCode());
+        } finally {
+            workers.destroy();
+        }
+    }
+
+    private static GroupAggregator<Customer> aggregator() {
+        return new GroupAggregator<>("gender", Customer::getGender, Customer::getAge, EnumSet.allOf(Aggregation.class));
+    }
+
+    private static Customer customer(String name, int age, String gender) {
+        Customer customer = new Customer();
+        customer.setName(name);
+        customer.setAge(age);
+        customer.setGender(gender);
+        return customer;
+    }
+}
@@ -0,0 +1,60 @@
+package com.mardi2020.exbatch.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+
+class CoalescingStepUpdateInterceptorTest {
+
+    private final List<String> calls = new ArrayList<>();
+
+    @Test
+    void writesEveryNthChunkAndAlwaysOnStepEnd() {
+        JobRepository repository = coalescing(3, Duration.ZERO);
+        StepExecution stepExecution = new StepExecution("step", new JobExecution(1L), 10L);
+        stepExecution.setStatus(BatchStatus.STARTED);
+
+        repository.update(stepExecution);
+        for (int chunk = 0; chunk < 5; chunk++) {
+            repository.updateExecutionContext(stepExecution);
+            repository.update(stepExecution);
+        }
+        stepExecution.setStatus(BatchStatus.COMPLETED);
+        repository.updateExecutionContext(stepExecution);
+        repository.update(stepExecution);
+
+        // 시작, 3번째 chunk flush(context + step), 종료(context + step)
+        assertThat(calls).containsExactly("update", "updateExecutionContext", "update", "updateExecutionContext", "update");
+    }
+
+    @Test
+    void jobExecutionUpdatesAreNotCoalesced() {
+        JobRepository repository = coalescing(100, Duration.ZERO);
+        JobExecution jobExecution = new JobExecution(1L);
+
+        repository.update(jobExecution);
+        repository.update(jobExecution);
+
+        assertThat(calls).containsExactly("update", "update");
+    }
+
+    private JobRepository coalescing(int flushChunks, Duration flushInterval) {
+        JobRepository target = (JobRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{JobRepository.class}, (proxy, method, args) -> {
+                    calls.add(method.getName());
+                    return null;
+                });
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addAdvice(new CoalescingStepUpdateInterceptor(flushChunks, flushInterval));
+        return (JobRepository) proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,60 @@
+package com.mardi2020.exbatch.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.repository.dao.DefaultExecutionContextSerializer;
+
+class CompactExecutionContextSerializerTest {
+
+    private final CompactExecutionContextSerializer serializer = new CompactExecutionContextSerializer();
+
+    @Test
+    void roundTripsValuesAndIsSmallerThanDefault() throws Exception {
+        Map<String, Object> context = new HashMap<>();
+        context.put("FlatFileItemReader.read.count", 123_456);
+        context.put("customerFlatFileItemWriter.current.count", 9_876_543_210L);
+        context.put("batch.taskletType", "org.springframework.batch.core.step.item.ChunkOrientedTasklet");
+        context.put("ratio", -0.25d);
+        context.put("done", true);
+        context.put("time", new Date(1_700_000_000_000L));
+        context.put("amount", new BigDecimal("12.50"));
+
+        String compact = serialize(context);
+        Map<String, Object> restored = serializer.deserialize(input(compact));
+
+        assertThat(compact).startsWith("#");
+        assertThat(restored).isEqualTo(context);
+        assertThat(restored.get("FlatFileItemReader.read.count")).isInstanceOf(Integer.class);
+
+        ByteArrayOutputStream defaultOut = new ByteArrayOutputStream();
+        new DefaultExecutionContextSerializer().serialize(context, defaultOut);
+        assertThat(compact.length()).isLessThan(defaultOut.size());
+    }
+
+    @Test
+    void readsContextWrittenByDefaultSerializer() throws Exception {
+        Map<String, Object> context = Map.of("reader.read.count", 10L);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DefaultExecutionContextSerializer().serialize(context, out);
+
+        assertThat(serializer.deserialize(new ByteArrayInputStream(out.toByteArray()))).isEqualTo(context);
+    }
+
+    private String serialize(Map<String, Object> context) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.serialize(context, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static ByteArrayInputStream input(String value) {
+        return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,83 @@
+package com.mardi2020.exbatch.throttle;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class StepThrottleTest {
+
+    private int pending;
+
+    private long now;
+
+    @Test
+    void tokenBucketMakesLaterCallersWaitInOrder() {
+        TokenBucket bucket = new TokenBucket(10, () -> now);
+
+        assertThat(bucket.reserve(1)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(bucket.reserve(1)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+
+        // 빌려 쓴 2개가 채워진 뒤에는 다시 100ms 씩 기다린다.
+        now += TimeUnit.MILLISECONDS.toNanos(200);
+        assertThat(bucket.reserve(1)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        // 오래 쉬어도 1초 분량(10개) 까지만 모아둔다.
+        now += TimeUnit.SECONDS.toNanos(5);
+        for (int i = 0; i < 10; i++) {
+            assertThat(bucket.reserve(1)).isZero();
+        }
+        assertThat(bucket.reserve(1)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        bucket.setRate(0);
+        assertThat(bucket.reserve(1_000)).isZero();
+    }
+
+    @Test
+    void doesNotAdaptWithoutLimit() {
+        StepThrottle throttle = new StepThrottle(0, 0, true, Duration.ofMillis(10), 0, 0.1, Duration.ZERO);
+        throttle.setPendingConnections(() -> 5);
+
+        throttle.recordQuery(TimeUnit.MILLISECONDS.toNanos(30));
+        throttle.adjust();
+
+        assertThat(throttle.getQueryLatencyMillis()).isCloseTo(30.0, within(0.001));
+        assertThat(throttle.getFactor()).isEqualTo(1.0);
+        assertThat(throttle.getCurrentItemsPerSecond()).isZero();
+    }
+
+    @Test
+    void backsOffOnSlowQueriesOrPendingConnectionsAndRecovers() {
+        StepThrottle throttle = new StepThrottle(1000, 200, true, Duration.ofMillis(10), 0, 0.1, Duration.ZERO);
+        throttle.setPendingConnections(() -> pending);
+
+        throttle.recordQuery(TimeUnit.MILLISECONDS.toNanos(30));
+        throttle.recordQuery(TimeUnit.MILLISECONDS.toNanos(20));
+        throttle.adjust();
+        assertThat(throttle.getQueryLatencyMillis()).isCloseTo(25.0, within(0.001));
+        assertThat(throttle.getFactor()).isCloseTo(StepThrottle.DECREASE, within(1e-9));
+        assertThat(throttle.getCurrentItemsPerSecond()).isCloseTo(1000 * StepThrottle.DECREASE, within(1e-6));
+
+        // query 가 빨라도 커넥션을 기다리는 스레드가 있으면 줄인다.
+        pending = 3;
+        throttle.recordQuery(TimeUnit.MILLISECONDS.toNanos(1));
+        throttle.adjust();
+        assertThat(throttle.getFactor()).isCloseTo(StepThrottle.DECREASE * StepThrottle.DECREASE, within(1e-9));
+
+        for (int i = 0; i < 20; i++) {
+            throttle.adjust();
+        }
+        assertThat(throttle.getFactor()).isEqualTo(0.1);
+        assertThat(throttle.getCurrentQueriesPerSecond()).isCloseTo(20, within(1e-6));
+
+        pending = 0;
+        throttle.adjust();
+        assertThat(throttle.getFactor()).isCloseTo(0.1 + StepThrottle.INCREASE, within(1e-9));
+
+        // 실행 중에 바꾼 상한에도 현재 비율이 적용된다.
+        throttle.setItemsPerSecond(500);
+        assertThat(throttle.getCurrentItemsPerSecond()).isCloseTo(500 * throttle.getFactor(), within(1e-6));
+    }
+}